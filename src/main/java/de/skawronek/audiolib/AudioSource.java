@@ -99,4 +99,28 @@ public abstract class AudioSource {
 	public void removeListener(final @NonNull IFrameListener listener) {
 		frameManager.removeListener(listener);
 	}
+
+	/**
+	 * Registriert einen Listener, der jedes Sample einzeln erhält, z. B. für
+	 * eine {@link de.skawronek.audiolib.math.SlidingDft}.
+	 */
+	public void addSampleListener(final @NonNull ISampleListener listener) {
+		frameManager.addSampleListener(listener);
+	}
+
+	public void removeSampleListener(final @NonNull ISampleListener listener) {
+		frameManager.removeSampleListener(listener);
+	}
+
+	/**
+	 * Registriert ein Feature, das aus dem Sample-Strom berechnet und in die
+	 * Frames dieser Quelle gelegt wird.
+	 */
+	public void addStreamFeature(final @NonNull IStreamFeature<?> feature) {
+		frameManager.addStreamFeature(feature);
+	}
+
+	public void removeStreamFeature(final @NonNull IStreamFeature<?> feature) {
+		frameManager.removeStreamFeature(feature);
+	}
 }
@@ -0,0 +1,294 @@
+package de.skawronek.audiolib;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skawronek.audiolib.AudioSource.ReadException;
+import de.skawronek.audiolib.PcmCodec.UnsuportedFormatException;
+
+/**
+ * Extrahiert Features aus einer Menge von Audio-Dateien. Die Dateien werden
+ * parallel auf einem Work-Stealing-Pool verarbeitet, eine Datei pro Task.
+ * Höchstens maxFilesInFlight Dateien sind gleichzeitig geöffnet bzw. warten auf
+ * ihre Verarbeitung, wodurch der Speicherbedarf unabhängig von der Größe des
+ * Korpus beschränkt bleibt.
+ * <p>
+ * Die Ergebnisse werden an einen {@link ISink} gestreamt. Fehler beim Lesen
+ * einer Datei oder beim Berechnen ihrer Features werden über
+ * {@link ISink#onFileFailed} gemeldet, die übrigen Dateien werden weiter
+ * verarbeitet. Alle anderen Fehler eines Tasks (z. B. aus dem Sink selbst)
+ * wirft {@link #analyze}, nachdem alle Tasks beendet sind. Ist ein Journal
+ * gesetzt, wird jede erfolgreich verarbeitete Datei dort vermerkt und bei einem
+ * erneuten Lauf übersprungen.
+ * <p>
+ * Die Feature-Prozessoren müssen vorher im {@link FeatureFactory} registriert
+ * sein.
+ * <p>
+ * Alle Aufrufe von {@link #analyze} nutzen denselben Pool. Die Worker-Threads
+ * behalten so ihre Factory-Caches (FFT, Autokorrelation, ...) über mehrere
+ * Läufe hinweg. Der Pool wird mit {@link #close()} beendet.
+ */
+public final class CorpusAnalyzer implements Closeable {
+	/**
+	 * Empfängt die Ergebnisse. Die Methoden werden aus den Threads des Pools
+	 * aufgerufen und müssen daher thread-safe sein. Für eine einzelne Datei
+	 * erfolgen alle Aufrufe aus demselben Thread.
+	 */
+	public static interface ISink {
+		public void onFileStarted(final @NonNull File file,
+				final @NonNull AudioSource source);
+
+		/**
+		 * Die Features aller für spec registrierten Keys sind bereits im
+		 * Frame berechnet.
+		 */
+		public void onFrame(final @NonNull File file,
+				final @NonNull FrameSpecification spec,
+				final @NonNull Frame frame);
+
+		public void onFileCompleted(final @NonNull File file);
+
+		public void onFileFailed(final @NonNull File file,
+				final @NonNull Exception e);
+	}
+
+	private final int parallelism;
+	private final int maxFilesInFlight;
+	private final Map<FrameSpecification, Set<FeatureKey<?>>> features = new LinkedHashMap<>();
+	private File journal;
+	private final ForkJoinPool pool;
+	private volatile boolean closed = false;
+
+	public CorpusAnalyzer(final int parallelism, final int maxFilesInFlight) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism " + parallelism
+					+ " < 1");
+		} else if (maxFilesInFlight < parallelism) {
+			throw new IllegalArgumentException("maxFilesInFlight "
+					+ maxFilesInFlight + " < parallelism " + parallelism);
+		}
+
+		this.parallelism = parallelism;
+		this.maxFilesInFlight = maxFilesInFlight;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	public CorpusAnalyzer() {
+		this(Runtime.getRuntime().availableProcessors(), 2 * Runtime
+				.getRuntime().availableProcessors());
+	}
+
+	public void addFeature(final @NonNull FrameSpecification spec,
+			final @NonNull FeatureKey<?> key) {
+		features.computeIfAbsent(spec, s -> new LinkedHashSet<>()).add(key);
+	}
+
+	/**
+	 * Setzt die Journal-Datei, in der verarbeitete Dateien zeilenweise
+	 * (absoluter Pfad) vermerkt werden.
+	 *
+	 * @param journal
+	 *            Journal-Datei oder null, um kein Journal zu führen
+	 */
+	public void setJournal(final @Nullable File journal) {
+		this.journal = journal;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getMaxFilesInFlight() {
+		return maxFilesInFlight;
+	}
+
+	/**
+	 * Verarbeitet alle Dateien und blockiert, bis alle Dateien verarbeitet
+	 * sind. Dateien, die laut Journal bereits verarbeitet wurden, werden
+	 * übersprungen.
+	 *
+	 * @return Anzahl der in diesem Lauf erfolgreich verarbeiteten Dateien
+	 * @throws RuntimeException
+	 *             bzw. {@link Error}, wenn ein Task mit einem Fehler
+	 *             abgebrochen ist, der nicht über
+	 *             {@link ISink#onFileFailed} gemeldet wurde. Weitere Fehler
+	 *             sind als "suppressed" angehängt.
+	 * @throws IllegalStateException
+	 *             wenn der Analyzer bereits geschlossen wurde
+	 */
+	public int analyze(final @NonNull Collection<File> files,
+			final @NonNull ISink sink) throws IOException, InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("CorpusAnalyzer is closed");
+		} else if (features.isEmpty()) {
+			throw new IllegalStateException("No features added");
+		}
+
+		final Set<String> completed = readJournal();
+		final AtomicInteger numAnalyzed = new AtomicInteger(0);
+		final Semaphore inFlight = new Semaphore(maxFilesInFlight);
+		// Fehler der Tasks, die ForkJoinPool sonst verwerfen würde
+		final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		try (final PrintWriter journalWriter = openJournal()) {
+			for (final File file : files) {
+				if (completed.contains(getJournalEntry(file))) {
+					continue;
+				}
+
+				inFlight.acquire();
+				pool.execute(() -> {
+					try {
+						if (analyzeFile(file, sink)) {
+							numAnalyzed.incrementAndGet();
+							appendToJournal(journalWriter, file);
+						}
+					} catch (final RuntimeException | Error e) {
+						failures.add(e);
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+
+			// Warte, bis alle Tasks ihre Permits zurückgegeben haben
+			inFlight.acquire(maxFilesInFlight);
+			inFlight.release(maxFilesInFlight);
+		}
+
+		rethrowFailures(failures);
+		return numAnalyzed.get();
+	}
+
+	/**
+	 * Beendet den Pool. Laufende Tasks werden noch abgearbeitet.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		pool.shutdown();
+	}
+
+	private boolean analyzeFile(final @NonNull File file,
+			final @NonNull ISink sink) {
+		final WaveAudioSource source;
+		try {
+			source = WaveAudioSource.fromFile(file);
+		} catch (final UnsuportedFormatException | IOException
+				| RuntimeException e) {
+			sink.onFileFailed(file, e);
+			return false;
+		}
+
+		try {
+			for (final Map.Entry<FrameSpecification, Set<FeatureKey<?>>> entry : features
+					.entrySet()) {
+				final FrameSpecification spec = entry.getKey();
+				final Set<FeatureKey<?>> keys = entry.getValue();
+				source.addListener(frame -> {
+					for (final FeatureKey<?> key : keys) {
+						frame.getFeature(key);
+					}
+					sink.onFrame(file, spec, frame);
+				}, spec);
+			}
+
+			sink.onFileStarted(file, source);
+			source.start();
+			while (source.isStarted()) {
+				source.process();
+			}
+		} catch (final ReadException | RuntimeException e) {
+			sink.onFileFailed(file, e);
+			return false;
+		} finally {
+			source.stop();
+		}
+
+		sink.onFileCompleted(file);
+		return true;
+	}
+
+	private static void rethrowFailures(
+			final @NonNull Queue<Throwable> failures) {
+		final Throwable first = failures.poll();
+		if (first == null) {
+			return;
+		}
+		for (final Throwable other : failures) {
+			first.addSuppressed(other);
+		}
+		if (first instanceof Error) {
+			throw (Error) first;
+		}
+		throw (RuntimeException) first;
+	}
+
+	@NonNull
+	private Set<String> readJournal() throws IOException {
+		final Set<String> completed = new HashSet<>();
+		if (journal == null || !journal.exists()) {
+			return completed;
+		}
+
+		try (final BufferedReader reader = new BufferedReader(new FileReader(
+				journal))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					completed.add(line);
+				}
+			}
+		}
+		return completed;
+	}
+
+	@Nullable
+	private PrintWriter openJournal() throws FileNotFoundException,
+			IOException {
+		if (journal == null) {
+			return null;
+		}
+
+		// Anhängen, damit bei einem Abbruch die bisherigen Einträge erhalten
+		// bleiben
+		final boolean append = true;
+		return new PrintWriter(new FileWriter(journal, append));
+	}
+
+	private static void appendToJournal(final @Nullable PrintWriter writer,
+			final @NonNull File file) {
+		if (writer == null) {
+			return;
+		}
+
+		synchronized (writer) {
+			writer.println(getJournalEntry(file));
+			writer.flush();
+		}
+	}
+
+	@NonNull
+	private static String getJournalEntry(final @NonNull File file) {
+		return file.getAbsolutePath();
+	}
+}
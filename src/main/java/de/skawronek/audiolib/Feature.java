@@ -1,5 +1,15 @@
 package de.skawronek.audiolib;
 
-public abstract class Feature {
+import java.io.Serializable;
 
+/**
+ * Basisklasse aller Features. Features sind serialisierbar, damit sie im
+ * {@link FeatureCache} abgelegt werden können. Felder, die nicht
+ * serialisierbar sind oder sich aus den übrigen ableiten lassen, sind
+ * transient und werden bei Bedarf neu berechnet. Ändert sich die serialisierte
+ * Form einer Feature-Klasse, muss ihre serialVersionUID erhöht werden;
+ * zwischengespeicherte Werte passen dann nicht mehr und werden neu berechnet.
+ */
+public abstract class Feature implements Serializable {
+	private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,504 @@
+package de.skawronek.audiolib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Inhaltsadressierter Cache für Features auf der Festplatte. Ein Eintrag
+ * enthält die Features eines Keys für alle Frames einer Audio-Datei und ist
+ * über den Hash aus (SHA-256 des Datei-Inhalts, {@link FrameSpecification},
+ * Feature-Prozessor, serialisiertem {@link FeatureKey}, Bibliotheksversion)
+ * adressiert. Ändert sich einer dieser Bestandteile, z. B. ein Parameter des
+ * Keys, wird ein anderer Eintrag verwendet.
+ * <p>
+ * Der Cache wird über eine {@link Session} pro Audio-Datei genutzt. Deren
+ * Listener setzt zwischengespeicherte Features in die Frames ein, bevor der
+ * eigentliche Listener sie abfragt, sodass {@link Frame#getFeature} den
+ * Feature-Prozessor nicht aufruft. Neu berechnete Features werden sofort in
+ * eine temporäre Datei geschrieben und nicht im Speicher gehalten; beim
+ * Schließen der Session ersetzt sie den Eintrag. Schlägt das Schreiben eines
+ * Eintrags fehl (z. B. weil ein Feature nicht serialisierbar ist), wird nur
+ * dieser Eintrag verworfen.
+ * <p>
+ * Die Features werden mit Java-Serialisierung gespeichert. Beim Laden sind
+ * nur Klassen aus de.skawronek.audiolib, String, Enums, Wrapper primitiver
+ * Typen und Arrays davon erlaubt, damit fremde Dateien im Cache-Verzeichnis
+ * keine beliebigen Klassen deserialisieren können. Ein Eintrag mit einer
+ * anderen Klasse wird wie ein beschädigter Eintrag verworfen. Die Gültigkeit
+ * eines Eintrags hängt damit auch vom Aufbau der Feature-Klassen ab: Eine
+ * Änderung, die nicht zur serialVersionUID passt, verwirft den Eintrag beim
+ * Laden. Eine kompatible Änderung, die die Bedeutung der Werte ändert, wird
+ * nicht erkannt; dafür muss die Bibliotheksversion oder das im Hash
+ * enthaltene Eintragsformat erhöht werden.
+ * <p>
+ * Übersteigt die Größe aller Einträge maxSize, werden die am längsten nicht
+ * genutzten Einträge gelöscht. Der Cache ist thread-safe, Sessions nicht.
+ */
+public final class FeatureCache {
+	private static final String ENTRY_SUFFIX = ".features";
+	// Format der Einträge, ist Teil des Hashs. Ältere Einträge werden
+	// verworfen.
+	private static final int ENTRY_FORMAT = 2;
+	private static final String DEFAULT_VERSION = "0.0.1";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+	private final long maxSize;
+	private final String version;
+
+	public FeatureCache(final @NonNull File directory, final long maxSize,
+			final @NonNull String version) throws IOException {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize " + maxSize + " <= 0");
+		}
+		Files.createDirectories(directory.toPath());
+
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.version = version;
+	}
+
+	public FeatureCache(final @NonNull File directory, final long maxSize)
+			throws IOException {
+		this(directory, maxSize, getLibraryVersion());
+	}
+
+	private static @NonNull String getLibraryVersion() {
+		final String version = FeatureCache.class.getPackage()
+				.getImplementationVersion();
+		return (version != null ? version : DEFAULT_VERSION);
+	}
+
+	@NonNull
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Öffnet eine Session für die Frames der Datei audioFile mit der
+	 * Spezifikation spec. Dabei wird der Inhalt der Datei gehasht.
+	 */
+	@NonNull
+	public Session openSession(final @NonNull File audioFile,
+			final @NonNull FrameSpecification spec) throws IOException {
+		return new Session(hashContent(audioFile), spec);
+	}
+
+	/**
+	 * Gibt die Summe der Größen aller Einträge in Bytes zurück.
+	 */
+	public long getSize() {
+		long size = 0;
+		for (final File entry : listEntries()) {
+			size += entry.length();
+		}
+		return size;
+	}
+
+	public int getNumEntries() {
+		return listEntries().length;
+	}
+
+	/**
+	 * Löscht alle Einträge.
+	 */
+	public synchronized void clear() {
+		for (final File entry : listEntries()) {
+			entry.delete();
+		}
+	}
+
+	private File @NonNull [] listEntries() {
+		final File[] entries = directory.listFiles((dir, name) -> name
+				.endsWith(ENTRY_SUFFIX));
+		return (entries != null ? entries : new File[0]);
+	}
+
+	// Löscht die ältesten Einträge, bis maxSize eingehalten wird
+	private synchronized void evict() {
+		final File[] entries = listEntries();
+		long size = 0;
+		for (final File entry : entries) {
+			size += entry.length();
+		}
+		if (size <= maxSize) {
+			return;
+		}
+
+		Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+		for (final File entry : entries) {
+			if (size <= maxSize) {
+				break;
+			}
+			final long length = entry.length();
+			if (entry.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	private static byte @NonNull [] hashContent(final @NonNull File file)
+			throws IOException {
+		final MessageDigest digest = createDigest();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		try (final InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+
+	private static @NonNull MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			// SHA-256 muss von jeder Java-Plattform unterstützt werden
+			throw new AssertionError(e);
+		}
+	}
+
+	private static @NonNull String toHex(final byte @NonNull [] bytes) {
+		final StringBuilder sb = new StringBuilder(2 * bytes.length);
+		for (final byte b : bytes) {
+			sb.append(String.format("%02x", b & 0xFF));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Cache-Zugriff für die Frames einer Audio-Datei. Die zu cachenden Keys
+	 * werden mit {@link #addKey} angemeldet, danach wird der Listener aus
+	 * {@link #wrap} anstelle des eigentlichen Listeners registriert.
+	 */
+	public final class Session implements Closeable {
+		private final byte[] contentHash;
+		private final FrameSpecification spec;
+		private final Map<FeatureKey<?>, Entry> entries = new LinkedHashMap<>();
+
+		private Session(final byte @NonNull [] contentHash,
+				final @NonNull FrameSpecification spec) {
+			this.contentHash = contentHash;
+			this.spec = spec;
+		}
+
+		/**
+		 * Meldet key an. Ein vorhandener Eintrag wird sofort geladen.
+		 */
+		public void addKey(final @NonNull FeatureKey<?> key) throws IOException {
+			if (entries.containsKey(key)) {
+				return;
+			}
+			final File file = new File(directory, computeEntryName(key)
+					+ ENTRY_SUFFIX);
+			final Entry entry = new Entry(file);
+			entry.load();
+			entries.put(key, entry);
+		}
+
+		/**
+		 * Gibt true zurück, wenn für key ein Eintrag geladen wurde.
+		 */
+		public boolean isCached(final @NonNull FeatureKey<?> key) {
+			final Entry entry = entries.get(key);
+			return entry != null && !entry.features.isEmpty();
+		}
+
+		@NonNull
+		public IFrameListener wrap(final @NonNull IFrameListener listener) {
+			return frame -> {
+				inject(frame);
+				listener.onFrameAvailable(frame);
+				collect(frame);
+			};
+		}
+
+		private void inject(final @NonNull Frame frame) {
+			for (final Map.Entry<FeatureKey<?>, Entry> e : entries.entrySet()) {
+				final Feature feature = e.getValue().features.get(frame
+						.getBegin());
+				if (feature != null && !frame.containsFeature(e.getKey())) {
+					putFeature(frame, e.getKey(), feature);
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <F extends Feature> void putFeature(final @NonNull Frame frame,
+				final @NonNull FeatureKey<F> key, final @NonNull Feature feature) {
+			frame.putFeature(key, (F) feature);
+		}
+
+		// Schreibt die vom Listener neu berechneten Features
+		private void collect(final @NonNull Frame frame) {
+			for (final Map.Entry<FeatureKey<?>, Entry> e : entries.entrySet()) {
+				final Entry entry = e.getValue();
+				if (frame.containsFeature(e.getKey())
+						&& !entry.features.containsKey(frame.getBegin())) {
+					entry.append(frame.getBegin(), frame.getFeature(e.getKey()));
+				}
+			}
+		}
+
+		/**
+		 * Schließt alle geänderten Einträge ab und hält danach die maximale
+		 * Größe des Caches ein. Ist ein Eintrag fehlgeschlagen, werden die
+		 * übrigen trotzdem abgeschlossen und danach der erste Fehler geworfen.
+		 */
+		@Override
+		public void close() throws IOException {
+			IOException failure = null;
+			boolean written = false;
+			for (final Entry entry : entries.values()) {
+				try {
+					if (entry.commit()) {
+						written = true;
+					}
+				} catch (final IOException e) {
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			entries.clear();
+			if (written) {
+				evict();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		private @NonNull String computeEntryName(
+				final @NonNull FeatureKey<?> key) throws IOException {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (final DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeInt(ENTRY_FORMAT);
+				out.write(contentHash);
+				out.writeInt(spec.getSize());
+				out.writeInt(spec.getHopSize());
+				final FeatureProcessor<?> processor = FeatureFactory
+						.getInstance().getProcessor(key.getFeatureClass());
+				out.writeUTF(processor != null ? processor.getClass()
+						.getName() : "");
+				out.writeUTF(version);
+				try (final ObjectOutputStream keyOut = new ObjectOutputStream(
+						out)) {
+					keyOut.writeObject(key);
+				}
+			}
+			final MessageDigest digest = createDigest();
+			return toHex(digest.digest(bytes.toByteArray()));
+		}
+	}
+
+	// Deserialisiert nur die Klassen, die in Features vorkommen
+	static final class EntryInputStream extends ObjectInputStream {
+		EntryInputStream(final @NonNull InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc)
+				throws IOException, ClassNotFoundException {
+			if (!isAllowed(desc.getName())) {
+				throw new InvalidClassException(desc.getName(),
+						"Class is not allowed in cache entries");
+			}
+			return super.resolveClass(desc);
+		}
+
+		private static boolean isAllowed(final @NonNull String name) {
+			// Arrays: "[F", "[[D", "[Lde.skawronek.audiolib.Feature;" usw.
+			int dimensions = 0;
+			while (dimensions < name.length()
+					&& name.charAt(dimensions) == '[') {
+				dimensions++;
+			}
+			if (dimensions > 0) {
+				final String element = name.substring(dimensions);
+				if (element.length() == 1) {
+					return "ZBCSIJFD".contains(element);
+				} else if (element.startsWith("L") && element.endsWith(";")) {
+					return isAllowed(element.substring(1,
+							element.length() - 1));
+				} else {
+					return false;
+				}
+			}
+
+			switch (name) {
+			case "java.lang.String":
+			case "java.lang.Enum":
+			case "java.lang.Number":
+			case "java.lang.Boolean":
+			case "java.lang.Byte":
+			case "java.lang.Character":
+			case "java.lang.Short":
+			case "java.lang.Integer":
+			case "java.lang.Long":
+			case "java.lang.Float":
+			case "java.lang.Double":
+				return true;
+			default:
+				return name.startsWith("de.skawronek.audiolib.");
+			}
+		}
+	}
+
+	/**
+	 * Eintrag eines Keys. Ein Eintrag ist eine Folge von (true, Frame-Anfang,
+	 * Feature), abgeschlossen durch false. Geladene Features werden für das
+	 * Einsetzen in die Frames gehalten, neu berechnete nur geschrieben.
+	 */
+	private static final class Entry {
+		final File file;
+		final Map<Long, Feature> features = new HashMap<>();
+		private File temp;
+		private ObjectOutputStream out;
+		private IOException failure;
+
+		Entry(final @NonNull File file) {
+			this.file = file;
+		}
+
+		void load() {
+			if (!file.isFile()) {
+				return;
+			}
+			try (final ObjectInputStream in = new EntryInputStream(
+					new BufferedInputStream(new FileInputStream(file),
+							BUFFER_SIZE))) {
+				final int format = in.readInt();
+				if (format != ENTRY_FORMAT) {
+					throw new IOException("Unsupported entry format " + format);
+				}
+				while (in.readBoolean()) {
+					final long begin = in.readLong();
+					features.put(begin, (Feature) in.readObject());
+				}
+			} catch (final IOException | ClassNotFoundException
+					| ClassCastException e) {
+				// Beschädigter oder veralteter Eintrag (z. B. geänderte
+				// Feature-Klasse): Features werden neu berechnet
+				features.clear();
+				file.delete();
+				return;
+			}
+			// Für die Verdrängung gilt der Eintrag als zuletzt genutzt
+			file.setLastModified(System.currentTimeMillis());
+		}
+
+		// Schreibt ein neu berechnetes Feature. Ein Fehler verwirft den
+		// Eintrag und wird erst von commit() geworfen, damit der Listener
+		// nicht abbricht.
+		void append(final long begin, final @NonNull Feature feature) {
+			if (failure != null) {
+				return;
+			}
+			try {
+				if (out == null) {
+					open();
+				}
+				write(begin, feature);
+			} catch (final IOException e) {
+				failure = e;
+				discard();
+			}
+		}
+
+		// Erst in eine temporäre Datei schreiben und dann umbenennen, damit
+		// parallel lesende Sessions keinen halben Eintrag sehen
+		private void open() throws IOException {
+			temp = File.createTempFile("entry", ".tmp", file.getParentFile());
+			out = new ObjectOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp), BUFFER_SIZE));
+			out.writeInt(ENTRY_FORMAT);
+			// Bereits geladene Features bleiben im Eintrag erhalten
+			for (final Map.Entry<Long, Feature> e : features.entrySet()) {
+				write(e.getKey(), e.getValue());
+			}
+		}
+
+		private void write(final long begin, final @NonNull Feature feature)
+				throws IOException {
+			out.writeBoolean(true);
+			out.writeLong(begin);
+			out.writeObject(feature);
+			// Ohne reset() hielte der Stream Referenzen auf alle
+			// geschriebenen Features
+			out.reset();
+		}
+
+		/**
+		 * Schließt den Eintrag ab. Gibt true zurück, wenn er geschrieben
+		 * wurde.
+		 */
+		boolean commit() throws IOException {
+			if (failure != null) {
+				throw failure;
+			} else if (out == null) {
+				return false;
+			}
+
+			try {
+				out.writeBoolean(false);
+				out.close();
+				out = null;
+				Files.move(temp.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				temp = null;
+			} finally {
+				discard();
+			}
+			return true;
+		}
+
+		// Schließt den Stream und löscht die temporäre Datei
+		private void discard() {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException e) {
+					// Die Datei wird ohnehin gelöscht
+				}
+				out = null;
+			}
+			if (temp != null) {
+				temp.delete();
+				temp = null;
+			}
+		}
+	}
+}
@@ -1,14 +1,15 @@
 package de.skawronek.audiolib;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 public final class FeatureFactory {
 	private static final FeatureFactory INSTANCE = new FeatureFactory();
 
-	private final Map<Class<?>, FeatureProcessor<?>> processors = new HashMap<>();
+	private final Map<Class<?>, FeatureProcessor<?>> processors = new ConcurrentHashMap<>();
 
 	public static FeatureFactory getInstance() {
 		return INSTANCE;
@@ -27,6 +28,19 @@ public final class FeatureFactory {
 		return processor.process(frame, key);
 	}
 
+	@Nullable
+	FeatureProcessor<?> getProcessor(final @NonNull Class<?> featureClass) {
+		return processors.get(featureClass);
+	}
+
+	/**
+	 * Gibt true zurück, wenn für featureClass ein Prozessor registriert ist.
+	 */
+	public boolean isRegistered(
+			final @NonNull Class<? extends Feature> featureClass) {
+		return processors.containsKey(featureClass);
+	}
+
 	public <F extends Feature> void registerProcessor(
 			final @NonNull FeatureProcessor<F> processor) {
 		final Class<F> featureClass = processor.getFeatureClass();
@@ -1,8 +1,17 @@
 package de.skawronek.audiolib;
 
+import java.io.Serializable;
+
 import org.eclipse.jdt.annotation.NonNull;
 
-public abstract class FeatureKey<F extends Feature> {
+/**
+ * Schlüssel eines Features inkl. aller Parameter der Berechnung. Die
+ * serialisierte Form dient dem {@link FeatureCache} als Beschreibung der
+ * Parameter.
+ */
+public abstract class FeatureKey<F extends Feature> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	public abstract @NonNull Class<F> getFeatureClass();
 
 	@Override
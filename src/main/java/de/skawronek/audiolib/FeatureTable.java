@@ -0,0 +1,182 @@
+package de.skawronek.audiolib;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Spaltenorientierte Tabelle, die Feature-Werte Frame für Frame in wachsende
+ * primitive Arrays schreibt. Pro Frame wird eine Zeile angehängt. Die Anfänge
+ * der Frames werden in einer long[]-Spalte gespeichert, skalare Features in
+ * einer float[]-Spalte und vektorielle Features (z. B. MFCC oder Chroma)
+ * zeilenweise hintereinander in einer float[]-Spalte mit fester Schrittweite
+ * (Stride).
+ * <p>
+ * Die Arrays der Spalten können direkt für Aggregationen genutzt werden. Sie
+ * sind nur bis {@link #getNumRows()} (bzw. numRows * stride) gültig und werden
+ * beim Wachsen der Tabelle ersetzt. Die Tabelle ist nicht thread-safe.
+ */
+public final class FeatureTable implements IFrameListener {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	@FunctionalInterface
+	public interface IScalarExtractor<F extends Feature> {
+		public float extract(final @NonNull F feature);
+	}
+
+	@FunctionalInterface
+	public interface IVectorExtractor<F extends Feature> {
+		/**
+		 * @return Vektor der Länge stride. Das Array wird nur gelesen.
+		 */
+		public float @NonNull [] extract(final @NonNull F feature);
+	}
+
+	public static final class Column {
+		private final int stride;
+		private final IValueWriter writer;
+		private float[] data;
+
+		private Column(final int stride, final @NonNull IValueWriter writer) {
+			this.stride = stride;
+			this.writer = writer;
+			this.data = new float[INITIAL_CAPACITY * stride];
+		}
+
+		public int getStride() {
+			return stride;
+		}
+
+		/**
+		 * Gibt das zugrunde liegende Array zurück. Der Wert j der Zeile i
+		 * steht an Index i * stride + j.
+		 */
+		public float @NonNull [] getData() {
+			return data;
+		}
+
+		public float get(final int row) {
+			return data[row * stride];
+		}
+
+		public float get(final int row, final int index) {
+			if (index < 0 || index >= stride) {
+				throw new IndexOutOfBoundsException("index " + index
+						+ " is out of range 0.." + (stride - 1));
+			}
+			return data[row * stride + index];
+		}
+
+		public void copyRow(final int row, final float @NonNull [] dest) {
+			if (dest.length < stride) {
+				throw new IllegalArgumentException("dest length "
+						+ dest.length + " < stride " + stride);
+			}
+			System.arraycopy(data, row * stride, dest, 0, stride);
+		}
+
+		private void ensureCapacity(final int numRows) {
+			if (numRows * stride > data.length) {
+				data = Arrays.copyOf(data, 2 * numRows * stride);
+			}
+		}
+	}
+
+	// Schreibt den Feature-Wert eines Frames in eine Zeile der Spalte
+	private interface IValueWriter {
+		void write(final @NonNull Frame frame, final float @NonNull [] data,
+				final int offset);
+	}
+
+	private final Map<FeatureKey<?>, Column> columns = new LinkedHashMap<>();
+	private long[] begins = new long[INITIAL_CAPACITY];
+	private int numRows = 0;
+
+	public <F extends Feature> void addScalarColumn(
+			final @NonNull FeatureKey<F> key,
+			final @NonNull IScalarExtractor<F> extractor) {
+		addColumn(key, new Column(1, (frame, data, offset) -> {
+			data[offset] = extractor.extract(frame.getFeature(key));
+		}));
+	}
+
+	public <F extends Feature> void addVectorColumn(
+			final @NonNull FeatureKey<F> key, final int stride,
+			final @NonNull IVectorExtractor<F> extractor) {
+		if (stride < 1) {
+			throw new IllegalArgumentException("stride " + stride + " < 1");
+		}
+
+		addColumn(key, new Column(stride, (frame, data, offset) -> {
+			final float[] vector = extractor.extract(frame.getFeature(key));
+			if (vector.length != stride) {
+				throw new IllegalStateException("vector length "
+						+ vector.length + " != stride " + stride);
+			}
+			System.arraycopy(vector, 0, data, offset, stride);
+		}));
+	}
+
+	private void addColumn(final @NonNull FeatureKey<?> key,
+			final @NonNull Column column) {
+		if (numRows > 0) {
+			throw new IllegalStateException(
+					"Columns must be added before the first row");
+		} else if (columns.containsKey(key)) {
+			throw new IllegalArgumentException("Column for key already added");
+		}
+		columns.put(key, column);
+	}
+
+	@Override
+	public void onFrameAvailable(final @NonNull Frame frame) {
+		append(frame);
+	}
+
+	public void append(final @NonNull Frame frame) {
+		final int row = numRows;
+		if (row == begins.length) {
+			begins = Arrays.copyOf(begins, 2 * begins.length);
+		}
+		for (final Column column : columns.values()) {
+			column.ensureCapacity(row + 1);
+			column.writer.write(frame, column.data, row * column.stride);
+		}
+		begins[row] = frame.getBegin();
+		numRows++;
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gibt das zugrunde liegende Array mit den Frame-Anfängen zurück. Gültig
+	 * sind die ersten {@link #getNumRows()} Einträge.
+	 */
+	public long @NonNull [] getBegins() {
+		return begins;
+	}
+
+	public boolean containsColumn(final @NonNull FeatureKey<?> key) {
+		return columns.containsKey(key);
+	}
+
+	@NonNull
+	public Column getColumn(final @NonNull FeatureKey<?> key) {
+		final Column column = columns.get(key);
+		if (column == null) {
+			throw new IllegalArgumentException("No column for key");
+		}
+		return column;
+	}
+
+	/**
+	 * Entfernt alle Zeilen. Die Spalten und deren Speicher bleiben erhalten.
+	 */
+	public void clear() {
+		numRows = 0;
+	}
+}
@@ -128,6 +128,12 @@ public final class Frame {
 		}
 	}
 
+	// Setzt ein bereits berechnetes Feature, z. B. aus dem FeatureCache
+	<F extends Feature> void putFeature(final @NonNull FeatureKey<F> key,
+			final @NonNull F feature) {
+		features.put(key, feature);
+	}
+
 	@NonNull
 	public static Frame createStereoFrame(final long begin,
 			final double sampleRate, final float @NonNull [] leftSamples,
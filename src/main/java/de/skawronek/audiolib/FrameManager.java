@@ -1,8 +1,10 @@
 package de.skawronek.audiolib;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -19,10 +21,12 @@ final class FrameManager {
 
 	private static final class ListenerInformation {
 		final FrameSpecification specification;
-		private long nextFrameBegin = 0;
+		private long nextFrameBegin;
 
-		ListenerInformation(@NonNull FrameSpecification specification) {
+		ListenerInformation(@NonNull FrameSpecification specification,
+				final long firstFrameBegin) {
 			this.specification = specification;
+			this.nextFrameBegin = firstFrameBegin;
 		}
 
 		long getNextFrameBegin() {
@@ -35,6 +39,9 @@ final class FrameManager {
 	}
 
 	private final double sampleRate;
+	// Index des ersten Samples, das in die Buffer geschrieben wird. Ist
+	// ungleich 0, wenn nur ein Ausschnitt des Signals verarbeitet wird.
+	private final long firstSample;
 	// Entweder wird der Stereo-Buffer oder Mono-Buffer genutzt:
 	// (leftBuffer != null && rightBuffer != null) || (monoBuffer != null)
 	private final FloatRingBuffer leftBuffer;
@@ -42,12 +49,15 @@ final class FrameManager {
 	private final FloatRingBuffer monoBuffer;
 
 	private final Map<IFrameListener, ListenerInformation> listenerInformations = new HashMap<>();
+	private final List<ISampleListener> sampleListeners = new ArrayList<>();
+	private final List<IStreamFeature<?>> streamFeatures = new ArrayList<>();
 
-	private FrameManager(final double sampleRate,
+	private FrameManager(final double sampleRate, final long firstSample,
 			final @Nullable FloatRingBuffer leftBuffer,
 			final @Nullable FloatRingBuffer rightBuffer,
 			final @Nullable FloatRingBuffer monoBuffer) {
 		this.sampleRate = sampleRate;
+		this.firstSample = firstSample;
 		this.leftBuffer = leftBuffer;
 		this.rightBuffer = rightBuffer;
 		this.monoBuffer = monoBuffer;
@@ -57,8 +67,13 @@ final class FrameManager {
 
 	public void addListener(final @NonNull IFrameListener listener,
 			final @NonNull FrameSpecification specification) {
+		// Erster Frame-Anfang ist das kleinste Vielfache der Hop-Size, das
+		// nicht vor dem ersten Sample liegt.
+		final long hopSize = specification.getHopSize();
+		final long firstFrameBegin = ((firstSample + hopSize - 1) / hopSize)
+				* hopSize;
 		final ListenerInformation information = new ListenerInformation(
-				specification);
+				specification, firstFrameBegin);
 		listenerInformations.put(listener, information);
 	}
 
@@ -66,12 +81,34 @@ final class FrameManager {
 		listenerInformations.remove(listener);
 	}
 
+	public void addSampleListener(final @NonNull ISampleListener listener) {
+		sampleListeners.add(listener);
+	}
+
+	public void removeSampleListener(final @NonNull ISampleListener listener) {
+		sampleListeners.remove(listener);
+	}
+
+	public void addStreamFeature(final @NonNull IStreamFeature<?> feature) {
+		streamFeatures.add(feature);
+		sampleListeners.add(feature);
+	}
+
+	public void removeStreamFeature(final @NonNull IStreamFeature<?> feature) {
+		streamFeatures.remove(feature);
+		sampleListeners.remove(feature);
+	}
+
 	public void putStereoSample(final float left, final float right) {
 		ensureIsStereo();
 
 		leftBuffer.put(left);
 		rightBuffer.put(right);
 		assert leftBuffer.getCount() == rightBuffer.getCount();
+		if (!sampleListeners.isEmpty()) {
+			notifySampleListeners(firstSample + leftBuffer.getCount() - 1,
+					(left + right) / 2);
+		}
 	}
 
 	private void ensureIsStereo() {
@@ -84,6 +121,16 @@ final class FrameManager {
 	public void putMonoSample(final float sample) {
 		ensureIsMono();
 		monoBuffer.put(sample);
+		if (!sampleListeners.isEmpty()) {
+			notifySampleListeners(firstSample + monoBuffer.getCount() - 1,
+					sample);
+		}
+	}
+
+	private void notifySampleListeners(final long index, final float sample) {
+		for (int i = 0; i < sampleListeners.size(); i++) {
+			sampleListeners.get(i).onSampleAvailable(index, sample);
+		}
 	}
 
 	private void ensureIsMono() {
@@ -115,20 +162,23 @@ final class FrameManager {
 				} else {
 					if (isMono()) {
 						final float[] samples = new float[frameSize];
-						monoBuffer.peak(frameBegin, samples, 0, frameSize);
+						monoBuffer.peak(frameBegin - firstSample, samples, 0, frameSize);
 						frame = Frame.createMonoFrame(frameBegin, sampleRate,
 								samples);
 					} else if (isStereo()) {
 						final float[] leftSamples = new float[frameSize];
 						final float[] rightSamples = new float[frameSize];
-						leftBuffer.peak(frameBegin, leftSamples, 0, frameSize);
+						leftBuffer.peak(frameBegin - firstSample, leftSamples, 0, frameSize);
 						rightBuffer
-								.peak(frameBegin, rightSamples, 0, frameSize);
+								.peak(frameBegin - firstSample, rightSamples, 0, frameSize);
 						frame = Frame.createStereoFrame(frameBegin, sampleRate,
 								leftSamples, rightSamples);
 					} else {
 						throw new AssertionError();
 					}
+					for (int i = 0; i < streamFeatures.size(); i++) {
+						putStreamFeature(frame, streamFeatures.get(i));
+					}
 					createdFrames.add(frame);
 				}
 
@@ -140,12 +190,21 @@ final class FrameManager {
 		}
 	}
 
+	private static <F extends Feature> void putStreamFeature(
+			final @NonNull Frame frame,
+			final @NonNull IStreamFeature<F> feature) {
+		final F value = feature.takeFeature(frame.getBegin(), frame.getSize());
+		if (value != null) {
+			frame.putFeature(feature.getKey(), value);
+		}
+	}
+
 	private long getBufferCount() {
 		if (isMono()) {
-			return monoBuffer.getCount();
+			return firstSample + monoBuffer.getCount();
 		} else {
 			assert leftBuffer.getCount() == rightBuffer.getCount();
-			return leftBuffer.getCount();
+			return firstSample + leftBuffer.getCount();
 		}
 	}
 
@@ -181,20 +240,44 @@ final class FrameManager {
 
 	@NonNull
 	public static FrameManager forMonoAudioSource(final double sampleRate) {
+		return forMonoAudioSource(sampleRate, 0);
+	}
+
+	/**
+	 * Erstellt einen FrameManager, dessen erstes Sample den Index firstSample
+	 * im Gesamtsignal hat. Es werden nur Frames erzeugt, deren Anfang nicht vor
+	 * firstSample liegt.
+	 */
+	@NonNull
+	static FrameManager forMonoAudioSource(final double sampleRate,
+			final long firstSample) {
 		checkSampleRate(sampleRate);
+		checkFirstSample(firstSample);
 		final FloatRingBuffer leftBuffer = null;
 		final FloatRingBuffer rightBuffer = null;
 		final FloatRingBuffer monoBuffer = createBuffer(sampleRate);
-		return new FrameManager(sampleRate, leftBuffer, rightBuffer, monoBuffer);
+		return new FrameManager(sampleRate, firstSample, leftBuffer,
+				rightBuffer, monoBuffer);
 	}
 
 	@NonNull
 	public static FrameManager forStereoAudioSource(final double sampleRate) {
+		return forStereoAudioSource(sampleRate, 0);
+	}
+
+	/**
+	 * @see #forMonoAudioSource(double, long)
+	 */
+	@NonNull
+	static FrameManager forStereoAudioSource(final double sampleRate,
+			final long firstSample) {
 		checkSampleRate(sampleRate);
+		checkFirstSample(firstSample);
 		final FloatRingBuffer leftBuffer = createBuffer(sampleRate);
 		final FloatRingBuffer rightBuffer = createBuffer(sampleRate);
 		final FloatRingBuffer monoBuffer = null;
-		return new FrameManager(sampleRate, leftBuffer, rightBuffer, monoBuffer);
+		return new FrameManager(sampleRate, firstSample, leftBuffer,
+				rightBuffer, monoBuffer);
 	}
 
 	private static void checkSampleRate(final double sampleRate) {
@@ -204,6 +287,13 @@ final class FrameManager {
 		}
 	}
 
+	private static void checkFirstSample(final long firstSample) {
+		if (firstSample < 0) {
+			throw new IllegalArgumentException("firstSample " + firstSample
+					+ " < 0");
+		}
+	}
+
 	@NonNull
 	private static FloatRingBuffer createBuffer(final double sampleRate) {
 		final int capacity = (int) Util.durationToSamples(BUFFER_LENGTH,
@@ -0,0 +1,14 @@
+package de.skawronek.audiolib;
+
+/**
+ * Wird für jedes Sample einer {@link AudioSource} aufgerufen, bevor daraus
+ * Frames erzeugt werden. Bei Stereo-Signalen wird der Mittelwert beider Kanäle
+ * übergeben.
+ */
+public interface ISampleListener {
+	/**
+	 * @param index
+	 *            Index des Samples im Gesamtsignal
+	 */
+	public void onSampleAvailable(final long index, final float sample);
+}
@@ -0,0 +1,15 @@
+package de.skawronek.audiolib;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Nimmt synthetisierte Mono-Samples blockweise entgegen, z. B. von
+ * {@link de.skawronek.audiolib.signal.OverlapAddSynthesis}. Das Array wird
+ * vom Aufrufer wiederverwendet und darf nach dem Aufruf nicht mehr gelesen
+ * werden.
+ */
+@FunctionalInterface
+public interface ISampleSink {
+	public void put(final float @NonNull [] samples, final int offset,
+			final int length);
+}
@@ -0,0 +1,23 @@
+package de.skawronek.audiolib;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Feature, das nicht aus den Samples eines Frames, sondern fortlaufend aus
+ * dem Sample-Strom einer {@link AudioSource} berechnet wird, z. B. über eine
+ * {@link de.skawronek.audiolib.math.SlidingDft}. Es wird mit
+ * {@link AudioSource#addStreamFeature} bei der Quelle registriert, erhält
+ * jedes Sample wie ein {@link ISampleListener} und die Quelle legt das
+ * Feature in jeden Frame, den sie danach erzeugt. Der Zustand gehört damit
+ * zum Strom, der {@link FeatureKey} beschreibt nur die Parameter.
+ */
+public interface IStreamFeature<F extends Feature> extends ISampleListener {
+	public @NonNull FeatureKey<F> getKey();
+
+	/**
+	 * Gibt das Feature für den Frame ab frameBegin mit frameSize Samples
+	 * zurück und gibt es frei, oder null, wenn es dafür nicht vorliegt.
+	 */
+	public @Nullable F takeFeature(final long frameBegin, final int frameSize);
+}
@@ -167,8 +167,9 @@ public final class JavaAudioSource extends AudioSource {
 	}
 
 	// Wird für PcmCodec#decodeStereo genutzt.
-	// Anlegen auf Klassenebene verhindert Mehrfachallokation.
-	private static final float[] STEREO_SAMPLE_BUFFER = new float[2];
+	// Anlegen auf Objektebene verhindert Mehrfachallokation. Nicht statisch,
+	// damit mehrere Quellen parallel in verschiedenen Threads lesen können.
+	private final float[] stereoSampleBuffer = new float[2];
 
 	@Override
 	public void process() throws ReadException {
@@ -186,9 +187,9 @@ public final class JavaAudioSource extends AudioSource {
 				final float sample = codec.decodeMono(buffer, offset);
 				frameManager.putMonoSample(sample);
 			} else if (codec.isStereo()) {
-				codec.decodeStereo(buffer, offset, STEREO_SAMPLE_BUFFER);
-				final float leftSample = STEREO_SAMPLE_BUFFER[0];
-				final float rightSample = STEREO_SAMPLE_BUFFER[1];
+				codec.decodeStereo(buffer, offset, stereoSampleBuffer);
+				final float leftSample = stereoSampleBuffer[0];
+				final float rightSample = stereoSampleBuffer[1];
 				frameManager.putStereoSample(leftSample, rightSample);
 			} else {
 				throw new AssertionError();
@@ -0,0 +1,231 @@
+package de.skawronek.audiolib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.AudioSource.ReadException;
+import de.skawronek.audiolib.PcmCodec.UnsuportedFormatException;
+
+/**
+ * Offline-Verarbeitung einer einzelnen WAVE-Datei auf mehreren Kernen. Die
+ * Datei wird in numChunks Abschnitte zerlegt, die parallel gelesen und deren
+ * Features parallel berechnet werden.
+ * <p>
+ * Ein Frame gehört zu dem Abschnitt, in dem sein Anfang liegt. Jeder Abschnitt
+ * wird dafür um die größte Frame-Größe verlängert, sodass auch die Frames am
+ * Ende des Abschnitts vollständig sind. Da jeder Frame-Anfang genau einem
+ * Abschnitt gehört, entstehen an den Grenzen keine Duplikate.
+ * <p>
+ * Die Listener werden der Reihe nach aus dem aufrufenden Thread benachrichtigt
+ * und erhalten exakt dieselbe Frame-Folge (inkl. {@link Frame#getBegin()}) wie
+ * bei sequentieller Verarbeitung. Zustandsbehaftete Listener, wie z. B.
+ * {@link de.skawronek.audiolib.temporal.OnsetDetection}, funktionieren daher
+ * unverändert. Die Features selbst hängen nur von ihrem Frame ab und benötigen
+ * keine Einschwingphase.
+ */
+public final class ParallelFrameAnalyzer {
+	// Anzahl Frames, die ein Abschnitt vorausberechnen darf, bevor er auf das
+	// Ausliefern warten muss
+	private static final int QUEUE_CAPACITY = 256;
+
+	private static final class Registration {
+		final IFrameListener listener;
+		final FrameSpecification specification;
+		final List<FeatureKey<?>> keys;
+
+		Registration(final @NonNull IFrameListener listener,
+				final @NonNull FrameSpecification specification,
+				final @NonNull List<FeatureKey<?>> keys) {
+			this.listener = listener;
+			this.specification = specification;
+			this.keys = keys;
+		}
+	}
+
+	private static final class Item {
+		final IFrameListener listener;
+		final Frame frame;
+		// Fehler beim Lesen oder Berechnen des Abschnitts, inkl. Errors
+		final Throwable exception;
+
+		private Item(final IFrameListener listener, final Frame frame,
+				final Throwable exception) {
+			this.listener = listener;
+			this.frame = frame;
+			this.exception = exception;
+		}
+
+		boolean isEnd() {
+			return this == END;
+		}
+
+		@NonNull
+		static Item frame(final @NonNull IFrameListener listener,
+				final @NonNull Frame frame) {
+			return new Item(listener, frame, null);
+		}
+
+		@NonNull
+		static Item failure(final @NonNull Throwable exception) {
+			return new Item(null, null, exception);
+		}
+	}
+
+	// Markiert das Ende eines Abschnitts
+	private static final Item END = new Item(null, null, null);
+
+	private final int numChunks;
+	private final int parallelism;
+	private final List<Registration> registrations = new ArrayList<>();
+
+	public ParallelFrameAnalyzer(final int numChunks, final int parallelism) {
+		if (numChunks < 1) {
+			throw new IllegalArgumentException("numChunks " + numChunks
+					+ " < 1");
+		} else if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism " + parallelism
+					+ " < 1");
+		}
+
+		this.numChunks = numChunks;
+		this.parallelism = parallelism;
+	}
+
+	public ParallelFrameAnalyzer(final int numChunks) {
+		this(numChunks, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Registriert einen Listener. Die Features der übergebenen Keys werden
+	 * parallel vorberechnet, bevor der Listener benachrichtigt wird.
+	 */
+	public void addListener(final @NonNull IFrameListener listener,
+			final @NonNull FrameSpecification specification,
+			final @NonNull FeatureKey<?>... keys) {
+		registrations.add(new Registration(listener, specification, Arrays
+				.asList(keys)));
+	}
+
+	public void removeListener(final @NonNull IFrameListener listener) {
+		registrations.removeIf(r -> r.listener == listener);
+	}
+
+	public int getNumChunks() {
+		return numChunks;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void analyze(final @NonNull File file)
+			throws UnsuportedFormatException, IOException, ReadException,
+			InterruptedException {
+		final SeekableWaveFile waveFile = SeekableWaveFile.open(file);
+		final long numSamples = waveFile.getNumSamples();
+		final int maxFrameSize = getMaxFrameSize();
+
+		final List<BlockingQueue<Item>> queues = new ArrayList<>(numChunks);
+		final ExecutorService executor = Executors
+				.newFixedThreadPool(parallelism);
+		try {
+			// Abschnitte werden in Reihenfolge gestartet. Ein Abschnitt, auf
+			// den gewartet wird, ist daher immer bereits gestartet.
+			for (int i = 0; i < numChunks; i++) {
+				final long chunkBegin = numSamples * i / numChunks; // inkl.
+				final long chunkEnd = numSamples * (i + 1) / numChunks; // exkl.
+				final long readEnd = Math.min(numSamples, chunkEnd
+						+ maxFrameSize - 1); // exkl.
+				final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(
+						QUEUE_CAPACITY);
+				queues.add(queue);
+				executor.execute(() -> processChunk(waveFile, chunkBegin,
+						chunkEnd, readEnd, queue));
+			}
+
+			for (final BlockingQueue<Item> queue : queues) {
+				Item item;
+				while (!(item = queue.take()).isEnd()) {
+					if (item.exception instanceof Error) {
+						throw (Error) item.exception;
+					} else if (item.exception != null) {
+						throw new ReadException(item.exception);
+					}
+					item.listener.onFrameAvailable(item.frame);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void processChunk(final @NonNull SeekableWaveFile waveFile,
+			final long chunkBegin, final long chunkEnd, final long readEnd,
+			final @NonNull BlockingQueue<Item> queue) {
+		try {
+			final FrameManager frameManager = waveFile
+					.createFrameManager(chunkBegin);
+			for (final Registration registration : registrations) {
+				frameManager.addListener(frame -> {
+					// Frames, die im nächsten Abschnitt beginnen, gehören
+					// diesem nicht
+					if (frame.getBegin() >= chunkEnd) {
+						return;
+					}
+					for (final FeatureKey<?> key : registration.keys) {
+						frame.getFeature(key);
+					}
+					put(queue, Item.frame(registration.listener, frame));
+				}, registration.specification);
+			}
+
+			waveFile.read(chunkBegin, readEnd, frameManager);
+		} catch (final Throwable t) {
+			// Auch Errors (z. B. AssertionError) müssen den Aufrufer
+			// erreichen, sonst fehlen Frames ohne Fehlermeldung
+			if (!tryPut(queue, Item.failure(t))) {
+				return;
+			}
+		}
+		tryPut(queue, END);
+	}
+
+	private static void put(final @NonNull BlockingQueue<Item> queue,
+			final @NonNull Item item) {
+		if (!tryPut(queue, item)) {
+			throw new IllegalStateException("Interrupted");
+		}
+	}
+
+	// Gibt false zurück, wenn der Thread unterbrochen wurde. Das passiert nur
+	// durch shutdownNow(), z. B. nach einem Fehler in einem anderen Abschnitt;
+	// die Queue wird dann nicht mehr gelesen.
+	private static boolean tryPut(final @NonNull BlockingQueue<Item> queue,
+			final @NonNull Item item) {
+		try {
+			queue.put(item);
+			return true;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private int getMaxFrameSize() {
+		int maxFrameSize = 1;
+		for (final Registration registration : registrations) {
+			maxFrameSize = Math.max(maxFrameSize,
+					registration.specification.getSize());
+		}
+		return maxFrameSize;
+	}
+}
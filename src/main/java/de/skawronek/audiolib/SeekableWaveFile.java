@@ -0,0 +1,156 @@
+package de.skawronek.audiolib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.PcmCodec.UnsuportedFormatException;
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * WAVE-Datei mit wahlfreiem Zugriff auf die Samples. Im Gegensatz zu
+ * {@link WaveAudioSource} kann ab einem beliebigen Sample gelesen werden,
+ * wodurch eine Datei in Abschnitten parallel verarbeitet werden kann.
+ */
+final class SeekableWaveFile {
+	private static final Duration BUFFER_LENGTH = Duration.ofSeconds(1);
+
+	private final File file;
+	private final PcmCodec codec;
+	private final double sampleRate;
+	// Byte-Offset des Data-Chunks
+	private final long dataOffset;
+	private final long numSamples;
+
+	private SeekableWaveFile(final @NonNull File file,
+			final @NonNull PcmCodec codec, final double sampleRate,
+			final long dataOffset, final long numSamples) {
+		this.file = file;
+		this.codec = codec;
+		this.sampleRate = sampleRate;
+		this.dataOffset = dataOffset;
+		this.numSamples = numSamples;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getNumSamples() {
+		return numSamples;
+	}
+
+	public boolean isStereo() {
+		return codec.isStereo();
+	}
+
+	@NonNull
+	public FrameManager createFrameManager(final long firstSample) {
+		if (isStereo()) {
+			return FrameManager.forStereoAudioSource(sampleRate, firstSample);
+		} else {
+			return FrameManager.forMonoAudioSource(sampleRate, firstSample);
+		}
+	}
+
+	/**
+	 * Liest die Samples [start, end) und schreibt sie in den FrameManager, der
+	 * mit {@link #createFrameManager(long) createFrameManager(start)} erstellt
+	 * wurde. Nach jedem gelesenen Block werden die verfügbaren Frames
+	 * verarbeitet.
+	 */
+	public void read(final long start, final long end,
+			final @NonNull FrameManager frameManager) throws IOException {
+		if (start < 0 || start > end || end > numSamples) {
+			throw new IllegalArgumentException("range " + start + ".." + end
+					+ " is out of bounds 0.." + numSamples);
+		}
+
+		final int sampleSize = codec.getSampleSizeInBytes();
+		final int bufferSamples = (int) Util.durationToSamples(BUFFER_LENGTH,
+				sampleRate);
+		final byte[] buffer = new byte[bufferSamples * sampleSize];
+		final float[] stereoSampleBuffer = new float[2];
+
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(dataOffset + start * sampleSize);
+			long position = start;
+			while (position < end) {
+				final int numSamplesToRead = (int) Math.min(bufferSamples, end
+						- position);
+				raf.readFully(buffer, 0, numSamplesToRead * sampleSize);
+				for (int i = 0; i < numSamplesToRead; i++) {
+					final int offset = i * sampleSize;
+					if (codec.isMono()) {
+						frameManager.putMonoSample(codec.decodeMono(buffer,
+								offset));
+					} else {
+						codec.decodeStereo(buffer, offset, stereoSampleBuffer);
+						frameManager.putStereoSample(stereoSampleBuffer[0],
+								stereoSampleBuffer[1]);
+					}
+				}
+				position += numSamplesToRead;
+				frameManager.processFrames();
+			}
+		}
+	}
+
+	@NonNull
+	public static SeekableWaveFile open(final @NonNull File file)
+			throws UnsuportedFormatException, IOException {
+		final AudioFormat format;
+		try {
+			format = AudioSystem.getAudioFileFormat(file).getFormat();
+		} catch (final UnsupportedAudioFileException e) {
+			throw new UnsuportedFormatException();
+		}
+		final PcmCodec codec = PcmCodec.fromAudioFormat(format);
+
+		// Suche den Data-Chunk im RIFF-Container
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final byte[] id = new byte[4];
+			raf.readFully(id);
+			if (!"RIFF".equals(new String(id, StandardCharsets.US_ASCII))) {
+				throw new UnsuportedFormatException();
+			}
+			raf.skipBytes(4);
+			raf.readFully(id);
+			if (!"WAVE".equals(new String(id, StandardCharsets.US_ASCII))) {
+				throw new UnsuportedFormatException();
+			}
+
+			long position = 12;
+			final long length = raf.length();
+			while (position + 8 <= length) {
+				raf.seek(position);
+				raf.readFully(id);
+				final long chunkSize = Integer.toUnsignedLong(Integer
+						.reverseBytes(raf.readInt()));
+				if ("data".equals(new String(id, StandardCharsets.US_ASCII))) {
+					final long dataOffset = position + 8;
+					// Abgeschnittene Dateien enthalten weniger Daten als
+					// angegeben
+					final long dataSize = Math.min(chunkSize, length
+							- dataOffset);
+					final long numSamples = dataSize
+							/ codec.getSampleSizeInBytes();
+					return new SeekableWaveFile(file, codec,
+							format.getSampleRate(), dataOffset, numSamples);
+				}
+				// Chunks sind auf gerade Byte-Grenzen ausgerichtet
+				position += 8 + chunkSize + (chunkSize & 1);
+			}
+		}
+
+		throw new UnsuportedFormatException();
+	}
+}
@@ -0,0 +1,70 @@
+package de.skawronek.audiolib;
+
+import java.util.EnumSet;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Mono-Audio-Quelle, in die Samples über {@link #put} geschrieben werden,
+ * z. B. die Ausgabe einer
+ * {@link de.skawronek.audiolib.signal.OverlapAddSynthesis}. Damit lassen sich
+ * bearbeitete Signale erneut analysieren. {@link #process()} erzeugt die
+ * Frames aus allen bis dahin geschriebenen Samples. Dazwischen sollten nicht
+ * mehr Samples geschrieben werden, als der Puffer der Quelle (3 Sekunden)
+ * fasst, sonst gehen Frames verloren.
+ */
+public final class StreamAudioSource extends AudioSource implements
+		ISampleSink {
+	private boolean started = false;
+	private boolean stopped = false;
+
+	public StreamAudioSource(final @NonNull String name,
+			final double sampleRate) {
+		super(name, EnumSet.of(Channel.MONO), sampleRate);
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return !stopped;
+	}
+
+	@Override
+	public void start() {
+		if (stopped) {
+			throw new IllegalStateException("Stopped");
+		}
+
+		started = true;
+	}
+
+	@Override
+	public void stop() {
+		started = false;
+		stopped = true;
+	}
+
+	public boolean isStarted() {
+		return started;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	@Override
+	public void put(final float @NonNull [] samples, final int offset,
+			final int length) {
+		for (int i = 0; i < length; i++) {
+			frameManager.putMonoSample(samples[offset + i]);
+		}
+	}
+
+	@Override
+	public void process() {
+		if (!started) {
+			throw new IllegalStateException("Not started");
+		}
+
+		frameManager.processFrames();
+	}
+}
@@ -12,6 +12,8 @@ import de.skawronek.audiolib.math.WeightingFilters;
 import de.skawronek.audiolib.math.WeightingFilters.IWeightingFilter;
 
 public final class Intensity extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final double intensity;
 
 	public static enum Method {
@@ -120,6 +122,8 @@ public final class Intensity extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<Intensity> {
+		private static final long serialVersionUID = 1L;
+
 		private final Method method;
 
 		private Key(final @NonNull Method method) {
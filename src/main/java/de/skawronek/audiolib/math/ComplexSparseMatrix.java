@@ -0,0 +1,273 @@
+package de.skawronek.audiolib.math;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Komplexwertige dünnbesetzte Matrix im CSR-Format (Compressed Sparse Row).
+ * Die Elemente ungleich 0 aller Zeilen liegen hintereinander in colIndex, re
+ * und im; die Elemente der Zeile k liegen an den Positionen
+ * rowStart[k]..rowStart[k+1]-1. Gegenüber einem Array von
+ * {@link ComplexSparseVector}en wird beim Multiplizieren sequentiell über
+ * zusammenhängende Arrays gelaufen und nichts allokiert.
+ * <p>
+ * Die Matrix ist unveränderlich und damit thread-safe.
+ */
+public final class ComplexSparseMatrix {
+	// Anzahl Vektoren, die {@link #multiplyBatch} gemeinsam durch die Matrix
+	// schiebt. Die zugehörigen Ausschnitte einer Ergebniszeile und der
+	// Eingabezeilen bleiben so im L1-Cache.
+	static final int BATCH_BLOCK_SIZE = 64;
+
+	private final int numColumns;
+	private final int[] rowStart;
+	private final int[] colIndex;
+	private final float[] re;
+	private final float[] im;
+
+	private ComplexSparseMatrix(final int numColumns,
+			final int @NonNull [] rowStart, final int @NonNull [] colIndex,
+			final float @NonNull [] re, final float @NonNull [] im) {
+		this.numColumns = numColumns;
+		this.rowStart = rowStart;
+		this.colIndex = colIndex;
+		this.re = re;
+		this.im = im;
+	}
+
+	/**
+	 * Setzt die Matrix aus den Zeilen rows zusammen, die alle gleich lang sein
+	 * müssen. Alle Elemente werden mit scale multipliziert.
+	 */
+	@NonNull
+	public static ComplexSparseMatrix fromRows(
+			final @NonNull ComplexSparseVector @NonNull [] rows,
+			final float scale) {
+		final int numColumns = (rows.length > 0 ? rows[0].size() : 0);
+		final int[] rowStart = new int[rows.length + 1];
+		for (int k = 0; k < rows.length; k++) {
+			if (rows[k].size() != numColumns) {
+				throw new IllegalArgumentException("row " + k + " size "
+						+ rows[k].size() + " != " + numColumns);
+			}
+			rowStart[k + 1] = rowStart[k] + rows[k].countNonZeros();
+		}
+
+		final int numNonZeros = rowStart[rows.length];
+		final int[] colIndex = new int[numNonZeros];
+		final float[] re = new float[numNonZeros];
+		final float[] im = new float[numNonZeros];
+		for (int k = 0; k < rows.length; k++) {
+			final int end = rows[k].copyNonZeros(colIndex, re, im,
+					rowStart[k], scale);
+			assert end == rowStart[k + 1];
+		}
+		return new ComplexSparseMatrix(numColumns, rowStart, colIndex, re, im);
+	}
+
+	public int getNumRows() {
+		return rowStart.length - 1;
+	}
+
+	public int getNumColumns() {
+		return numColumns;
+	}
+
+	/**
+	 * Gibt die Anzahl der gespeicherten Elemente ungleich 0 zurück.
+	 */
+	public int getNumNonZeros() {
+		return colIndex.length;
+	}
+
+	/**
+	 * Anzahl der Bytes, die {@link #write} schreibt.
+	 */
+	int getSerializedSize() {
+		return 4 + 4 + 4 * rowStart.length + 12 * colIndex.length;
+	}
+
+	/**
+	 * Schreibt numRows, numColumns, rowStart, colIndex, re und im in die
+	 * Byte-Reihenfolge von buffer.
+	 */
+	void write(final @NonNull ByteBuffer buffer) {
+		buffer.putInt(getNumRows());
+		buffer.putInt(numColumns);
+		buffer.asIntBuffer().put(rowStart);
+		buffer.position(buffer.position() + 4 * rowStart.length);
+		buffer.asIntBuffer().put(colIndex);
+		buffer.position(buffer.position() + 4 * colIndex.length);
+		buffer.asFloatBuffer().put(re);
+		buffer.position(buffer.position() + 4 * re.length);
+		buffer.asFloatBuffer().put(im);
+		buffer.position(buffer.position() + 4 * im.length);
+	}
+
+	/**
+	 * Liest eine mit {@link #write} geschriebene Matrix mit numRows Zeilen.
+	 * Die Arrays werden in einem Stück aus buffer kopiert, z. B. aus einer
+	 * eingeblendeten Datei. Die Größen im Header werden geprüft, bevor Arrays
+	 * dafür angelegt werden.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             wenn die Daten keine gültige Matrix mit numRows Zeilen
+	 *             beschreiben
+	 */
+	@NonNull
+	static ComplexSparseMatrix read(final @NonNull ByteBuffer buffer,
+			final int expectedNumRows) {
+		final int numRows = buffer.getInt();
+		final int numColumns = buffer.getInt();
+		if (numRows < 0 || numColumns < 0) {
+			throw new IllegalArgumentException("invalid size " + numRows
+					+ " x " + numColumns);
+		} else if (numRows != expectedNumRows) {
+			throw new IllegalArgumentException("numRows " + numRows
+					+ " != expected " + expectedNumRows);
+		} else if (4L * (numRows + 1) > buffer.remaining()) {
+			throw new IllegalArgumentException("row offsets of " + numRows
+					+ " rows exceed remaining " + buffer.remaining()
+					+ " bytes");
+		}
+		final int[] rowStart = new int[numRows + 1];
+		buffer.asIntBuffer().get(rowStart);
+		buffer.position(buffer.position() + 4 * rowStart.length);
+		final int numNonZeros = rowStart[numRows];
+		if (rowStart[0] != 0 || numNonZeros < 0
+				|| 12L * numNonZeros > buffer.remaining()) {
+			throw new IllegalArgumentException("invalid row offsets");
+		}
+		for (int k = 0; k < numRows; k++) {
+			if (rowStart[k] > rowStart[k + 1]) {
+				throw new IllegalArgumentException("invalid row offsets");
+			}
+		}
+
+		final int[] colIndex = new int[numNonZeros];
+		buffer.asIntBuffer().get(colIndex);
+		buffer.position(buffer.position() + 4 * numNonZeros);
+		for (final int j : colIndex) {
+			if (j < 0 || j >= numColumns) {
+				throw new IllegalArgumentException("column index " + j
+						+ " out of range");
+			}
+		}
+		final float[] re = new float[numNonZeros];
+		buffer.asFloatBuffer().get(re);
+		buffer.position(buffer.position() + 4 * numNonZeros);
+		final float[] im = new float[numNonZeros];
+		buffer.asFloatBuffer().get(im);
+		buffer.position(buffer.position() + 4 * numNonZeros);
+		return new ComplexSparseMatrix(numColumns, rowStart, colIndex, re, im);
+	}
+
+	/**
+	 * Berechnet out = A * vec. Von vecRe und vecIm werden die ersten
+	 * numColumns, von outRe und outIm die ersten numRows Werte genutzt.
+	 */
+	public void multiply(final float @NonNull [] vecRe,
+			final float @NonNull [] vecIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm) {
+		final int numRows = getNumRows();
+		if (vecRe.length < numColumns || vecIm.length < numColumns) {
+			throw new IllegalArgumentException("vector length < "
+					+ numColumns);
+		} else if (outRe.length < numRows || outIm.length < numRows) {
+			throw new IllegalArgumentException("output length < " + numRows);
+		}
+
+		final int[] rowStart = this.rowStart;
+		final int[] colIndex = this.colIndex;
+		final float[] re = this.re;
+		final float[] im = this.im;
+		for (int k = 0; k < numRows; k++) {
+			float sumRe = 0f;
+			float sumIm = 0f;
+			for (int i = rowStart[k], end = rowStart[k + 1]; i < end; i++) {
+				final int j = colIndex[i];
+				final float bRe = vecRe[j];
+				final float bIm = vecIm[j];
+				// (a + bi) * (c + di) = (ac - bd) + (ad + bc)i
+				sumRe += re[i] * bRe - im[i] * bIm;
+				sumIm += re[i] * bIm + im[i] * bRe;
+			}
+			outRe[k] = sumRe;
+			outIm[k] = sumIm;
+		}
+	}
+
+	/**
+	 * Berechnet OUT = A * B für numVectors Vektoren auf einmal. Die Vektoren
+	 * liegen verschränkt vor: Element j von Vektor b steht an Index j *
+	 * numVectors + b (wie bei {@link FastFourierTransform#forwardBatch}).
+	 * Element k von Ergebnis b steht entsprechend an k * numVectors + b.
+	 * <p>
+	 * Statt die Matrix für jeden Vektor erneut zu durchlaufen, wird jedes
+	 * Element A[k][j] einmal pro Block von {@link #BATCH_BLOCK_SIZE} Vektoren
+	 * geladen und mit den zusammenhängenden Werten B[j][b] des Blocks
+	 * multipliziert. Die innerste Schleife hat keine Abhängigkeiten zwischen
+	 * den Iterationen.
+	 */
+	public void multiplyBatch(final float @NonNull [] bRe,
+			final float @NonNull [] bIm, final int numVectors,
+			final float @NonNull [] outRe, final float @NonNull [] outIm) {
+		multiplyBatch(bRe, bIm, numVectors, outRe, outIm, 0, numVectors);
+	}
+
+	/**
+	 * Wie {@link #multiplyBatch(float[], float[], int, float[], float[])},
+	 * berechnet aber nur die Ergebnisse der Vektoren fromVector..toVector-1.
+	 * Aufrufe mit disjunkten Bereichen schreiben in disjunkte Elemente von
+	 * outRe und outIm und dürfen parallel laufen.
+	 */
+	public void multiplyBatch(final float @NonNull [] bRe,
+			final float @NonNull [] bIm, final int numVectors,
+			final float @NonNull [] outRe, final float @NonNull [] outIm,
+			final int fromVector, final int toVector) {
+		final int numRows = getNumRows();
+		if (numVectors < 1) {
+			throw new IllegalArgumentException("numVectors " + numVectors
+					+ " < 1");
+		} else if (fromVector < 0 || fromVector > toVector
+				|| toVector > numVectors) {
+			throw new IllegalArgumentException("vector range " + fromVector
+					+ ".." + toVector + " is out of range 0.." + numVectors);
+		} else if (bRe.length < (long) numColumns * numVectors
+				|| bIm.length < (long) numColumns * numVectors) {
+			throw new IllegalArgumentException("input length < "
+					+ numColumns + " * " + numVectors);
+		} else if (outRe.length < (long) numRows * numVectors
+				|| outIm.length < (long) numRows * numVectors) {
+			throw new IllegalArgumentException("output length < " + numRows
+					+ " * " + numVectors);
+		}
+
+		final int[] rowStart = this.rowStart;
+		final int[] colIndex = this.colIndex;
+		final float[] re = this.re;
+		final float[] im = this.im;
+		for (int from = fromVector; from < toVector; from += BATCH_BLOCK_SIZE) {
+			final int to = Math.min(from + BATCH_BLOCK_SIZE, toVector);
+			for (int k = 0; k < numRows; k++) {
+				final int outRow = k * numVectors;
+				for (int b = from; b < to; b++) {
+					outRe[outRow + b] = 0f;
+					outIm[outRow + b] = 0f;
+				}
+				for (int i = rowStart[k], end = rowStart[k + 1]; i < end; i++) {
+					final float aRe = re[i];
+					final float aIm = im[i];
+					final int inRow = colIndex[i] * numVectors;
+					for (int b = from; b < to; b++) {
+						final float xRe = bRe[inRow + b];
+						final float xIm = bIm[inRow + b];
+						outRe[outRow + b] += aRe * xRe - aIm * xIm;
+						outIm[outRow + b] += aRe * xIm + aIm * xRe;
+					}
+				}
+			}
+		}
+	}
+}
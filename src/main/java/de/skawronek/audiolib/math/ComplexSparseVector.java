@@ -190,6 +190,52 @@ public final class ComplexSparseVector {
 		return new float[] { sumRe, sumIm };
 	}
 
+	/**
+	 * Gibt die Anzahl der gespeicherten Elemente ungleich 0 zurück.
+	 */
+	int countNonZeros() {
+		int count = 0;
+		Range curr = first;
+		while (curr != null) {
+			if (!curr.isGap()) {
+				for (int i = 0; i < curr.size(); i++) {
+					if (curr.elementsRe[i] != 0f || curr.elementsIm[i] != 0f) {
+						count++;
+					}
+				}
+			}
+			curr = curr.next;
+		}
+		return count;
+	}
+
+	/**
+	 * Schreibt Spaltenindex und mit scale multiplizierten Wert aller Elemente
+	 * ungleich 0 ab offset nach columns, re und im (siehe
+	 * {@link ComplexSparseMatrix}) und gibt den Offset hinter dem letzten
+	 * Element zurück.
+	 */
+	int copyNonZeros(final int @NonNull [] columns, final float @NonNull [] re,
+			final float @NonNull [] im, int offset, final float scale) {
+		Range curr = first;
+		while (curr != null) {
+			if (!curr.isGap()) {
+				for (int i = 0; i < curr.size(); i++) {
+					final float elemRe = curr.elementsRe[i];
+					final float elemIm = curr.elementsIm[i];
+					if (elemRe != 0f || elemIm != 0f) {
+						columns[offset] = curr.start + i;
+						re[offset] = elemRe * scale;
+						im[offset] = elemIm * scale;
+						offset++;
+					}
+				}
+			}
+			curr = curr.next;
+		}
+		return offset;
+	}
+
 	@Override
 	@NonNull
 	public String toString() {
@@ -0,0 +1,197 @@
+package de.skawronek.audiolib.math;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Cache für die Kernels der Constant-Q-Transformation auf der Festplatte. Der
+ * Aufbau eines Kernels für tiefe Frequenzen und viele Bins pro Oktave kostet
+ * eine FFT pro Bin und kann Sekunden dauern; mit dem Cache zahlt das nur der
+ * erste Prozess. Aktiviert wird er über
+ * {@link FastConstantQTransform#setKernelCache}.
+ * <p>
+ * Jeder Kernel liegt in einer eigenen Datei, deren Name sich aus den
+ * Parametern ergibt, die den Kernel festlegen (Anzahl Bins, Bins pro Oktave,
+ * minFreq, Abtastrate, Schwellwert für das Ausdünnen). Alle Werte sind
+ * Little-Endian:
+ *
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    numBins
+ *   int    binsPerOctave
+ *   double minFreq
+ *   double sampleRate
+ *   float  threshold
+ *   int    0 (Auffüllung)
+ *   int    numRows, int numColumns (FFT-Länge)
+ *   int[]  rowStart (numRows + 1)
+ *   int[]  colIndex, float[] re, float[] im (je rowStart[numRows])
+ * </pre>
+ *
+ * Dateien werden beim Laden per {@link FileChannel#map} eingeblendet.
+ * Beschädigte Dateien oder Dateien einer anderen Version werden gelöscht und
+ * der Kernel neu berechnet. Neue Dateien werden erst in eine temporäre Datei
+ * geschrieben und dann umbenannt, sodass mehrere Prozesse und Threads den
+ * Cache gleichzeitig nutzen können.
+ */
+public final class ConstantQKernelCache {
+	private static final String ENTRY_SUFFIX = ".cqk";
+	// "ACQK"
+	static final int MAGIC = 0x4B514341;
+	static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 4 + 4;
+
+	private final File directory;
+
+	public ConstantQKernelCache(final @NonNull File directory)
+			throws IOException {
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+	}
+
+	@NonNull
+	public File getDirectory() {
+		return directory;
+	}
+
+	public int getNumEntries() {
+		return listEntries().length;
+	}
+
+	/**
+	 * Löscht alle Einträge.
+	 */
+	public void clear() {
+		for (final File entry : listEntries()) {
+			entry.delete();
+		}
+	}
+
+	private File @NonNull [] listEntries() {
+		final File[] entries = directory.listFiles((dir, name) -> name
+				.endsWith(ENTRY_SUFFIX));
+		return (entries != null ? entries : new File[0]);
+	}
+
+	/**
+	 * Lädt den Kernel mit den gegebenen Parametern oder berechnet ihn mit
+	 * compute und speichert ihn. Fehler beim Speichern werden ignoriert, der
+	 * Cache ist nur eine Optimierung.
+	 */
+	@NonNull
+	ComplexSparseMatrix get(final int numBins, final int binsPerOctave,
+			final double minFreq, final double sampleRate,
+			final float threshold,
+			final @NonNull Supplier<ComplexSparseMatrix> compute) {
+		final File file = new File(directory, getEntryName(numBins,
+				binsPerOctave, minFreq, sampleRate, threshold));
+		final ComplexSparseMatrix cached = load(file, numBins, binsPerOctave,
+				minFreq, sampleRate, threshold);
+		if (cached != null) {
+			return cached;
+		}
+
+		final ComplexSparseMatrix matrix = compute.get();
+		try {
+			store(file, matrix, numBins, binsPerOctave, minFreq, sampleRate,
+					threshold);
+		} catch (final IOException e) {
+			// Kernel wird beim nächsten Mal erneut berechnet
+		}
+		return matrix;
+	}
+
+	private static @NonNull String getEntryName(final int numBins,
+			final int binsPerOctave, final double minFreq,
+			final double sampleRate, final float threshold) {
+		return String.format("%d_%d_%016x_%016x_%08x%s", numBins,
+				binsPerOctave, Double.doubleToLongBits(minFreq),
+				Double.doubleToLongBits(sampleRate),
+				Float.floatToIntBits(threshold), ENTRY_SUFFIX);
+	}
+
+	private static ComplexSparseMatrix load(final @NonNull File file,
+			final int numBins, final int binsPerOctave, final double minFreq,
+			final double sampleRate, final float threshold) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (final FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			//@formatter:off
+			final boolean valid = buffer.getInt() == MAGIC
+					&& buffer.getInt() == VERSION
+					&& buffer.getInt() == numBins
+					&& buffer.getInt() == binsPerOctave
+					&& Double.compare(buffer.getDouble(), minFreq) == 0
+					&& Double.compare(buffer.getDouble(), sampleRate) == 0
+					&& Float.compare(buffer.getFloat(), threshold) == 0;
+			//@formatter:on
+			if (valid) {
+				buffer.getInt();
+				final ComplexSparseMatrix matrix = ComplexSparseMatrix.read(
+						buffer, numBins);
+				if (!buffer.hasRemaining()) {
+					return matrix;
+				}
+			}
+		} catch (final IOException | BufferUnderflowException
+				| IllegalArgumentException e) {
+			// Beschädigter Eintrag, wird unten gelöscht
+		}
+		file.delete();
+		return null;
+	}
+
+	private void store(final @NonNull File file,
+			final @NonNull ComplexSparseMatrix matrix, final int numBins,
+			final int binsPerOctave, final double minFreq,
+			final double sampleRate, final float threshold)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(
+				HEADER_SIZE + matrix.getSerializedSize()).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(numBins);
+		buffer.putInt(binsPerOctave);
+		buffer.putDouble(minFreq);
+		buffer.putDouble(sampleRate);
+		buffer.putFloat(threshold);
+		buffer.putInt(0);
+		matrix.write(buffer);
+		buffer.flip();
+
+		// Erst in eine temporäre Datei schreiben und dann umbenennen, damit
+		// parallel lesende Prozesse keinen halben Eintrag sehen
+		final File temp = File.createTempFile("kernel", ".tmp", directory);
+		try {
+			try (final FileChannel channel = FileChannel.open(temp.toPath(),
+					StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package de.skawronek.audiolib.math;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.math.WindowFunctions.IWindowFunction;
+
+/**
+ * Aufteilung einer Constant-Q-Transformation in Oktaven, wie sie
+ * {@link MultiResolutionConstantQTransform} und
+ * {@link StreamingConstantQTransform} nutzen: Kernels, Anzahl der
+ * Dezimierungen pro Oktave und der Halbband-Tiefpass für die Dezimierung.
+ * <p>
+ * Oktave 0 ist die oberste. Der wiederverwendete Kernel wird so gelegt, dass
+ * seine Bins höchstens bei einem Viertel der jeweiligen Abtastrate liegen;
+ * liegt die oberste Oktave darüber, bekommt sie einen eigenen Kernel für das
+ * unveränderte Signal.
+ */
+final class ConstantQOctavePlan {
+	// Übergangsbreite eines Hamming-gefensterten Sinc-Filters der Länge M ist
+	// etwa 3.3 / M (in Vielfachen der Abtastrate)
+	private static final double HAMMING_TRANSITION_WIDTH = 3.3;
+	private static final int MIN_FILTER_HALF_LENGTH = 7;
+	private static final int MAX_FILTER_HALF_LENGTH = 511;
+	// Höchste Frequenz des wiederverwendeten Kernels relativ zur Abtastrate
+	private static final double MAX_KERNEL_FREQ = 0.25;
+
+	private final int numBins;
+	private final int binsPerOctave;
+	private final int numOctaves;
+	// Kernel für die oberste Oktave oder null, wenn sie ebenfalls mit kernel
+	// berechnet wird
+	private final FastConstantQTransform.Kernel topKernel;
+	private final FastConstantQTransform.Kernel kernel;
+	// Anzahl der Dezimierungen vor der ersten Oktave von kernel
+	private final int numInitialDecimations;
+
+	// Koeffizienten h[1], h[3], ..., h[halfLength] des Halbband-Filters,
+	// h[0] = 0.5, h[-i] = h[i], alle übrigen sind 0
+	private final int halfLength;
+	private final float[] oddCoefficients;
+
+	/**
+	 * @param shared
+	 *            true, wenn die Kernel-Matrizen über
+	 *            {@link FastConstantQTransform.Kernel#sharedWithNumBins} von
+	 *            allen Threads gemeinsam genutzt werden sollen
+	 */
+	ConstantQOctavePlan(final double minFreq, final double maxFreq,
+			final int binsPerOctave, final double sampleRate,
+			final boolean shared) {
+		FastConstantQTransform.checkArguments(minFreq, maxFreq,
+				binsPerOctave, sampleRate);
+
+		this.binsPerOctave = binsPerOctave;
+		numBins = FastConstantQTransform.calcNumBins(binsPerOctave, minFreq,
+				maxFreq);
+		numOctaves = (numBins + binsPerOctave - 1) / binsPerOctave;
+		final double q = FastConstantQTransform.calcQ(binsPerOctave);
+
+		// Oberste Oktave zu nah an der Nyquist-Frequenz?
+		final double maxBinFreq = FastConstantQTransform.calcFrequency(
+				numBins - 1, minFreq, binsPerOctave);
+		final int topBins = Math.min(numBins, binsPerOctave);
+		if (maxBinFreq > MAX_KERNEL_FREQ * sampleRate) {
+			final double topMinFreq = FastConstantQTransform.calcFrequency(
+					numBins - topBins, minFreq, binsPerOctave);
+			topKernel = createKernel(topBins, binsPerOctave, topMinFreq,
+					sampleRate, shared);
+		} else {
+			topKernel = null;
+		}
+
+		// Wiederverwendeter Kernel für die höchste Oktave, die nicht vom
+		// topKernel berechnet wird, bei der Abtastrate nach
+		// numInitialDecimations Dezimierungen
+		final int remainingBins = numBins - getFirstOctave() * binsPerOctave;
+		final int kernelBins = Math.min(remainingBins, binsPerOctave);
+		final double kernelMaxFreq = FastConstantQTransform.calcFrequency(
+				remainingBins - 1, minFreq, binsPerOctave);
+		int decimations = 0;
+		while (kernelMaxFreq * 2 <= MAX_KERNEL_FREQ * sampleRate
+				/ (1 << decimations)) {
+			decimations++;
+		}
+		numInitialDecimations = decimations;
+		final double kernelSampleRate = sampleRate / (1 << decimations);
+		if (kernelBins > 0) {
+			final double kernelMinFreq = FastConstantQTransform.calcFrequency(
+					remainingBins - kernelBins, minFreq, binsPerOctave);
+			kernel = createKernel(kernelBins, binsPerOctave, kernelMinFreq,
+					kernelSampleRate, shared);
+		} else {
+			kernel = null;
+		}
+
+		// Halbband-Filter: Durchlassbereich bis zur oberen Flanke des höchsten
+		// Bins der nächsten Oktave, Sperrbereich symmetrisch dazu
+		final double passEdge = kernelMaxFreq / kernelSampleRate / 2
+				* (1 + 1 / (2 * q));
+		final double transitionWidth = Math.max(0.5 - 2 * passEdge, 1e-6);
+		halfLength = calcHalfLength(transitionWidth);
+		oddCoefficients = createHalfBandCoefficients(halfLength);
+	}
+
+	private static FastConstantQTransform.Kernel createKernel(
+			final int numBins, final int binsPerOctave, final double minFreq,
+			final double sampleRate, final boolean shared) {
+		if (shared) {
+			return FastConstantQTransform.Kernel.sharedWithNumBins(numBins,
+					binsPerOctave, minFreq, sampleRate);
+		} else {
+			return FastConstantQTransform.Kernel.withNumBins(numBins,
+					binsPerOctave, minFreq, sampleRate);
+		}
+	}
+
+	private static int calcHalfLength(final double transitionWidth) {
+		final int length = (int) Math.ceil(HAMMING_TRANSITION_WIDTH
+				/ transitionWidth);
+		int halfLength = Math.max(MIN_FILTER_HALF_LENGTH,
+				Math.min(MAX_FILTER_HALF_LENGTH, length / 2));
+		// Die äußersten Koeffizienten müssen ungerade Indizes haben, die
+		// geraden sind 0
+		if (halfLength % 2 == 0) {
+			halfLength++;
+		}
+		return halfLength;
+	}
+
+	private static float[] createHalfBandCoefficients(final int halfLength) {
+		final IWindowFunction hamming = WindowFunctions.getHammingWindow();
+		final double[] h = new double[(halfLength + 1) / 2];
+		double sum = 0;
+		for (int j = 0; j < h.length; j++) {
+			final int i = 2 * j + 1;
+			// Bilde [-halfLength-1, halfLength+1] auf [-0.5, 0.5] ab
+			final double t = i / (2d * (halfLength + 1));
+			h[j] = Math.sin(Math.PI * i / 2) / (Math.PI * i)
+					* hamming.evaluate(t);
+			sum += 2 * h[j];
+		}
+		// Gleichanteil unverändert: 0.5 + Sum_i h[i] = 1
+		final float[] coefficients = new float[h.length];
+		for (int j = 0; j < h.length; j++) {
+			coefficients[j] = (float) (h[j] * 0.5 / sum);
+		}
+		return coefficients;
+	}
+
+	int getNumBins() {
+		return numBins;
+	}
+
+	int getNumOctaves() {
+		return numOctaves;
+	}
+
+	// Index der ersten Oktave, die mit dem wiederverwendeten Kernel berechnet
+	// wird
+	private int getFirstOctave() {
+		return (topKernel != null ? 1 : 0);
+	}
+
+	/**
+	 * Anzahl der Dezimierungen des Signals vor der Oktave octave.
+	 */
+	int getNumDecimations(final int octave) {
+		if (octave < getFirstOctave()) {
+			return 0;
+		}
+		return numInitialDecimations + octave - getFirstOctave();
+	}
+
+	FastConstantQTransform.@NonNull Kernel getKernel(final int octave) {
+		return (octave < getFirstOctave() ? topKernel : kernel);
+	}
+
+	/**
+	 * Zeile j des Kernels der Oktave octave entspricht dem Bin getEndBin(octave)
+	 * - Anzahl Kernel-Bins + j. Bins < 0 entfallen, die unterste Oktave ist
+	 * ggf. unvollständig.
+	 */
+	int getEndBin(final int octave) {
+		return numBins - octave * binsPerOctave;
+	}
+
+	int getMaxKernelBins() {
+		return Math.min(numBins, binsPerOctave);
+	}
+
+	int getFilterHalfLength() {
+		return halfLength;
+	}
+
+	/**
+	 * Wendet den Halbband-Tiefpass auf x an der Stelle center an. x muss
+	 * zwischen center - halfLength und center + halfLength definiert sein.
+	 */
+	float filter(final float @NonNull [] x, final int center) {
+		final float[] h = oddCoefficients;
+		float sum = 0.5f * x[center];
+		for (int j = 0; j < h.length; j++) {
+			final int i = 2 * j + 1;
+			sum += h[j] * (x[center - i] + x[center + i]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,591 @@
+package de.skawronek.audiolib.math;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.AbstractFactory;
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * FFT beliebiger Länge in double-Genauigkeit mit der zustandslosen
+ * Schnittstelle von {@link FastFourierTransform} ({@link Precision#DOUBLE}).
+ * Zweierpotenzen werden mit einer iterativen Radix-2-FFT berechnet, alle
+ * anderen Längen über den Bluestein-Algorithmus. Reellwertige Signale
+ * gerader Länge werden über eine komplexe FFT der halben Länge transformiert.
+ * <p>
+ * Die float-Variante bleibt der schnelle Standard. Diese Klasse ist für
+ * lange Transformationen und schmalbandige Analysen gedacht, bei denen die
+ * Rundungsfehler von float zu groß werden.
+ * <p>
+ * Eine Instanz ist nach der Erzeugung unveränderlich und damit thread-safe.
+ * Zwischenspeicher für Längen, die keine Zweierpotenz sind, werden pro Thread
+ * einmal allokiert und wiederverwendet.
+ */
+public final class DoubleFastFourierTransform {
+	public static final class Factory extends
+			AbstractFactory<Integer, DoubleFastFourierTransform> {
+		private static final Factory INSTANCE = new Factory();
+
+		private Factory() {
+		}
+
+		public static Factory getInstance() {
+			return INSTANCE;
+		}
+
+		public @NonNull DoubleFastFourierTransform get(final int size) {
+			return super.get(size);
+		}
+
+		@Override
+		protected @NonNull DoubleFastFourierTransform create(
+				@NonNull Integer size) {
+			return new DoubleFastFourierTransform(size);
+		}
+	}
+
+	private final int size;
+
+	// Nur für Zweierpotenzen, sonst null. Twiddle-Faktoren e^(-i*Pi*j/h) der
+	// Stufe mit halber Butterfly-Größe h liegen ab Index h - 1.
+	private final int[] reverse;
+	private final double[] twiddleRe;
+	private final double[] twiddleIm;
+
+	// Twiddle-Faktoren e^(-2*Pi*i*k/size) für k = 0..size/4 der
+	// reellwertigen Transformation
+	private final double[] realCos;
+	private final double[] realSin;
+
+	// Nur für Längen, die keine Zweierpotenz sind, sonst null
+	private final Bluestein bluestein;
+	// Nur für gerade Längen, die keine Zweierpotenz sind, sonst null
+	private final DoubleFastFourierTransform halfTransform;
+	// Nur für Längen, die keine Zweierpotenz sind, und für Länge 1, sonst
+	// null: vier Arrays der Länge size als Zwischenspeicher
+	private final ThreadLocal<double[][]> scratch;
+
+	DoubleFastFourierTransform(final int size) {
+		this(size, true);
+	}
+
+	private DoubleFastFourierTransform(final int size,
+			final boolean realSupport) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
+		}
+
+		this.size = size;
+
+		realCos = new double[size / 4 + 1];
+		realSin = new double[size / 4 + 1];
+		for (int k = 0; k < realCos.length; k++) {
+			final double rad = -2 * Math.PI * k / size;
+			realCos[k] = Math.cos(rad);
+			realSin[k] = Math.sin(rad);
+		}
+
+		if (Util.isPowerOfTwo(size)) {
+			reverse = new int[size];
+			for (int limit = 1, bit = size / 2; limit < size; limit <<= 1, bit >>= 1) {
+				for (int i = 0; i < limit; i++) {
+					reverse[i + limit] = reverse[i] + bit;
+				}
+			}
+			twiddleRe = new double[Math.max(size - 1, 1)];
+			twiddleIm = new double[Math.max(size - 1, 1)];
+			for (int halfSize = 1; halfSize < size; halfSize *= 2) {
+				for (int j = 0; j < halfSize; j++) {
+					final double rad = -Math.PI * j / halfSize;
+					twiddleRe[halfSize - 1 + j] = Math.cos(rad);
+					twiddleIm[halfSize - 1 + j] = Math.sin(rad);
+				}
+			}
+			bluestein = null;
+			halfTransform = null;
+		} else {
+			reverse = null;
+			twiddleRe = null;
+			twiddleIm = null;
+			bluestein = new Bluestein(size);
+			halfTransform = (realSupport && size % 2 == 0 ? new DoubleFastFourierTransform(
+					size / 2, false) : null);
+		}
+		if (reverse == null || size % 2 == 1) {
+			scratch = ThreadLocal.withInitial(() -> new double[][] {
+					new double[size], new double[size], new double[size],
+					new double[size] });
+		} else {
+			scratch = null;
+		}
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Anzahl der nicht redundanten Bins einer reellwertigen Transformation:
+	 * size / 2 + 1
+	 */
+	public int getNumRealBins() {
+		return size / 2 + 1;
+	}
+
+	/**
+	 * out = DFT(in), siehe
+	 * {@link FastFourierTransform#forward(float[], float[], float[], float[])}
+	 */
+	public void forward(final double @NonNull [] inRe,
+			final double @NonNull [] inIm, final double @NonNull [] outRe,
+			final double @NonNull [] outIm) {
+		checkComplexArguments(inRe, inIm, outRe, outIm);
+		transform(inRe, inIm, outRe, outIm, false);
+	}
+
+	/**
+	 * out = IDFT(in) inkl. Division durch size, siehe
+	 * {@link FastFourierTransform#backward(float[], float[], float[], float[])}
+	 */
+	public void backward(final double @NonNull [] inRe,
+			final double @NonNull [] inIm, final double @NonNull [] outRe,
+			final double @NonNull [] outIm) {
+		checkComplexArguments(inRe, inIm, outRe, outIm);
+		transform(inRe, inIm, outRe, outIm, true);
+		final double scale = 1.0 / size;
+		for (int i = 0; i < size; i++) {
+			outRe[i] *= scale;
+			outIm[i] *= -scale;
+		}
+	}
+
+	private void checkComplexArguments(final double @NonNull [] inRe,
+			final double @NonNull [] inIm, final double @NonNull [] outRe,
+			final double @NonNull [] outIm) {
+		if (inRe.length < size || inIm.length < size) {
+			throw new IllegalArgumentException(
+					"Length of inRe and inIm must be at least " + size);
+		} else if (outRe.length < size || outIm.length < size) {
+			throw new IllegalArgumentException(
+					"Length of outRe and outIm must be at least " + size);
+		}
+	}
+
+	// out = DFT(in) bzw. DFT(in') bei conjugate = true
+	private void transform(final double @NonNull [] inRe,
+			final double @NonNull [] inIm, final double @NonNull [] outRe,
+			final double @NonNull [] outIm, final boolean conjugate) {
+		if (reverse != null) {
+			bitReverse(inRe, inIm, outRe, outIm, conjugate);
+			fft(outRe, outIm, size);
+		} else {
+			bluestein.forward(inRe, inIm, outRe, outIm, conjugate);
+		}
+	}
+
+	private void bitReverse(final double @NonNull [] inRe,
+			final double @NonNull [] inIm, final double @NonNull [] outRe,
+			final double @NonNull [] outIm, final boolean conjugate) {
+		final double sign = (conjugate ? -1.0 : 1.0);
+		if (inRe == outRe && inIm == outIm) {
+			for (int i = 0; i < size; i++) {
+				final int j = reverse[i];
+				if (i < j) {
+					final double tmpRe = outRe[i];
+					final double tmpIm = outIm[i];
+					outRe[i] = outRe[j];
+					outIm[i] = outIm[j];
+					outRe[j] = tmpRe;
+					outIm[j] = tmpIm;
+				}
+				outIm[i] *= sign;
+			}
+		} else if (inRe == outRe || inIm == outIm) {
+			throw new IllegalArgumentException(
+					"Real and imaginary parts must both be in-place or both out-of-place");
+		} else {
+			for (int i = 0; i < size; i++) {
+				outRe[i] = inRe[reverse[i]];
+				outIm[i] = sign * inIm[reverse[i]];
+			}
+		}
+	}
+
+	// Radix-2-Stufen über n Werte in bit-umgekehrter Reihenfolge
+	private void fft(final double @NonNull [] re,
+			final double @NonNull [] im, final int n) {
+		for (int halfSize = 1; halfSize < n; halfSize *= 2) {
+			final int twiddleOffset = halfSize - 1;
+			for (int group = 0; group < n; group += 2 * halfSize) {
+				for (int j = 0; j < halfSize; j++) {
+					final double wr = twiddleRe[twiddleOffset + j];
+					final double wi = twiddleIm[twiddleOffset + j];
+					final int i = group + j;
+					final int off = i + halfSize;
+					final double tr = wr * re[off] - wi * im[off];
+					final double ti = wr * im[off] + wi * re[off];
+					re[off] = re[i] - tr;
+					im[off] = im[i] - ti;
+					re[i] += tr;
+					im[i] += ti;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Berechnet die Bins X[0..size/2] eines reellwertigen Signals, siehe
+	 * {@link FastFourierTransform#forwardReal}.
+	 */
+	public void forwardReal(final double @NonNull [] samples,
+			final double @NonNull [] re, final double @NonNull [] im) {
+		if (samples.length != size) {
+			throw new IllegalArgumentException("samples length "
+					+ samples.length + " must be " + size);
+		}
+		checkRealBins(re, im);
+
+		final int half = size / 2;
+		if (size % 2 == 1) {
+			// Ungerade Länge: komplexe FFT mit Imaginärteil 0
+			final double[][] buffer = scratch.get();
+			final double[] tmpRe = buffer[0];
+			final double[] tmpIm = buffer[1];
+			final double[] zeros = buffer[2];
+			Arrays.fill(zeros, 0.0);
+			transform(samples, zeros, tmpRe, tmpIm, false);
+			System.arraycopy(tmpRe, 0, re, 0, half + 1);
+			System.arraycopy(tmpIm, 0, im, 0, half + 1);
+			return;
+		}
+
+		// z[n] = x[2n] + i*x[2n+1]
+		if (reverse != null) {
+			for (int i = 0; i < half; i++) {
+				final int n = reverse[i] >> 1;
+				re[i] = samples[2 * n];
+				im[i] = samples[2 * n + 1];
+			}
+			fft(re, im, half);
+		} else {
+			final double[][] buffer = scratch.get();
+			final double[] packedRe = buffer[0];
+			final double[] packedIm = buffer[1];
+			for (int n = 0; n < half; n++) {
+				packedRe[n] = samples[2 * n];
+				packedIm[n] = samples[2 * n + 1];
+			}
+			halfTransform.forward(packedRe, packedIm, re, im);
+		}
+		splitRealSpectrum(re, im);
+	}
+
+	/**
+	 * Inverse von {@link #forwardReal}, siehe
+	 * {@link FastFourierTransform#backwardReal}. re und im werden als
+	 * Zwischenspeicher genutzt und überschrieben.
+	 */
+	public void backwardReal(final double @NonNull [] re,
+			final double @NonNull [] im, final double @NonNull [] samples) {
+		if (samples.length != size) {
+			throw new IllegalArgumentException("samples length "
+					+ samples.length + " must be " + size);
+		}
+		checkRealBins(re, im);
+
+		if (size % 2 == 1) {
+			// Ungerade Länge: komplexe FFT über das vervollständigte,
+			// konjugierte Spektrum
+			final double[][] buffer = scratch.get();
+			final double[] tmpRe = buffer[0];
+			final double[] tmpIm = buffer[1];
+			for (int k = 0; k < size; k++) {
+				final int bin = (k <= size / 2 ? k : size - k);
+				final double sign = (k <= size / 2 ? 1.0 : -1.0);
+				tmpRe[k] = re[bin];
+				tmpIm[k] = -sign * im[bin];
+			}
+			final double[] outRe = buffer[2];
+			transform(tmpRe, tmpIm, outRe, buffer[3], false);
+			for (int i = 0; i < size; i++) {
+				samples[i] = outRe[i] / size;
+			}
+			return;
+		}
+
+		final int half = size / 2;
+		mergeRealSpectrum(re, im);
+		if (reverse != null) {
+			for (int i = 0; i < half; i++) {
+				final int j = reverse[i] >> 1;
+				if (i < j) {
+					final double tmpRe = re[i];
+					final double tmpIm = im[i];
+					re[i] = re[j];
+					im[i] = im[j];
+					re[j] = tmpRe;
+					im[j] = tmpIm;
+				}
+			}
+			fft(re, im, half);
+		} else {
+			final double[][] buffer = scratch.get();
+			final double[] tmpRe = buffer[0];
+			final double[] tmpIm = buffer[1];
+			System.arraycopy(re, 0, tmpRe, 0, half);
+			System.arraycopy(im, 0, tmpIm, 0, half);
+			halfTransform.forward(tmpRe, tmpIm, re, im);
+		}
+		final double scale = 1.0 / half;
+		for (int n = 0; n < half; n++) {
+			samples[2 * n] = re[n] * scale;
+			samples[2 * n + 1] = -im[n] * scale;
+		}
+	}
+
+	private void checkRealBins(final double @NonNull [] re,
+			final double @NonNull [] im) {
+		final int numBins = getNumRealBins();
+		if (re.length < numBins || im.length < numBins) {
+			throw new IllegalArgumentException(
+					"Length of re and im must be at least " + numBins);
+		}
+	}
+
+	// Siehe FastFourierTransform.splitRealSpectrum
+	private void splitRealSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im) {
+		final int half = size / 2;
+		final double re0 = re[0];
+		final double im0 = im[0];
+		re[0] = re0 + im0;
+		im[0] = 0.0;
+		re[half] = re0 - im0;
+		im[half] = 0.0;
+
+		for (int k = 1; k <= half / 2; k++) {
+			final int mirror = half - k;
+			final double aRe = re[k];
+			final double aIm = im[k];
+			final double bRe = re[mirror];
+			final double bIm = -im[mirror];
+
+			final double eRe = 0.5 * (aRe + bRe);
+			final double eIm = 0.5 * (aIm + bIm);
+			final double oRe = 0.5 * (aIm - bIm);
+			final double oIm = -0.5 * (aRe - bRe);
+
+			final double woRe = realCos[k] * oRe - realSin[k] * oIm;
+			final double woIm = realCos[k] * oIm + realSin[k] * oRe;
+
+			re[k] = eRe + woRe;
+			im[k] = eIm + woIm;
+			re[mirror] = eRe - woRe;
+			im[mirror] = -(eIm - woIm);
+		}
+	}
+
+	// Siehe FastFourierTransform.mergeRealSpectrum
+	private void mergeRealSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im) {
+		final int half = size / 2;
+		final double re0 = re[0];
+		final double reHalf = re[half];
+		re[0] = 0.5 * (re0 + reHalf);
+		im[0] = -0.5 * (re0 - reHalf);
+
+		for (int k = 1; k <= half / 2; k++) {
+			final int mirror = half - k;
+			final double aRe = re[k];
+			final double aIm = im[k];
+			final double bRe = re[mirror];
+			final double bIm = -im[mirror];
+
+			final double eRe = 0.5 * (aRe + bRe);
+			final double eIm = 0.5 * (aIm + bIm);
+			final double woRe = 0.5 * (aRe - bRe);
+			final double woIm = 0.5 * (aIm - bIm);
+			final double wRe = realCos[k];
+			final double wIm = -realSin[k];
+			final double oRe = wRe * woRe - wIm * woIm;
+			final double oIm = wRe * woIm + wIm * woRe;
+
+			re[k] = eRe - oIm;
+			im[k] = -(eIm + oRe);
+			re[mirror] = eRe + oIm;
+			im[mirror] = -(-eIm + oRe);
+		}
+	}
+
+	/**
+	 * Ergänzt die zweite Hälfte der Fourier-Transformierten eines
+	 * reellwertigen Signals aus den Bins X[0..size/2]: X[size - k] = X'[k]
+	 */
+	public static void completeSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im, final int size) {
+		if (re.length < size || im.length < size) {
+			throw new IllegalArgumentException(
+					"Length of re and im must be at least " + size);
+		}
+
+		for (int k = size / 2 + 1; k < size; k++) {
+			re[k] = re[size - k];
+			im[k] = -im[size - k];
+		}
+	}
+
+	/**
+	 * spectrum[k] = sqrt(re[k]² + im[k]²), siehe
+	 * {@link FastFourierTransform#computeMagnitudeSpectrum}
+	 */
+	public static void computeMagnitudeSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im, final double @NonNull [] spectrum,
+			final boolean firstHalfOnly) {
+		checkSpectrumArguments(re, im, spectrum, firstHalfOnly, "spectrum");
+
+		final int expectedSize = (firstHalfOnly ? re.length / 2 : re.length);
+		for (int k = 0; k < expectedSize; k++) {
+			spectrum[k] = Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+		}
+	}
+
+	/**
+	 * Siehe {@link FastFourierTransform#normalizeMagnitudeSpectrum(float[],
+	 * int, boolean)}
+	 */
+	public static void normalizeMagnitudeSpectrum(
+			final double @NonNull [] spectrum, final int size,
+			final boolean realValuedInput) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
+		} else if ((spectrum.length != size) && (spectrum.length != size / 2)) {
+			throw new IllegalArgumentException("spectrum length "
+					+ spectrum.length + " is neither size " + size
+					+ " nor half of size " + (size / 2));
+		}
+
+		final double scale = (realValuedInput ? 2.0 / size : 1.0 / size);
+		for (int i = 0; i < spectrum.length; i++) {
+			spectrum[i] *= scale;
+		}
+	}
+
+	/**
+	 * power[k] = re[k]² + im[k]²
+	 */
+	public static void computePowerSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im, final double @NonNull [] power,
+			final boolean firstHalfOnly) {
+		checkSpectrumArguments(re, im, power, firstHalfOnly, "power");
+
+		final int expectedSize = (firstHalfOnly ? re.length / 2 : re.length);
+		for (int k = 0; k < expectedSize; k++) {
+			power[k] = re[k] * re[k] + im[k] * im[k];
+		}
+	}
+
+	/**
+	 * phase[k] = atan2(im[k], re[k])
+	 */
+	public static void computePhaseSpectrum(final double @NonNull [] re,
+			final double @NonNull [] im, final double @NonNull [] phase,
+			final boolean firstHalfOnly) {
+		checkSpectrumArguments(re, im, phase, firstHalfOnly, "phase");
+
+		final int expectedSize = (firstHalfOnly ? re.length / 2 : re.length);
+		for (int k = 0; k < expectedSize; k++) {
+			phase[k] = Math.atan2(im[k], re[k]);
+		}
+	}
+
+	private static void checkSpectrumArguments(final double @NonNull [] re,
+			final double @NonNull [] im, final double @NonNull [] spectrum,
+			final boolean firstHalfOnly, final @NonNull String spectrumName) {
+		if (re.length != im.length) {
+			throw new IllegalArgumentException("re length " + re.length
+					+ " != im.length " + im.length);
+		}
+		final int expectedSize = (firstHalfOnly ? re.length / 2 : re.length);
+		if (spectrum.length < expectedSize) {
+			throw new IllegalArgumentException(spectrumName + " length "
+					+ spectrum.length + " < expected size " + expectedSize);
+		}
+	}
+
+	// Bluestein-Algorithmus, siehe FourierPlan.Bluestein
+	private static final class Bluestein {
+		private final int size;
+		private final DoubleFastFourierTransform fft;
+		private final double[] chirpRe;
+		private final double[] chirpIm;
+		private final double[] kernelRe;
+		private final double[] kernelIm;
+		// Real- und Imaginärteil der Faltung
+		private final ThreadLocal<double[][]> buffers;
+
+		Bluestein(final int size) {
+			this.size = size;
+			final int fftSize = Util.getNextPowerOfTwo(2 * size - 1);
+			fft = new DoubleFastFourierTransform(fftSize, false);
+
+			chirpRe = new double[size];
+			chirpIm = new double[size];
+			for (int j = 0; j < size; j++) {
+				// j² mod 2n, damit der Winkel auch für große j exakt bleibt
+				final long square = ((long) j * j) % (2L * size);
+				final double rad = -Math.PI * square / size;
+				chirpRe[j] = Math.cos(rad);
+				chirpIm[j] = Math.sin(rad);
+			}
+
+			kernelRe = new double[fftSize];
+			kernelIm = new double[fftSize];
+			kernelRe[0] = chirpRe[0];
+			kernelIm[0] = -chirpIm[0];
+			for (int j = 1; j < size; j++) {
+				kernelRe[j] = kernelRe[fftSize - j] = chirpRe[j];
+				kernelIm[j] = kernelIm[fftSize - j] = -chirpIm[j];
+			}
+			fft.forward(kernelRe, kernelIm, kernelRe, kernelIm);
+
+			buffers = ThreadLocal.withInitial(() -> new double[][] {
+					new double[fftSize], new double[fftSize] });
+		}
+
+		void forward(final double @NonNull [] inRe,
+				final double @NonNull [] inIm, final double @NonNull [] outRe,
+				final double @NonNull [] outIm, final boolean conjugate) {
+			final double sign = (conjugate ? -1.0 : 1.0);
+			final double[][] buffer = buffers.get();
+			final double[] bufferRe = buffer[0];
+			final double[] bufferIm = buffer[1];
+			// a[j] = x[j] * c[j], mit 0 auf Länge M aufgefüllt
+			for (int j = 0; j < size; j++) {
+				final double re = inRe[j];
+				final double im = sign * inIm[j];
+				bufferRe[j] = re * chirpRe[j] - im * chirpIm[j];
+				bufferIm[j] = re * chirpIm[j] + im * chirpRe[j];
+			}
+			Arrays.fill(bufferRe, size, bufferRe.length, 0.0);
+			Arrays.fill(bufferIm, size, bufferIm.length, 0.0);
+
+			fft.forward(bufferRe, bufferIm, bufferRe, bufferIm);
+			for (int i = 0; i < bufferRe.length; i++) {
+				final double re = bufferRe[i];
+				final double im = bufferIm[i];
+				bufferRe[i] = re * kernelRe[i] - im * kernelIm[i];
+				bufferIm[i] = re * kernelIm[i] + im * kernelRe[i];
+			}
+			fft.backward(bufferRe, bufferIm, bufferRe, bufferIm);
+
+			// X[k] = c[k] * (a * c')[k]
+			for (int k = 0; k < size; k++) {
+				final double re = bufferRe[k];
+				final double im = bufferIm[k];
+				outRe[k] = re * chirpRe[k] - im * chirpIm[k];
+				outIm[k] = re * chirpIm[k] + im * chirpRe[k];
+			}
+		}
+	}
+}
@@ -13,9 +13,25 @@ import de.skawronek.audiolib.util.Util;
 // Das Wiener–Khinchin-Theorem besagt, dass das Power-Spektrum S[] der
 // Fourier-Transformierten von R_xx[] gleich ist: S[] = FFT(R_xx[]).
 // Daher gilt: R_xx[] = IFFT(FFT(S[])) = IFFT(|FFT(x[])|^2)
+//
+// Mit Precision.DOUBLE wird die Berechnung mit der
+// DoubleFastFourierTransform durchgeführt. Bei langen Signalen (ab ca. 65536
+// Samples) ist das Ergebnis der float-FFT sonst merklich ungenau.
+//
+// Mit maxLag werden nur die Koeffizienten R_xx[0..maxLag-1] berechnet (z. B.
+// für die Grundfrequenz nur die Lags bis sampleRate / minFreq). Damit sich die
+// zyklische Korrelation der FFT nicht mit den benötigten Lags überlappt, reicht
+// dann Zero-Padding auf die nächste Zweierpotenz ab size + maxLag statt auf
+// 2 * size. Ist maxLag so klein,
+// dass die direkte Summe R_xx[i] = Sum_j x[j]*x[j + i] weniger kostet als die
+// beiden FFTs, wird sie stattdessen im Zeitbereich berechnet.
 public final class FastAutocorrelation {
+	// Geschätzte Kosten der beiden reellen FFTs der Länge n in
+	// Multiplikationen der direkten Summe: FFT_COST_FACTOR * n * log2(n)
+	private static final int FFT_COST_FACTOR = 1;
+
 	public static final class Factory extends
-			AbstractFactory<Integer, FastAutocorrelation> {
+			AbstractFactory<Factory.Index, FastAutocorrelation> {
 		private static final Factory INSTANCE = new Factory();
 
 		private Factory() {
@@ -26,45 +42,217 @@ public final class FastAutocorrelation {
 		}
 
 		public @NonNull FastAutocorrelation get(final int size) {
-			return super.get(size);
+			return get(size, Precision.SINGLE);
+		}
+
+		public @NonNull FastAutocorrelation get(final int size,
+				final @NonNull Precision precision) {
+			return super.get(new Index(size, 0, precision));
+		}
+
+		/**
+		 * Autokorrelation, die nur die Koeffizienten R_xx[0..maxLag-1]
+		 * berechnet.
+		 */
+		public @NonNull FastAutocorrelation get(final int size,
+				final int maxLag) {
+			return get(size, maxLag, Precision.SINGLE);
+		}
+
+		public @NonNull FastAutocorrelation get(final int size,
+				final int maxLag, final @NonNull Precision precision) {
+			checkMaxLag(size, maxLag);
+			return super.get(new Index(size, maxLag, precision));
 		}
 
 		@Override
-		protected @NonNull FastAutocorrelation create(@NonNull Integer size) {
-			return new FastAutocorrelation(size);
+		protected @NonNull FastAutocorrelation create(@NonNull Index index) {
+			return new FastAutocorrelation(index.size, index.maxLag,
+					index.precision);
+		}
+
+		static final class Index {
+			private final int size;
+			// 0, wenn alle Lags berechnet werden
+			private final int maxLag;
+			private final Precision precision;
+
+			Index(final int size, final int maxLag,
+					final @NonNull Precision precision) {
+				this.size = size;
+				this.maxLag = maxLag;
+				this.precision = precision;
+			}
+
+			@Override
+			public boolean equals(final Object obj) {
+				if (obj == this) {
+					return true;
+				} else if (obj instanceof Index) {
+					final Index other = (Index) obj;
+					return size == other.size && maxLag == other.maxLag
+							&& precision == other.precision;
+				} else {
+					return false;
+				}
+			}
+
+			@Override
+			public int hashCode() {
+				return 31 * (31 * size + maxLag) + precision.hashCode();
+			}
 		}
 	}
 
+	private final Precision precision;
+	// 0, wenn alle Lags berechnet werden
+	private final int maxLag;
+	// R_xx[] wird per direkter Summe statt per FFT berechnet
+	private final boolean direct;
+
 	private final int maxInputSize;
 	private int lastInputSize;
 	private final int zeroPaddedSize;
+	// Nur bei Precision.SINGLE, sonst null
 	private final float[] zeroPadded;
 	private final FastFourierTransform fft;
-	// Zum Speichern von: Realteil der FFT, Powerspektrum S[] und letztlich der
-	// Autokorrelation R_xx[]
+	// Zum Speichern der Autokorrelation R_xx[]
 	private final float[] buffer1;
+	// Zum Speichern von: Realteil der FFT und Powerspektrum S[]. Da das Signal
+	// reellwertig ist, werden nur die zeroPaddedSize / 2 + 1 nicht
+	// redundanten Bins berechnet.
+	private final float[] binsRe;
 	// Zum Speichern von: Imaginärteil der FFT
-	private final float[] buffer2;
+	private final float[] binsIm;
+
+	// Wie oben, nur bei Precision.DOUBLE, sonst null
+	private final double[] doubleZeroPadded;
+	private final DoubleFastFourierTransform doubleFft;
+	private final double[] doubleBuffer1;
+	private final double[] doubleBinsRe;
+	private final double[] doubleBinsIm;
 
 	FastAutocorrelation(final int size) {
+		this(size, Precision.SINGLE);
+	}
+
+	FastAutocorrelation(final int size, final @NonNull Precision precision) {
+		this(size, 0, precision);
+	}
+
+	FastAutocorrelation(final int size, final int maxLag,
+			final @NonNull Precision precision) {
 		if (size <= 0) {
 			throw new IllegalArgumentException("size " + size + " <= 0");
 		}
+		if (maxLag != 0) {
+			checkMaxLag(size, maxLag);
+		}
+
+		this.precision = precision;
+		this.maxLag = maxLag;
+		if (maxLag != 0) {
+			this.maxInputSize = size;
+			// Gemischte Radix-Längen sind hier deutlich langsamer als die
+			// nächste Zweierpotenz
+			this.zeroPaddedSize = Util.getNextPowerOfTwo(size + maxLag);
+			this.direct = ((double) size * maxLag < FFT_COST_FACTOR
+					* zeroPaddedSize * Util.log2(zeroPaddedSize));
+		} else {
+			// Wie oben auf die nächste Zweierpotenz, auch wenn eine kürzere
+			// Mixed-Radix-Länge möglich wäre (z. B. 1103 -> 1120): Die
+			// Mixed-Radix-FFT der Länge 2 * 1120 ist langsamer als die der
+			// Länge 4096.
+			this.maxInputSize = Util.getNextPowerOfTwo(size);
+			this.zeroPaddedSize = 2 * maxInputSize;
+			this.direct = false;
+		}
 
-		this.maxInputSize = Util.getNextPowerOfTwo(size);
-		this.zeroPaddedSize = 2 * Util.getNextPowerOfTwo(size);
-		this.zeroPadded = new float[zeroPaddedSize];
-		// Samplerate ist egal
-		this.fft = FastFourierTransform.Factory.getInstance().get(
-				zeroPaddedSize);
-		this.buffer1 = new float[zeroPaddedSize];
-		this.buffer2 = new float[zeroPaddedSize];
+		if (direct) {
+			this.zeroPadded = null;
+			this.fft = null;
+			this.binsRe = null;
+			this.binsIm = null;
+			this.doubleZeroPadded = null;
+			this.doubleFft = null;
+			this.doubleBinsRe = null;
+			this.doubleBinsIm = null;
+			if (precision == Precision.SINGLE) {
+				this.buffer1 = new float[maxLag];
+				this.doubleBuffer1 = null;
+			} else {
+				this.buffer1 = null;
+				this.doubleBuffer1 = new double[maxLag];
+			}
+		} else if (precision == Precision.SINGLE) {
+			this.zeroPadded = new float[zeroPaddedSize];
+			// Samplerate ist egal
+			this.fft = FastFourierTransform.Factory.getInstance().get(
+					zeroPaddedSize);
+			this.buffer1 = new float[zeroPaddedSize];
+			this.binsRe = new float[fft.getNumRealBins()];
+			this.binsIm = new float[fft.getNumRealBins()];
+
+			this.doubleZeroPadded = null;
+			this.doubleFft = null;
+			this.doubleBuffer1 = null;
+			this.doubleBinsRe = null;
+			this.doubleBinsIm = null;
+		} else {
+			this.doubleZeroPadded = new double[zeroPaddedSize];
+			this.doubleFft = DoubleFastFourierTransform.Factory
+					.getInstance().get(zeroPaddedSize);
+			this.doubleBuffer1 = new double[zeroPaddedSize];
+			this.doubleBinsRe = new double[doubleFft.getNumRealBins()];
+			this.doubleBinsIm = new double[doubleFft.getNumRealBins()];
+
+			this.zeroPadded = null;
+			this.fft = null;
+			this.buffer1 = null;
+			this.binsRe = null;
+			this.binsIm = null;
+		}
+	}
+
+	private static void checkMaxLag(final int size, final int maxLag) {
+		if (maxLag < 1 || maxLag > size) {
+			throw new IllegalArgumentException("maxLag " + maxLag
+					+ " is out of range 1.." + size);
+		}
 	}
 
 	public int getMaxInputSize() {
 		return maxInputSize;
 	}
 
+	/**
+	 * Gibt maxLag zurück bzw. 0, wenn alle Lags berechnet werden.
+	 */
+	public int getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Gibt zurück, ob die Koeffizienten im Zeitbereich statt per FFT
+	 * berechnet werden.
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * Gibt die Anzahl der Koeffizienten der letzten Berechnung zurück: maxLag
+	 * bzw. die Länge des letzten Signals, wenn alle Lags berechnet werden.
+	 */
+	public int getNumCoefficients() {
+		return (maxLag != 0 ? maxLag : lastInputSize);
+	}
+
+	@NonNull
+	public Precision getPrecision() {
+		return precision;
+	}
+
 	public void compute(final float @NonNull [] samples) {
 		if (samples.length > maxInputSize) {
 			throw new IllegalArgumentException("samples length "
@@ -72,55 +260,153 @@ public final class FastAutocorrelation {
 		}
 
 		lastInputSize = samples.length;
+		if (direct) {
+			computeDirect(samples);
+			return;
+		} else if (precision == Precision.DOUBLE) {
+			computeDouble(samples);
+			return;
+		}
 
 		// 1. Zero-Padding: zeroPadded[] = [samples; 0...0]
 		System.arraycopy(samples, 0, zeroPadded, 0, samples.length);
-		final int startIndex = maxInputSize; // inkl.
-		final int endIndex = zeroPaddedSize; // exkl.
-		Arrays.fill(zeroPadded, startIndex, endIndex, 0.0f);
+		Arrays.fill(zeroPadded, samples.length, zeroPaddedSize, 0.0f);
 
-		// 2. buffer1/2[] = FFT(zeroPadded[])
-		fft.forward(zeroPadded);
-		fft.copyReal(buffer1);
-		fft.copyImaginary(buffer2);
+		// 2. binsRe/Im[] = FFT(zeroPadded[])
+		fft.forwardReal(zeroPadded, binsRe, binsIm);
 
-		// 3. buffer1[] = S[] (Powerspektrum)
-		for (int i = 0; i < zeroPaddedSize; i++) {
-			final float re = buffer1[i];
-			final float im = buffer2[i];
-			buffer1[i] = re * re + im * im;
+		// 3. binsRe[] = S[] (Powerspektrum)
+		for (int i = 0; i < binsRe.length; i++) {
+			final float re = binsRe[i];
+			final float im = binsIm[i];
+			binsRe[i] = re * re + im * im;
+			binsIm[i] = 0f;
 		}
 
-		// 4. buffer1[] = IFFT(buffer1[])
-		fft.backward(buffer1);
-		fft.copyReal(buffer1);
+		// 4. buffer1[] = IFFT(binsRe[])
+		fft.backwardReal(binsRe, binsIm, buffer1);
 	}
 
-	public void copyCoefficients(final float @NonNull [] dest) {
-		if (dest.length < lastInputSize) {
-			throw new IllegalArgumentException("dest length " + dest.length
-					+ " < last input size " + lastInputSize);
+	// R_xx[i] = Sum_j x[j]*x[j + i] für i < maxLag, Lags ab der Länge des
+	// Signals sind 0
+	private void computeDirect(final float @NonNull [] x) {
+		final int n = x.length;
+		final int numLags = Math.min(maxLag, n);
+		if (precision == Precision.SINGLE) {
+			for (int lag = 0; lag < numLags; lag++) {
+				float sum = 0f;
+				for (int j = 0, end = n - lag; j < end; j++) {
+					sum += x[j] * x[j + lag];
+				}
+				buffer1[lag] = sum;
+			}
+			Arrays.fill(buffer1, numLags, maxLag, 0f);
+		} else {
+			for (int lag = 0; lag < numLags; lag++) {
+				double sum = 0.0;
+				for (int j = 0, end = n - lag; j < end; j++) {
+					sum += (double) x[j] * x[j + lag];
+				}
+				doubleBuffer1[lag] = sum;
+			}
+			Arrays.fill(doubleBuffer1, numLags, maxLag, 0.0);
 		}
+	}
+
+	// Wie compute(), aber in double-Genauigkeit
+	private void computeDouble(final float @NonNull [] samples) {
+		for (int i = 0; i < samples.length; i++) {
+			doubleZeroPadded[i] = samples[i];
+		}
+		Arrays.fill(doubleZeroPadded, samples.length, zeroPaddedSize, 0.0);
+
+		doubleFft.forwardReal(doubleZeroPadded, doubleBinsRe, doubleBinsIm);
+		for (int i = 0; i < doubleBinsRe.length; i++) {
+			final double re = doubleBinsRe[i];
+			final double im = doubleBinsIm[i];
+			doubleBinsRe[i] = re * re + im * im;
+			doubleBinsIm[i] = 0.0;
+		}
+		doubleFft.backwardReal(doubleBinsRe, doubleBinsIm, doubleBuffer1);
+	}
+
+	/**
+	 * Kopiert die {@link #getNumCoefficients()} Koeffizienten der letzten
+	 * Berechnung nach dest.
+	 */
+	public void copyCoefficients(final float @NonNull [] dest) {
+		final int count = getNumCoefficients();
+		checkDestLength(dest.length, count);
 
 		// In buffer1 ist das Ergebnis der letzten Berechnung gespeichert
-		System.arraycopy(buffer1, 0, dest, 0, lastInputSize);
+		if (precision == Precision.DOUBLE) {
+			for (int i = 0; i < count; i++) {
+				dest[i] = (float) doubleBuffer1[i];
+			}
+		} else {
+			System.arraycopy(buffer1, 0, dest, 0, count);
+		}
+	}
+
+	public void copyCoefficients(final double @NonNull [] dest) {
+		final int count = getNumCoefficients();
+		checkDestLength(dest.length, count);
+
+		if (precision == Precision.DOUBLE) {
+			System.arraycopy(doubleBuffer1, 0, dest, 0, count);
+		} else {
+			for (int i = 0; i < count; i++) {
+				dest[i] = buffer1[i];
+			}
+		}
+	}
+
+	private void checkDestLength(final int length, final int count) {
+		if (length < count) {
+			if (maxLag != 0) {
+				throw new IllegalArgumentException("dest length " + length
+						+ " < maxLag " + maxLag);
+			}
+			throw new IllegalArgumentException("dest length " + length
+					+ " < last input size " + lastInputSize);
+		}
 	}
 
 	public void normalize() {
+		if (precision == Precision.DOUBLE) {
+			normalizeDouble();
+			return;
+		}
+
+		final int count = getNumCoefficients();
 		final float max = buffer1[0];
 		if (max == 0) {
 			// Sondefall, bei dem das Eingangssignal überall Null ist. In dem
 			// Fall wird der erste Koeffizient zu Eins und der Rest zu Null
 			// gesetzt.
 			buffer1[0] = 1f;
-			Arrays.fill(buffer1, 1, lastInputSize, 0f);
+			Arrays.fill(buffer1, 1, count, 0f);
 		} else {
 			// Skaliert die Koeffizienten so, dass der erste Koeffizient Eins
 			// wird.
 			final float normalizationFactor = 1f / max;
-			for (int i = 0; i < lastInputSize; i++) {
+			for (int i = 0; i < count; i++) {
 				buffer1[i] *= normalizationFactor;
 			}
 		}
 	}
+
+	private void normalizeDouble() {
+		final int count = getNumCoefficients();
+		final double max = doubleBuffer1[0];
+		if (max == 0) {
+			doubleBuffer1[0] = 1.0;
+			Arrays.fill(doubleBuffer1, 1, count, 0.0);
+		} else {
+			final double normalizationFactor = 1.0 / max;
+			for (int i = 0; i < count; i++) {
+				doubleBuffer1[i] *= normalizationFactor;
+			}
+		}
+	}
 }
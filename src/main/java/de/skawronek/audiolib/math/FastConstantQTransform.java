@@ -1,19 +1,32 @@
 package de.skawronek.audiolib.math;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import de.skawronek.audiolib.math.WindowFunctions.IWindowFunction;
 import de.skawronek.audiolib.util.AbstractFactory;
+import de.skawronek.audiolib.util.SharedFactory;
 import de.skawronek.audiolib.util.Util;
 
 public final class FastConstantQTransform {
 	// "An Efficient Algorithm for the Calculation of a constant Q transform",
 	// Judith C. Brown, Page 3
 	private static final float MINVAL = 0.15f;
-
-	private static final class Index {
+	// Ab dieser Anzahl Elemente (Bins * FFT-Länge) werden die Zeilen eines
+	// Kernels parallel berechnet
+	private static final long PARALLEL_KERNEL_SIZE = 1 << 18;
+	// Ab dieser Anzahl komplexer Multiplikationen (Elemente des Kernels *
+	// Frames) rechnet forwardBatch Blöcke von PARALLEL_BATCH_FRAMES Frames
+	// parallel
+	private static final long PARALLEL_BATCH_SIZE = 1 << 22;
+	private static final int PARALLEL_BATCH_FRAMES = 4 * ComplexSparseMatrix.BATCH_BLOCK_SIZE;
+
+	private static volatile ConstantQKernelCache kernelCache;
+
+	static final class Index {
 		final double minFreq;
 		final double maxFreq;
 		final int binsPerOctave;
@@ -79,7 +92,11 @@ public final class FastConstantQTransform {
 
 		@Override
 		protected @NonNull FastConstantQTransform create(@NonNull Index index) {
-			return new FastConstantQTransform(index.minFreq, index.maxFreq,
+			final int numBins = calcNumBins(index.binsPerOctave,
+					index.minFreq, index.maxFreq);
+			final Kernel kernel = Kernel.sharedWithNumBins(numBins,
+					index.binsPerOctave, index.minFreq, index.sampleRate);
+			return new FastConstantQTransform(kernel, index.minFreq,
 					index.binsPerOctave, index.sampleRate);
 		}
 	}
@@ -93,62 +110,230 @@ public final class FastConstantQTransform {
 	private final float[] imaginary;
 
 	public static final class Kernel {
+		private static final class MatrixIndex {
+			private final int numBins;
+			private final int binsPerOctave;
+			private final double minFreq;
+			private final double sampleRate;
+
+			private MatrixIndex(final int numBins, final int binsPerOctave,
+					final double minFreq, final double sampleRate) {
+				this.numBins = numBins;
+				this.binsPerOctave = binsPerOctave;
+				this.minFreq = minFreq;
+				this.sampleRate = sampleRate;
+			}
+
+			@Override
+			public boolean equals(final Object obj) {
+				if (obj == null) {
+					return false;
+				} else if (obj == this) {
+					return true;
+				} else if (obj instanceof MatrixIndex) {
+					final MatrixIndex other = (MatrixIndex) obj;
+					//@formatter:off
+					return other.numBins == this.numBins
+							&& other.binsPerOctave == this.binsPerOctave
+							&& Double.compare(other.minFreq, this.minFreq) == 0
+							&& Double.compare(other.sampleRate, this.sampleRate) == 0;
+					//@formatter:on
+				} else {
+					return false;
+				}
+			}
+
+			@Override
+			public int hashCode() {
+				//@formatter:off
+				return numBins
+						^ binsPerOctave
+						^ Double.hashCode(minFreq)
+						^ Double.hashCode(sampleRate);
+				//@formatter:on
+			}
+		}
+
+		// Die Matrizen sind unveränderlich und werden von den Kernels aller
+		// Threads gemeinsam genutzt, die über eine Factory erzeugt werden
+		private static final class MatrixFactory extends
+				SharedFactory<MatrixIndex, ComplexSparseMatrix> {
+			private static final MatrixFactory INSTANCE = new MatrixFactory();
+
+			private MatrixFactory() {
+			}
+
+			@NonNull
+			ComplexSparseMatrix get(final int numBins, final int binsPerOctave,
+					final double minFreq, final double sampleRate) {
+				return super.get(new MatrixIndex(numBins, binsPerOctave,
+						minFreq, sampleRate));
+			}
+
+			@Override
+			protected @NonNull ComplexSparseMatrix create(
+					final @NonNull MatrixIndex index) {
+				return createMatrix(index.numBins, index.binsPerOctave,
+						index.minFreq, index.sampleRate);
+			}
+		}
+
 		private final FastFourierTransform fft;
-		private final ComplexSparseVector[] rows;
+		// Zeilen des Kernels, bereits durch die FFT-Länge geteilt
+		private final ComplexSparseMatrix matrix;
 
 		private final float[] transformedRe;
 		private final float[] transformedIm;
 
 		public Kernel(final int binsPerOctave, final double minFreq,
 				final double maxFreq, final double sampleRate) {
+			this(createMatrix(calcNumBins(binsPerOctave, minFreq, maxFreq),
+					binsPerOctave, minFreq, sampleRate));
+		}
+
+		private Kernel(final @NonNull ComplexSparseMatrix matrix) {
+			this.matrix = matrix;
+			final int fftLen = matrix.getNumColumns();
+			// Sample-Rate spielt bei der FFT keine Rolle
+			fft = FastFourierTransform.Factory.getInstance().get(fftLen);
+			this.transformedRe = new float[fftLen];
+			this.transformedIm = new float[fftLen];
+		}
+
+		/**
+		 * Kernel mit genau numBins Bins ab minFreq, unabhängig von
+		 * Rundungsfehlern bei der Berechnung der Bin-Anzahl aus minFreq und
+		 * maxFreq.
+		 */
+		static Kernel withNumBins(final int numBins, final int binsPerOctave,
+				final double minFreq, final double sampleRate) {
+			return new Kernel(createMatrix(numBins, binsPerOctave, minFreq,
+					sampleRate));
+		}
+
+		/**
+		 * Wie {@link #withNumBins}, die Matrix wird aber nur einmal pro
+		 * Prozess erzeugt (bzw. aus dem Kernel-Cache geladen) und von allen
+		 * Threads gemeinsam genutzt. Nur das FFT-Objekt und die
+		 * Zwischenspeicher gehören dem einzelnen Kernel.
+		 */
+		static Kernel sharedWithNumBins(final int numBins,
+				final int binsPerOctave, final double minFreq,
+				final double sampleRate) {
+			return new Kernel(MatrixFactory.INSTANCE.get(numBins,
+					binsPerOctave, minFreq, sampleRate));
+		}
+
+		// Lädt die Matrix aus dem Kernel-Cache oder berechnet sie
+		private static @NonNull ComplexSparseMatrix createMatrix(
+				final int numBins, final int binsPerOctave,
+				final double minFreq, final double sampleRate) {
+			final ConstantQKernelCache cache = kernelCache;
+			if (cache == null) {
+				return computeMatrix(numBins, binsPerOctave, minFreq,
+						sampleRate);
+			}
+			return cache.get(numBins, binsPerOctave, minFreq, sampleRate,
+					MINVAL, () -> computeMatrix(numBins, binsPerOctave,
+							minFreq, sampleRate));
+		}
+
+		private static @NonNull ComplexSparseMatrix computeMatrix(
+				final int numBins, final int binsPerOctave,
+				final double minFreq, final double sampleRate) {
 			final double q = calcQ(binsPerOctave);
-			final int numBins = calcNumBins(binsPerOctave, minFreq, maxFreq);
 			final int n0 = calcWindowSize(q, sampleRate, minFreq);
 			final int fftLen = Util.getNextPowerOfTwo(n0);
-			// Sample-Rate spielt bei der FFT keine Rolle
-			fft = FastFourierTransform.Factory.getInstance().get(fftLen);
-			// Eine Zeile des temporären Kernels
-			final float[] tmpKernelRe = new float[fftLen];
-			final float[] tmpKernelIm = new float[fftLen];
+
+			// Die Zeilen sind unabhängig voneinander und werden bei großen
+			// Kernels parallel im ForkJoinPool berechnet. Jeder Thread nutzt
+			// für alle seine Zeilen dieselben zwei Arrays der Länge fftLen.
+			final ComplexSparseVector[] rows = new ComplexSparseVector[numBins];
+			final ThreadLocal<float[][]> buffers = ThreadLocal
+					.withInitial(() -> new float[2][fftLen]);
+			final IntStream bins = IntStream.range(0, numBins);
+			final boolean parallel = ((long) numBins * fftLen >= PARALLEL_KERNEL_SIZE);
+			(parallel ? bins.parallel() : bins).forEach(k -> {
+				final float[][] buffer = buffers.get();
+				rows[k] = computeRow(k, fftLen, q, binsPerOctave, minFreq,
+						sampleRate, buffer[0], buffer[1]);
+			});
+
+			// Die Normalisierung mit 1/fftLen wird in den Kernel gezogen
+			return ComplexSparseMatrix.fromRows(rows, 1f / fftLen);
+		}
+
+		// Berechnet die k-te Zeile des Kernels. Die FFT-Instanz stammt aus
+		// dem Cache des aufrufenden Threads, kernelRe und kernelIm (Länge
+		// fftLen) sind Zwischenspeicher und werden überschrieben.
+		private static @NonNull ComplexSparseVector computeRow(final int k,
+				final int fftLen, final double q, final int binsPerOctave,
+				final double minFreq, final double sampleRate,
+				final float @NonNull [] kernelRe,
+				final float @NonNull [] kernelIm) {
+			final FastFourierTransform fft = FastFourierTransform.Factory
+					.getInstance().get(fftLen);
 			// Fensterfunktion
 			final IWindowFunction hamming = WindowFunctions.getHammingWindow();
 
-			this.rows = new ComplexSparseVector[numBins];
+			// Center-Frequenz des k-ten Bins in Hz
+			final double fk = calcFrequency(k, minFreq, binsPerOctave);
+			// Fenstergröße des k-ten Bins
+			final int nk = calcWindowSize(q, sampleRate, fk);
+			// Fenster des k-ten Bins
+			final double[] wk = createCoefficients(nk, hamming);
+			// Generiere die ersten nk Spalten der k-ten Zeile des temporären
+			// Kernels, der Rest ist 0
+			for (int i = 0; i < nk; i++) {
+				// i-ter Exponent der e-Funktion (Imaginärteil)
+				final double exponent = (2 * Math.PI * q / nk) * i;
+				// Eulersche-Identität: r*e^(j*phi) = r*cos(phi) +
+				// r*sin(phi)j
+				kernelRe[i] = (float) ((wk[i] / nk) * Math.cos(exponent));
+				kernelIm[i] = (float) ((wk[i] / nk) * Math.sin(exponent));
+			}
+			Arrays.fill(kernelRe, nk, fftLen, 0f);
+			Arrays.fill(kernelIm, nk, fftLen, 0f);
+
+			// Kernel ist zeilenweise fourier-transformierte des temporären
+			// Kernels, in situ berechnet
+			fft.forward(kernelRe, kernelIm, kernelRe, kernelIm);
+			// Parseval: Sum_n x[n] * k'[n] = 1/N * Sum_j X[j] * K'[j], der
+			// Kernel wird also konjugiert gespeichert
+			for (int j = 0; j < fftLen; j++) {
+				kernelIm[j] = -kernelIm[j];
+			}
 
-			this.transformedRe = new float[fftLen];
-			this.transformedIm = new float[fftLen];
+			return ComplexSparseVector.fromArray(kernelRe, kernelIm, MINVAL);
+		}
 
-			// Berechne alle Zeilen/Bins des Kernels
-			// Fange bei der Zeile an, bei der das Fenster am größten ist.
-			// Das erspart das Füllen mit Nullen des temporären Kernels.
-			final float[] kernelRe = new float[fftLen];
-			final float[] kernelIm = new float[fftLen];
-			for (int k = numBins - 1; k >= 0; k--) {
-				// Center-Frequenz des k-ten Bins in Hz
-				final double fk = calcFrequency(k, minFreq, binsPerOctave);
-				// Fenstergröße des k-ten Bins
-				final int nk = calcWindowSize(q, sampleRate, fk);
-				// Fenster des k-ten Bins
-				final double[] wk = createCoefficients(nk, hamming);
-				// Generiere alle Spalten der k-ten Zeile des temporären Kernels
-				for (int i = 0; i < nk; i++) {
-					// i-ter Exponent der e-Funktion (Imaginärteil)
-					final double exponent = (2 * Math.PI * q / nk) * i;
-					// Eulersche-Identität: r*e^(j*phi) = r*cos(phi) +
-					// r*sin(phi)j
-					tmpKernelRe[i] = (float) ((wk[i] / nk) * Math.cos(exponent));
-					tmpKernelIm[i] = (float) ((wk[i] / nk) * Math.sin(exponent));
-				}
+		int getNumBins() {
+			return matrix.getNumRows();
+		}
 
-				// Kernel ist zeilenweise fourier-transformierte des temporären
-				// Kernels.
-				fft.forward(tmpKernelRe, tmpKernelIm);
-				fft.copyReal(kernelRe);
-				fft.copyImaginary(kernelIm);
+		int getFftLength() {
+			return fft.getSize();
+		}
 
-				rows[k] = ComplexSparseVector.fromArray(kernelRe, kernelIm,
-						MINVAL);
+		void forwardBatch(final float @NonNull [] spectraRe,
+				final float @NonNull [] spectraIm, final int numFrames,
+				final float @NonNull [] outRe, final float @NonNull [] outIm) {
+			final long work = (long) matrix.getNumNonZeros() * numFrames;
+			if (work < PARALLEL_BATCH_SIZE) {
+				matrix.multiplyBatch(spectraRe, spectraIm, numFrames, outRe,
+						outIm);
+				return;
 			}
+
+			// Die Blöcke schreiben in disjunkte Spalten der Ausgabe
+			final int numBlocks = (numFrames + PARALLEL_BATCH_FRAMES - 1)
+					/ PARALLEL_BATCH_FRAMES;
+			IntStream.range(0, numBlocks).parallel().forEach(block -> {
+				final int from = block * PARALLEL_BATCH_FRAMES;
+				final int to = Math.min(from + PARALLEL_BATCH_FRAMES, numFrames);
+				matrix.multiplyBatch(spectraRe, spectraIm, numFrames, outRe,
+						outIm, from, to);
+			});
 		}
 
 		static double[] createCoefficients(final int size,
@@ -164,25 +349,27 @@ public final class FastConstantQTransform {
 
 		void forward(final float @NonNull [] samples,
 				final float @NonNull [] outRe, final float @NonNull [] outIm) {
+			forward(samples, 0, samples.length, outRe, outIm);
+		}
+
+		/**
+		 * Transformiert samples[offset..offset+size-1].
+		 */
+		void forward(final float @NonNull [] samples, final int offset,
+				final int size, final float @NonNull [] outRe,
+				final float @NonNull [] outIm) {
 			final int fftLen = this.fft.getSize();
-			final int size = samples.length;
 			if (size > fftLen) {
-				throw new IllegalArgumentException("samples length "
-						+ samples.length + " > fft length " + fftLen);
+				throw new IllegalArgumentException("samples length " + size
+						+ " > fft length " + fftLen);
 			}
 
-			final float[] inRe, inIm;
-			if (size == fftLen) {
-				inRe = samples;
-			} else {
-				System.arraycopy(samples, 0, transformedRe, 0, size);
-				Arrays.fill(transformedRe, size, fftLen, 0f);
-				inRe = transformedRe;
-			}
+			// Die FFT rechnet in situ auf transformedRe/Im
+			System.arraycopy(samples, offset, transformedRe, 0, size);
+			Arrays.fill(transformedRe, size, fftLen, 0f);
 			Arrays.fill(transformedIm, 0, fftLen, 0f);
-			inIm = transformedIm;
 
-			internalForward(inRe, inIm, outRe, outIm);
+			internalForward(transformedRe, transformedIm, outRe, outIm);
 		}
 
 		void forward(float @NonNull [] inRe, float @NonNull [] inIm,
@@ -198,17 +385,12 @@ public final class FastConstantQTransform {
 
 			// Zero Padding des Eingangssignal auf FFT-Länge
 			final int size = inRe.length;
-			if (size < fft.getSize()) {
-				System.arraycopy(inRe, 0, transformedRe, 0, size);
-				Arrays.fill(transformedRe, size, fftLen, 0f);
-				inRe = transformedRe;
-
-				System.arraycopy(inIm, 0, transformedIm, 0, size);
-				Arrays.fill(transformedIm, size, fftLen, 0f);
-				inIm = transformedIm;
-			}
+			System.arraycopy(inRe, 0, transformedRe, 0, size);
+			Arrays.fill(transformedRe, size, fftLen, 0f);
+			System.arraycopy(inIm, 0, transformedIm, 0, size);
+			Arrays.fill(transformedIm, size, fftLen, 0f);
 
-			internalForward(inRe, inIm, outRe, outIm);
+			internalForward(transformedRe, transformedIm, outRe, outIm);
 		}
 
 		private void internalForward(final float @NonNull [] inRe,
@@ -216,42 +398,58 @@ public final class FastConstantQTransform {
 				final float @NonNull [] outIm) {
 			final int fftLen = this.fft.getSize();
 			assert inRe.length == fftLen && inIm.length == fftLen;
-			assert outRe.length == fftLen && outIm.length == fftLen;
-
-			final int numBins = rows.length;
+			assert outRe.length >= matrix.getNumRows()
+					&& outIm.length >= matrix.getNumRows();
 
-			fft.forward(inRe, inIm);
-			fft.copyReal(transformedRe);
-			fft.copyImaginary(transformedIm);
+			fft.forward(inRe, inIm, transformedRe, transformedIm);
+			matrix.multiply(transformedRe, transformedIm, outRe, outIm);
+		}
+	}
 
-			for (int k = 0; k < numBins; k++) {
-				final float[] dotProduct = rows[k].dotProduct(transformedRe,
-						transformedIm);
-				outRe[k] = dotProduct[0];
-				outRe[k] = dotProduct[1];
+	/**
+	 * Setzt den Cache, aus dem alle ab jetzt erzeugten Kernels (auch die von
+	 * {@link MultiResolutionConstantQTransform}) geladen bzw. in den neu
+	 * berechnete Kernels geschrieben werden. Mit null wird jeder Kernel neu
+	 * berechnet (Standard). Kernel-Matrizen, die bereits über eine Factory
+	 * erzeugt und zwischen den Threads geteilt werden, bleiben davon
+	 * unberührt.
+	 */
+	public static void setKernelCache(final @Nullable ConstantQKernelCache cache) {
+		kernelCache = cache;
+	}
 
-				// Normalisiere
-				outRe[k] /= fftLen;
-				outIm[k] /= fftLen;
-			}
-		}
+	@Nullable
+	public static ConstantQKernelCache getKernelCache() {
+		return kernelCache;
 	}
 
 	FastConstantQTransform(final double minFreq, final double maxFreq,
 			final int binsPerOctave, final double sampleRate) {
+		this(createKernel(minFreq, maxFreq, binsPerOctave, sampleRate),
+				minFreq, binsPerOctave, sampleRate);
+	}
+
+	private static @NonNull Kernel createKernel(final double minFreq,
+			final double maxFreq, final int binsPerOctave,
+			final double sampleRate) {
 		checkArguments(minFreq, maxFreq, binsPerOctave, sampleRate);
+		return new Kernel(binsPerOctave, minFreq, maxFreq, sampleRate);
+	}
 
-		kernel = new Kernel(binsPerOctave, minFreq, maxFreq, sampleRate);
+	private FastConstantQTransform(final @NonNull Kernel kernel,
+			final double minFreq, final int binsPerOctave,
+			final double sampleRate) {
+		this.kernel = kernel;
 		this.binsPerOctave = binsPerOctave;
 		this.minFreq = minFreq;
-		final int numBins = calcNumBins(binsPerOctave, minFreq, maxFreq);
+		final int numBins = kernel.getNumBins();
 		this.sampleRate = sampleRate;
 
 		real = new float[numBins];
 		imaginary = new float[numBins];
 	}
 
-	private static void checkArguments(final double minFreq,
+	static void checkArguments(final double minFreq,
 			final double maxFreq, final int binsPerOctave,
 			final double sampleRate) {
 		checkFreq(minFreq, "minFreq");
@@ -289,6 +487,35 @@ public final class FastConstantQTransform {
 		kernel.forward(real, imaginary, this.real, this.imaginary);
 	}
 
+	/**
+	 * Transformiert die Spektren von numFrames Frames auf einmal, z. B. bei
+	 * der Offline-Analyse einer ganzen Datei. Die Spektren sind die
+	 * (unnormierten) FFTs der Länge {@link #getFftLength()} der mit Nullen
+	 * aufgefüllten Frames und liegen verschränkt vor: Bin j von Frame b steht
+	 * an Index j * numFrames + b, so wie sie
+	 * {@link FastFourierTransform#forwardBatch} liefert. Bin k der
+	 * Constant-Q-Transformation von Frame b wird entsprechend an k *
+	 * numFrames + b nach outRe und outIm geschrieben.
+	 * <p>
+	 * Der Kernel wird dabei als dünnbesetzte Matrix mit dem Block aller
+	 * Spektren multipliziert (siehe {@link ComplexSparseMatrix#multiplyBatch}
+	 * ), bei vielen Frames verteilt auf mehrere Threads. Der Zustand für
+	 * {@link #copyReal} usw. bleibt unverändert.
+	 */
+	public void forwardBatch(final float @NonNull [] spectraRe,
+			final float @NonNull [] spectraIm, final int numFrames,
+			final float @NonNull [] outRe, final float @NonNull [] outIm) {
+		kernel.forwardBatch(spectraRe, spectraIm, numFrames, outRe, outIm);
+	}
+
+	/**
+	 * Gibt die FFT-Länge des Kernels zurück, also die Länge der Spektren für
+	 * {@link #forwardBatch} und die maximale Frame-Größe.
+	 */
+	public int getFftLength() {
+		return kernel.getFftLength();
+	}
+
 	public double getSampleRate() {
 		return sampleRate;
 	}
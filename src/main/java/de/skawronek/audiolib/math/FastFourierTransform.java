@@ -1,11 +1,54 @@
 package de.skawronek.audiolib.math;
 
+import java.util.Arrays;
+
 import org.eclipse.jdt.annotation.NonNull;
 
 import de.skawronek.audiolib.util.AbstractFactory;
 import de.skawronek.audiolib.util.Util;
 
+/**
+ * FFT beliebiger Länge. Für Zweierpotenzen werden die Butterfly-Stufen
+ * abhängig von der Größe gewählt:
+ * <ul>
+ * <li>n &lt; {@value #RADIX4_MIN_SIZE}: Radix-2</li>
+ * <li>ab {@value #RADIX4_MIN_SIZE}: Radix-4, d. h. je zwei Radix-2-Stufen
+ * werden in einem Durchlauf über die Daten zusammengefasst</li>
+ * <li>ab {@value #BLOCKED_MIN_SIZE}: zusätzlich werden die Stufen, die
+ * innerhalb von Blöcken der Größe {@value #BLOCK_SIZE} arbeiten, Block für
+ * Block ausgeführt, damit ein Block im Cache bleibt</li>
+ * </ul>
+ * Die Twiddle-Faktoren jeder Stufe liegen zusammenhängend in einer Tabelle
+ * und werden in double-Genauigkeit vorberechnet.
+ * <p>
+ * Andere Längen werden über einen {@link FourierPlan} berechnet: Mixed-Radix
+ * für Längen mit Primfaktoren bis 7 (z. B. 441, 1200) und Bluestein für alle
+ * übrigen (z. B. 1103). Reellwertige Signale gerader Länge werden auch hier
+ * über eine komplexe FFT der halben Länge transformiert.
+ * <p>
+ * Es gibt zwei Schnittstellen:
+ * <ul>
+ * <li>Zustandslos: {@link #forward(float[], float[], float[], float[])},
+ * {@link #backward(float[], float[], float[], float[])},
+ * {@link #forwardReal} und {@link #backwardReal} lesen und schreiben nur die
+ * übergebenen Arrays. Eine Instanz kann damit von mehreren Threads
+ * gleichzeitig genutzt werden. Es wird dabei kein Speicher allokiert, bei
+ * Längen, die keine Zweierpotenz sind, nur beim ersten Aufruf eines Threads
+ * der Zwischenspeicher dieses Threads.</li>
+ * <li>Mit internem Ergebnis: {@link #forward(float[])} usw. schreiben in
+ * interne Arrays, die über {@link #copyReal} und {@link #copyImaginary}
+ * gelesen werden. Diese Methoden sind nicht thread-safe.</li>
+ * </ul>
+ */
 public final class FastFourierTransform {
+	static final int RADIX4_MIN_SIZE = 64;
+	static final int BLOCKED_MIN_SIZE = 8192;
+	static final int BLOCK_SIZE = 4096;
+	// Batch-Verarbeitung: maximale empfohlene Anzahl Frames und maximale
+	// Anzahl Werte (Frames * Länge) eines Batches
+	static final int BATCH_MAX_WIDTH = 16;
+	static final int BATCH_MAX_VALUES = 1 << 15;
+
 	public static final class Factory extends
 			AbstractFactory<Integer, FastFourierTransform> {
 		private static final Factory INSTANCE = new Factory();
@@ -29,19 +72,33 @@ public final class FastFourierTransform {
 
 	final int size;
 
+	// Ergebnis der zustandsbehafteten Methoden
 	final float[] imaginary;
 	final float[] real;
 
+	// Nur für Zweierpotenzen, sonst null
 	private final int[] reverse;
 
-	// Lookup Tabellen
-	final float[] sinLookup;
-	final float[] cosLookup;
+	// Twiddle-Faktoren e^(-i*Pi*j/h) für j = 0..h-1 der Stufe mit halber
+	// Butterfly-Größe h liegen ab Index h - 1.
+	private final float[] twiddleRe;
+	private final float[] twiddleIm;
+	// Twiddle-Faktoren e^(-2*Pi*i*k/size) für k = 0..size/4 der reellwertigen
+	// Transformation
+	private final float[] realCos;
+	private final float[] realSin;
+
+	// Nur für Längen, die keine Zweierpotenz sind, sonst null: Plan der Länge
+	// size und Plan der Länge size / 2 (bei gerader Länge)
+	private final FourierPlan plan;
+	private final FourierPlan halfPlan;
+	// Nur für Längen, die keine Zweierpotenz sind, sonst null: vier Arrays
+	// der Länge size als Zwischenspeicher der zustandslosen Methoden
+	private final ThreadLocal<float[][]> scratch;
 
 	FastFourierTransform(final int size) {
-		if (!Util.isPowerOfTwo(size)) {
-			throw new IllegalArgumentException("size " + size
-					+ " is not a power of two");
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
 		}
 
 		this.size = size;
@@ -49,6 +106,31 @@ public final class FastFourierTransform {
 		imaginary = new float[size];
 		real = new float[size];
 
+		realCos = new float[size / 4 + 1];
+		realSin = new float[size / 4 + 1];
+		for (int k = 0; k < realCos.length; k++) {
+			final double rad = -2 * Math.PI * k / size;
+			realCos[k] = (float) Math.cos(rad);
+			realSin[k] = (float) Math.sin(rad);
+		}
+
+		if (!Util.isPowerOfTwo(size)) {
+			reverse = null;
+			twiddleRe = null;
+			twiddleIm = null;
+			final FourierPlan.Factory plans = FourierPlan.Factory
+					.getInstance();
+			plan = plans.get(size);
+			halfPlan = (size % 2 == 0 ? plans.get(size / 2) : null);
+			scratch = ThreadLocal.withInitial(() -> new float[][] {
+					new float[size], new float[size], new float[size],
+					new float[size] });
+			return;
+		}
+		plan = null;
+		halfPlan = null;
+		scratch = null;
+
 		reverse = new int[size];
 		reverse[0] = 0;
 		for (int limit = 1, bit = size / 2; limit < size; limit <<= 1, bit >>= 1) {
@@ -56,28 +138,702 @@ public final class FastFourierTransform {
 				reverse[i + limit] = reverse[i] + bit;
 		}
 
-		sinLookup = new float[size];
-		cosLookup = new float[size];
-		fillLookupTables();
+		twiddleRe = new float[Math.max(size - 1, 1)];
+		twiddleIm = new float[Math.max(size - 1, 1)];
+		fillTwiddleTables();
+	}
+
+	private void fillTwiddleTables() {
+		for (int halfSize = 1; halfSize < size; halfSize *= 2) {
+			for (int j = 0; j < halfSize; j++) {
+				final double rad = -Math.PI * j / halfSize;
+				twiddleRe[halfSize - 1 + j] = (float) Math.cos(rad);
+				twiddleIm[halfSize - 1 + j] = (float) Math.sin(rad);
+			}
+		}
+	}
+
+	private boolean isPowerOfTwo() {
+		return reverse != null;
+	}
+
+	/**
+	 * Gibt die kleinste Länge &gt;= n zurück, deren Primfaktoren alle
+	 * höchstens 7 sind. Für solche Längen ist die FFT ohne den
+	 * Bluestein-Algorithmus berechenbar. Die Mixed-Radix-FFT ist aber meist
+	 * langsamer als die FFT der nächsten Zweierpotenz; wo nur Zero-Padding
+	 * nötig ist, ist {@link Util#getNextPowerOfTwo(int)} daher oft schneller.
+	 */
+	public static int getNextFastSize(final int n) {
+		if (n <= 1) {
+			return 1;
+		}
+		int candidate = n;
+		while (!FourierPlan.isSmooth(candidate)) {
+			candidate++;
+		}
+		return candidate;
+	}
+
+	/**
+	 * Zustandslose Vorwärtstransformation eines komplexwertigen Signals:
+	 * out = DFT(in). Die Ausgangs-Arrays dürfen mit den Eingangs-Arrays
+	 * identisch sein (Berechnung in situ).
+	 */
+	public void forward(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm) {
+		checkComplexArguments(inRe, inIm, outRe, outIm);
+		transform(inRe, inIm, outRe, outIm, false);
 	}
 
-	private void fillLookupTables() {
+	/**
+	 * Zustandslose Rücktransformation: out = IDFT(in), inkl. Division durch
+	 * size. Die Ausgangs-Arrays dürfen mit den Eingangs-Arrays identisch sein
+	 * (Berechnung in situ).
+	 */
+	public void backward(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm) {
+		checkComplexArguments(inRe, inIm, outRe, outIm);
+
+		// 1. Take conjugate
+		// 2. Compute forward FFT
+		transform(inRe, inIm, outRe, outIm, true);
+		// 3. Take conjugate again
+		// 4. Divide by size
+		final float scale = 1f / size;
 		for (int i = 0; i < size; i++) {
-			final float rad = (float) (-Math.PI / i);
-			sinLookup[i] = (float) Math.sin(rad);
-			cosLookup[i] = (float) Math.cos(rad);
+			outRe[i] *= scale;
+			outIm[i] *= -scale;
+		}
+	}
+
+	private void checkComplexArguments(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm) {
+		if (inRe.length < size || inIm.length < size) {
+			throw new IllegalArgumentException(
+					"Length of inRe and inIm must be at least " + size);
+		} else if (outRe.length < size || outIm.length < size) {
+			throw new IllegalArgumentException(
+					"Length of outRe and outIm must be at least " + size);
+		}
+	}
+
+	// out = DFT(in) bzw. DFT(in') bei conjugate = true
+	private void transform(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm, final boolean conjugate) {
+		if (isPowerOfTwo()) {
+			bitReverse(inRe, inIm, outRe, outIm, conjugate);
+			fft(outRe, outIm, size);
+		} else if (conjugate || inRe == outRe || inIm == outIm) {
+			// Der Plan rechnet nicht in situ
+			final float[][] buffer = scratch.get();
+			final float[] tmpRe = buffer[0];
+			final float[] tmpIm = buffer[1];
+			final float sign = (conjugate ? -1f : 1f);
+			for (int i = 0; i < size; i++) {
+				tmpRe[i] = inRe[i];
+				tmpIm[i] = sign * inIm[i];
+			}
+			plan.forward(tmpRe, tmpIm, outRe, outIm);
+		} else {
+			plan.forward(inRe, inIm, outRe, outIm);
+		}
+	}
+
+	// Kopiert in[] in bit-umgekehrter Reihenfolge nach out[]. Sind die Arrays
+	// identisch, werden die Werte paarweise vertauscht.
+	private void bitReverse(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm, final boolean conjugate) {
+		final float sign = (conjugate ? -1f : 1f);
+		if (inRe == outRe && inIm == outIm) {
+			for (int i = 0; i < size; i++) {
+				final int j = reverse[i];
+				if (i < j) {
+					final float tmpRe = outRe[i];
+					final float tmpIm = outIm[i];
+					outRe[i] = outRe[j];
+					outIm[i] = outIm[j];
+					outRe[j] = tmpRe;
+					outIm[j] = tmpIm;
+				}
+				if (conjugate) {
+					outIm[i] = -outIm[i];
+				}
+			}
+		} else if (inRe == outRe || inIm == outIm) {
+			throw new IllegalArgumentException(
+					"Real and imaginary parts must both be in-place or both out-of-place");
+		} else {
+			for (int i = 0; i < size; i++) {
+				outRe[i] = inRe[reverse[i]];
+				outIm[i] = sign * inIm[reverse[i]];
+			}
 		}
 	}
 
-	// Vorwärtstransformation für reellwertige Signale
+	/**
+	 * Vorwärtstransformation für reellwertige Signale. Intern wird nur eine
+	 * FFT der halben Länge berechnet (siehe {@link #forwardReal}), die zweite
+	 * Hälfte der Fourier-Transformierten wird über die konjugierte Symmetrie
+	 * ergänzt.
+	 */
 	public void forward(final float @NonNull [] samples) {
 		if (samples.length != size) {
 			throw new IllegalArgumentException("samples length "
 					+ samples.length + " must be " + size);
 		}
 
-		bitReverseSamples(samples);
-		fft();
+		forwardReal(samples, real, imaginary);
+		completeSpectrum(real, imaginary, size);
+	}
+
+	/**
+	 * Ergänzt die zweite Hälfte der Fourier-Transformierten eines
+	 * reellwertigen Signals aus den Bins X[0..size/2]: X[size - k] = X'[k]
+	 */
+	public static void completeSpectrum(final float @NonNull [] re,
+			final float @NonNull [] im, final int size) {
+		if (re.length < size || im.length < size) {
+			throw new IllegalArgumentException(
+					"Length of re and im must be at least " + size);
+		}
+
+		for (int k = size / 2 + 1; k < size; k++) {
+			re[k] = re[size - k];
+			im[k] = -im[size - k];
+		}
+	}
+
+	/**
+	 * Zustandslose Vorwärtstransformation für reellwertige Signale, die nur
+	 * die size / 2 + 1 nicht redundanten Bins berechnet. Die size reellen
+	 * Samples werden als size / 2 komplexe Werte z[n] = x[2n] + i*x[2n+1]
+	 * gepackt und mit einer FFT der halben Länge transformiert. Ein
+	 * anschließender Durchlauf mit Twiddle-Faktoren trennt die Spektren der
+	 * geraden und ungeraden Samples und setzt sie zu X[0..size/2] zusammen.
+	 * Der Aufwand ist damit etwa halb so groß wie bei
+	 * {@link #forward(float[], float[])}. Bei ungerader Länge wird
+	 * stattdessen eine komplexe FFT mit Imaginärteil 0 berechnet.
+	 *
+	 * @param samples
+	 *            reellwertiges Signal der Länge size
+	 * @param re
+	 *            Realteil von X[0..size/2], Länge mindestens size / 2 + 1
+	 * @param im
+	 *            Imaginärteil von X[0..size/2], Länge mindestens size / 2 + 1
+	 */
+	public void forwardReal(final float @NonNull [] samples,
+			final float @NonNull [] re, final float @NonNull [] im) {
+		if (samples.length != size) {
+			throw new IllegalArgumentException("samples length "
+					+ samples.length + " must be " + size);
+		}
+		checkRealBins(re, im);
+
+		final int half = size / 2;
+		if (size == 1) {
+			re[0] = samples[0];
+			im[0] = 0f;
+		} else if (size == 2) {
+			re[0] = samples[0] + samples[1];
+			re[1] = samples[0] - samples[1];
+			im[0] = 0f;
+			im[1] = 0f;
+		} else if (isPowerOfTwo()) {
+			// Für i < size / 2 gilt bitReverse_(size/2)(i) =
+			// bitReverse_size(i) / 2
+			for (int i = 0; i < half; i++) {
+				final int n = reverse[i] >> 1;
+				re[i] = samples[2 * n];
+				im[i] = samples[2 * n + 1];
+			}
+			fft(re, im, half);
+			splitRealSpectrum(re, im);
+		} else if (halfPlan == null) {
+			// Ungerade Länge: komplexe FFT mit Imaginärteil 0
+			final float[][] buffer = scratch.get();
+			final float[] tmpRe = buffer[0];
+			final float[] tmpIm = buffer[1];
+			final float[] zeros = buffer[2];
+			Arrays.fill(zeros, 0f);
+			plan.forward(samples, zeros, tmpRe, tmpIm);
+			System.arraycopy(tmpRe, 0, re, 0, half + 1);
+			System.arraycopy(tmpIm, 0, im, 0, half + 1);
+		} else {
+			final float[][] buffer = scratch.get();
+			final float[] packedRe = buffer[0];
+			final float[] packedIm = buffer[1];
+			for (int n = 0; n < half; n++) {
+				packedRe[n] = samples[2 * n];
+				packedIm[n] = samples[2 * n + 1];
+			}
+			halfPlan.forward(packedRe, packedIm, re, im);
+			splitRealSpectrum(re, im);
+		}
+	}
+
+	/**
+	 * Zustandslose Inverse von {@link #forwardReal}: Berechnet aus den size /
+	 * 2 + 1 Bins einer reellwertigen Fourier-Transformierten die size reellen
+	 * Samples. Die Imaginärteile von X[0] und X[size/2] werden ignoriert.
+	 * <p>
+	 * re und im werden dabei als Zwischenspeicher genutzt und überschrieben.
+	 */
+	public void backwardReal(final float @NonNull [] re,
+			final float @NonNull [] im, final float @NonNull [] samples) {
+		if (samples.length != size) {
+			throw new IllegalArgumentException("samples length "
+					+ samples.length + " must be " + size);
+		}
+		checkRealBins(re, im);
+
+		if (size == 1) {
+			samples[0] = re[0];
+			return;
+		} else if (size == 2) {
+			samples[0] = 0.5f * (re[0] + re[1]);
+			samples[1] = 0.5f * (re[0] - re[1]);
+			return;
+		} else if (!isPowerOfTwo() && halfPlan == null) {
+			// Ungerade Länge: komplexe FFT über das vervollständigte,
+			// konjugierte Spektrum, X'[k] = X[size - k]
+			final float[][] buffer = scratch.get();
+			final float[] tmpRe = buffer[0];
+			final float[] tmpIm = buffer[1];
+			for (int k = 0; k < size; k++) {
+				final int bin = (k <= size / 2 ? k : size - k);
+				final float sign = (k <= size / 2 ? 1f : -1f);
+				tmpRe[k] = re[bin];
+				tmpIm[k] = -sign * im[bin];
+			}
+			final float[] outRe = buffer[2];
+			plan.forward(tmpRe, tmpIm, outRe, buffer[3]);
+			for (int i = 0; i < size; i++) {
+				samples[i] = outRe[i] / size;
+			}
+			return;
+		}
+
+		final int half = size / 2;
+		mergeRealSpectrum(re, im);
+		if (isPowerOfTwo()) {
+			// Z' liegt in natürlicher Reihenfolge in re/im[0..half)
+			for (int i = 0; i < half; i++) {
+				final int j = reverse[i] >> 1;
+				if (i < j) {
+					final float tmpRe = re[i];
+					final float tmpIm = im[i];
+					re[i] = re[j];
+					im[i] = im[j];
+					re[j] = tmpRe;
+					im[j] = tmpIm;
+				}
+			}
+			fft(re, im, half);
+		} else {
+			final float[][] buffer = scratch.get();
+			final float[] tmpRe = buffer[0];
+			final float[] tmpIm = buffer[1];
+			System.arraycopy(re, 0, tmpRe, 0, half);
+			System.arraycopy(im, 0, tmpIm, 0, half);
+			halfPlan.forward(tmpRe, tmpIm, re, im);
+		}
+		// z[n] = conj(FFT(conj(Z)))[n] / half, x[2n] = Re z[n], x[2n+1] = Im
+		// z[n]
+		final float scale = 1f / half;
+		for (int n = 0; n < half; n++) {
+			samples[2 * n] = re[n] * scale;
+			samples[2 * n + 1] = -im[n] * scale;
+		}
+	}
+
+	/**
+	 * Anzahl der nicht redundanten Bins einer reellwertigen Transformation:
+	 * size / 2 + 1
+	 */
+	public int getNumRealBins() {
+		return size / 2 + 1;
+	}
+
+	private void checkRealBins(final float @NonNull [] re,
+			final float @NonNull [] im) {
+		final int numBins = getNumRealBins();
+		if (re.length < numBins || im.length < numBins) {
+			throw new IllegalArgumentException(
+					"Length of re and im must be at least " + numBins);
+		}
+	}
+
+	// Berechnet aus Z = FFT(z) die Bins X[0..size/2] in situ. Mit
+	// E[k] = (Z[k] + Z'[h-k]) / 2 (Spektrum der geraden Samples),
+	// O[k] = (Z[k] - Z'[h-k]) / 2i (Spektrum der ungeraden Samples) und
+	// W = e^(-2*Pi*i*k/size) gilt X[k] = E[k] + W*O[k] und
+	// X[h-k] = (E[k] - W*O[k])', wobei h = size / 2.
+	private void splitRealSpectrum(final float @NonNull [] re,
+			final float @NonNull [] im) {
+		final int half = size / 2;
+		final float re0 = re[0];
+		final float im0 = im[0];
+		re[0] = re0 + im0;
+		im[0] = 0f;
+		re[half] = re0 - im0;
+		im[half] = 0f;
+
+		for (int k = 1; k <= half / 2; k++) {
+			final int mirror = half - k;
+			final float aRe = re[k];
+			final float aIm = im[k];
+			final float bRe = re[mirror];
+			final float bIm = -im[mirror];
+
+			final float eRe = 0.5f * (aRe + bRe);
+			final float eIm = 0.5f * (aIm + bIm);
+			final float oRe = 0.5f * (aIm - bIm);
+			final float oIm = -0.5f * (aRe - bRe);
+
+			final float wRe = realCos[k];
+			final float wIm = realSin[k];
+			final float woRe = wRe * oRe - wIm * oIm;
+			final float woIm = wRe * oIm + wIm * oRe;
+
+			re[k] = eRe + woRe;
+			im[k] = eIm + woIm;
+			re[mirror] = eRe - woRe;
+			im[mirror] = -(eIm - woIm);
+		}
+	}
+
+	// Umkehrung von splitRealSpectrum in situ: Berechnet aus X[0..size/2] die
+	// konjugierten Werte Z'[k] = (E[k] + i*O[k])' für k = 0..size/2-1, sodass
+	// eine Vorwärts-FFT folgen kann.
+	private void mergeRealSpectrum(final float @NonNull [] re,
+			final float @NonNull [] im) {
+		final int half = size / 2;
+		// E[0] = (X[0] + X[h]) / 2, O[0] = (X[0] - X[h]) / 2
+		final float re0 = re[0];
+		final float reHalf = re[half];
+		re[0] = 0.5f * (re0 + reHalf);
+		im[0] = -0.5f * (re0 - reHalf);
+
+		for (int k = 1; k <= half / 2; k++) {
+			final int mirror = half - k;
+			final float aRe = re[k];
+			final float aIm = im[k];
+			final float bRe = re[mirror];
+			final float bIm = -im[mirror];
+
+			// E = (X[k] + X'[h-k]) / 2, W*O = (X[k] - X'[h-k]) / 2
+			final float eRe = 0.5f * (aRe + bRe);
+			final float eIm = 0.5f * (aIm + bIm);
+			final float woRe = 0.5f * (aRe - bRe);
+			final float woIm = 0.5f * (aIm - bIm);
+			// O = W' * W*O
+			final float wRe = realCos[k];
+			final float wIm = -realSin[k];
+			final float oRe = wRe * woRe - wIm * woIm;
+			final float oIm = wRe * woIm + wIm * woRe;
+
+			// Z[k] = E[k] + i*O[k], Z[h-k] = E'[k] + i*O'[k]
+			re[k] = eRe - oIm;
+			im[k] = -(eIm + oRe);
+			re[mirror] = eRe + oIm;
+			im[mirror] = -(-eIm + oRe);
+		}
+	}
+
+	/**
+	 * Empfohlene Anzahl Frames für {@link #forwardBatch} und
+	 * {@link #forwardRealBatch}, sodass der Zwischenspeicher im Cache bleibt.
+	 */
+	public int getBatchWidth() {
+		return Math.max(1, Math.min(BATCH_MAX_WIDTH, BATCH_MAX_VALUES / size));
+	}
+
+	/**
+	 * Zustandslose Vorwärtstransformation von numFrames komplexwertigen
+	 * Signalen in situ. Die Frames liegen verschränkt vor: Wert n von Frame b
+	 * steht an Index n * numFrames + b. Dieses Layout gilt auch für das
+	 * Ergebnis.
+	 * <p>
+	 * Für Zweierpotenzen laufen die Butterfly-Stufen für alle Frames
+	 * gemeinsam: Jeder Twiddle-Faktor wird einmal pro Batch statt einmal pro
+	 * Frame geladen, und die innerste Schleife läuft ohne Abhängigkeiten über
+	 * zusammenhängende Werte der Frames. Andere Längen werden einzeln
+	 * transformiert.
+	 */
+	public void forwardBatch(final float @NonNull [] re,
+			final float @NonNull [] im, final int numFrames) {
+		checkBatch(re, numFrames, size);
+		checkBatch(im, numFrames, size);
+
+		if (!isPowerOfTwo()) {
+			final float[] frameRe = new float[size];
+			final float[] frameIm = new float[size];
+			for (int b = 0; b < numFrames; b++) {
+				for (int n = 0; n < size; n++) {
+					frameRe[n] = re[n * numFrames + b];
+					frameIm[n] = im[n * numFrames + b];
+				}
+				transform(frameRe, frameIm, frameRe, frameIm, false);
+				for (int k = 0; k < size; k++) {
+					re[k * numFrames + b] = frameRe[k];
+					im[k * numFrames + b] = frameIm[k];
+				}
+			}
+			return;
+		}
+
+		batchBitReverse(re, im, size, numFrames);
+		batchStages(re, im, size, numFrames);
+	}
+
+	/**
+	 * Zustandslose Vorwärtstransformation von numFrames reellwertigen
+	 * Signalen (siehe {@link #forwardReal}). Die Frames liegen wie bei
+	 * {@link #forwardBatch} verschränkt vor (Sample n von Frame b an Index n
+	 * * numFrames + b), sodass z. B. die Fensterung direkt in dieses Layout
+	 * schreiben kann. Das Ergebnis ist ebenso verschränkt: Bin k von Frame b
+	 * steht an Index k * numFrames + b, für k = 0..size/2.
+	 * <p>
+	 * Für Zweierpotenzen werden die FFTs der halben Länge und die Trennung der
+	 * Spektren (siehe {@link #forwardReal}) für alle Frames gemeinsam
+	 * berechnet, ohne Speicher zu allokieren.
+	 */
+	public void forwardRealBatch(final float @NonNull [] frames,
+			final int numFrames, final float @NonNull [] re,
+			final float @NonNull [] im) {
+		checkBatch(frames, numFrames, size);
+		final int numBins = getNumRealBins();
+		checkBatch(re, numFrames, numBins);
+		checkBatch(im, numFrames, numBins);
+
+		if (!isPowerOfTwo() || size <= 2) {
+			final float[] samples = new float[size];
+			final float[] binsRe = new float[numBins];
+			final float[] binsIm = new float[numBins];
+			for (int b = 0; b < numFrames; b++) {
+				for (int n = 0; n < size; n++) {
+					samples[n] = frames[n * numFrames + b];
+				}
+				forwardReal(samples, binsRe, binsIm);
+				for (int k = 0; k < numBins; k++) {
+					re[k * numFrames + b] = binsRe[k];
+					im[k * numFrames + b] = binsIm[k];
+				}
+			}
+			return;
+		}
+
+		// z[n] = x[2n] + i*x[2n+1]: Zeile i von z ist Zeile 2 *
+		// bitReverse_(size/2)(i) bzw. 2 * bitReverse_(size/2)(i) + 1 von x
+		final int half = size / 2;
+		for (int i = 0; i < half; i++) {
+			final int n = reverse[i] >> 1;
+			System.arraycopy(frames, 2 * n * numFrames, re, i * numFrames,
+					numFrames);
+			System.arraycopy(frames, (2 * n + 1) * numFrames, im, i
+					* numFrames, numFrames);
+		}
+		batchStages(re, im, half, numFrames);
+		batchSplitRealSpectrum(re, im, numFrames);
+	}
+
+	// splitRealSpectrum über count verschränkte Frames
+	private void batchSplitRealSpectrum(final float @NonNull [] re,
+			final float @NonNull [] im, final int count) {
+		final int half = size / 2;
+		for (int b = 0; b < count; b++) {
+			final float re0 = re[b];
+			final float im0 = im[b];
+			re[b] = re0 + im0;
+			im[b] = 0f;
+			re[half * count + b] = re0 - im0;
+			im[half * count + b] = 0f;
+		}
+
+		for (int k = 1; k <= half / 2; k++) {
+			final float wRe = realCos[k];
+			final float wIm = realSin[k];
+			final int row = k * count;
+			final int mirrorRow = (half - k) * count;
+			for (int b = 0; b < count; b++) {
+				final float aRe = re[row + b];
+				final float aIm = im[row + b];
+				final float bRe = re[mirrorRow + b];
+				final float bIm = -im[mirrorRow + b];
+
+				final float eRe = 0.5f * (aRe + bRe);
+				final float eIm = 0.5f * (aIm + bIm);
+				final float oRe = 0.5f * (aIm - bIm);
+				final float oIm = -0.5f * (aRe - bRe);
+
+				final float woRe = wRe * oRe - wIm * oIm;
+				final float woIm = wRe * oIm + wIm * oRe;
+
+				re[row + b] = eRe + woRe;
+				im[row + b] = eIm + woIm;
+				re[mirrorRow + b] = eRe - woRe;
+				im[mirrorRow + b] = -(eIm - woIm);
+			}
+		}
+	}
+
+	private static void checkBatch(final float @NonNull [] buffer,
+			final int numFrames, final int frameLength) {
+		if (numFrames < 1) {
+			throw new IllegalArgumentException("numFrames " + numFrames
+					+ " < 1");
+		} else if (buffer.length < (long) numFrames * frameLength) {
+			throw new IllegalArgumentException("buffer length "
+					+ buffer.length + " < " + numFrames + " * " + frameLength);
+		}
+	}
+
+	// Vertauscht die Zeilen (je count Werte) von length verschränkten Werten
+	// in bit-umgekehrte Reihenfolge
+	private void batchBitReverse(final float @NonNull [] re,
+			final float @NonNull [] im, final int length, final int count) {
+		final int shift = Integer.numberOfTrailingZeros(size / length);
+		for (int i = 0; i < length; i++) {
+			final int j = reverse[i] >> shift;
+			if (i < j) {
+				for (int b = 0; b < count; b++) {
+					final float tmpRe = re[i * count + b];
+					final float tmpIm = im[i * count + b];
+					re[i * count + b] = re[j * count + b];
+					im[i * count + b] = im[j * count + b];
+					re[j * count + b] = tmpRe;
+					im[j * count + b] = tmpIm;
+				}
+			}
+		}
+	}
+
+	// Radix-2- bzw. Radix-4-Stufen wie in fft(), jedoch über count
+	// verschränkte Frames der Länge length, die in bit-umgekehrter
+	// Reihenfolge vorliegen
+	private void batchStages(final float @NonNull [] re,
+			final float @NonNull [] im, final int length, final int count) {
+		int halfSize = 1;
+		if (Integer.numberOfTrailingZeros(length) % 2 == 1) {
+			batchRadix2Stage(re, im, length, count);
+			halfSize = 2;
+		} else if (length >= 4) {
+			batchRadix4FirstStage(re, im, length, count);
+			halfSize = 4;
+		}
+		for (; 4 * halfSize <= length; halfSize *= 4) {
+			batchRadix4Stage(re, im, length, count, halfSize);
+		}
+	}
+
+	// Erste Stufe (h = 1), Twiddle-Faktor 1
+	private static void batchRadix2Stage(final float @NonNull [] re,
+			final float @NonNull [] im, final int length, final int count) {
+		for (int group = 0; group < length; group += 2) {
+			final int i0 = group * count;
+			final int i1 = i0 + count;
+			for (int b = 0; b < count; b++) {
+				final float tr = re[i1 + b];
+				final float ti = im[i1 + b];
+				re[i1 + b] = re[i0 + b] - tr;
+				im[i1 + b] = im[i0 + b] - ti;
+				re[i0 + b] += tr;
+				im[i0 + b] += ti;
+			}
+		}
+	}
+
+	// Erste Radix-4-Stufe (h = 1): w1 = w2 = 1, also ohne Multiplikationen
+	private static void batchRadix4FirstStage(final float @NonNull [] re,
+			final float @NonNull [] im, final int length, final int count) {
+		for (int group = 0; group < length; group += 4) {
+			final int first = group * count;
+			for (int i0 = first; i0 < first + count; i0++) {
+				final int i1 = i0 + count;
+				final int i2 = i1 + count;
+				final int i3 = i2 + count;
+
+				final float b0r = re[i0] + re[i1];
+				final float b0i = im[i0] + im[i1];
+				final float b1r = re[i0] - re[i1];
+				final float b1i = im[i0] - im[i1];
+				final float b2r = re[i2] + re[i3];
+				final float b2i = im[i2] + im[i3];
+				final float b3r = re[i2] - re[i3];
+				final float b3i = im[i2] - im[i3];
+
+				re[i0] = b0r + b2r;
+				im[i0] = b0i + b2i;
+				re[i2] = b0r - b2r;
+				im[i2] = b0i - b2i;
+				// -i*b3
+				re[i1] = b1r + b3i;
+				im[i1] = b1i - b3r;
+				re[i3] = b1r - b3i;
+				im[i3] = b1i + b3r;
+			}
+		}
+	}
+
+	// Siehe radix4Stage
+	private void batchRadix4Stage(final float @NonNull [] re,
+			final float @NonNull [] im, final int length, final int count,
+			final int halfSize) {
+		final int quarter = halfSize * count;
+		final int twiddle1 = halfSize - 1;
+		final int twiddle2 = 2 * halfSize - 1;
+		for (int group = 0; group < length; group += 4 * halfSize) {
+			for (int j = 0; j < halfSize; j++) {
+				final float w1r = twiddleRe[twiddle1 + j];
+				final float w1i = twiddleIm[twiddle1 + j];
+				final float w2r = twiddleRe[twiddle2 + j];
+				final float w2i = twiddleIm[twiddle2 + j];
+
+				final int first = (group + j) * count;
+				for (int i0 = first; i0 < first + count; i0++) {
+					final int i1 = i0 + quarter;
+					final int i2 = i1 + quarter;
+					final int i3 = i2 + quarter;
+
+					// Stufe h
+					float tr = w1r * re[i1] - w1i * im[i1];
+					float ti = w1r * im[i1] + w1i * re[i1];
+					final float b0r = re[i0] + tr;
+					final float b0i = im[i0] + ti;
+					final float b1r = re[i0] - tr;
+					final float b1i = im[i0] - ti;
+
+					tr = w1r * re[i3] - w1i * im[i3];
+					ti = w1r * im[i3] + w1i * re[i3];
+					final float b2r = re[i2] + tr;
+					final float b2i = im[i2] + ti;
+					final float b3r = re[i2] - tr;
+					final float b3i = im[i2] - ti;
+
+					// Stufe 2h
+					tr = w2r * b2r - w2i * b2i;
+					ti = w2r * b2i + w2i * b2r;
+					re[i0] = b0r + tr;
+					im[i0] = b0i + ti;
+					re[i2] = b0r - tr;
+					im[i2] = b0i - ti;
+
+					// -i*w2*b3
+					final float ur = w2r * b3r - w2i * b3i;
+					final float ui = w2r * b3i + w2i * b3r;
+					re[i1] = b1r + ui;
+					im[i1] = b1i - ur;
+					re[i3] = b1r - ui;
+					im[i3] = b1i + ur;
+				}
+			}
+		}
 	}
 
 	// Forward transform of complex valued signal
@@ -88,8 +844,7 @@ public final class FastFourierTransform {
 					"Length of real and imaginary must be " + size);
 		}
 
-		bitReverseSamples(real, imaginary);
-		fft();
+		transform(real, imaginary, this.real, this.imaginary, false);
 	}
 
 	public void backward(final float @NonNull [] samples) {
@@ -98,16 +853,10 @@ public final class FastFourierTransform {
 					+ samples.length + " must be " + size);
 		}
 
-		// 1. Take conjugate. Nothing to do on real valued input.
-		// 2. Compute forward FFT
-		bitReverseSamples(samples);
-		fft();
-		// 3. Take conjugate again
-		// 4. Divide by size
-		for (int i = 0; i < size; i++) {
-			this.real[i] = this.real[i] / size;
-			this.imaginary[i] = -this.imaginary[i] / size;
-		}
+		// Konjugation des Eingangs entfällt bei reellwertigen Signalen
+		System.arraycopy(samples, 0, real, 0, size);
+		Arrays.fill(imaginary, 0f);
+		backward(real, imaginary, real, imaginary);
 	}
 
 	public void backward(final float @NonNull [] real,
@@ -117,16 +866,7 @@ public final class FastFourierTransform {
 					"Length of real and imaginary must be " + size);
 		}
 
-		// 1. Take conjugate
-		// 2. Compute forward FFT
-		bitReverseAndConjugateSamples(real, imaginary);
-		fft();
-		// 3. Take conjugate again
-		// 4. Divide by size
-		for (int i = 0; i < size; i++) {
-			this.real[i] = this.real[i] / size;
-			this.imaginary[i] = -this.imaginary[i] / size;
-		}
+		backward(real, imaginary, this.real, this.imaginary);
 	}
 
 	public void copyReal(final float @NonNull [] buffer) {
@@ -151,79 +891,133 @@ public final class FastFourierTransform {
 		return real.length;
 	}
 
-	// Copies the values in the samples array into the real array
-	// in bit reversed order. the imaginary array is filled with zeros.
-	// Used for real transform.
-	private void bitReverseSamples(final float @NonNull [] samples) {
-		for (int i = 0; i < size; i++) {
-			real[i] = samples[reverse[i]];
-			imaginary[i] = 0.0f;
+	// Führt eine FFT in situ auf den ersten n Werten von re und im aus. Die
+	// Werte müssen bereits in bit-umgekehrter Reihenfolge vorliegen.
+	private void fft(final float @NonNull [] re, final float @NonNull [] im,
+			final int n) {
+		if (n < RADIX4_MIN_SIZE) {
+			radix2Stages(re, im, 0, n, 1, n);
+		} else if (n < BLOCKED_MIN_SIZE) {
+			radix4Stages(re, im, 0, n, 1, n);
+		} else {
+			// Erst alle Stufen innerhalb eines Blocks, dann die restlichen
+			// Stufen über alle Blöcke
+			int halfSize = 1;
+			for (int offset = 0; offset < n; offset += BLOCK_SIZE) {
+				halfSize = radix4Stages(re, im, offset, BLOCK_SIZE, 1,
+						BLOCK_SIZE);
+			}
+			radix4Stages(re, im, 0, n, halfSize, n);
 		}
 	}
 
-	// Copies the values of real and imaginary in reversed order.
-	// Used for complex transform.
-	private void bitReverseSamples(final float @NonNull [] real,
-			final float @NonNull [] imaginary) {
-		for (int i = 0; i < size; i++) {
-			this.real[i] = real[reverse[i]];
-			this.imaginary[i] = imaginary[reverse[i]];
+	// Radix-2-Stufen mit halber Butterfly-Größe ab fromHalfSize auf
+	// [offset, offset + length), solange 2 * halfSize <= maxSize
+	private int radix2Stages(final float @NonNull [] re,
+			final float @NonNull [] im, final int offset, final int length,
+			final int fromHalfSize, final int maxSize) {
+		int halfSize = fromHalfSize;
+		for (; 2 * halfSize <= maxSize; halfSize *= 2) {
+			radix2Stage(re, im, offset, length, halfSize);
 		}
+		return halfSize;
 	}
 
-	// Copies the conjugate values of real and imaginary in reversed order.
-	// Used for complex transform.
-	private void bitReverseAndConjugateSamples(final float @NonNull [] real,
-			final float @NonNull [] imaginary) {
-		for (int i = 0; i < size; i++) {
-			this.real[i] = real[reverse[i]];
-			this.imaginary[i] = -imaginary[reverse[i]];
-		}
-	}
-
-	// performs an in-place fft on the data in the real and imag arrays
-	// bit reversing is not necessary as the data will already be bit reversed
-	private void fft() {
-		for (int halfSize = 1; halfSize < real.length; halfSize *= 2) {
-			// float k = -(float)Math.PI/halfSize;
-			// phase shift step
-			// float phaseShiftStepR = (float)Math.cos(k);
-			// float phaseShiftStepI = (float)Math.sin(k);
-			// using lookup table
-			float phaseShiftStepR = cos(halfSize);
-			float phaseShiftStepI = sin(halfSize);
-			// current phase shift
-			float currentPhaseShiftR = 1.0f;
-			float currentPhaseShiftI = 0.0f;
-			for (int fftStep = 0; fftStep < halfSize; fftStep++) {
-				for (int i = fftStep; i < real.length; i += 2 * halfSize) {
-					int off = i + halfSize;
-					float tr = (currentPhaseShiftR * real[off])
-							- (currentPhaseShiftI * imaginary[off]);
-					float ti = (currentPhaseShiftR * imaginary[off])
-							+ (currentPhaseShiftI * real[off]);
-					real[off] = real[i] - tr;
-					imaginary[off] = imaginary[i] - ti;
-					real[i] += tr;
-					imaginary[i] += ti;
-				}
-				float tmpR = currentPhaseShiftR;
-				currentPhaseShiftR = (tmpR * phaseShiftStepR)
-						- (currentPhaseShiftI * phaseShiftStepI);
-				currentPhaseShiftI = (tmpR * phaseShiftStepI)
-						+ (currentPhaseShiftI * phaseShiftStepR);
+	private void radix2Stage(final float @NonNull [] re,
+			final float @NonNull [] im, final int offset, final int length,
+			final int halfSize) {
+		final int end = offset + length;
+		final int twiddleOffset = halfSize - 1;
+		for (int group = offset; group < end; group += 2 * halfSize) {
+			for (int j = 0; j < halfSize; j++) {
+				final float wr = twiddleRe[twiddleOffset + j];
+				final float wi = twiddleIm[twiddleOffset + j];
+				final int i = group + j;
+				final int off = i + halfSize;
+				final float tr = wr * re[off] - wi * im[off];
+				final float ti = wr * im[off] + wi * re[off];
+				re[off] = re[i] - tr;
+				im[off] = im[i] - ti;
+				re[i] += tr;
+				im[i] += ti;
 			}
 		}
 	}
 
-	private float sin(final int i) {
-		// = sin(-Pi / i)
-		return sinLookup[i];
+	// Fasst je zwei Radix-2-Stufen (h und 2h) zu einer Radix-4-Stufe
+	// zusammen. Bleibt eine Stufe übrig, wird sie als Radix-2-Stufe
+	// ausgeführt. Gibt die halbe Butterfly-Größe der nächsten Stufe zurück.
+	private int radix4Stages(final float @NonNull [] re,
+			final float @NonNull [] im, final int offset, final int length,
+			final int fromHalfSize, final int maxSize) {
+		int halfSize = fromHalfSize;
+		if (2 * halfSize <= maxSize
+				&& Integer.numberOfTrailingZeros(maxSize / halfSize) % 2 == 1) {
+			radix2Stage(re, im, offset, length, halfSize);
+			halfSize *= 2;
+		}
+		for (; 4 * halfSize <= maxSize; halfSize *= 4) {
+			radix4Stage(re, im, offset, length, halfSize);
+		}
+		return halfSize;
 	}
 
-	private float cos(final int i) {
-		// = cos(-Pi / i)
-		return cosLookup[i];
+	// Butterfly über a0..a3 = x[i], x[i+h], x[i+2h], x[i+3h]:
+	// Stufe h: (a0, a1) und (a2, a3) mit w1 = e^(-i*Pi*j/h)
+	// Stufe 2h: (b0, b2) mit w2 = e^(-i*Pi*j/2h) und (b1, b3) mit -i*w2
+	private void radix4Stage(final float @NonNull [] re,
+			final float @NonNull [] im, final int offset, final int length,
+			final int halfSize) {
+		final int end = offset + length;
+		final int quarter = halfSize;
+		final int twiddle1 = halfSize - 1;
+		final int twiddle2 = 2 * halfSize - 1;
+		for (int group = offset; group < end; group += 4 * quarter) {
+			for (int j = 0; j < quarter; j++) {
+				final float w1r = twiddleRe[twiddle1 + j];
+				final float w1i = twiddleIm[twiddle1 + j];
+				final float w2r = twiddleRe[twiddle2 + j];
+				final float w2i = twiddleIm[twiddle2 + j];
+
+				final int i0 = group + j;
+				final int i1 = i0 + quarter;
+				final int i2 = i1 + quarter;
+				final int i3 = i2 + quarter;
+
+				// Stufe h
+				float tr = w1r * re[i1] - w1i * im[i1];
+				float ti = w1r * im[i1] + w1i * re[i1];
+				final float b0r = re[i0] + tr;
+				final float b0i = im[i0] + ti;
+				final float b1r = re[i0] - tr;
+				final float b1i = im[i0] - ti;
+
+				tr = w1r * re[i3] - w1i * im[i3];
+				ti = w1r * im[i3] + w1i * re[i3];
+				final float b2r = re[i2] + tr;
+				final float b2i = im[i2] + ti;
+				final float b3r = re[i2] - tr;
+				final float b3i = im[i2] - ti;
+
+				// Stufe 2h
+				tr = w2r * b2r - w2i * b2i;
+				ti = w2r * b2i + w2i * b2r;
+				re[i0] = b0r + tr;
+				im[i0] = b0i + ti;
+				re[i2] = b0r - tr;
+				im[i2] = b0i - ti;
+
+				// -i*w2*b3
+				final float ur = w2r * b3r - w2i * b3i;
+				final float ui = w2r * b3i + w2i * b3r;
+				tr = ui;
+				ti = -ur;
+				re[i1] = b1r + tr;
+				im[i1] = b1i + ti;
+				re[i3] = b1r - tr;
+				im[i3] = b1i - ti;
+			}
+		}
 	}
 
 	// Berechnet das Betragsspektrum
@@ -405,4 +1199,4 @@ public final class FastFourierTransform {
 	public static double getBandWidth(final int size, final double sampleRate) {
 		return (2.0 / size) * (sampleRate / 2.0);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,360 @@
+package de.skawronek.audiolib.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * FIR-Filter
+ *
+ * <pre>
+ * y[n] = h[0]*x[n] + h[1]*x[n-1] + ... + h[L-1]*x[n-L+1]
+ * </pre>
+ *
+ * für lange Kernel (Raumimpulsantworten, linearphasige Bandfilter mit
+ * tausenden Koeffizienten). Der Kernel wird partitioniert:
+ * <ul>
+ * <li>Die ersten blockSize Koeffizienten werden direkt gefaltet. Dadurch hat
+ * der Filter keine Latenz, jedes Ausgangs-Sample steht sofort bereit.</li>
+ * <li>Der Rest wird per Uniformly Partitioned Overlap-Save gefaltet: Die
+ * Spektren der Teilstücke liegen vorberechnet vor, und pro Block wird nur eine
+ * FFT des Eingangs, eine Multiplikation pro Teilstück mit den verzögerten
+ * Eingangsspektren und eine inverse FFT berechnet.</li>
+ * <li>Bei {@link Partitioning#NON_UNIFORM} wachsen die Teilstücke nach hinten
+ * um den Faktor {@value #GROWTH}, sodass auch Kernel mit 64k Koeffizienten mit
+ * wenigen Teilstücken auskommen.</li>
+ * </ul>
+ * Kernel mit höchstens blockSize Koeffizienten werden nur direkt gefaltet.
+ * <p>
+ * Der Filter behält seinen Zustand zwischen Aufrufen von {@link #process}, ein
+ * Signal kann also in beliebig großen Blöcken gefiltert werden. Nach der
+ * Erzeugung wird nicht mehr allokiert. Nicht thread-safe.
+ */
+public final class FirFilter {
+	public static final int DEFAULT_BLOCK_SIZE = 64;
+	static final int GROWTH = 4;
+	static final int MAX_BLOCK_SIZE = 1 << 14;
+
+	public enum Partitioning {
+		/**
+		 * Alle Teilstücke haben die Länge blockSize.
+		 */
+		UNIFORM,
+		/**
+		 * Die Teilstücke werden nach hinten länger.
+		 */
+		NON_UNIFORM
+	}
+
+	private final float[] kernel;
+	private final int blockSize;
+	private final Partitioning partitioning;
+
+	// Direkt gefalteter Anfang des Kernels. Der Verlauf liegt doppelt vor,
+	// damit history[position + k] = x[n-k] ohne Modulo gelesen werden kann.
+	private final int headLength;
+	private final float[] history;
+	private int position = 0;
+
+	private final Stage[] stages;
+	// Eingang und noch ausstehende Beiträge der Stages, über den absoluten
+	// Sample-Index (Maske) adressiert
+	private final float[] input;
+	private final int inputMask;
+	private final float[] pending;
+	private final int pendingMask;
+	private long sampleCount = 0;
+
+	// Uniformly Partitioned Overlap-Save mit Teilstücken der Länge
+	// blockSize, die im Kernel ab offset liegen
+	private static final class Stage {
+		final int blockSize;
+		final int offset;
+		final FastFourierTransform fft;
+		// Spektren der Teilstücke, je blockSize + 1 Bins
+		final float[][] kernelRe;
+		final float[][] kernelIm;
+		// Spektren der letzten Eingangsblöcke, delayRe[current] ist das
+		// neueste
+		final float[][] delayRe;
+		final float[][] delayIm;
+		int current = 0;
+		final float[] window;
+		final float[] sumRe;
+		final float[] sumIm;
+
+		Stage(final float @NonNull [] kernel, final int blockSize,
+				final int offset, final int numPartitions) {
+			this.blockSize = blockSize;
+			this.offset = offset;
+			this.fft = FastFourierTransform.Factory.getInstance().get(
+					2 * blockSize);
+			final int numBins = blockSize + 1;
+
+			kernelRe = new float[numPartitions][numBins];
+			kernelIm = new float[numPartitions][numBins];
+			window = new float[2 * blockSize];
+			for (int j = 0; j < numPartitions; j++) {
+				final int begin = offset + j * blockSize;
+				final int length = Math.min(blockSize, kernel.length - begin);
+				Arrays.fill(window, 0f);
+				System.arraycopy(kernel, begin, window, 0, length);
+				fft.forwardReal(window, kernelRe[j], kernelIm[j]);
+			}
+
+			delayRe = new float[numPartitions][numBins];
+			delayIm = new float[numPartitions][numBins];
+			sumRe = new float[numBins];
+			sumIm = new float[numBins];
+		}
+
+		int getNumPartitions() {
+			return kernelRe.length;
+		}
+
+		void reset() {
+			for (int j = 0; j < delayRe.length; j++) {
+				Arrays.fill(delayRe[j], 0f);
+				Arrays.fill(delayIm[j], 0f);
+			}
+			current = 0;
+		}
+	}
+
+	public FirFilter(final float @NonNull [] kernel) {
+		this(kernel, DEFAULT_BLOCK_SIZE, Partitioning.NON_UNIFORM);
+	}
+
+	/**
+	 * @param blockSize
+	 *            Länge des direkt gefalteten Anfangs und der kleinsten
+	 *            Teilstücke, Zweierpotenz
+	 */
+	public FirFilter(final float @NonNull [] kernel, final int blockSize,
+			final @NonNull Partitioning partitioning) {
+		if (kernel.length == 0) {
+			throw new IllegalArgumentException("kernel is empty");
+		} else if (blockSize <= 0 || !Util.isPowerOfTwo(blockSize)) {
+			throw new IllegalArgumentException("blockSize " + blockSize
+					+ " is not a power of two");
+		}
+
+		this.kernel = kernel.clone();
+		this.blockSize = blockSize;
+		this.partitioning = partitioning;
+
+		headLength = Math.min(blockSize, kernel.length);
+		history = new float[2 * headLength];
+
+		final List<Stage> stageList = createStages(this.kernel, blockSize,
+				partitioning);
+		stages = stageList.toArray(new Stage[stageList.size()]);
+
+		int maxBlockSize = 1;
+		int maxEnd = 1;
+		for (final Stage stage : stages) {
+			maxBlockSize = Math.max(maxBlockSize, stage.blockSize);
+			maxEnd = Math.max(maxEnd, stage.offset + stage.blockSize);
+		}
+		input = new float[Util.getNextPowerOfTwo(2 * maxBlockSize)];
+		inputMask = input.length - 1;
+		pending = new float[Util.getNextPowerOfTwo(maxEnd)];
+		pendingMask = pending.length - 1;
+	}
+
+	// Teilt kernel[blockSize..] in Stages auf. Eine Stage mit Blockgröße b
+	// muss bei einem Offset >= b beginnen, damit ihr Beitrag zu y[n] nur von
+	// Eingangsblöcken abhängt, die zum Zeitpunkt n bereits vollständig sind.
+	private static @NonNull List<Stage> createStages(
+			final float @NonNull [] kernel, final int blockSize,
+			final @NonNull Partitioning partitioning) {
+		final List<Stage> stages = new ArrayList<>();
+		int stageBlockSize = blockSize;
+		int stageOffset = blockSize;
+		int offset = blockSize;
+		while (offset < kernel.length) {
+			final int nextBlockSize = stageBlockSize * GROWTH;
+			final boolean grow = partitioning == Partitioning.NON_UNIFORM
+					&& nextBlockSize <= MAX_BLOCK_SIZE
+					&& offset >= nextBlockSize && offset % nextBlockSize == 0;
+			if (grow) {
+				addStage(stages, kernel, stageBlockSize, stageOffset, offset);
+				stageBlockSize = nextBlockSize;
+				stageOffset = offset;
+			}
+			offset += stageBlockSize;
+		}
+		addStage(stages, kernel, stageBlockSize, stageOffset, offset);
+		return stages;
+	}
+
+	private static void addStage(final @NonNull List<Stage> stages,
+			final float @NonNull [] kernel, final int blockSize,
+			final int begin, final int end) {
+		final int numPartitions = (end - begin) / blockSize;
+		if (numPartitions > 0) {
+			stages.add(new Stage(kernel, blockSize, begin, numPartitions));
+		}
+	}
+
+	public int getKernelLength() {
+		return kernel.length;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@NonNull
+	public Partitioning getPartitioning() {
+		return partitioning;
+	}
+
+	/**
+	 * Gibt true zurück, wenn der Kernel so kurz ist, dass er nur direkt
+	 * gefaltet wird.
+	 */
+	public boolean isDirect() {
+		return stages.length == 0;
+	}
+
+	/**
+	 * Gibt die Anzahl der per FFT gefalteten Teilstücke zurück.
+	 */
+	public int getNumPartitions() {
+		int numPartitions = 0;
+		for (final Stage stage : stages) {
+			numPartitions += stage.getNumPartitions();
+		}
+		return numPartitions;
+	}
+
+	/**
+	 * Gibt eine Kopie des Kernels zurück.
+	 */
+	public float @NonNull [] getKernel() {
+		return kernel.clone();
+	}
+
+	/**
+	 * Filtert in vom Zustand 0 aus, d. h. x[i] = 0 für i &lt; 0 (wie
+	 * {@link IIRFilter#filter}).
+	 */
+	public void filter(final float @NonNull [] in, final float @NonNull [] out) {
+		if (in.length != out.length) {
+			throw new IllegalArgumentException("in length " + in.length
+					+ " != out length " + out.length);
+		}
+		reset();
+		process(in, 0, out, 0, in.length);
+	}
+
+	/**
+	 * Filtert die nächsten length Samples des Signals. in und out dürfen
+	 * identisch sein.
+	 */
+	public void process(final float @NonNull [] in, final int inOffset,
+			final float @NonNull [] out, final int outOffset, final int length) {
+		if (inOffset < 0 || outOffset < 0 || length < 0
+				|| inOffset + length > in.length
+				|| outOffset + length > out.length) {
+			throw new IndexOutOfBoundsException("invalid range of length "
+					+ length);
+		}
+
+		final float[] kernel = this.kernel;
+		final float[] history = this.history;
+		final int headLength = this.headLength;
+		for (int i = 0; i < length; i++) {
+			final float x = in[inOffset + i];
+			final long n = sampleCount;
+
+			position = (position == 0 ? headLength - 1 : position - 1);
+			history[position] = x;
+			history[position + headLength] = x;
+			float y = 0f;
+			for (int k = 0; k < headLength; k++) {
+				y += kernel[k] * history[position + k];
+			}
+
+			if (stages.length > 0) {
+				final int index = (int) (n & pendingMask);
+				y += pending[index];
+				pending[index] = 0f;
+				input[(int) (n & inputMask)] = x;
+			}
+			out[outOffset + i] = y;
+			sampleCount++;
+
+			for (final Stage stage : stages) {
+				if ((sampleCount & (stage.blockSize - 1)) == 0) {
+					processBlock(stage);
+				}
+			}
+		}
+	}
+
+	// Berechnet den Beitrag der Stage zum Ausgangsblock, der auf den gerade
+	// vollständigen Eingangsblock [t - b, t) um stage.offset verzögert folgt
+	private void processBlock(final @NonNull Stage stage) {
+		final int b = stage.blockSize;
+		final long t = sampleCount;
+
+		// Fenster x[t - 2b .. t), vor dem ersten Sample 0
+		final float[] window = stage.window;
+		for (int i = 0; i < 2 * b; i++) {
+			final long index = t - 2 * b + i;
+			window[i] = (index >= 0 ? input[(int) (index & inputMask)] : 0f);
+		}
+		final int numPartitions = stage.getNumPartitions();
+		stage.current = (stage.current + 1) % numPartitions;
+		stage.fft.forwardReal(window, stage.delayRe[stage.current],
+				stage.delayIm[stage.current]);
+
+		// Y = Sum_j H_j * X_(t - j*b)
+		final float[] sumRe = stage.sumRe;
+		final float[] sumIm = stage.sumIm;
+		Arrays.fill(sumRe, 0f);
+		Arrays.fill(sumIm, 0f);
+		for (int j = 0; j < numPartitions; j++) {
+			int d = stage.current - j;
+			if (d < 0) {
+				d += numPartitions;
+			}
+			final float[] hRe = stage.kernelRe[j];
+			final float[] hIm = stage.kernelIm[j];
+			final float[] xRe = stage.delayRe[d];
+			final float[] xIm = stage.delayIm[d];
+			for (int k = 0; k <= b; k++) {
+				sumRe[k] += hRe[k] * xRe[k] - hIm[k] * xIm[k];
+				sumIm[k] += hRe[k] * xIm[k] + hIm[k] * xRe[k];
+			}
+		}
+		stage.fft.backwardReal(sumRe, sumIm, window);
+
+		// Die zweite Hälfte ist gültig (Overlap-Save) und gehört zu
+		// y[t - b + offset .. t + offset)
+		final long begin = t - b + stage.offset;
+		for (int i = 0; i < b; i++) {
+			pending[(int) ((begin + i) & pendingMask)] += window[b + i];
+		}
+	}
+
+	/**
+	 * Setzt den Zustand zurück, d. h. x[i] = 0 für alle bisherigen Samples.
+	 */
+	public void reset() {
+		Arrays.fill(history, 0f);
+		position = 0;
+		Arrays.fill(input, 0f);
+		Arrays.fill(pending, 0f);
+		for (final Stage stage : stages) {
+			stage.reset();
+		}
+		sampleCount = 0;
+	}
+}
@@ -0,0 +1,403 @@
+package de.skawronek.audiolib.math;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.SharedFactory;
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * Komplexe Vorwärts-DFT fester Länge, die {@link FastFourierTransform} für
+ * Längen nutzt, die keine Zweierpotenz sind:
+ * <ul>
+ * <li>Längen, deren Primfaktoren alle höchstens {@value #MAX_RADIX} sind:
+ * Mixed-Radix-FFT mit den Radizes 4, 2, 3, 5 und 7</li>
+ * <li>alle anderen Längen: Bluestein-Algorithmus, der die DFT als Faltung
+ * mit einem Chirp über eine FFT mit Zweierpotenz-Länge berechnet</li>
+ * </ul>
+ * Ein Plan ist nach der Erzeugung unveränderlich und damit thread-safe.
+ * Zwischenspeicher werden pro Thread einmal allokiert und wiederverwendet.
+ * Pläne werden über die {@link Factory} von allen Threads gemeinsam genutzt.
+ */
+abstract class FourierPlan {
+	static final int MAX_RADIX = 7;
+
+	final int size;
+
+	private FourierPlan(final int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Berechnet out = DFT(in). Die Eingangs- und Ausgangs-Arrays dürfen nicht
+	 * identisch sein. Es werden jeweils die ersten size Werte gelesen bzw.
+	 * geschrieben.
+	 */
+	abstract void forward(final float @NonNull [] inRe,
+			final float @NonNull [] inIm, final float @NonNull [] outRe,
+			final float @NonNull [] outIm);
+
+	static final class Factory extends SharedFactory<Integer, FourierPlan> {
+		private static final Factory INSTANCE = new Factory();
+
+		private Factory() {
+		}
+
+		static Factory getInstance() {
+			return INSTANCE;
+		}
+
+		@NonNull
+		FourierPlan get(final int size) {
+			return super.get(size);
+		}
+
+		@Override
+		protected @NonNull FourierPlan create(final @NonNull Integer size) {
+			return FourierPlan.create(size);
+		}
+	}
+
+	@NonNull
+	static FourierPlan create(final int size) {
+		if (Util.isPowerOfTwo(size)) {
+			return new PowerOfTwo(size);
+		} else if (isSmooth(size)) {
+			return new MixedRadix(size);
+		} else {
+			return new Bluestein(size);
+		}
+	}
+
+	/**
+	 * Gibt true zurück, wenn alle Primfaktoren von n höchstens
+	 * {@value #MAX_RADIX} sind.
+	 */
+	static boolean isSmooth(int n) {
+		if (n <= 0) {
+			return false;
+		}
+		for (int p = 2; p <= MAX_RADIX; p++) {
+			while (n % p == 0) {
+				n /= p;
+			}
+		}
+		return n == 1;
+	}
+
+	private static final class PowerOfTwo extends FourierPlan {
+		private final FastFourierTransform fft;
+
+		PowerOfTwo(final int size) {
+			super(size);
+			this.fft = new FastFourierTransform(size);
+		}
+
+		@Override
+		void forward(final float @NonNull [] inRe, final float @NonNull [] inIm,
+				final float @NonNull [] outRe, final float @NonNull [] outIm) {
+			fft.forward(inRe, inIm, outRe, outIm);
+		}
+	}
+
+	// Rekursive Decimation-in-Time. Für n = p * m werden die p Teilfolgen
+	// x[q * p + r] (r = 0..p-1) transformiert und zu
+	// X[k + m * s] = Sum_r (W_n^(r*k) * Y_r[k]) * W_p^(r*s) kombiniert.
+	private static final class MixedRadix extends FourierPlan {
+		// Konstanten der Butterflys für Radix 3 und 5
+		private static final float SIN_60 = (float) Math.sin(Math.PI / 3);
+		private static final float COS_72 = (float) Math.cos(2 * Math.PI / 5);
+		private static final float SIN_72 = (float) Math.sin(2 * Math.PI / 5);
+		private static final float COS_144 = (float) Math.cos(4 * Math.PI / 5);
+		private static final float SIN_144 = (float) Math.sin(4 * Math.PI / 5);
+
+		private final int[] factors;
+		// e^(-2*Pi*i*k/size) für k = 0..size-1
+		private final float[] twiddleRe;
+		private final float[] twiddleIm;
+		private final int maxFactor;
+		private final ThreadLocal<Butterfly> butterflies;
+
+		// Eingänge bzw. Ausgänge einer Butterfly
+		private static final class Butterfly {
+			final float[] re;
+			final float[] im;
+			final float[] resultRe;
+			final float[] resultIm;
+
+			Butterfly(final int maxFactor) {
+				re = new float[maxFactor];
+				im = new float[maxFactor];
+				resultRe = new float[maxFactor];
+				resultIm = new float[maxFactor];
+			}
+		}
+
+		MixedRadix(final int size) {
+			super(size);
+			this.factors = factorize(size);
+
+			twiddleRe = new float[size];
+			twiddleIm = new float[size];
+			for (int k = 0; k < size; k++) {
+				final double rad = -2 * Math.PI * k / size;
+				twiddleRe[k] = (float) Math.cos(rad);
+				twiddleIm[k] = (float) Math.sin(rad);
+			}
+
+			int maxFactor = 1;
+			for (final int factor : factors) {
+				maxFactor = Math.max(maxFactor, factor);
+			}
+			this.maxFactor = maxFactor;
+			butterflies = ThreadLocal.withInitial(() -> new Butterfly(
+					this.maxFactor));
+		}
+
+		// Radix 4 zuerst, da die Butterfly ohne Multiplikationen auskommt
+		private static int @NonNull [] factorize(int n) {
+			final int[] buffer = new int[32];
+			int numFactors = 0;
+			for (final int p : new int[] { 4, 2, 3, 5, 7 }) {
+				while (n % p == 0) {
+					buffer[numFactors++] = p;
+					n /= p;
+				}
+			}
+			assert n == 1;
+			final int[] factors = new int[numFactors];
+			System.arraycopy(buffer, 0, factors, 0, numFactors);
+			return factors;
+		}
+
+		@Override
+		void forward(final float @NonNull [] inRe, final float @NonNull [] inIm,
+				final float @NonNull [] outRe, final float @NonNull [] outIm) {
+			transform(inRe, inIm, 0, 1, outRe, outIm, 0, size, 0,
+					butterflies.get());
+		}
+
+		private void transform(final float @NonNull [] inRe,
+				final float @NonNull [] inIm, final int inOffset,
+				final int stride, final float @NonNull [] outRe,
+				final float @NonNull [] outIm, final int outOffset,
+				final int length, final int factorIndex,
+				final @NonNull Butterfly butterfly) {
+			final int p = factors[factorIndex];
+			final int m = length / p;
+
+			if (m == 1) {
+				for (int r = 0; r < p; r++) {
+					outRe[outOffset + r] = inRe[inOffset + r * stride];
+					outIm[outOffset + r] = inIm[inOffset + r * stride];
+				}
+			} else {
+				// Y_r liegt danach in out[outOffset + r * m + k]
+				for (int r = 0; r < p; r++) {
+					transform(inRe, inIm, inOffset + r * stride, stride * p,
+							outRe, outIm, outOffset + r * m, m,
+							factorIndex + 1, butterfly);
+				}
+			}
+
+			final int twiddleStep = size / length;
+			for (int k = 0; k < m; k++) {
+				for (int r = 0; r < p; r++) {
+					final int index = outOffset + r * m + k;
+					final int t = r * k * twiddleStep;
+					final float wr = twiddleRe[t];
+					final float wi = twiddleIm[t];
+					butterfly.re[r] = wr * outRe[index] - wi * outIm[index];
+					butterfly.im[r] = wr * outIm[index] + wi * outRe[index];
+				}
+				computeButterfly(p, butterfly);
+				for (int s = 0; s < p; s++) {
+					outRe[outOffset + k + s * m] = butterfly.resultRe[s];
+					outIm[outOffset + k + s * m] = butterfly.resultIm[s];
+				}
+			}
+		}
+
+		// DFT der Länge p über butterfly.re/im nach butterfly.resultRe/Im
+		private void computeButterfly(final int p,
+				final @NonNull Butterfly butterfly) {
+			final float[] butterflyRe = butterfly.re;
+			final float[] butterflyIm = butterfly.im;
+			final float[] resultRe = butterfly.resultRe;
+			final float[] resultIm = butterfly.resultIm;
+			switch (p) {
+			case 2:
+				resultRe[0] = butterflyRe[0] + butterflyRe[1];
+				resultIm[0] = butterflyIm[0] + butterflyIm[1];
+				resultRe[1] = butterflyRe[0] - butterflyRe[1];
+				resultIm[1] = butterflyIm[0] - butterflyIm[1];
+				break;
+			case 4: {
+				final float s0r = butterflyRe[0] + butterflyRe[2];
+				final float s0i = butterflyIm[0] + butterflyIm[2];
+				final float d0r = butterflyRe[0] - butterflyRe[2];
+				final float d0i = butterflyIm[0] - butterflyIm[2];
+				final float s1r = butterflyRe[1] + butterflyRe[3];
+				final float s1i = butterflyIm[1] + butterflyIm[3];
+				final float d1r = butterflyRe[1] - butterflyRe[3];
+				final float d1i = butterflyIm[1] - butterflyIm[3];
+				resultRe[0] = s0r + s1r;
+				resultIm[0] = s0i + s1i;
+				// d0 - i * d1
+				resultRe[1] = d0r + d1i;
+				resultIm[1] = d0i - d1r;
+				resultRe[2] = s0r - s1r;
+				resultIm[2] = s0i - s1i;
+				// d0 + i * d1
+				resultRe[3] = d0r - d1i;
+				resultIm[3] = d0i + d1r;
+				break;
+			}
+			case 3: {
+				// X[1,2] = x0 - (x1 + x2) / 2 -/+ i * sin(60°) * (x1 - x2)
+				final float sr = butterflyRe[1] + butterflyRe[2];
+				final float si = butterflyIm[1] + butterflyIm[2];
+				final float dr = SIN_60 * (butterflyRe[1] - butterflyRe[2]);
+				final float di = SIN_60 * (butterflyIm[1] - butterflyIm[2]);
+				final float mr = butterflyRe[0] - 0.5f * sr;
+				final float mi = butterflyIm[0] - 0.5f * si;
+				resultRe[0] = butterflyRe[0] + sr;
+				resultIm[0] = butterflyIm[0] + si;
+				resultRe[1] = mr + di;
+				resultIm[1] = mi - dr;
+				resultRe[2] = mr - di;
+				resultIm[2] = mi + dr;
+				break;
+			}
+			case 5: {
+				// Symmetrische Paare x1 +/- x4 und x2 +/- x3
+				final float s1r = butterflyRe[1] + butterflyRe[4];
+				final float s1i = butterflyIm[1] + butterflyIm[4];
+				final float d1r = butterflyRe[1] - butterflyRe[4];
+				final float d1i = butterflyIm[1] - butterflyIm[4];
+				final float s2r = butterflyRe[2] + butterflyRe[3];
+				final float s2i = butterflyIm[2] + butterflyIm[3];
+				final float d2r = butterflyRe[2] - butterflyRe[3];
+				final float d2i = butterflyIm[2] - butterflyIm[3];
+
+				final float m1r = butterflyRe[0] + COS_72 * s1r + COS_144 * s2r;
+				final float m1i = butterflyIm[0] + COS_72 * s1i + COS_144 * s2i;
+				final float m2r = butterflyRe[0] + COS_144 * s1r + COS_72 * s2r;
+				final float m2i = butterflyIm[0] + COS_144 * s1i + COS_72 * s2i;
+				final float n1r = SIN_72 * d1r + SIN_144 * d2r;
+				final float n1i = SIN_72 * d1i + SIN_144 * d2i;
+				final float n2r = SIN_144 * d1r - SIN_72 * d2r;
+				final float n2i = SIN_144 * d1i - SIN_72 * d2i;
+
+				resultRe[0] = butterflyRe[0] + s1r + s2r;
+				resultIm[0] = butterflyIm[0] + s1i + s2i;
+				// m1 -/+ i * n1
+				resultRe[1] = m1r + n1i;
+				resultIm[1] = m1i - n1r;
+				resultRe[4] = m1r - n1i;
+				resultIm[4] = m1i + n1r;
+				// m2 -/+ i * n2
+				resultRe[2] = m2r + n2i;
+				resultIm[2] = m2i - n2r;
+				resultRe[3] = m2r - n2i;
+				resultIm[3] = m2i + n2r;
+				break;
+			}
+			default:
+				// Allgemeine DFT in O(p²) für 7
+				final int step = size / p;
+				for (int s = 0; s < p; s++) {
+					float sumRe = 0f;
+					float sumIm = 0f;
+					for (int r = 0; r < p; r++) {
+						final int t = ((r * s) % p) * step;
+						sumRe += twiddleRe[t] * butterflyRe[r] - twiddleIm[t]
+								* butterflyIm[r];
+						sumIm += twiddleRe[t] * butterflyIm[r] + twiddleIm[t]
+								* butterflyRe[r];
+					}
+					resultRe[s] = sumRe;
+					resultIm[s] = sumIm;
+				}
+				break;
+			}
+		}
+	}
+
+	// Mit c[j] = e^(-i*Pi*j²/n) gilt X[k] = c[k] * Sum_j (x[j] * c[j]) *
+	// c'[k - j], d. h. die DFT ist eine Faltung, die über eine FFT der Länge
+	// M >= 2n - 1 (Zweierpotenz) berechnet wird.
+	private static final class Bluestein extends FourierPlan {
+		private final FastFourierTransform fft;
+		private final float[] chirpRe;
+		private final float[] chirpIm;
+		// FFT von c'[], zyklisch auf Länge M fortgesetzt
+		private final float[] kernelRe;
+		private final float[] kernelIm;
+		// Real- und Imaginärteil der Faltung, Länge M
+		private final ThreadLocal<float[][]> buffers;
+
+		Bluestein(final int size) {
+			super(size);
+			final int fftSize = Util.getNextPowerOfTwo(2 * size - 1);
+			fft = new FastFourierTransform(fftSize);
+
+			chirpRe = new float[size];
+			chirpIm = new float[size];
+			for (int j = 0; j < size; j++) {
+				// j² mod 2n, damit der Winkel auch für große j exakt bleibt
+				final long square = ((long) j * j) % (2L * size);
+				final double rad = -Math.PI * square / size;
+				chirpRe[j] = (float) Math.cos(rad);
+				chirpIm[j] = (float) Math.sin(rad);
+			}
+
+			kernelRe = new float[fftSize];
+			kernelIm = new float[fftSize];
+			kernelRe[0] = chirpRe[0];
+			kernelIm[0] = -chirpIm[0];
+			for (int j = 1; j < size; j++) {
+				kernelRe[j] = kernelRe[fftSize - j] = chirpRe[j];
+				kernelIm[j] = kernelIm[fftSize - j] = -chirpIm[j];
+			}
+			fft.forward(kernelRe, kernelIm, kernelRe, kernelIm);
+
+			buffers = ThreadLocal.withInitial(() -> new float[][] {
+					new float[fftSize], new float[fftSize] });
+		}
+
+		@Override
+		void forward(final float @NonNull [] inRe, final float @NonNull [] inIm,
+				final float @NonNull [] outRe, final float @NonNull [] outIm) {
+			final float[][] buffer = buffers.get();
+			final float[] bufferRe = buffer[0];
+			final float[] bufferIm = buffer[1];
+			// a[j] = x[j] * c[j], mit 0 auf Länge M aufgefüllt
+			for (int j = 0; j < size; j++) {
+				bufferRe[j] = inRe[j] * chirpRe[j] - inIm[j] * chirpIm[j];
+				bufferIm[j] = inRe[j] * chirpIm[j] + inIm[j] * chirpRe[j];
+			}
+			Arrays.fill(bufferRe, size, bufferRe.length, 0f);
+			Arrays.fill(bufferIm, size, bufferIm.length, 0f);
+
+			// Faltung über die FFT
+			fft.forward(bufferRe, bufferIm, bufferRe, bufferIm);
+			for (int i = 0; i < bufferRe.length; i++) {
+				final float re = bufferRe[i];
+				final float im = bufferIm[i];
+				bufferRe[i] = re * kernelRe[i] - im * kernelIm[i];
+				bufferIm[i] = re * kernelIm[i] + im * kernelRe[i];
+			}
+			fft.backward(bufferRe, bufferIm, bufferRe, bufferIm);
+
+			// X[k] = c[k] * (a * c')[k]
+			for (int k = 0; k < size; k++) {
+				final float re = bufferRe[k];
+				final float im = bufferIm[k];
+				outRe[k] = re * chirpRe[k] - im * chirpIm[k];
+				outIm[k] = re * chirpIm[k] + im * chirpRe[k];
+			}
+		}
+	}
+}
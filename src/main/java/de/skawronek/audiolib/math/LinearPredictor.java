@@ -4,18 +4,58 @@ import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.NonNull;
 
+import de.skawronek.audiolib.util.AbstractFactory;
+
 /**
  * <pre>
  * m: Order
  * x_pred[i] = -a[1]*x[i-1] -a[2]*x[i-2] - ... -a[M]*x[i-m]
  * </pre>
  *
+ * Neben den Koeffizienten liefert die Levinson-Durbin-Rekursion die
+ * Reflexionskoeffizienten k[1..m] und den Prädiktionsfehler
+ * e = r[0] * Prod_i (1 - k[i]²), also die Energie des Residuums, ohne dass das
+ * Residuum berechnet werden muss. Daraus ergeben sich das LPC-Cepstrum und die
+ * spektrale Einhüllende |H(w)| = sqrt(e) / |A(w)|.
+ * <p>
+ * Instanzen aus der {@link Factory} werden pro Thread wiederverwendet; mit
+ * vorberechneter Autokorrelation allokiert die Analyse dann nichts.
  */
 public final class LinearPredictor {
+	public static final class Factory extends
+			AbstractFactory<Integer, LinearPredictor> {
+		private static final Factory INSTANCE = new Factory();
+
+		private Factory() {
+		}
+
+		public static Factory getInstance() {
+			return INSTANCE;
+		}
+
+		public @NonNull LinearPredictor get(final int order) {
+			return super.get(order);
+		}
+
+		@Override
+		protected @NonNull LinearPredictor create(final @NonNull Integer order) {
+			return new LinearPredictor(order);
+		}
+	}
+
 	// Autokorrelation
 	private final float[] r;
 	// Koeffzienten der Linear Prediction mit a[0] = 1
 	private final float[] a;
+	// Reflexionskoeffizienten k[1..m], k[0] = 0
+	private final float[] k;
+	// Prädiktionsfehler der Levinson-Durbin-Rekursion
+	private float predictionError;
+
+	// Für computeEnvelope, wächst mit der FFT-Länge
+	private float[] envelopeSamples = new float[0];
+	private float[] envelopeRe = new float[0];
+	private float[] envelopeIm = new float[0];
 
 	public LinearPredictor(final int order) {
 		if (order < 1) {
@@ -24,6 +64,7 @@ public final class LinearPredictor {
 
 		r = new float[order + 1];
 		a = new float[order + 1];
+		k = new float[order + 1];
 	}
 
 	public int getOrder() {
@@ -42,37 +83,50 @@ public final class LinearPredictor {
 	 */
 	public void computeCoefficients(final float @NonNull [] x,
 			final float @NonNull [] r) {
+		computeFromAutocorrelation(r);
+	}
+
+	/**
+	 * Berechnung der Koeffizienten mittels Levinson-Durbin-Rekursion aus der
+	 * Autokorrelation r[] (z. B. aus dem Autocorrelation-Feature) allein. r[]
+	 * muss mindestens (m + 1) lang sein. Ist r[0] = 0 (Stille), werden alle
+	 * Koeffizienten außer a[0] und der Prädiktionsfehler 0.
+	 */
+	public void computeFromAutocorrelation(final float @NonNull [] r) {
 		final int m = getOrder();
 		if (r.length < m + 1) {
 			throw new IllegalArgumentException("r length " + r.length
 					+ " < (Order + 1 = " + (m + 1) + ")");
 		}
 
-		System.arraycopy(r, 0, this.r, 0, m);
+		System.arraycopy(r, 0, this.r, 0, m + 1);
 
 		Arrays.fill(a, 0f);
+		Arrays.fill(k, 0f);
 		a[0] = 1.0f;
 
 		float e = r[0];
 
 		// Levinson-Durbin Rekursion
-		for (int k = 0; k < m; k++) {
+		for (int i = 0; i < m && e > 0; i++) {
 			float lambda = 0f;
-			for (int j = 0; j <= k; j++) {
-				lambda -= a[j] * r[k + 1 - j];
+			for (int j = 0; j <= i; j++) {
+				lambda -= a[j] * r[i + 1 - j];
 			}
 			lambda /= e;
+			k[i + 1] = lambda;
 
 			// Update a
-			for (int j = 0; j <= (k + 1) / 2; j++) {
-				float temp = a[k + 1 - j] + lambda * a[j];
-				a[j] = a[j] + lambda * a[k + 1 - j];
-				a[k + 1 - j] = temp;
+			for (int j = 0; j <= (i + 1) / 2; j++) {
+				float temp = a[i + 1 - j] + lambda * a[j];
+				a[j] = a[j] + lambda * a[i + 1 - j];
+				a[i + 1 - j] = temp;
 			}
 
 			// Update e
 			e *= 1f - lambda * lambda;
 		}
+		predictionError = Math.max(0f, e);
 	}
 
 	/**
@@ -80,7 +134,7 @@ public final class LinearPredictor {
 	 */
 	public void computeCoefficients(final float @NonNull [] x) {
 		computeAutocorrelation(x);
-		computeCoefficients(x, r);
+		computeFromAutocorrelation(r);
 	}
 
 	private void computeAutocorrelation(final float @NonNull [] x) {
@@ -132,4 +186,102 @@ public final class LinearPredictor {
 		final float[] copy = Arrays.copyOf(a, a.length);
 		return copy;
 	}
+
+	/**
+	 * Kopiert a[0..m] nach dest, ohne zu allokieren.
+	 */
+	public void copyCoefficients(final float @NonNull [] dest) {
+		if (dest.length < a.length) {
+			throw new IllegalArgumentException("dest length " + dest.length
+					+ " < (Order + 1 = " + a.length + ")");
+		}
+		System.arraycopy(a, 0, dest, 0, a.length);
+	}
+
+	/**
+	 * Kopiert die Reflexionskoeffizienten (PARCOR) k[1..m] nach dest[0..m-1].
+	 * Bei einer gültigen Autokorrelation gilt |k[i]| < 1.
+	 */
+	public void copyReflectionCoefficients(final float @NonNull [] dest) {
+		final int m = getOrder();
+		if (dest.length < m) {
+			throw new IllegalArgumentException("dest length " + dest.length
+					+ " < order " + m);
+		}
+		System.arraycopy(k, 1, dest, 0, m);
+	}
+
+	/**
+	 * Gibt den Prädiktionsfehler e der letzten Berechnung zurück, also die
+	 * Energie des Residuums x[i] - x_pred[i] (in den Einheiten von r[0]).
+	 */
+	public float getPredictionError() {
+		return predictionError;
+	}
+
+	/**
+	 * Berechnet die ersten dest.length Koeffizienten des LPC-Cepstrums des
+	 * Modells H(z) = G / A(z) mit G = sqrt(e):
+	 *
+	 * <pre>
+	 * c[0] = ln(G)
+	 * c[n] = -a[n] - Sum_j=max(1,n-m)^n-1 (j/n) * c[j] * a[n-j]
+	 * </pre>
+	 *
+	 * mit a[n] = 0 für n > m. Für e = 0 ist c[0] = -Infinity.
+	 */
+	public void computeCepstrum(final float @NonNull [] dest) {
+		final int m = getOrder();
+		if (dest.length == 0) {
+			return;
+		}
+
+		dest[0] = (float) (0.5 * Math.log(predictionError));
+		for (int n = 1; n < dest.length; n++) {
+			double c = (n <= m ? -a[n] : 0.0);
+			for (int j = Math.max(1, n - m); j < n; j++) {
+				c -= (double) j / n * dest[j] * a[n - j];
+			}
+			dest[n] = (float) c;
+		}
+	}
+
+	/**
+	 * Berechnet die spektrale Einhüllende |H(w)| = sqrt(e) / |A(w)| an den
+	 * Frequenzen der Bins 0..fftSize/2 einer FFT der Länge fftSize, also
+	 * passend zum Betragsspektrum eines Frames der Größe fftSize. A(w) wird
+	 * dazu per reeller FFT der mit Nullen aufgefüllten Koeffizienten a[]
+	 * ausgewertet.
+	 */
+	public void computeEnvelope(final int fftSize,
+			final float @NonNull [] dest) {
+		final int m = getOrder();
+		if (fftSize <= m) {
+			throw new IllegalArgumentException("fftSize " + fftSize
+					+ " <= order " + m);
+		}
+		final FastFourierTransform fft = FastFourierTransform.Factory
+				.getInstance().get(fftSize);
+		final int numBins = fft.getNumRealBins();
+		if (dest.length < numBins) {
+			throw new IllegalArgumentException("dest length " + dest.length
+					+ " < " + numBins);
+		}
+
+		if (envelopeSamples.length != fftSize) {
+			envelopeSamples = new float[fftSize];
+			envelopeRe = new float[numBins];
+			envelopeIm = new float[numBins];
+		}
+		System.arraycopy(a, 0, envelopeSamples, 0, m + 1);
+		Arrays.fill(envelopeSamples, m + 1, fftSize, 0f);
+		fft.forwardReal(envelopeSamples, envelopeRe, envelopeIm);
+
+		final double gain = Math.sqrt(predictionError);
+		for (int i = 0; i < numBins; i++) {
+			final double re = envelopeRe[i];
+			final double im = envelopeIm[i];
+			dest[i] = (float) (gain / Math.sqrt(re * re + im * im));
+		}
+	}
 }
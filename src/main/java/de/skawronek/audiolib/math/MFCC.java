@@ -1,9 +1,5 @@
 package de.skawronek.audiolib.math;
 
-import static de.skawronek.audiolib.util.Util.clamp;
-import static java.lang.Math.exp;
-import static java.lang.Math.log;
-
 import org.eclipse.jdt.annotation.NonNull;
 
 import de.skawronek.audiolib.util.AbstractFactory;
@@ -102,9 +98,7 @@ public final class MFCC {
 		}
 	}
 
-	private final int windowSize;
-	private final int[] filterbankIndices;
-	private final float[] powerSpectrum;
+	private final MelFilterbank filterbank;
 	private final float[] logBankEnergies;
 	private final float[][] dctMatrix;
 	private final float[] coeffs;
@@ -114,78 +108,49 @@ public final class MFCC {
 		checkArguments(windowSize, sampleRate, minFreq, maxFreq,
 				numFilterbanks, numCepstralCoefficients);
 
-		this.windowSize = windowSize;
-		this.filterbankIndices = computeFilterbankIndices(windowSize,
-				sampleRate, numFilterbanks, minFreq, maxFreq);
-		this.powerSpectrum = new float[windowSize / 2];
+		// Die Filterbank ist unveränderlich und kann geteilt werden
+		this.filterbank = MelFilterbank.Factory.getInstance().get(windowSize,
+				sampleRate, minFreq, maxFreq, numFilterbanks);
 		this.logBankEnergies = new float[numFilterbanks];
 		this.dctMatrix = DctMatrixGenerator.generate(numFilterbanks);
 		this.coeffs = new float[numCepstralCoefficients];
 	}
 
-	private static int[] computeFilterbankIndices(final int windowSize,
-			final double sampleRate, final int numFilterbanks,
-			final double minFreq, final double maxFreq) {
-		if (maxFreq > sampleRate / 2) {
-			throw new IllegalArgumentException();
-		}
-
-		// Jede Filterbbank hat einen Start-, Peak- und End-Punkt für den
-		// dreieckigen Filter
-		final int numPoints = numFilterbanks + 2;
-		final double lowerMel = frequencyToMel(minFreq);
-		final double upperMel = frequencyToMel(maxFreq);
-		final double linSpace = (upperMel - lowerMel) / (numPoints - 1);
-		final int indices[] = new int[numPoints];
-
-		final int minBin = 0; // inkl.
-		final int maxBin = windowSize / 2; // inkl.
-		for (int i = 0; i < numPoints; i++) {
-			final double mel = lowerMel + i * linSpace;
-			final double freq = melToFrequency(mel);
-			final int bin = clamp(FastFourierTransform.frequencyToBin(freq,
-					windowSize, sampleRate), minBin, maxBin);
-			indices[i] = bin;
-		}
-
-		return indices;
-	}
-
+	/**
+	 * Berechnet die Koeffizienten aus dem Betragsspektrum (Bins
+	 * 0..windowSize/2, der Nyquist-Bin ist optional).
+	 */
 	public void compute(final float @NonNull [] magSpectrum) {
-		computePowerSpectrum(magSpectrum);
-		computeLogBankEnergies();
+		filterbank.computeLogEnergies(magSpectrum, logBankEnergies);
 		computeDiscreteCosineTransform();
 	}
 
-	private void computePowerSpectrum(final float @NonNull [] magSpectrum) {
-		for (int k = 0; k < windowSize / 2; k++) {
-			powerSpectrum[k] = (magSpectrum[k] * magSpectrum[k]) / windowSize;
-		}
+	/**
+	 * Berechnet die Koeffizienten direkt aus Real- und Imaginärteil des
+	 * Spektrums (Bins 0..windowSize/2, der Nyquist-Bin ist optional), ohne
+	 * Betragsspektrum.
+	 */
+	public void compute(final float @NonNull [] re,
+			final float @NonNull [] im) {
+		filterbank.computeLogEnergies(re, im, logBankEnergies);
+		computeDiscreteCosineTransform();
 	}
 
-	private void computeLogBankEnergies() {
+	/**
+	 * Berechnet die Koeffizienten aus bereits berechneten logarithmierten
+	 * Energien der Filterbank (siehe {@link MelFilterbank}).
+	 */
+	public void computeFromLogBankEnergies(
+			final float @NonNull [] logBankEnergies) {
 		final int numFilterbanks = getNumFilterbanks();
-		for (int i = 0; i < numFilterbanks; i++) {
-			final int startIndex = filterbankIndices[i]; // inkl.
-			final int midIndex = filterbankIndices[i + 1]; // inkl.
-			final int endIndex = filterbankIndices[i + 2]; // inkl.
-
-			// Linearer Dreiecks-Filter (startIndex, midIndex, endIndex)
-			logBankEnergies[i] = 0;
-			for (int k = startIndex; k < midIndex; k++) {
-				final float scale = ((float) (k - startIndex))
-						/ ((float) (midIndex - startIndex));
-				logBankEnergies[i] += (scale * powerSpectrum[k]);
-			}
-			for (int k = midIndex; k <= endIndex; k++) {
-				final float scale = 1 - ((float) (k - endIndex))
-						/ ((float) (midIndex - startIndex));
-				logBankEnergies[i] += (scale * powerSpectrum[k]);
-			}
-
-			// Logarithmus
-			logBankEnergies[i] = (float) log(logBankEnergies[i]);
+		if (logBankEnergies.length < numFilterbanks) {
+			throw new IllegalArgumentException("logBankEnergies length "
+					+ logBankEnergies.length + " < num filterbanks "
+					+ numFilterbanks);
 		}
+		System.arraycopy(logBankEnergies, 0, this.logBankEnergies, 0,
+				numFilterbanks);
+		computeDiscreteCosineTransform();
 	}
 
 	private void computeDiscreteCosineTransform() {
@@ -202,7 +167,7 @@ public final class MFCC {
 	}
 
 	public int getNumFilterbanks() {
-		return filterbankIndices.length - 2;
+		return filterbank.getNumFilters();
 	}
 
 	public int getNumCepstrumCoefficients() {
@@ -220,32 +185,20 @@ public final class MFCC {
 	}
 
 	public static double frequencyToMel(final double freq) {
-		return 1225 * log(1 + freq / 700);
+		return MelFilterbank.frequencyToMel(freq);
 	}
 
 	public static double melToFrequency(final double mel) {
-		return 700 * (exp(mel / 1125) - 1);
+		return MelFilterbank.melToFrequency(mel);
 	}
 
 	private static void checkArguments(final int windowSize,
 			final double sampleRate, final double minFreq,
 			final double maxFreq, final int numFilterbanks,
 			final int numCepstralCoefficients) {
-		if (windowSize <= 0) {
-			throw new IllegalArgumentException("windowSize " + windowSize
-					+ " <= 0");
-		} else if (sampleRate <= 0) {
-			throw new IllegalArgumentException("sampleRate " + sampleRate
-					+ " <= 0");
-		} else if (minFreq <= 0) {
-			throw new IllegalArgumentException("minFreq " + minFreq + " <= 0");
-		} else if (minFreq >= maxFreq) {
-			throw new IllegalArgumentException("minFreq " + minFreq
-					+ " >= maxFreq " + maxFreq);
-		} else if (numFilterbanks < 1) {
-			throw new IllegalArgumentException("numFilterBanks "
-					+ numFilterbanks + " < 1");
-		} else if (numCepstralCoefficients > numFilterbanks) {
+		MelFilterbank.checkArguments(windowSize, sampleRate, minFreq, maxFreq,
+				numFilterbanks);
+		if (numCepstralCoefficients > numFilterbanks) {
 			throw new IllegalArgumentException("numCepstralCoefficients "
 					+ numCepstralCoefficients + " > numFilterbanks "
 					+ numFilterbanks);
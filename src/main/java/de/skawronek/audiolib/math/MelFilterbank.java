@@ -0,0 +1,291 @@
+package de.skawronek.audiolib.math;
+
+import static de.skawronek.audiolib.util.Util.clamp;
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.SharedFactory;
+
+/**
+ * Filterbank aus dreieckigen Filtern, deren Mittenfrequenzen äquidistant auf
+ * der Mel-Skala liegen. Filter i beginnt an der Mittenfrequenz von Filter i-1
+ * und endet an der von Filter i+1.
+ * <p>
+ * Die Gewichte werden bei der Erzeugung einmal berechnet und dünnbesetzt
+ * hintereinander in einem Array abgelegt, pro Filter nur die Bins mit einem
+ * Gewicht größer 0. Die Normierung des Leistungsspektrums mit 1 / windowSize
+ * ist in den Gewichten enthalten. Die Energien werden so in einem Durchlauf
+ * direkt aus Real- und Imaginärteil des Spektrums berechnet, ohne
+ * Betragsspektrum (und damit ohne Wurzel) und ohne separates
+ * Leistungsspektrum.
+ * <p>
+ * Instanzen sind nach der Erzeugung unveränderlich. Die {@link Factory}
+ * teilt sie daher zwischen allen Threads.
+ */
+public final class MelFilterbank {
+	private static final class Index {
+		private final int windowSize;
+		private final double sampleRate;
+		private final double minFreq;
+		private final double maxFreq;
+		private final int numFilters;
+
+		private Index(final int windowSize, final double sampleRate,
+				final double minFreq, final double maxFreq, final int numFilters) {
+			this.windowSize = windowSize;
+			this.sampleRate = sampleRate;
+			this.minFreq = minFreq;
+			this.maxFreq = maxFreq;
+			this.numFilters = numFilters;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Index) {
+				final Index other = (Index) obj;
+				//@formatter:off
+				return this.windowSize == other.windowSize
+						&& Double.compare(this.sampleRate, other.sampleRate) == 0
+						&& Double.compare(this.minFreq, other.minFreq) == 0
+						&& Double.compare(this.maxFreq, other.maxFreq) == 0
+						&& this.numFilters == other.numFilters;
+				//@formatter:on
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			//@formatter:off
+			return windowSize
+					^ Double.hashCode(sampleRate)
+					^ Double.hashCode(minFreq)
+					^ Double.hashCode(maxFreq)
+					^ numFilters;
+			//@formatter:on
+		}
+	}
+
+	public static final class Factory extends
+			SharedFactory<Index, MelFilterbank> {
+		private static final Factory INSTANCE = new Factory();
+
+		private Factory() {
+		}
+
+		public static Factory getInstance() {
+			return INSTANCE;
+		}
+
+		public @NonNull MelFilterbank get(final int windowSize,
+				final double sampleRate, final double minFreq,
+				final double maxFreq, final int numFilters) {
+			checkArguments(windowSize, sampleRate, minFreq, maxFreq,
+					numFilters);
+			final Index index = new Index(windowSize, sampleRate, minFreq,
+					maxFreq, numFilters);
+			return super.get(index);
+		}
+
+		@Override
+		protected @NonNull MelFilterbank create(@NonNull Index index) {
+			return new MelFilterbank(index.windowSize, index.sampleRate,
+					index.minFreq, index.maxFreq, index.numFilters);
+		}
+	}
+
+	private final int windowSize;
+	// Erster Bin jedes Filters
+	private final int[] firstBins;
+	// Gewichte von Filter i liegen in weights[offsets[i]..offsets[i+1]-1]
+	private final int[] offsets;
+	private final float[] weights;
+
+	public MelFilterbank(final int windowSize, final double sampleRate,
+			final double minFreq, final double maxFreq, final int numFilters) {
+		checkArguments(windowSize, sampleRate, minFreq, maxFreq, numFilters);
+
+		this.windowSize = windowSize;
+		final int[] points = computePoints(windowSize, sampleRate, minFreq,
+				maxFreq, numFilters);
+
+		firstBins = new int[numFilters];
+		offsets = new int[numFilters + 1];
+		// Jeder Filter hat höchstens end - start Gewichte größer 0
+		int maxNumWeights = 0;
+		for (int i = 0; i < numFilters; i++) {
+			maxNumWeights += Math.max(1, points[i + 2] - points[i]);
+		}
+		final float[] allWeights = new float[maxNumWeights];
+
+		final float normalization = 1f / windowSize;
+		int numWeights = 0;
+		for (int i = 0; i < numFilters; i++) {
+			final int start = points[i];
+			final int mid = points[i + 1];
+			final int end = points[i + 2];
+
+			// Ohne die Ränder mit Gewicht 0, der Mittelpunkt hat immer
+			// Gewicht 1
+			final int first = (start < mid ? start + 1 : mid);
+			final int last = (mid < end ? end - 1 : mid);
+			firstBins[i] = first;
+			offsets[i] = numWeights;
+			for (int k = first; k <= last; k++) {
+				final float weight;
+				if (k < mid) {
+					weight = (float) (k - start) / (mid - start);
+				} else if (k > mid) {
+					weight = (float) (end - k) / (end - mid);
+				} else {
+					weight = 1f;
+				}
+				allWeights[numWeights++] = weight * normalization;
+			}
+		}
+		offsets[numFilters] = numWeights;
+		weights = Arrays.copyOf(allWeights, numWeights);
+	}
+
+	// Bins der numFilters + 2 Start-, Mitten- und End-Punkte
+	private static int @NonNull [] computePoints(final int windowSize,
+			final double sampleRate, final double minFreq,
+			final double maxFreq, final int numFilters) {
+		final int numPoints = numFilters + 2;
+		final double lowerMel = frequencyToMel(minFreq);
+		final double upperMel = frequencyToMel(maxFreq);
+		final double linSpace = (upperMel - lowerMel) / (numPoints - 1);
+		final int points[] = new int[numPoints];
+
+		final int minBin = 0; // inkl.
+		final int maxBin = windowSize / 2; // inkl.
+		for (int i = 0; i < numPoints; i++) {
+			// Auf maxFreq begrenzen, damit Rundungsfehler nicht über
+			// sampleRate / 2 führen
+			final double freq = Math.min(
+					melToFrequency(lowerMel + i * linSpace), maxFreq);
+			points[i] = clamp(FastFourierTransform.frequencyToBin(freq,
+					windowSize, sampleRate), minBin, maxBin);
+		}
+		return points;
+	}
+
+	/**
+	 * Berechnet die logarithmierten Energien der Filter aus dem Spektrum einer
+	 * FFT der Länge windowSize. Real- und Imaginärteil müssen mindestens die
+	 * Bins 0..windowSize/2-1 enthalten; der Nyquist-Bin windowSize/2 ist
+	 * optional und wird nur verwendet, wenn er enthalten ist. Filter ohne
+	 * Energie ergeben -Infinity.
+	 */
+	public void computeLogEnergies(final float @NonNull [] re,
+			final float @NonNull [] im, final float @NonNull [] dest) {
+		checkSpectrumLength(re.length, "re");
+		checkSpectrumLength(im.length, "im");
+		checkDestLength(dest);
+
+		final int numBins = Math.min(re.length, im.length);
+		for (int i = 0; i < firstBins.length; i++) {
+			float energy = 0f;
+			final int end = getEnd(i, numBins);
+			for (int j = offsets[i], k = firstBins[i]; j < end; j++, k++) {
+				energy += weights[j] * (re[k] * re[k] + im[k] * im[k]);
+			}
+			dest[i] = (float) log(energy);
+		}
+	}
+
+	/**
+	 * Wie {@link #computeLogEnergies(float[], float[], float[])}, aber aus
+	 * dem Betragsspektrum.
+	 */
+	public void computeLogEnergies(final float @NonNull [] magSpectrum,
+			final float @NonNull [] dest) {
+		checkSpectrumLength(magSpectrum.length, "magSpectrum");
+		checkDestLength(dest);
+
+		for (int i = 0; i < firstBins.length; i++) {
+			float energy = 0f;
+			final int end = getEnd(i, magSpectrum.length);
+			for (int j = offsets[i], k = firstBins[i]; j < end; j++, k++) {
+				energy += weights[j] * (magSpectrum[k] * magSpectrum[k]);
+			}
+			dest[i] = (float) log(energy);
+		}
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getNumFilters() {
+		return firstBins.length;
+	}
+
+	/**
+	 * Gibt die Anzahl der gespeicherten Gewichte größer 0 zurück.
+	 */
+	public int getNumWeights() {
+		return weights.length;
+	}
+
+	// Ende (exkl.) der Gewichte von Filter i, ohne Bins ab numBins (z. B.
+	// einen fehlenden Nyquist-Bin)
+	private int getEnd(final int i, final int numBins) {
+		return Math.min(offsets[i + 1], offsets[i] + numBins - firstBins[i]);
+	}
+
+	private void checkSpectrumLength(final int length,
+			final @NonNull String name) {
+		final int minLength = windowSize / 2;
+		if (length < minLength) {
+			throw new IllegalArgumentException(name + " length " + length
+					+ " < " + minLength);
+		}
+	}
+
+	private void checkDestLength(final float @NonNull [] dest) {
+		if (dest.length < firstBins.length) {
+			throw new IllegalArgumentException("dest length " + dest.length
+					+ " < num filters " + firstBins.length);
+		}
+	}
+
+	public static double frequencyToMel(final double freq) {
+		return 1125 * log(1 + freq / 700);
+	}
+
+	public static double melToFrequency(final double mel) {
+		return 700 * (exp(mel / 1125) - 1);
+	}
+
+	static void checkArguments(final int windowSize, final double sampleRate,
+			final double minFreq, final double maxFreq, final int numFilters) {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize " + windowSize
+					+ " <= 0");
+		} else if (sampleRate <= 0) {
+			throw new IllegalArgumentException("sampleRate " + sampleRate
+					+ " <= 0");
+		} else if (minFreq <= 0) {
+			throw new IllegalArgumentException("minFreq " + minFreq + " <= 0");
+		} else if (minFreq >= maxFreq) {
+			throw new IllegalArgumentException("minFreq " + minFreq
+					+ " >= maxFreq " + maxFreq);
+		} else if (maxFreq > sampleRate / 2) {
+			throw new IllegalArgumentException("maxFreq " + maxFreq
+					+ " > (sampleRate / 2 = " + (sampleRate / 2) + ")");
+		} else if (numFilters < 1) {
+			throw new IllegalArgumentException("numFilters " + numFilters
+					+ " < 1");
+		}
+	}
+}
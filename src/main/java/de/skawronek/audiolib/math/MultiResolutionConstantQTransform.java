@@ -0,0 +1,258 @@
+package de.skawronek.audiolib.math;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.AbstractFactory;
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * Constant-Q-Transformation, die oktavweise berechnet wird ("Constant-Q
+ * Transform Toolbox for Music Processing", Schörkhuber und Klapuri, 2010).
+ * Statt eines Kernels, dessen FFT-Länge sich nach dem Fenster des tiefsten
+ * Bins richtet, gibt es einen Kernel für eine Oktave. Für jede weitere Oktave
+ * wird das Signal tiefpassgefiltert und um den Faktor 2 dezimiert; die Bins der
+ * nächsttieferen Oktave liegen dann relativ zur halbierten Abtastrate genau
+ * dort, wo die Bins der vorherigen Oktave relativ zur vorherigen Abtastrate
+ * lagen, sodass derselbe Kernel wiederverwendet wird.
+ * <p>
+ * Der wiederverwendete Kernel wird so gelegt, dass seine Bins höchstens bei
+ * einem Viertel der jeweiligen Abtastrate liegen. Zwischen den Bins und der
+ * neuen Nyquist-Frequenz bleibt so genug Abstand für einen kurzen Tiefpass;
+ * liegt maxFreq weit unter der Nyquist-Frequenz, wird das Signal schon vor der
+ * obersten Oktave dezimiert. Liegt die oberste Oktave über einem Viertel der
+ * Abtastrate, wird sie mit einem eigenen Kernel auf dem unveränderten Signal
+ * berechnet; ihre Fenster sind kurz, der Kernel also klein.
+ * <p>
+ * Kernel und FFT sind damit um Größenordnungen kleiner als bei
+ * {@link FastConstantQTransform}. Die Ergebnisse stimmen bis auf die Rundung
+ * der Fensterlängen und den Dezimierungsfilter mit denen von
+ * {@link FastConstantQTransform} überein. Wie dort beginnen alle Fenster beim
+ * ersten Sample.
+ * <p>
+ * Der Tiefpass ist ein nullphasiges Halbband-FIR-Filter (gefensterter Sinc,
+ * Hamming): Jeder zweite Koeffizient ist 0 und es werden nur die benötigten
+ * Ausgabe-Samples berechnet. Alle Puffer werden bei der Erzeugung angelegt,
+ * {@link #forward} allokiert nichts. Nicht thread-safe.
+ */
+public final class MultiResolutionConstantQTransform {
+	public static final class Factory
+			extends
+			AbstractFactory<FastConstantQTransform.Index, MultiResolutionConstantQTransform> {
+		private static final Factory INSTANCE = new Factory();
+
+		private Factory() {
+		}
+
+		public static Factory getInstance() {
+			return INSTANCE;
+		}
+
+		public @NonNull MultiResolutionConstantQTransform get(
+				final double minFreq, final double maxFreq,
+				final int binsPerOctave, final double sampleRate) {
+			final FastConstantQTransform.Index index = new FastConstantQTransform.Index(
+					minFreq, maxFreq, binsPerOctave, sampleRate);
+			return super.get(index);
+		}
+
+		@Override
+		protected @NonNull MultiResolutionConstantQTransform create(
+				final FastConstantQTransform.@NonNull Index index) {
+			return new MultiResolutionConstantQTransform(index.minFreq,
+					index.maxFreq, index.binsPerOctave, index.sampleRate, true);
+		}
+	}
+
+	private final ConstantQOctavePlan plan;
+	private final int binsPerOctave;
+	private final double minFreq;
+	private final double sampleRate;
+	private final int maxSize;
+
+	// Signal der aktuellen und der nächsten Oktave, links und rechts mit
+	// halfLength Nullen aufgefüllt
+	private final float[] current;
+	private final float[] next;
+
+	private final float[] octaveRe;
+	private final float[] octaveIm;
+	private final float[] real;
+	private final float[] imaginary;
+
+	public MultiResolutionConstantQTransform(final double minFreq,
+			final double maxFreq, final int binsPerOctave,
+			final double sampleRate) {
+		this(minFreq, maxFreq, binsPerOctave, sampleRate, false);
+	}
+
+	// Mit shared = true werden die Kernel-Matrizen zwischen den Threads
+	// geteilt (nur für die Factory)
+	MultiResolutionConstantQTransform(final double minFreq,
+			final double maxFreq, final int binsPerOctave,
+			final double sampleRate, final boolean shared) {
+		this.binsPerOctave = binsPerOctave;
+		this.minFreq = minFreq;
+		this.sampleRate = sampleRate;
+		plan = new ConstantQOctavePlan(minFreq, maxFreq, binsPerOctave,
+				sampleRate, shared);
+		final int numBins = plan.getNumBins();
+		final int numOctaves = plan.getNumOctaves();
+
+		// Die unterste Oktave entspricht der FFT-Länge von
+		// FastConstantQTransform
+		maxSize = Math.max(plan.getKernel(0).getFftLength(), plan.getKernel(
+				numOctaves - 1).getFftLength()
+				<< plan.getNumDecimations(numOctaves - 1));
+		final int halfLength = plan.getFilterHalfLength();
+
+		current = new float[maxSize + 2 * halfLength];
+		next = new float[maxSize + 2 * halfLength];
+		octaveRe = new float[plan.getMaxKernelBins()];
+		octaveIm = new float[plan.getMaxKernelBins()];
+		real = new float[numBins];
+		imaginary = new float[numBins];
+	}
+
+	public void forward(final float @NonNull [] samples) {
+		if (samples.length > maxSize) {
+			throw new IllegalArgumentException("samples length "
+					+ samples.length + " > max. size " + maxSize);
+		}
+
+		final int halfLength = plan.getFilterHalfLength();
+		float[] current = this.current;
+		float[] next = this.next;
+		int size = samples.length;
+		System.arraycopy(samples, 0, current, halfLength, size);
+		Arrays.fill(current, halfLength + size, current.length, 0f);
+
+		int numDecimations = 0;
+		for (int octave = 0; octave < plan.getNumOctaves(); octave++) {
+			while (numDecimations < plan.getNumDecimations(octave)) {
+				size = decimate(current, size, next);
+				final float[] tmp = current;
+				current = next;
+				next = tmp;
+				numDecimations++;
+			}
+			applyKernel(plan.getKernel(octave), current, size,
+					plan.getEndBin(octave));
+		}
+	}
+
+	// Wendet k auf signal[halfLength..halfLength+size-1] an und schreibt die
+	// Ergebnisse in die Bins bis endBin (exkl.)
+	private void applyKernel(final FastConstantQTransform.@NonNull Kernel k,
+			final float @NonNull [] signal, final int size, final int endBin) {
+		// Samples jenseits der FFT-Länge liegen außerhalb aller Fenster
+		k.forward(signal, plan.getFilterHalfLength(),
+				Math.min(size, k.getFftLength()), octaveRe, octaveIm);
+		final int kernelBins = k.getNumBins();
+		final int firstBin = endBin - kernelBins;
+		final int firstRow = Math.max(0, -firstBin);
+		System.arraycopy(octaveRe, firstRow, real, firstBin + firstRow,
+				kernelBins - firstRow);
+		System.arraycopy(octaveIm, firstRow, imaginary, firstBin + firstRow,
+				kernelBins - firstRow);
+	}
+
+	// Filtert in[halfLength..halfLength+size-1] und schreibt jedes zweite
+	// Sample nach out. Gibt die Anzahl der dezimierten Samples zurück.
+	private int decimate(final float @NonNull [] in, final int size,
+			final float @NonNull [] out) {
+		final int halfLength = plan.getFilterHalfLength();
+		final int outSize = (size + 1) / 2;
+		for (int m = 0; m < outSize; m++) {
+			out[halfLength + m] = plan.filter(in, halfLength + 2 * m);
+		}
+		Arrays.fill(out, halfLength + outSize, out.length, 0f);
+		return outSize;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getSpectrumSize() {
+		return real.length;
+	}
+
+	/**
+	 * Gibt die Anzahl der Oktaven zurück, also wie oft der Kernel pro
+	 * {@link #forward} angewendet wird.
+	 */
+	public int getNumOctaves() {
+		return plan.getNumOctaves();
+	}
+
+	/**
+	 * Gibt die maximale Anzahl Samples für {@link #forward} zurück. Sie
+	 * entspricht der FFT-Länge von {@link FastConstantQTransform} mit denselben
+	 * Parametern.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public double binToFrequency(final int index) {
+		if (index < 0 || index >= real.length) {
+			throw new IllegalArgumentException("index " + index
+					+ " is out of range 0.." + (real.length - 1));
+		}
+
+		return FastConstantQTransform.calcFrequency(index, minFreq,
+				binsPerOctave);
+	}
+
+	public int frequencyToBin(final double frequency) {
+		final double maxFreq = binToFrequency(real.length - 1);
+		if (frequency < minFreq || frequency > maxFreq) {
+			throw new IllegalArgumentException("frequency " + frequency
+					+ " is out of range " + minFreq + ".." + maxFreq);
+		}
+
+		return (int) Math.round(binsPerOctave * Util.log2(frequency / minFreq));
+	}
+
+	// Berechnet das Betragsspektrum
+	public void fillMagnitudeSpectrum(final float @NonNull [] spectrum) {
+		FastConstantQTransform.computeMagnitudeSpectrum(real, imaginary,
+				spectrum);
+	}
+
+	public void copyReal(final float[] buffer) {
+		if (buffer.length < real.length) {
+			throw new IllegalArgumentException("buffer length " + buffer.length
+					+ " < spectrum size " + real.length);
+		}
+		System.arraycopy(real, 0, buffer, 0, real.length);
+	}
+
+	public void copyImaginary(final float[] buffer) {
+		if (buffer.length < imaginary.length) {
+			throw new IllegalArgumentException("buffer length " + buffer.length
+					+ " < spectrum size " + imaginary.length);
+		}
+		System.arraycopy(imaginary, 0, buffer, 0, imaginary.length);
+	}
+
+	/**
+	 * Wie {@link FastConstantQTransform#createFullSpectrum}, aber oktavweise
+	 * berechnet.
+	 */
+	public static MultiResolutionConstantQTransform createFullSpectrum(
+			final int size, final int binsPerOctave, final double sampleRate) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
+		}
+
+		final double q = FastConstantQTransform.calcQ(binsPerOctave);
+		final double minFreq = FastConstantQTransform.calcMinFreq(size,
+				sampleRate, q);
+		final double maxFreq = FastConstantQTransform.calcMaxFreq(sampleRate);
+		return new MultiResolutionConstantQTransform(minFreq, maxFreq,
+				binsPerOctave, sampleRate);
+	}
+}
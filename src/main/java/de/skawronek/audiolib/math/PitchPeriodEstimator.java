@@ -0,0 +1,259 @@
+package de.skawronek.audiolib.math;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Schätzt die Periode eines Signals in Samples mit YIN ("YIN, a fundamental
+ * frequency estimator for speech and music", de Cheveigné und Kawahara, 2002)
+ * oder der McLeod Pitch Method ("A Smarter Way to Find Pitch", McLeod und
+ * Wyvill, 2005). Beide Verfahren sind deutlich weniger anfällig für
+ * Oktavfehler als das Maximum der Autokorrelation.
+ * <p>
+ * Beide beruhen auf der Differenzfunktion
+ *
+ * <pre>
+ * d(t) = Sum_j=0^N-1-t (x[j] - x[j+t])² = m(t) - 2*r(t)
+ * m(t) = Sum_j=0^N-1-t (x[j]² + x[j+t]²)
+ * </pre>
+ *
+ * mit der Autokorrelation r(t), die per {@link FastAutocorrelation} (nur für
+ * die Lags 0..maxLag-1) berechnet oder vorberechnet übergeben wird. m(t) wird
+ * inkrementell in O(maxLag) bestimmt. YIN sucht das erste Minimum der
+ * kumulativ normierten Differenz d'(t) = d(t) * t / Sum_j=1^t d(j) unter einem
+ * Schwellwert, MPM das erste Maximum der normierten Differenz n(t) = 2*r(t) /
+ * m(t), das mindestens den Anteil k des höchsten Maximums erreicht. Die Lage
+ * des Extremums wird jeweils per Parabel auf Bruchteile eines Samples
+ * interpoliert.
+ * <p>
+ * Es werden nur Perioden ab minLag (entspricht der maximalen Frequenz) und bis
+ * maxLag - 2 betrachtet; der letzte Lag wird für die Interpolation benötigt.
+ * Damit jeder Lag über genügend Samples gemittelt wird, sollte maxLag nicht
+ * größer als die halbe Frame-Größe sein.
+ */
+public final class PitchPeriodEstimator {
+	private final int maxLag;
+	// Autokorrelation, falls sie nicht übergeben wird
+	private final float[] autocorrelation;
+	// m(t) und die Differenzfunktion d(t)
+	private final double[] energy;
+	private final float[] difference;
+	// d'(t) bei YIN bzw. n(t) bei MPM
+	private final float[] normalized;
+
+	public PitchPeriodEstimator(final int maxLag) {
+		if (maxLag < 3) {
+			throw new IllegalArgumentException("maxLag " + maxLag + " < 3");
+		}
+
+		this.maxLag = maxLag;
+		autocorrelation = new float[maxLag];
+		energy = new double[maxLag];
+		difference = new float[maxLag];
+		normalized = new float[maxLag];
+	}
+
+	public int getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Schätzt die Periode mit YIN. Ist eine Autokorrelation verfügbar (z. B.
+	 * als Feature), sollte
+	 * {@link #estimateYin(float[], float[], int, double)} verwendet werden.
+	 *
+	 * @see #estimateYin(float[], float[], int, double)
+	 */
+	public double estimateYin(final float @NonNull [] x, final int minLag,
+			final double threshold) {
+		return estimateYin(x, computeAutocorrelation(x), minLag, threshold);
+	}
+
+	/**
+	 * Schätzt die Periode mit YIN.
+	 *
+	 * @param x
+	 *            Eingangssignal
+	 * @param r
+	 *            nicht normierte Autokorrelation von x mit r[i] = r_xx(i)
+	 * @param minLag
+	 *            kleinste zulässige Periode in Samples
+	 * @param threshold
+	 *            Schwellwert für d'(t), üblich sind 0.1 bis 0.15
+	 * @return Periode in Samples oder 0, wenn x nur aus Nullen besteht. Liegt
+	 *         d'(t) nirgends unter dem Schwellwert, wird das globale Minimum
+	 *         genommen.
+	 */
+	public double estimateYin(final float @NonNull [] x,
+			final float @NonNull [] r, final int minLag, final double threshold) {
+		final int numLags = computeDifference(x, r, minLag);
+		if (numLags == 0) {
+			return 0.0;
+		}
+
+		// Kumulativ normierte Differenz d'(t)
+		normalized[0] = 1f;
+		double sum = 0.0;
+		for (int lag = 1; lag < numLags; lag++) {
+			sum += difference[lag];
+			normalized[lag] = (sum > 0 ? (float) (difference[lag] * lag / sum)
+					: 1f);
+		}
+
+		// Erstes Minimum unter dem Schwellwert, sonst globales Minimum
+		final int lastLag = numLags - 2;
+		int bestLag = -1;
+		for (int lag = minLag; lag <= lastLag; lag++) {
+			if (normalized[lag] < threshold) {
+				while (lag < lastLag && normalized[lag + 1] < normalized[lag]) {
+					lag++;
+				}
+				bestLag = lag;
+				break;
+			}
+		}
+		if (bestLag == -1) {
+			bestLag = minLag;
+			for (int lag = minLag + 1; lag <= lastLag; lag++) {
+				if (normalized[lag] < normalized[bestLag]) {
+					bestLag = lag;
+				}
+			}
+		}
+
+		// Wie im Original wird auf der nicht normierten Differenz
+		// interpoliert
+		return bestLag + interpolate(difference, bestLag);
+	}
+
+	/**
+	 * Schätzt die Periode mit der McLeod Pitch Method. Ist eine
+	 * Autokorrelation verfügbar (z. B. als Feature), sollte
+	 * {@link #estimateMcLeod(float[], float[], int, double)} verwendet werden.
+	 *
+	 * @see #estimateMcLeod(float[], float[], int, double)
+	 */
+	public double estimateMcLeod(final float @NonNull [] x, final int minLag,
+			final double cutoff) {
+		return estimateMcLeod(x, computeAutocorrelation(x), minLag, cutoff);
+	}
+
+	/**
+	 * Schätzt die Periode mit der McLeod Pitch Method.
+	 *
+	 * @param x
+	 *            Eingangssignal
+	 * @param r
+	 *            nicht normierte Autokorrelation von x mit r[i] = r_xx(i)
+	 * @param minLag
+	 *            kleinste zulässige Periode in Samples
+	 * @param cutoff
+	 *            Anteil k des höchsten Maximums von n(t), den das gewählte
+	 *            Maximum erreichen muss, üblich sind 0.8 bis 1.0
+	 * @return Periode in Samples oder 0, wenn n(t) im zulässigen Bereich kein
+	 *         positives Maximum hat (z. B. bei Stille)
+	 */
+	public double estimateMcLeod(final float @NonNull [] x,
+			final float @NonNull [] r, final int minLag, final double cutoff) {
+		final int numLags = computeDifference(x, r, minLag);
+		if (numLags == 0) {
+			return 0.0;
+		}
+
+		// Normierte Differenz n(t) = 2*r(t) / m(t)
+		for (int lag = 0; lag < numLags; lag++) {
+			final double m = energy[lag];
+			normalized[lag] = (m > 0 ? (float) (2.0 * r[lag] / m) : 0f);
+		}
+
+		// Die "Key Maxima" sind die Maxima der positiven Abschnitte von n(t)
+		// nach dem ersten Nulldurchgang
+		final int lastLag = numLags - 2;
+		int lag = 1;
+		while (lag <= lastLag && normalized[lag] > 0) {
+			lag++;
+		}
+		float highest = 0f;
+		int bestLag = -1;
+		// Zwei Durchläufe: erst das höchste Maximum bestimmen, dann das erste
+		// Maximum, das cutoff * highest erreicht
+		for (int pass = 0; pass < 2 && (pass == 0 || highest > 0); pass++) {
+			final float limit = (float) (cutoff * highest);
+			int peakLag = -1;
+			for (int t = lag; t <= lastLag + 1; t++) {
+				final boolean positive = (t <= lastLag && normalized[t] > 0);
+				if (positive) {
+					if (peakLag == -1 || normalized[t] > normalized[peakLag]) {
+						peakLag = t;
+					}
+				} else if (peakLag != -1) {
+					// Ende eines positiven Abschnitts
+					if (peakLag >= minLag) {
+						if (pass == 0) {
+							highest = Math.max(highest, normalized[peakLag]);
+						} else if (normalized[peakLag] >= limit) {
+							bestLag = peakLag;
+							break;
+						}
+					}
+					peakLag = -1;
+				}
+			}
+		}
+		if (bestLag == -1) {
+			return 0.0;
+		}
+
+		return bestLag + interpolate(normalized, bestLag);
+	}
+
+	private float @NonNull [] computeAutocorrelation(final float @NonNull [] x) {
+		final FastAutocorrelation acf = FastAutocorrelation.Factory
+				.getInstance().get(x.length, Math.min(maxLag, x.length));
+		acf.compute(x);
+		acf.copyCoefficients(autocorrelation);
+		return autocorrelation;
+	}
+
+	// Berechnet m(t) und d(t) für t < numLags und gibt numLags zurück bzw. 0,
+	// wenn x nur aus Nullen besteht
+	private int computeDifference(final float @NonNull [] x,
+			final float @NonNull [] r, final int minLag) {
+		final int numLags = Math.min(maxLag, Math.min(x.length, r.length));
+		if (minLag < 1) {
+			throw new IllegalArgumentException("minLag " + minLag + " < 1");
+		} else if (minLag > numLags - 2) {
+			throw new IllegalArgumentException("minLag " + minLag
+					+ " > max. lag " + (numLags - 2));
+		}
+		if (r[0] <= 0) {
+			return 0;
+		}
+
+		// m(0) = 2 * r(0), danach fallen je x[t-1]² und x[N-t]² weg
+		double m = 2.0 * r[0];
+		energy[0] = m;
+		difference[0] = 0f;
+		for (int lag = 1; lag < numLags; lag++) {
+			final float a = x[lag - 1];
+			final float b = x[x.length - lag];
+			m -= a * a + b * b;
+			energy[lag] = m;
+			difference[lag] = (float) Math.max(0.0, m - 2.0 * r[lag]);
+		}
+		return numLags;
+	}
+
+	// Verschiebung des Extremums der Parabel durch f[lag-1], f[lag] und
+	// f[lag+1] in [-0.5, 0.5]
+	private static double interpolate(final float @NonNull [] f, final int lag) {
+		final double a = f[lag - 1];
+		final double b = f[lag];
+		final double c = f[lag + 1];
+		final double denominator = a - 2 * b + c;
+		if (denominator == 0) {
+			return 0.0;
+		}
+		final double shift = 0.5 * (a - c) / denominator;
+		return Math.max(-0.5, Math.min(0.5, shift));
+	}
+}
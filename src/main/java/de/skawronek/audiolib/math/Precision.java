@@ -0,0 +1,20 @@
+package de.skawronek.audiolib.math;
+
+/**
+ * Genauigkeit, mit der Transformationen wie die FFT oder die Autokorrelation
+ * berechnet werden.
+ */
+public enum Precision {
+	/**
+	 * float-Arithmetik ({@link FastFourierTransform}). Schnell und für Frames
+	 * üblicher Größe ausreichend genau.
+	 */
+	SINGLE,
+	/**
+	 * double-Arithmetik ({@link DoubleFastFourierTransform}). Für lange
+	 * Transformationen (z. B. Autokorrelationen ab 65536 Samples) und
+	 * schmalbandige Analysen, bei denen sich die Rundungsfehler von float
+	 * bemerkbar machen.
+	 */
+	DOUBLE
+}
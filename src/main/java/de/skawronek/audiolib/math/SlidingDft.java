@@ -0,0 +1,246 @@
+package de.skawronek.audiolib.math;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Gleitende DFT (Sliding DFT) über die letzten size Samples eines Signals.
+ * Nach jedem Sample werden die Bins fromBin..toBin-1 rekursiv in O(toBin -
+ * fromBin) aktualisiert:
+ *
+ * <pre>
+ * X_k(n) = e^(2*Pi*i*k/size) * (r * X_k(n-1) + x(n) - r^size * x(n-size))
+ * </pre>
+ *
+ * Für r = 1 entsprechen die Bins der FFT des Fensters der letzten size
+ * Samples (ältestes Sample an Position 0), wobei fehlende Samples am Anfang als
+ * 0 gelten. Für r &lt; 1 wird das Sample an Position m zusätzlich mit
+ * r^(size-1-m) gewichtet, wodurch sich Rundungsfehler nicht aufsummieren,
+ * sondern abklingen.
+ * <p>
+ * Da sich Rundungsfehler mit r = 1 über viele Samples aufsummieren, werden die
+ * Bins alle resyncInterval Samples über eine {@link DoubleFastFourierTransform}
+ * des Fensters exakt neu berechnet. Die Kosten dafür verteilen sich bei einem
+ * Intervall von size auf O(log(size)) pro Sample.
+ * <p>
+ * Gegenüber einer FFT pro Frame lohnt sich die gleitende DFT bei kleinen
+ * Hop-Sizes und wenigen Bins. Die Klasse ist nicht thread-safe.
+ */
+public final class SlidingDft {
+	private final int size;
+	private final int fromBin;
+	private final int toBin;
+	private final double damping;
+	// damping^size
+	private final double dampingPow;
+	private final int resyncInterval;
+
+	// e^(2*Pi*i*k/size) für k = fromBin..toBin-1
+	private final double[] twiddleRe;
+	private final double[] twiddleIm;
+	private final double[] binsRe;
+	private final double[] binsIm;
+
+	// Die letzten size Samples, window[position] ist das älteste
+	private final double[] window;
+	private int position = 0;
+	private long sampleCount = 0;
+	private int samplesSinceResync = 0;
+
+	// Für die Neuberechnung
+	private DoubleFastFourierTransform fft;
+	private double[] resyncSamples;
+	private double[] resyncRe;
+	private double[] resyncIm;
+
+	/**
+	 * Gleitende DFT ohne Dämpfung, die alle size Samples neu berechnet wird.
+	 */
+	public SlidingDft(final int size, final int fromBin, final int toBin) {
+		this(size, fromBin, toBin, 1.0, size);
+	}
+
+	/**
+	 * @param damping
+	 *            Dämpfung r aus (0, 1]
+	 * @param resyncInterval
+	 *            Anzahl der Samples zwischen zwei exakten Neuberechnungen oder
+	 *            0, um nie neu zu berechnen
+	 */
+	public SlidingDft(final int size, final int fromBin, final int toBin,
+			final double damping, final int resyncInterval) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
+		} else if (fromBin < 0 || toBin > size / 2 + 1 || fromBin >= toBin) {
+			throw new IllegalArgumentException("invalid bin range [" + fromBin
+					+ ", " + toBin + ") for size " + size);
+		} else if (!(damping > 0.0 && damping <= 1.0)) {
+			throw new IllegalArgumentException("damping " + damping
+					+ " not in (0, 1]");
+		} else if (resyncInterval < 0) {
+			throw new IllegalArgumentException("resyncInterval "
+					+ resyncInterval + " < 0");
+		}
+
+		this.size = size;
+		this.fromBin = fromBin;
+		this.toBin = toBin;
+		this.damping = damping;
+		this.dampingPow = Math.pow(damping, size);
+		this.resyncInterval = resyncInterval;
+
+		final int numBins = toBin - fromBin;
+		twiddleRe = new double[numBins];
+		twiddleIm = new double[numBins];
+		for (int i = 0; i < numBins; i++) {
+			final double rad = 2 * Math.PI * (fromBin + i) / size;
+			twiddleRe[i] = Math.cos(rad);
+			twiddleIm[i] = Math.sin(rad);
+		}
+		binsRe = new double[numBins];
+		binsIm = new double[numBins];
+		window = new double[size];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getFromBin() {
+		return fromBin;
+	}
+
+	public int getToBin() {
+		return toBin;
+	}
+
+	public int getNumBins() {
+		return toBin - fromBin;
+	}
+
+	public double getDamping() {
+		return damping;
+	}
+
+	public int getResyncInterval() {
+		return resyncInterval;
+	}
+
+	/**
+	 * Gibt die Anzahl der bisher übergebenen Samples zurück.
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Schiebt das Fenster um ein Sample weiter.
+	 */
+	public void put(final float sample) {
+		final double oldest = window[position];
+		window[position] = sample;
+		position = (position + 1 == size ? 0 : position + 1);
+		sampleCount++;
+
+		final double delta = sample - dampingPow * oldest;
+		final double[] binsRe = this.binsRe;
+		final double[] binsIm = this.binsIm;
+		for (int i = 0; i < binsRe.length; i++) {
+			final double re = damping * binsRe[i] + delta;
+			final double im = damping * binsIm[i];
+			binsRe[i] = re * twiddleRe[i] - im * twiddleIm[i];
+			binsIm[i] = re * twiddleIm[i] + im * twiddleRe[i];
+		}
+
+		if (resyncInterval > 0 && ++samplesSinceResync >= resyncInterval) {
+			resync();
+		}
+	}
+
+	/**
+	 * Schiebt das Fenster um length Samples weiter.
+	 */
+	public void put(final float @NonNull [] samples, final int offset,
+			final int length) {
+		for (int i = 0; i < length; i++) {
+			put(samples[offset + i]);
+		}
+	}
+
+	/**
+	 * Berechnet die Bins exakt aus dem aktuellen Fenster neu.
+	 */
+	public void resync() {
+		samplesSinceResync = 0;
+		if (fft == null) {
+			fft = new DoubleFastFourierTransform(size);
+			resyncSamples = new double[size];
+			resyncRe = new double[fft.getNumRealBins()];
+			resyncIm = new double[fft.getNumRealBins()];
+		}
+
+		// Fenster abrollen und wie in der Rekursion gewichten
+		double weight = 1.0;
+		for (int m = size - 1; m >= 0; m--) {
+			final int index = (position + m) % size;
+			resyncSamples[m] = weight * window[index];
+			weight *= damping;
+		}
+		fft.forwardReal(resyncSamples, resyncRe, resyncIm);
+		System.arraycopy(resyncRe, fromBin, binsRe, 0, binsRe.length);
+		System.arraycopy(resyncIm, fromBin, binsIm, 0, binsIm.length);
+	}
+
+	/**
+	 * Kopiert die Realteile der Bins fromBin..toBin-1 nach re[0..numBins-1].
+	 */
+	public void copyReal(final float @NonNull [] re) {
+		checkBinsLength(re);
+		for (int i = 0; i < binsRe.length; i++) {
+			re[i] = (float) binsRe[i];
+		}
+	}
+
+	/**
+	 * Kopiert die Imaginärteile der Bins fromBin..toBin-1 nach
+	 * im[0..numBins-1].
+	 */
+	public void copyImaginary(final float @NonNull [] im) {
+		checkBinsLength(im);
+		for (int i = 0; i < binsIm.length; i++) {
+			im[i] = (float) binsIm[i];
+		}
+	}
+
+	/**
+	 * Berechnet die Beträge der Bins fromBin..toBin-1 nach
+	 * magnitudes[0..numBins-1].
+	 */
+	public void computeMagnitudes(final float @NonNull [] magnitudes) {
+		checkBinsLength(magnitudes);
+		for (int i = 0; i < binsRe.length; i++) {
+			magnitudes[i] = (float) Math.sqrt(binsRe[i] * binsRe[i]
+					+ binsIm[i] * binsIm[i]);
+		}
+	}
+
+	private void checkBinsLength(final float @NonNull [] array) {
+		if (array.length < binsRe.length) {
+			throw new IllegalArgumentException("array length " + array.length
+					+ " < " + binsRe.length);
+		}
+	}
+
+	/**
+	 * Setzt das Fenster und alle Bins auf 0 zurück.
+	 */
+	public void reset() {
+		Arrays.fill(window, 0.0);
+		Arrays.fill(binsRe, 0.0);
+		Arrays.fill(binsIm, 0.0);
+		position = 0;
+		sampleCount = 0;
+		samplesSinceResync = 0;
+	}
+}
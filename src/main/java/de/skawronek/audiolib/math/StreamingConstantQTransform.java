@@ -0,0 +1,292 @@
+package de.skawronek.audiolib.math;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.util.FloatRingBuffer;
+import de.skawronek.audiolib.util.Util;
+
+/**
+ * Constant-Q-Transformation über einen Sample-Strom. Anders als bei
+ * {@link MultiResolutionConstantQTransform} muss kein Frame in der Länge des
+ * längsten Fensters übergeben werden: Die Samples werden einzeln mit
+ * {@link #put} übergeben und pro Oktave in einem eigenen Ringpuffer gehalten,
+ * der nur so groß ist wie der Kernel der Oktave. Die tieferen Oktaven werden
+ * dabei fortlaufend tiefpassgefiltert und dezimiert, jedes Sample wird also
+ * nur einmal pro Oktave gefiltert.
+ * <p>
+ * Alle hopSize Samples entsteht eine Spalte. Spalte c entspricht der
+ * Transformation von {@link MultiResolutionConstantQTransform} für den Frame,
+ * der bei Sample c * hopSize beginnt; sie ist verfügbar, sobald das letzte
+ * dafür benötigte Sample übergeben wurde, also nach {@link #getLatency()}
+ * Samples ab Frame-Anfang.
+ * <p>
+ * Tiefe Oktaven haben lange Fenster und ändern sich entsprechend langsam.
+ * Jede Oktave wird daher nur in jeder getStride(octave)-ten Spalte neu
+ * berechnet, in den übrigen Spalten behält sie ihre Werte. Die Strides sind
+ * Zweierpotenzen, sodass die Aktualisierungen tieferer Oktaven immer mit denen
+ * der höheren zusammenfallen. Ein Stride wird so gewählt, dass zwischen zwei
+ * Aktualisierungen höchstens ein Viertel des kürzesten Fensters der Oktave
+ * liegt, und so, dass der Frame-Anfang auf ein Sample der dezimierten Folge
+ * fällt. Hop-Sizes, die Vielfache von 2^(Anzahl Dezimierungen) sind, halten
+ * die Strides daher am kleinsten.
+ * <p>
+ * Nach der Erzeugung allokiert {@link #put} nichts. Nicht thread-safe.
+ */
+public final class StreamingConstantQTransform {
+	// Höchstens ein Viertel des kürzesten Fensters zwischen zwei
+	// Aktualisierungen einer Oktave
+	private static final int UPDATE_OVERLAP = 4;
+
+	private final ConstantQOctavePlan plan;
+	private final int binsPerOctave;
+	private final double minFreq;
+	private final double sampleRate;
+	private final int hopSize;
+	private final int[] strides;
+	private final long latency;
+
+	// Signal pro Dezimierungsstufe, Stufe 0 ist das unveränderte Signal
+	private final FloatRingBuffer[] levels;
+	private final int halfLength;
+	private final float[] filterWindow;
+	private final float[] segment;
+
+	private final float[] octaveRe;
+	private final float[] octaveIm;
+	private final float[] real;
+	private final float[] imaginary;
+
+	private long numSamples = 0;
+	private long numColumns = 0;
+
+	public StreamingConstantQTransform(final double minFreq,
+			final double maxFreq, final int binsPerOctave,
+			final double sampleRate, final int hopSize) {
+		if (hopSize <= 0) {
+			throw new IllegalArgumentException("hopSize " + hopSize + " <= 0");
+		}
+		plan = new ConstantQOctavePlan(minFreq, maxFreq, binsPerOctave,
+				sampleRate, false);
+		this.binsPerOctave = binsPerOctave;
+		this.minFreq = minFreq;
+		this.sampleRate = sampleRate;
+		this.hopSize = hopSize;
+		halfLength = plan.getFilterHalfLength();
+
+		final int numOctaves = plan.getNumOctaves();
+		final double q = FastConstantQTransform.calcQ(binsPerOctave);
+		strides = new int[numOctaves];
+		long maxLatency = 0;
+		int maxFftLength = 0;
+		int stride = 1;
+		for (int octave = 0; octave < numOctaves; octave++) {
+			final int decimations = plan.getNumDecimations(octave);
+			final int fftLength = plan.getKernel(octave).getFftLength();
+			maxFftLength = Math.max(maxFftLength, fftLength);
+
+			// Dezimiertes Sample m der Stufe L hängt von den Samples bis
+			// 2^L * m + halfLength * (2^L - 1) ab
+			final long factor = 1L << decimations;
+			maxLatency = Math.max(maxLatency, factor * (fftLength - 1)
+					+ halfLength * (factor - 1) + 1);
+
+			// Kürzestes Fenster der Oktave gehört zu ihrem höchsten Bin
+			final int topBin = Math.min(plan.getEndBin(octave),
+					plan.getNumBins()) - 1;
+			final int minWindow = FastConstantQTransform.calcWindowSize(q,
+					sampleRate, FastConstantQTransform.calcFrequency(topBin,
+							minFreq, binsPerOctave));
+			while (2L * stride * hopSize * UPDATE_OVERLAP <= minWindow) {
+				stride *= 2;
+			}
+			while ((long) stride * hopSize % factor != 0) {
+				stride *= 2;
+			}
+			strides[octave] = stride;
+		}
+		latency = maxLatency;
+
+		final int numLevels = plan.getNumDecimations(numOctaves - 1) + 1;
+		levels = new FloatRingBuffer[numLevels];
+		for (int level = 0; level < numLevels; level++) {
+			final int capacity = (int) (latency >> level) + maxFftLength + 2
+					* halfLength + 2;
+			levels[level] = new FloatRingBuffer(capacity);
+		}
+		filterWindow = new float[2 * halfLength + 1];
+		segment = new float[maxFftLength];
+
+		octaveRe = new float[plan.getMaxKernelBins()];
+		octaveIm = new float[plan.getMaxKernelBins()];
+		real = new float[plan.getNumBins()];
+		imaginary = new float[plan.getNumBins()];
+	}
+
+	/**
+	 * Übergibt das nächste Sample. Gibt true zurück, wenn damit eine neue
+	 * Spalte fertig ist; sie kann bis zum nächsten Aufruf mit
+	 * {@link #copyReal}, {@link #copyImaginary} und
+	 * {@link #fillMagnitudeSpectrum} gelesen werden.
+	 */
+	public boolean put(final float sample) {
+		push(0, sample);
+		numSamples++;
+
+		final long begin = numColumns * hopSize;
+		if (numSamples == begin + latency) {
+			computeColumn(begin);
+			numColumns++;
+			return true;
+		}
+		return false;
+	}
+
+	// Hängt sample an Stufe level an und berechnet ggf. das nächste Sample
+	// der folgenden Stufe
+	private void push(final int level, final float sample) {
+		final FloatRingBuffer buffer = levels[level];
+		buffer.put(sample);
+		if (level + 1 < levels.length) {
+			// Das dezimierte Sample m braucht die Samples bis 2m + halfLength
+			final long center = buffer.getCount() - 1 - halfLength;
+			if (center >= 0 && center % 2 == 0) {
+				push(level + 1, decimate(buffer, center));
+			}
+		}
+	}
+
+	private float decimate(final @NonNull FloatRingBuffer buffer,
+			final long center) {
+		// Vor dem ersten Sample ist das Signal 0
+		final long start = center - halfLength;
+		final int numZeros = (int) Math.max(0, -start);
+		for (int i = 0; i < numZeros; i++) {
+			filterWindow[i] = 0f;
+		}
+		buffer.peak(start + numZeros, filterWindow, numZeros,
+				filterWindow.length - numZeros);
+		return plan.filter(filterWindow, halfLength);
+	}
+
+	private void computeColumn(final long begin) {
+		for (int octave = 0; octave < plan.getNumOctaves(); octave++) {
+			if (numColumns % strides[octave] != 0) {
+				continue;
+			}
+
+			final FastConstantQTransform.Kernel kernel = plan
+					.getKernel(octave);
+			final int decimations = plan.getNumDecimations(octave);
+			final int fftLength = kernel.getFftLength();
+			levels[decimations].peak(begin >> decimations, segment, 0,
+					fftLength);
+			kernel.forward(segment, 0, fftLength, octaveRe, octaveIm);
+
+			final int kernelBins = kernel.getNumBins();
+			final int firstBin = plan.getEndBin(octave) - kernelBins;
+			final int firstRow = Math.max(0, -firstBin);
+			System.arraycopy(octaveRe, firstRow, real, firstBin + firstRow,
+					kernelBins - firstRow);
+			System.arraycopy(octaveIm, firstRow, imaginary, firstBin
+					+ firstRow, kernelBins - firstRow);
+		}
+	}
+
+	/**
+	 * Setzt den Strom zurück, als wären noch keine Samples übergeben worden.
+	 */
+	public void reset() {
+		for (final FloatRingBuffer level : levels) {
+			level.clear();
+		}
+		numSamples = 0;
+		numColumns = 0;
+	}
+
+	public int getHopSize() {
+		return hopSize;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getSpectrumSize() {
+		return real.length;
+	}
+
+	public int getNumOctaves() {
+		return plan.getNumOctaves();
+	}
+
+	/**
+	 * Gibt zurück, in jeder wievielten Spalte die Oktave octave (0 ist die
+	 * oberste) neu berechnet wird.
+	 */
+	public int getStride(final int octave) {
+		if (octave < 0 || octave >= strides.length) {
+			throw new IllegalArgumentException("octave " + octave
+					+ " is out of range 0.." + (strides.length - 1));
+		}
+		return strides[octave];
+	}
+
+	/**
+	 * Gibt die Anzahl der Samples ab Frame-Anfang zurück, nach denen eine
+	 * Spalte fertig ist.
+	 */
+	public long getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Gibt die Anzahl der bisher fertigen Spalten zurück. Die letzte Spalte
+	 * hat den Index getNumColumns() - 1 und beginnt beim Sample
+	 * (getNumColumns() - 1) * hopSize.
+	 */
+	public long getNumColumns() {
+		return numColumns;
+	}
+
+	public double binToFrequency(final int index) {
+		if (index < 0 || index >= real.length) {
+			throw new IllegalArgumentException("index " + index
+					+ " is out of range 0.." + (real.length - 1));
+		}
+
+		return FastConstantQTransform.calcFrequency(index, minFreq,
+				binsPerOctave);
+	}
+
+	public int frequencyToBin(final double frequency) {
+		final double maxFreq = binToFrequency(real.length - 1);
+		if (frequency < minFreq || frequency > maxFreq) {
+			throw new IllegalArgumentException("frequency " + frequency
+					+ " is out of range " + minFreq + ".." + maxFreq);
+		}
+
+		return (int) Math.round(binsPerOctave * Util.log2(frequency / minFreq));
+	}
+
+	// Berechnet das Betragsspektrum der letzten Spalte
+	public void fillMagnitudeSpectrum(final float @NonNull [] spectrum) {
+		FastConstantQTransform.computeMagnitudeSpectrum(real, imaginary,
+				spectrum);
+	}
+
+	public void copyReal(final float @NonNull [] buffer) {
+		if (buffer.length < real.length) {
+			throw new IllegalArgumentException("buffer length " + buffer.length
+					+ " < spectrum size " + real.length);
+		}
+		System.arraycopy(real, 0, buffer, 0, real.length);
+	}
+
+	public void copyImaginary(final float @NonNull [] buffer) {
+		if (buffer.length < imaginary.length) {
+			throw new IllegalArgumentException("buffer length " + buffer.length
+					+ " < spectrum size " + imaginary.length);
+		}
+		System.arraycopy(imaginary, 0, buffer, 0, imaginary.length);
+	}
+}
@@ -2,7 +2,41 @@ package de.skawronek.audiolib.math;
 
 import static java.lang.Math.*;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+
 public final class WindowFunctions {
+	// Tabellen pro (Typ, Länge). Die Tabellen werden nur gelesen und können
+	// daher von allen Threads gemeinsam genutzt werden.
+	private static final Map<TableIndex, float[]> TABLES = new ConcurrentHashMap<>();
+
+	private static final class TableIndex {
+		final WindowType type;
+		final int size;
+
+		TableIndex(final @NonNull WindowType type, final int size) {
+			this.type = type;
+			this.size = size;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof TableIndex) {
+				final TableIndex other = (TableIndex) obj;
+				return type == other.type && size == other.size;
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + size;
+		}
+	}
+
 	@FunctionalInterface
 	public interface IWindowFunction {
 		public double evaluate(final double t);
@@ -39,4 +73,28 @@ public final class WindowFunctions {
 				* cos(4 * PI * (t + 0.5)));
 	}
 
+	/**
+	 * Gibt die Fensterfunktion type abgetastet an size Stellen zurück. Wie in
+	 * {@link FastConstantQTransform} wird Index i auf t = i / size - 0.5
+	 * abgebildet (periodisches Fenster). Die Tabelle wird pro (type, size) nur
+	 * einmal berechnet und darf nicht verändert werden.
+	 */
+	public static float @NonNull [] getTable(final @NonNull WindowType type,
+			final int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size " + size + " <= 0");
+		}
+		return TABLES.computeIfAbsent(new TableIndex(type, size),
+				index -> createTable(index.type.getFunction(), index.size));
+	}
+
+	private static float @NonNull [] createTable(
+			final @NonNull IWindowFunction wf, final int size) {
+		final float[] table = new float[size];
+		for (int i = 0; i < size; i++) {
+			final double t = ((double) i / (double) size) - 0.5;
+			table[i] = (float) wf.evaluate(t);
+		}
+		return table;
+	}
 }
@@ -0,0 +1,28 @@
+package de.skawronek.audiolib.math;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.math.WindowFunctions.IWindowFunction;
+
+/**
+ * Fensterfunktionen aus {@link WindowFunctions}, für die
+ * {@link WindowFunctions#getTable} vorberechnete Tabellen liefert.
+ */
+public enum WindowType {
+	RECTANGULAR(WindowFunctions.getRectangularWindow()),
+	BARTLETT(WindowFunctions.getBartlettWindow()),
+	HAMMING(WindowFunctions.getHammingWindow()),
+	HANN(WindowFunctions.getHannWindow()),
+	BLACKMAN(WindowFunctions.getBlackmanWindow());
+
+	private final IWindowFunction function;
+
+	private WindowType(final @NonNull IWindowFunction function) {
+		this.function = function;
+	}
+
+	@NonNull
+	public IWindowFunction getFunction() {
+		return function;
+	}
+}
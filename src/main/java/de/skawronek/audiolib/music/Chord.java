@@ -1,10 +1,13 @@
 package de.skawronek.audiolib.music;
 
+import java.io.Serializable;
 import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.NonNull;
 
-public final class Chord {
+public final class Chord implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	// Implementiert nach "The Complete Guide to JFugue --
 	// Programming Music in Java",
 	// Kapitel 2 "Using the JFugue MusicString", S. 4
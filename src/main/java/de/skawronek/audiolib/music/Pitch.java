@@ -1,11 +1,14 @@
 package de.skawronek.audiolib.music;
 
+import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.NonNull;
 
-public final class Pitch implements Comparable<Pitch> {
+public final class Pitch implements Comparable<Pitch>, Serializable {
+	private static final long serialVersionUID = 1L;
+
 	public static enum Step {
 		C("C"), D("D"), E("E"), F("F"), G("G"), A("A"), B("H");
 
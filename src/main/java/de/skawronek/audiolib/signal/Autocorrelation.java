@@ -8,8 +8,11 @@ import de.skawronek.audiolib.FeatureKey;
 import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 import de.skawronek.audiolib.math.FastAutocorrelation;
+import de.skawronek.audiolib.math.Precision;
 
 public final class Autocorrelation extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float[] coefficients;
 
 	public final static class Processor extends
@@ -25,13 +28,22 @@ public final class Autocorrelation extends Feature {
 			
 			final float[] window = frame.getMonoSamples();
 			final Key featureKey = (Key) key;
-			final FastAutocorrelation fa = FastAutocorrelation.Factory
-					.getInstance().get(window.length);
+			final FastAutocorrelation fa;
+			if (featureKey.maxLag != 0) {
+				// Lags ab der Frame-Größe sind ohnehin 0
+				fa = FastAutocorrelation.Factory.getInstance().get(
+						window.length,
+						Math.min(featureKey.maxLag, window.length),
+						featureKey.precision);
+			} else {
+				fa = FastAutocorrelation.Factory.getInstance().get(
+						window.length, featureKey.precision);
+			}
 			fa.compute(window);
 			if (featureKey.normalize) {
 				fa.normalize();
 			}
-			final float[] coeffs = new float[window.length];
+			final float[] coeffs = new float[fa.getNumCoefficients()];
 			fa.copyCoefficients(coeffs);
 			return new Autocorrelation(coeffs);
 		}
@@ -46,10 +58,39 @@ public final class Autocorrelation extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<Autocorrelation> {
+		private static final long serialVersionUID = 1L;
+
 		private final boolean normalize;
+		private final Precision precision;
+		// 0, wenn alle Lags berechnet werden
+		private final int maxLag;
+
+		private Key(final boolean normalize, final @NonNull Precision precision) {
+			this(normalize, precision, 0);
+		}
 
-		private Key(final boolean normalize) {
+		private Key(final boolean normalize,
+				final @NonNull Precision precision, final int maxLag) {
 			this.normalize = normalize;
+			this.precision = precision;
+			this.maxLag = maxLag;
+		}
+
+		public boolean isNormalize() {
+			return normalize;
+		}
+
+		@NonNull
+		public Precision getPrecision() {
+			return precision;
+		}
+
+		/**
+		 * Gibt die maximale Anzahl Koeffizienten zurück bzw. 0, wenn alle
+		 * Lags berechnet werden.
+		 */
+		public int getMaxLag() {
+			return maxLag;
 		}
 
 		@Override
@@ -65,7 +106,9 @@ public final class Autocorrelation extends Feature {
 				return true;
 			} else if (obj instanceof Key) {
 				final Key other = (Key) obj;
-				return this.normalize == other.normalize;
+				return this.normalize == other.normalize
+						&& this.precision == other.precision
+						&& this.maxLag == other.maxLag;
 			} else {
 				return false;
 			}
@@ -77,21 +120,57 @@ public final class Autocorrelation extends Feature {
 		}
 	}
 
-	private static final Key NORMALIZE_KEY = new Key(true);
-	private static final Key NOT_NORMALIZE_KEY = new Key(false);
+	private static final Key NORMALIZE_KEY = new Key(true, Precision.SINGLE);
+	private static final Key NOT_NORMALIZE_KEY = new Key(false,
+			Precision.SINGLE);
+	private static final Key DOUBLE_NORMALIZE_KEY = new Key(true,
+			Precision.DOUBLE);
+	private static final Key DOUBLE_NOT_NORMALIZE_KEY = new Key(false,
+			Precision.DOUBLE);
 
 	public static Key getDefaultKey() {
 		return NORMALIZE_KEY;
 	}
 
 	public static Key getKey(final boolean normalize) {
-		if (normalize) {
+		return getKey(normalize, Precision.SINGLE);
+	}
+
+	/**
+	 * Mit {@link Precision#DOUBLE} wird die Autokorrelation in
+	 * double-Genauigkeit berechnet, z. B. für lange Frames.
+	 */
+	public static Key getKey(final boolean normalize,
+			final @NonNull Precision precision) {
+		if (precision == Precision.DOUBLE) {
+			return (normalize ? DOUBLE_NORMALIZE_KEY
+					: DOUBLE_NOT_NORMALIZE_KEY);
+		} else if (normalize) {
 			return NORMALIZE_KEY;
 		} else {
 			return NOT_NORMALIZE_KEY;
 		}
 	}
 
+	/**
+	 * Key für eine Autokorrelation, die nur die Koeffizienten der Lags
+	 * 0..maxLag-1 berechnet (bzw. bis zur Frame-Größe, falls diese kleiner
+	 * ist), z. B. maxLag = sampleRate / minFreq + 1 für die Grundfrequenz.
+	 * Siehe {@link FastAutocorrelation}.
+	 */
+	public static Key getLagLimitedKey(final boolean normalize,
+			final int maxLag) {
+		return getLagLimitedKey(normalize, maxLag, Precision.SINGLE);
+	}
+
+	public static Key getLagLimitedKey(final boolean normalize,
+			final int maxLag, final @NonNull Precision precision) {
+		if (maxLag < 1) {
+			throw new IllegalArgumentException("maxLag " + maxLag + " < 1");
+		}
+		return new Key(normalize, precision, maxLag);
+	}
+
 	public static void register() {
 		final Processor processor = new Processor();
 		FeatureFactory.getInstance().registerProcessor(processor);
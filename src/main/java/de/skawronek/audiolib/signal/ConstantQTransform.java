@@ -8,11 +8,15 @@ import de.skawronek.audiolib.FeatureKey;
 import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 import de.skawronek.audiolib.math.FastConstantQTransform;
+import de.skawronek.audiolib.math.MultiResolutionConstantQTransform;
 
 public final class ConstantQTransform extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float[] real;
 	private final float[] imaginary;
-	private float[] spectrum;
+	// Aus real und imaginary abgeleitet, wird nicht serialisiert
+	private transient float[] spectrum;
 
 	public final static class Processor extends
 			FeatureProcessor<ConstantQTransform> {
@@ -27,21 +31,41 @@ public final class ConstantQTransform extends Feature {
 			final float[] window = frame.getMonoSamples();
 			final Key key = (Key) featureKey;
 
-			//@formatter:off
-			final de.skawronek.audiolib.math.FastConstantQTransform cqt =
-					de.skawronek.audiolib.math.FastConstantQTransform.Factory
-					.getInstance().get(
-							key.minFreq,
-							key.maxFreq,
-							key.numBinsPerOctave,
-							frame.getSampleRate());
-			//@formatter:on
-
-			cqt.forward(window);
-			final float[] real = new float[cqt.getSpectrumSize()];
-			final float[] imaginary = new float[cqt.getSpectrumSize()];
-			cqt.copyReal(real);
-			cqt.copyImaginary(imaginary);
+			final float[] real;
+			final float[] imaginary;
+			if (key.multiResolution) {
+				//@formatter:off
+				final MultiResolutionConstantQTransform cqt =
+						MultiResolutionConstantQTransform.Factory
+						.getInstance().get(
+								key.minFreq,
+								key.maxFreq,
+								key.numBinsPerOctave,
+								frame.getSampleRate());
+				//@formatter:on
+
+				cqt.forward(window);
+				real = new float[cqt.getSpectrumSize()];
+				imaginary = new float[cqt.getSpectrumSize()];
+				cqt.copyReal(real);
+				cqt.copyImaginary(imaginary);
+			} else {
+				//@formatter:off
+				final FastConstantQTransform cqt =
+						FastConstantQTransform.Factory
+						.getInstance().get(
+								key.minFreq,
+								key.maxFreq,
+								key.numBinsPerOctave,
+								frame.getSampleRate());
+				//@formatter:on
+
+				cqt.forward(window);
+				real = new float[cqt.getSpectrumSize()];
+				imaginary = new float[cqt.getSpectrumSize()];
+				cqt.copyReal(real);
+				cqt.copyImaginary(imaginary);
+			}
 			return new ConstantQTransform(real, imaginary);
 		}
 	}
@@ -71,12 +95,15 @@ public final class ConstantQTransform extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<ConstantQTransform> {
+		private static final long serialVersionUID = 1L;
+
 		private final double minFreq;
 		private final double maxFreq;
 		private final int numBinsPerOctave;
+		private final boolean multiResolution;
 
 		private Key(final double minFreq, final double maxFreq,
-				final int numBinsPerOctave) {
+				final int numBinsPerOctave, final boolean multiResolution) {
 			if (minFreq <= 0) {
 				throw new IllegalArgumentException("minFreq " + minFreq
 						+ " <= 0");
@@ -91,6 +118,11 @@ public final class ConstantQTransform extends Feature {
 			this.minFreq = minFreq;
 			this.maxFreq = maxFreq;
 			this.numBinsPerOctave = numBinsPerOctave;
+			this.multiResolution = multiResolution;
+		}
+
+		public boolean isMultiResolution() {
+			return multiResolution;
 		}
 
 		@Override
@@ -108,7 +140,8 @@ public final class ConstantQTransform extends Feature {
 				final Key other = (Key) obj;
 				return Double.compare(this.minFreq, other.minFreq) == 0
 						&& Double.compare(this.maxFreq, other.maxFreq) == 0
-						&& this.numBinsPerOctave == other.numBinsPerOctave;
+						&& this.numBinsPerOctave == other.numBinsPerOctave
+						&& this.multiResolution == other.multiResolution;
 			} else {
 				return false;
 			}
@@ -117,13 +150,24 @@ public final class ConstantQTransform extends Feature {
 		@Override
 		public int hashCode() {
 			return Double.hashCode(minFreq) ^ Double.hashCode(maxFreq)
-					^ numBinsPerOctave;
+					^ numBinsPerOctave ^ Boolean.hashCode(multiResolution);
 		}
 	}
 
 	public static @NonNull Key getKey(final double minFreq,
 			final double maxFreq, final int numBinPerOctave) {
-		return new Key(minFreq, maxFreq, numBinPerOctave);
+		return new Key(minFreq, maxFreq, numBinPerOctave, false);
+	}
+
+	/**
+	 * Wie {@link #getKey}, aber oktavweise mit einem Kernel für eine Oktave
+	 * und dezimiertem Signal berechnet (siehe
+	 * {@link MultiResolutionConstantQTransform}). Lohnt sich bei vielen
+	 * Oktaven, z. B. für den Tonumfang eines Klaviers.
+	 */
+	public static @NonNull Key getMultiResolutionKey(final double minFreq,
+			final double maxFreq, final int numBinPerOctave) {
+		return new Key(minFreq, maxFreq, numBinPerOctave, true);
 	}
 
 	public static void register() {
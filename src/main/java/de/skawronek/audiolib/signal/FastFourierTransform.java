@@ -7,16 +7,27 @@ import de.skawronek.audiolib.FeatureFactory;
 import de.skawronek.audiolib.FeatureKey;
 import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.DoubleFastFourierTransform;
+import de.skawronek.audiolib.math.Precision;
 
 public final class FastFourierTransform extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float[] real;
 	private final float[] imaginary;
-	private float[] spectrum;
-	private float[] power;
-	private float[] phase;
+	// Aus real und imaginary abgeleitet, werden nicht serialisiert
+	private transient float[] spectrum;
+	private transient float[] power;
+	private transient float[] phase;
 
 	public final static class Processor extends
 			FeatureProcessor<FastFourierTransform> {
+		// Samples, Real- und Imaginärteil der double-Transformation, werden
+		// pro Thread wiederverwendet und bei einer anderen Frame-Größe neu
+		// angelegt
+		private static final ThreadLocal<double[][]> DOUBLE_BUFFERS = ThreadLocal
+				.withInitial(() -> new double[3][0]);
+
 		@Override
 		public @NonNull Class<FastFourierTransform> getFeatureClass() {
 			return FastFourierTransform.class;
@@ -26,18 +37,51 @@ public final class FastFourierTransform extends Feature {
 		public FastFourierTransform process(@NonNull final Frame frame,
 				@NonNull final FeatureKey<FastFourierTransform> key) {
 			final float[] window = frame.getMonoSamples();
+			if (((Key) key).precision == Precision.DOUBLE) {
+				return processDouble(window);
+			}
 			//@formatter:off
 			final de.skawronek.audiolib.math.FastFourierTransform fft
 					= de.skawronek.audiolib.math.FastFourierTransform.Factory.getInstance().get(window.length);
 			//@formatter:on
-			fft.forward(window);
 			final float[] real = new float[window.length];
 			final float[] imaginary = new float[window.length];
-			fft.copyReal(real);
-			fft.copyImaginary(imaginary);
+			fft.forwardReal(window, real, imaginary);
+			de.skawronek.audiolib.math.FastFourierTransform.completeSpectrum(
+					real, imaginary, window.length);
 
 			return new FastFourierTransform(real, imaginary);
 		}
+
+		// Berechnet die Transformation in double und rundet erst das Ergebnis
+		private static @NonNull FastFourierTransform processDouble(
+				final float @NonNull [] window) {
+			final int size = window.length;
+			final DoubleFastFourierTransform fft = DoubleFastFourierTransform.Factory
+					.getInstance().get(size);
+			final double[][] buffers = DOUBLE_BUFFERS.get();
+			if (buffers[0].length != size) {
+				for (int i = 0; i < buffers.length; i++) {
+					buffers[i] = new double[size];
+				}
+			}
+			final double[] samples = buffers[0];
+			final double[] re = buffers[1];
+			final double[] im = buffers[2];
+			for (int i = 0; i < size; i++) {
+				samples[i] = window[i];
+			}
+			fft.forwardReal(samples, re, im);
+			DoubleFastFourierTransform.completeSpectrum(re, im, size);
+
+			final float[] real = new float[size];
+			final float[] imaginary = new float[size];
+			for (int k = 0; k < size; k++) {
+				real[k] = (float) re[k];
+				imaginary[k] = (float) im[k];
+			}
+			return new FastFourierTransform(real, imaginary);
+		}
 	}
 
 	public FastFourierTransform(final float @NonNull [] real,
@@ -89,6 +133,19 @@ public final class FastFourierTransform extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<FastFourierTransform> {
+		private static final long serialVersionUID = 1L;
+
+		private final Precision precision;
+
+		private Key(final @NonNull Precision precision) {
+			this.precision = precision;
+		}
+
+		@NonNull
+		public Precision getPrecision() {
+			return precision;
+		}
+
 		@Override
 		public @NonNull Class<FastFourierTransform> getFeatureClass() {
 			return FastFourierTransform.class;
@@ -101,7 +158,7 @@ public final class FastFourierTransform extends Feature {
 			} else if (obj == this) {
 				return true;
 			} else if (obj instanceof Key) {
-				return true;
+				return precision == ((Key) obj).precision;
 			} else {
 				return false;
 			}
@@ -113,12 +170,21 @@ public final class FastFourierTransform extends Feature {
 		}
 	}
 
-	private static final Key DEFAULT_KEY = new Key();
+	private static final Key DEFAULT_KEY = new Key(Precision.SINGLE);
+	private static final Key DOUBLE_KEY = new Key(Precision.DOUBLE);
 
 	public static Key getKey() {
 		return DEFAULT_KEY;
 	}
 
+	/**
+	 * Mit {@link Precision#DOUBLE} wird die Transformation in
+	 * double-Genauigkeit berechnet und erst das Ergebnis auf float gerundet.
+	 */
+	public static Key getKey(final @NonNull Precision precision) {
+		return (precision == Precision.DOUBLE ? DOUBLE_KEY : DEFAULT_KEY);
+	}
+
 	public static void register() {
 		final Processor processor = new Processor();
 		FeatureFactory.getInstance().registerProcessor(processor);
@@ -9,6 +9,8 @@ import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 
 public final class HarmonicProductSpectrum extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float[] hps;
 
 	public final static class Processor extends
@@ -42,6 +44,8 @@ public final class HarmonicProductSpectrum extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<HarmonicProductSpectrum> {
+		private static final long serialVersionUID = 1L;
+
 		private final int numHarmoncis;
 
 		private Key(final int numHarmonics) {
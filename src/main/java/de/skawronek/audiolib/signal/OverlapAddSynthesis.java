@@ -0,0 +1,179 @@
+package de.skawronek.audiolib.signal;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.ISampleSink;
+import de.skawronek.audiolib.math.FastFourierTransform;
+import de.skawronek.audiolib.math.WindowFunctions;
+import de.skawronek.audiolib.math.WindowType;
+
+/**
+ * Inverse STFT per Weighted Overlap-Add, passend zu
+ * {@link ShortTimeFourierTransform}. Jedes (ggf. bearbeitete) Spektrum wird
+ * zurücktransformiert, auf die Frame-Größe gekürzt, erneut mit dem
+ * Analysefenster w gewichtet und um hopSize versetzt aufaddiert. Jedes
+ * Ausgabe-Sample wird durch die Summe der w² der beteiligten Frames geteilt:
+ *
+ * <pre>
+ * y(n) = Sum_m w(n - m*hop) * x_m(n - m*hop) / Sum_m w²(n - m*hop)
+ * </pre>
+ *
+ * Damit wird ein unverändertes Signal für beliebige Verhältnisse von Hop-Size
+ * und Frame-Größe exakt rekonstruiert, solange die Fenstersumme nicht
+ * verschwindet (z. B. Hann-Fenster mit hopSize = size). Samples mit
+ * verschwindender Fenstersumme werden 0.
+ * <p>
+ * Nach jedem Spektrum sind hopSize Samples fertig und werden an die
+ * {@link ISampleSink} übergeben, z. B. eine
+ * {@link de.skawronek.audiolib.StreamAudioSource}. Alle Puffer werden bei der
+ * Erzeugung angelegt; für FFT-Längen, die Zweierpotenzen sind, allokiert
+ * {@link #add} nichts. Nicht thread-safe.
+ */
+public final class OverlapAddSynthesis {
+	// Kleinere Fenstersummen gelten als 0
+	private static final float MIN_WINDOW_SUM = 1e-6f;
+
+	private final int frameSize;
+	private final int hopSize;
+	private final int fftSize;
+	private final ISampleSink sink;
+	private final FastFourierTransform fft;
+	private final float[] window;
+
+	// backwardReal überschreibt die Bins, daher eigene Kopien
+	private final float[] binsRe;
+	private final float[] binsIm;
+	private final float[] frameBuffer;
+	// Noch nicht fertige Samples ab dem aktuellen Frame-Anfang und die
+	// zugehörigen Fenstersummen
+	private final float[] accumulator;
+	private final float[] windowSums;
+	private final float[] output;
+	private long numFrames = 0;
+
+	public OverlapAddSynthesis(final @NonNull FrameSpecification spec,
+			final ShortTimeFourierTransform.@NonNull Key key,
+			final @NonNull ISampleSink sink) {
+		this(spec.getSize(), spec.getHopSize(), key.getWindow(), key
+				.getPaddingFactor(), sink);
+	}
+
+	public OverlapAddSynthesis(final int frameSize, final int hopSize,
+			final @NonNull WindowType windowType, final int paddingFactor,
+			final @NonNull ISampleSink sink) {
+		if (frameSize <= 0) {
+			throw new IllegalArgumentException("frameSize " + frameSize
+					+ " <= 0");
+		} else if (hopSize <= 0) {
+			throw new IllegalArgumentException("hopSize " + hopSize + " <= 0");
+		} else if (paddingFactor < 1) {
+			throw new IllegalArgumentException("paddingFactor "
+					+ paddingFactor + " < 1");
+		}
+
+		this.frameSize = frameSize;
+		this.hopSize = hopSize;
+		this.fftSize = frameSize * paddingFactor;
+		this.sink = sink;
+		this.fft = FastFourierTransform.Factory.getInstance().get(fftSize);
+		this.window = WindowFunctions.getTable(windowType, frameSize);
+
+		final int numBins = fft.getNumRealBins();
+		binsRe = new float[numBins];
+		binsIm = new float[numBins];
+		frameBuffer = new float[fftSize];
+		// Bei hopSize > frameSize entstehen Lücken, die als 0 ausgegeben
+		// werden
+		final int length = Math.max(frameSize, hopSize);
+		accumulator = new float[length];
+		windowSums = new float[length];
+		output = new float[length];
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	public int getHopSize() {
+		return hopSize;
+	}
+
+	public int getFftSize() {
+		return fftSize;
+	}
+
+	/**
+	 * Gibt die Anzahl der bisher synthetisierten Frames zurück.
+	 */
+	public long getNumFrames() {
+		return numFrames;
+	}
+
+	public void add(final @NonNull ShortTimeFourierTransform stft) {
+		if (stft.getFftSize() != fftSize) {
+			throw new IllegalArgumentException("fft size "
+					+ stft.getFftSize() + " must be " + fftSize);
+		}
+		add(stft.getReal(), stft.getImaginary());
+	}
+
+	/**
+	 * Synthetisiert den nächsten Frame aus den Bins X[0..fftSize/2] und gibt
+	 * die nächsten hopSize Samples aus. re und im werden nicht verändert.
+	 */
+	public void add(final float @NonNull [] re, final float @NonNull [] im) {
+		final int numBins = binsRe.length;
+		if (re.length < numBins || im.length < numBins) {
+			throw new IllegalArgumentException(
+					"Length of re and im must be at least " + numBins);
+		}
+		System.arraycopy(re, 0, binsRe, 0, numBins);
+		System.arraycopy(im, 0, binsIm, 0, numBins);
+		fft.backwardReal(binsRe, binsIm, frameBuffer);
+
+		for (int i = 0; i < frameSize; i++) {
+			final float w = window[i];
+			accumulator[i] += w * frameBuffer[i];
+			windowSums[i] += w * w;
+		}
+		numFrames++;
+
+		emit(hopSize);
+	}
+
+	/**
+	 * Gibt die restlichen Samples des letzten Frames aus und setzt die
+	 * Synthese zurück.
+	 */
+	public void flush() {
+		if (numFrames > 0) {
+			emit(frameSize - Math.min(hopSize, frameSize));
+		}
+		reset();
+	}
+
+	public void reset() {
+		Arrays.fill(accumulator, 0f);
+		Arrays.fill(windowSums, 0f);
+		numFrames = 0;
+	}
+
+	// Gibt die ersten length Samples aus und schiebt den Rest nach vorne
+	private void emit(final int length) {
+		for (int i = 0; i < length; i++) {
+			final float sum = windowSums[i];
+			output[i] = (sum > MIN_WINDOW_SUM ? accumulator[i] / sum : 0f);
+		}
+		final int remaining = accumulator.length - length;
+		System.arraycopy(accumulator, length, accumulator, 0, remaining);
+		System.arraycopy(windowSums, length, windowSums, 0, remaining);
+		Arrays.fill(accumulator, remaining, accumulator.length, 0f);
+		Arrays.fill(windowSums, remaining, windowSums.length, 0f);
+		if (length > 0) {
+			sink.put(output, 0, length);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package de.skawronek.audiolib.signal;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.FastFourierTransform;
+import de.skawronek.audiolib.math.WindowFunctions;
+import de.skawronek.audiolib.math.WindowType;
+
+/**
+ * Spektrum eines gefensterten Frames. Anders als
+ * {@link de.skawronek.audiolib.signal.FastFourierTransform} wird der Frame vor
+ * der Transformation mit einer Fensterfunktion multipliziert und optional mit
+ * Nullen auf paddingFactor * Frame-Größe verlängert. Die Fenster stammen aus
+ * den Tabellen von {@link WindowFunctions#getTable}, werden also pro (Typ,
+ * Größe) nur einmal berechnet.
+ * <p>
+ * Gespeichert werden nur die fftSize / 2 + 1 nicht redundanten Bins. Features,
+ * die dasselbe Fenster nutzen, teilen sich über den Key ein Spektrum pro
+ * Frame.
+ */
+public final class ShortTimeFourierTransform extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final int fftSize;
+	private final float[] real;
+	private final float[] imaginary;
+	// Aus real und imaginary abgeleitet, werden nicht serialisiert
+	private transient float[] spectrum;
+	private transient float[] power;
+	private transient float[] phase;
+
+	public final static class Processor extends
+			FeatureProcessor<ShortTimeFourierTransform> {
+		@Override
+		public @NonNull Class<ShortTimeFourierTransform> getFeatureClass() {
+			return ShortTimeFourierTransform.class;
+		}
+
+		@Override
+		public ShortTimeFourierTransform process(@NonNull final Frame frame,
+				@NonNull final FeatureKey<ShortTimeFourierTransform> key) {
+			final Key stftKey = (Key) key;
+			final float[] samples = frame.getMonoSamples();
+			final int size = samples.length;
+			final int fftSize = size * stftKey.paddingFactor;
+
+			final float[] window = WindowFunctions.getTable(stftKey.window,
+					size);
+			final float[] buffer = new float[fftSize];
+			for (int i = 0; i < size; i++) {
+				buffer[i] = samples[i] * window[i];
+			}
+
+			final FastFourierTransform fft = FastFourierTransform.Factory
+					.getInstance().get(fftSize);
+			final int numBins = fft.getNumRealBins();
+			final float[] real = new float[numBins];
+			final float[] imaginary = new float[numBins];
+			fft.forwardReal(buffer, real, imaginary);
+			return new ShortTimeFourierTransform(fftSize, real, imaginary);
+		}
+	}
+
+	private ShortTimeFourierTransform(final int fftSize,
+			final float @NonNull [] real, final float @NonNull [] imaginary) {
+		this.fftSize = fftSize;
+		this.real = real;
+		this.imaginary = imaginary;
+	}
+
+	/**
+	 * Länge der Transformation (Frame-Größe * paddingFactor).
+	 */
+	public int getFftSize() {
+		return fftSize;
+	}
+
+	/**
+	 * Anzahl der gespeicherten Bins, fftSize / 2 + 1.
+	 */
+	public int getNumBins() {
+		return real.length;
+	}
+
+	public float @NonNull [] getReal() {
+		return real;
+	}
+
+	public float @NonNull [] getImaginary() {
+		return imaginary;
+	}
+
+	public float @NonNull [] getMagnitudeSpectrum() {
+		if (spectrum == null) {
+			spectrum = new float[real.length];
+			for (int k = 0; k < real.length; k++) {
+				spectrum[k] = (float) Math.sqrt(real[k] * real[k]
+						+ imaginary[k] * imaginary[k]);
+			}
+		}
+
+		return spectrum;
+	}
+
+	public float @NonNull [] getPowerSpectrum() {
+		if (power == null) {
+			power = new float[real.length];
+			for (int k = 0; k < real.length; k++) {
+				power[k] = real[k] * real[k] + imaginary[k] * imaginary[k];
+			}
+		}
+
+		return power;
+	}
+
+	public float @NonNull [] getPhaseSpectrum() {
+		if (phase == null) {
+			phase = new float[real.length];
+			for (int k = 0; k < real.length; k++) {
+				phase[k] = (float) Math.atan2(imaginary[k], real[k]);
+			}
+		}
+
+		return phase;
+	}
+
+	public final static class Key extends
+			FeatureKey<ShortTimeFourierTransform> {
+		private static final long serialVersionUID = 1L;
+
+		private final WindowType window;
+		private final int paddingFactor;
+
+		private Key(final @NonNull WindowType window, final int paddingFactor) {
+			this.window = window;
+			this.paddingFactor = paddingFactor;
+		}
+
+		@NonNull
+		public WindowType getWindow() {
+			return window;
+		}
+
+		public int getPaddingFactor() {
+			return paddingFactor;
+		}
+
+		@Override
+		public @NonNull Class<ShortTimeFourierTransform> getFeatureClass() {
+			return ShortTimeFourierTransform.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return this.window == other.window
+						&& this.paddingFactor == other.paddingFactor;
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	private static final Key DEFAULT_KEY = new Key(WindowType.HANN, 1);
+
+	/**
+	 * Hann-Fenster ohne Zero-Padding.
+	 */
+	public static Key getDefaultKey() {
+		return DEFAULT_KEY;
+	}
+
+	public static Key getKey(final @NonNull WindowType window) {
+		return getKey(window, 1);
+	}
+
+	/**
+	 * @param paddingFactor
+	 *            Die Transformation ist paddingFactor-mal so lang wie der
+	 *            Frame, der Rest wird mit Nullen aufgefüllt.
+	 */
+	public static Key getKey(final @NonNull WindowType window,
+			final int paddingFactor) {
+		if (paddingFactor < 1) {
+			throw new IllegalArgumentException("paddingFactor "
+					+ paddingFactor + " < 1");
+		}
+		if (window == DEFAULT_KEY.window
+				&& paddingFactor == DEFAULT_KEY.paddingFactor) {
+			return DEFAULT_KEY;
+		}
+		return new Key(window, paddingFactor);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
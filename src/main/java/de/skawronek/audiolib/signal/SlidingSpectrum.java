@@ -0,0 +1,317 @@
+package de.skawronek.audiolib.signal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.AudioSource;
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.IStreamFeature;
+import de.skawronek.audiolib.math.SlidingDft;
+
+/**
+ * Ausschnitt des Spektrums (Bins fromBin..toBin-1) eines Frames, der nicht pro
+ * Frame per FFT, sondern über eine {@link SlidingDft} aus dem Sample-Strom
+ * berechnet wird. Lohnt sich bei kleinen Hop-Sizes, da pro Sample nur
+ * O(toBin - fromBin) Operationen anfallen, unabhängig von der Hop-Size.
+ * <p>
+ * Verwendung: Ein {@link Tracker} wird mit
+ * {@link AudioSource#addStreamFeature} bei der {@link AudioSource}
+ * registriert. Die Quelle legt das Spektrum, das der Tracker am Ende eines
+ * Frames festgehalten hat, in jeden Frame seiner Spezifikation, sodass
+ * {@link Frame#getFeature} mit {@link Tracker#getKey()} es liefert. Der Key
+ * enthält nur die Parameter, der Zustand gehört zum Tracker der jeweiligen
+ * Quelle. Mehrere Quellen können daher gleichzeitig Tracker mit gleichem Key
+ * haben. Die Bins entsprechen denen von {@link FastFourierTransform} ohne
+ * Fensterfunktion.
+ */
+public final class SlidingSpectrum extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final int fromBin;
+	private final float[] real;
+	private final float[] imaginary;
+	private float[] magnitudes;
+
+	/**
+	 * Wird nur für Frames aufgerufen, die das Spektrum nicht schon von ihrer
+	 * Quelle erhalten haben, und scheitert daher immer.
+	 */
+	public final static class Processor extends
+			FeatureProcessor<SlidingSpectrum> {
+		@Override
+		public @NonNull Class<SlidingSpectrum> getFeatureClass() {
+			return SlidingSpectrum.class;
+		}
+
+		@Override
+		public SlidingSpectrum process(@NonNull final Frame frame,
+				@NonNull final FeatureKey<SlidingSpectrum> key) {
+			throw new IllegalStateException("no sliding spectrum for frame at "
+					+ frame.getBegin() + ": the frame must be created by an "
+					+ "AudioSource with a Tracker for this key, at most "
+					+ Tracker.MAX_PENDING + " frames after its last sample");
+		}
+	}
+
+	private SlidingSpectrum(final int fromBin, final float @NonNull [] real,
+			final float @NonNull [] imaginary) {
+		this.fromBin = fromBin;
+		this.real = real;
+		this.imaginary = imaginary;
+	}
+
+	public int getFromBin() {
+		return fromBin;
+	}
+
+	public int getToBin() {
+		return fromBin + real.length;
+	}
+
+	public int getNumBins() {
+		return real.length;
+	}
+
+	/**
+	 * Realteile, Index i entspricht Bin fromBin + i.
+	 */
+	public float @NonNull [] getReal() {
+		return real;
+	}
+
+	public float @NonNull [] getImaginary() {
+		return imaginary;
+	}
+
+	public float @NonNull [] getMagnitudes() {
+		if (magnitudes == null) {
+			magnitudes = new float[real.length];
+			for (int i = 0; i < real.length; i++) {
+				magnitudes[i] = (float) Math.sqrt(real[i] * real[i]
+						+ imaginary[i] * imaginary[i]);
+			}
+		}
+		return magnitudes;
+	}
+
+	/**
+	 * Speist eine {@link SlidingDft} aus dem Sample-Strom und hält ihr
+	 * Spektrum am Ende jedes Frames der Spezifikation fest, bis die Quelle den
+	 * Frame erzeugt.
+	 * <p>
+	 * Frame-Anfänge liegen wie bei den Frames einer {@link AudioSource} auf
+	 * Vielfachen der Hop-Size, bezogen auf den absoluten Sample-Index. Das
+	 * gilt auch, wenn der Strom nicht bei Index 0 beginnt: Festgehalten werden
+	 * nur Frames, deren Samples alle übergeben wurden. Springt der
+	 * Sample-Index, z. B. nach einem Seek, beginnt die {@link SlidingDft} von
+	 * vorn.
+	 * <p>
+	 * Es werden höchstens {@value #MAX_PENDING} nicht abgeholte Spektren
+	 * gehalten, ältere werden verworfen.
+	 */
+	public static final class Tracker implements
+			IStreamFeature<SlidingSpectrum> {
+		static final int MAX_PENDING = 1024;
+
+		private final SlidingDft dft;
+		private final Key key;
+		private final Map<Long, SlidingSpectrum> pending = new LinkedHashMap<Long, SlidingSpectrum>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<Long, SlidingSpectrum> eldest) {
+				return size() > MAX_PENDING;
+			}
+		};
+		// Erwarteter Index des nächsten Samples, -1 vor dem ersten Sample
+		private long nextIndex = -1;
+
+		public Tracker(final @NonNull Key key) {
+			this.dft = new SlidingDft(key.size, key.fromBin, key.toBin,
+					key.damping, key.resyncInterval);
+			this.key = key;
+		}
+
+		public Tracker(final @NonNull FrameSpecification spec,
+				final int fromBin, final int toBin) {
+			this(SlidingSpectrum.getKey(spec, fromBin, toBin));
+		}
+
+		/**
+		 * @see SlidingDft#SlidingDft(int, int, int, double, int)
+		 */
+		public Tracker(final @NonNull FrameSpecification spec,
+				final int fromBin, final int toBin, final double damping,
+				final int resyncInterval) {
+			this(SlidingSpectrum.getKey(spec, fromBin, toBin, damping,
+					resyncInterval));
+		}
+
+		/**
+		 * Key, über den die Spektren dieses Trackers aus den Frames abgefragt
+		 * werden.
+		 */
+		@Override
+		@NonNull
+		public Key getKey() {
+			return key;
+		}
+
+		@Override
+		public void onSampleAvailable(final long index, final float sample) {
+			if (nextIndex >= 0 && index != nextIndex) {
+				dft.reset();
+			}
+			nextIndex = index + 1;
+			dft.put(sample);
+			// Letztes Sample eines vollständig übergebenen Frames?
+			// Frame-Anfänge liegen auf Vielfachen der Hop-Size.
+			final long frameBegin = index - dft.getSize() + 1;
+			if (dft.getSampleCount() >= dft.getSize()
+					&& frameBegin % key.hopSize == 0) {
+				final int numBins = dft.getNumBins();
+				final float[] real = new float[numBins];
+				final float[] imaginary = new float[numBins];
+				dft.copyReal(real);
+				dft.copyImaginary(imaginary);
+				synchronized (pending) {
+					pending.put(frameBegin, new SlidingSpectrum(dft
+							.getFromBin(), real, imaginary));
+				}
+			}
+		}
+
+		@Override
+		public SlidingSpectrum takeFeature(final long frameBegin,
+				final int frameSize) {
+			if (frameSize != dft.getSize()) {
+				return null;
+			}
+			synchronized (pending) {
+				return pending.remove(frameBegin);
+			}
+		}
+	}
+
+	/**
+	 * Parameter eines {@link Tracker}s. Zwei Keys sind gleich, wenn ihre
+	 * Parameter gleich sind.
+	 */
+	public final static class Key extends FeatureKey<SlidingSpectrum> {
+		private static final long serialVersionUID = 1L;
+
+		private final int size;
+		private final int hopSize;
+		private final int fromBin;
+		private final int toBin;
+		private final double damping;
+		private final int resyncInterval;
+
+		private Key(final int size, final int hopSize, final int fromBin,
+				final int toBin, final double damping,
+				final int resyncInterval) {
+			this.size = size;
+			this.hopSize = hopSize;
+			this.fromBin = fromBin;
+			this.toBin = toBin;
+			this.damping = damping;
+			this.resyncInterval = resyncInterval;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getHopSize() {
+			return hopSize;
+		}
+
+		public int getFromBin() {
+			return fromBin;
+		}
+
+		public int getToBin() {
+			return toBin;
+		}
+
+		public double getDamping() {
+			return damping;
+		}
+
+		public int getResyncInterval() {
+			return resyncInterval;
+		}
+
+		@Override
+		public @NonNull Class<SlidingSpectrum> getFeatureClass() {
+			return SlidingSpectrum.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				//@formatter:off
+				return this.size == other.size
+						&& this.hopSize == other.hopSize
+						&& this.fromBin == other.fromBin
+						&& this.toBin == other.toBin
+						&& Double.compare(this.damping, other.damping) == 0
+						&& this.resyncInterval == other.resyncInterval;
+				//@formatter:on
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			//@formatter:off
+			return size
+					^ (hopSize << 8)
+					^ (fromBin << 16)
+					^ (toBin << 24)
+					^ Double.hashCode(damping)
+					^ resyncInterval;
+			//@formatter:on
+		}
+	}
+
+	/**
+	 * Key einer {@link SlidingDft} ohne Dämpfung, die alle spec.getSize()
+	 * Samples neu berechnet wird.
+	 */
+	@NonNull
+	public static Key getKey(final @NonNull FrameSpecification spec,
+			final int fromBin, final int toBin) {
+		return getKey(spec, fromBin, toBin, 1.0, spec.getSize());
+	}
+
+	/**
+	 * @see SlidingDft#SlidingDft(int, int, int, double, int)
+	 */
+	@NonNull
+	public static Key getKey(final @NonNull FrameSpecification spec,
+			final int fromBin, final int toBin, final double damping,
+			final int resyncInterval) {
+		return new Key(spec.getSize(), spec.getHopSize(), fromBin, toBin,
+				damping, resyncInterval);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
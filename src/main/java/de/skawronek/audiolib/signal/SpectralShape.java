@@ -13,6 +13,8 @@ import de.skawronek.audiolib.math.Statistics;
 import de.skawronek.audiolib.util.Util;
 
 public final class SpectralShape extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private static enum SingleFeature {
 		SUM, SKEWNESS, ROLLOFF_85, ROLLOFF_95, CENTROID, SPREAD, DECREASE, FLATNESS
 	}
@@ -20,7 +22,8 @@ public final class SpectralShape extends Feature {
 	private final EnumSet<SingleFeature> computed = EnumSet
 			.noneOf(SingleFeature.class);
 	private final FastFourierTransform fft;
-	private final Statistics stats = new Statistics();
+	// Nicht serialisierbar, wird bei Bedarf neu aufgebaut
+	private transient Statistics stats;
 	private float sum;
 	private float skewness;
 	private float rolloff_85;
@@ -47,7 +50,14 @@ public final class SpectralShape extends Feature {
 
 	public SpectralShape(final @NonNull FastFourierTransform fft) {
 		this.fft = fft;
-		this.stats.setInput(fft.getMagnitudeSpectrum());
+	}
+
+	private @NonNull Statistics getStats() {
+		if (stats == null) {
+			stats = new Statistics();
+			stats.setInput(fft.getMagnitudeSpectrum());
+		}
+		return stats;
 	}
 
 	private float getSum() {
@@ -55,7 +65,7 @@ public final class SpectralShape extends Feature {
 			return sum;
 		}
 
-		sum = stats.getSum();
+		sum = getStats().getSum();
 		setComputed(SingleFeature.SUM);
 
 		return sum;
@@ -68,8 +78,8 @@ public final class SpectralShape extends Feature {
 
 		final int numBins = fft.getSize() / 2;
 		final float[] spectrum = fft.getMagnitudeSpectrum();
-		final float mean = stats.getAverage();
-		final float stdDev = stats.getStandardDeviation();
+		final float mean = getStats().getAverage();
+		final float stdDev = getStats().getStandardDeviation();
 		float numerator = 0;
 		for (int k = 0; k < numBins / 2; k++) {
 			final float diff = spectrum[k] - mean;
@@ -220,6 +230,8 @@ public final class SpectralShape extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<SpectralShape> {
+		private static final long serialVersionUID = 1L;
+
 		@Override
 		public @NonNull Class<SpectralShape> getFeatureClass() {
 			return SpectralShape.class;
@@ -0,0 +1,288 @@
+package de.skawronek.audiolib.signal;
+
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Hält die letzten capacity Spektren (Spalten) mit je numBins Bins in einem
+ * zusammenhängenden float[capacity * numBins] als Ringpuffer. Zeitliche
+ * Features (Spectral Flux, Median-Filter, Novelty-Funktionen, ...) greifen
+ * darüber auf vorherige Spektren zu, ohne die Frames samt aller Features am
+ * Leben zu halten.
+ * <p>
+ * Spalten werden wie bei {@link de.skawronek.audiolib.util.FloatRingBuffer}
+ * über ihren fortlaufenden Index adressiert: Die erste hinzugefügte Spalte hat
+ * den Index 0, verfügbar sind die Spalten getCount() - getSize() bis
+ * getCount() - 1. Eine Spalte liegt zusammenhängend ab {@link #getOffset} in
+ * {@link #getValues()}, sodass sie ohne Kopie gelesen werden kann.
+ * <p>
+ * Ein Spektrogramm speichert entweder Beträge oder (mit complex = true) Real-
+ * und Imaginärteile. Nicht thread-safe.
+ */
+public final class Spectrogram {
+	private final int capacity;
+	private final int numBins;
+	// Beträge bzw. Realteile
+	private final float[] values;
+	// Imaginärteile, nur bei complex = true
+	private final float[] imaginaryValues;
+	private int size = 0;
+	private long count = 0;
+	private int next = 0;
+
+	public Spectrogram(final int capacity, final int numBins,
+			final boolean complex) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity " + capacity + " <= 0");
+		} else if (numBins <= 0) {
+			throw new IllegalArgumentException("numBins " + numBins + " <= 0");
+		}
+		this.capacity = capacity;
+		this.numBins = numBins;
+		this.values = new float[capacity * numBins];
+		this.imaginaryValues = (complex ? new float[capacity * numBins]
+				: null);
+	}
+
+	/**
+	 * Spektrogramm der Beträge.
+	 */
+	public Spectrogram(final int capacity, final int numBins) {
+		this(capacity, numBins, false);
+	}
+
+	/**
+	 * Fügt die Beträge bzw. Real- und Imaginärteile von stft als neue Spalte
+	 * hinzu.
+	 */
+	public void add(final @NonNull ShortTimeFourierTransform stft) {
+		if (isComplex()) {
+			add(stft.getReal(), stft.getImaginary());
+		} else {
+			add(stft.getMagnitudeSpectrum());
+		}
+	}
+
+	/**
+	 * Fügt die ersten numBins Beträge aus magnitudes als neue Spalte hinzu.
+	 */
+	public void add(final float @NonNull [] magnitudes) {
+		if (isComplex()) {
+			throw new IllegalStateException(
+					"complex spectrogram requires real and imaginary parts");
+		}
+		checkColumnLength(magnitudes);
+		System.arraycopy(magnitudes, 0, values, next * numBins, numBins);
+		advance();
+	}
+
+	/**
+	 * Fügt die ersten numBins Real- und Imaginärteile als neue Spalte hinzu.
+	 */
+	public void add(final float @NonNull [] real,
+			final float @NonNull [] imaginary) {
+		if (!isComplex()) {
+			throw new IllegalStateException(
+					"spectrogram does not store complex values");
+		}
+		checkColumnLength(real);
+		checkColumnLength(imaginary);
+		System.arraycopy(real, 0, values, next * numBins, numBins);
+		System.arraycopy(imaginary, 0, imaginaryValues, next * numBins,
+				numBins);
+		advance();
+	}
+
+	private void checkColumnLength(final float @NonNull [] column) {
+		if (column.length < numBins) {
+			throw new IllegalArgumentException("column length "
+					+ column.length + " < " + numBins);
+		}
+	}
+
+	private void advance() {
+		next = (next + 1 == capacity ? 0 : next + 1);
+		size = (size == capacity ? size : size + 1);
+		count++;
+	}
+
+	/**
+	 * Gibt den Index in {@link #getValues()} bzw. {@link #getImaginaryValues()}
+	 * zurück, ab dem die numBins Werte der Spalte column liegen.
+	 */
+	public int getOffset(final long column) {
+		checkColumn(column);
+		int index = (int) ((next - (count - column)) % capacity);
+		if (index < 0) {
+			index += capacity;
+		}
+		return index * numBins;
+	}
+
+	private void checkColumn(final long column) {
+		if (column >= count) {
+			throw new NoSuchElementException("try to read column " + column
+					+ ", but count is " + count);
+		} else if (column < count - size) {
+			throw new NoSuchElementException("try to read column " + column
+					+ ", but oldest available is " + (count - size));
+		}
+	}
+
+	/**
+	 * Beträge bzw. Realteile aller Spalten. Das Array darf nicht verändert
+	 * werden.
+	 */
+	public float @NonNull [] getValues() {
+		return values;
+	}
+
+	/**
+	 * Imaginärteile aller Spalten. Das Array darf nicht verändert werden.
+	 */
+	public float @NonNull [] getImaginaryValues() {
+		if (!isComplex()) {
+			throw new IllegalStateException(
+					"spectrogram does not store complex values");
+		}
+		return imaginaryValues;
+	}
+
+	public float get(final long column, final int bin) {
+		checkBin(bin);
+		return values[getOffset(column) + bin];
+	}
+
+	public float getImaginary(final long column, final int bin) {
+		checkBin(bin);
+		return getImaginaryValues()[getOffset(column) + bin];
+	}
+
+	private void checkBin(final int bin) {
+		if (bin < 0 || bin >= numBins) {
+			throw new IndexOutOfBoundsException("bin " + bin
+					+ " not in [0, " + numBins + ")");
+		}
+	}
+
+	/**
+	 * Kopiert die Beträge bzw. Realteile der Spalte column nach
+	 * buffer[0..numBins-1].
+	 */
+	public void copyColumn(final long column, final float @NonNull [] buffer) {
+		checkColumnLength(buffer);
+		System.arraycopy(values, getOffset(column), buffer, 0, numBins);
+	}
+
+	/**
+	 * Kopiert die length Spalten ab start hintereinander nach
+	 * buffer[0..length*numBins-1].
+	 */
+	public void copyColumns(final long start, final int length,
+			final float @NonNull [] buffer) {
+		copyColumns(values, start, length, buffer);
+	}
+
+	/**
+	 * Wie {@link #copyColumns}, aber für die Imaginärteile.
+	 */
+	public void copyImaginaryColumns(final long start, final int length,
+			final float @NonNull [] buffer) {
+		copyColumns(getImaginaryValues(), start, length, buffer);
+	}
+
+	private void copyColumns(final float @NonNull [] source, final long start,
+			final int length, final float @NonNull [] buffer) {
+		if (length == 0) {
+			return;
+		}
+		checkRange(start, length);
+		if (buffer.length < length * numBins) {
+			throw new IndexOutOfBoundsException("try to read " + length
+					+ " columns, but buffer size is " + buffer.length);
+		}
+
+		// Höchstens zwei zusammenhängende Abschnitte
+		final int offset = getOffset(start);
+		final int total = length * numBins;
+		final int first = Math.min(total, source.length - offset);
+		System.arraycopy(source, offset, buffer, 0, first);
+		System.arraycopy(source, 0, buffer, first, total - first);
+	}
+
+	/**
+	 * Kopiert den zeitlichen Verlauf des Bins bin über die length Spalten ab
+	 * start nach buffer[0..length-1], z. B. für einen Median-Filter über die
+	 * Zeit.
+	 */
+	public void copyBin(final int bin, final long start, final int length,
+			final float @NonNull [] buffer) {
+		checkBin(bin);
+		if (length == 0) {
+			return;
+		}
+		checkRange(start, length);
+		if (buffer.length < length) {
+			throw new IndexOutOfBoundsException("try to read " + length
+					+ " values, but buffer size is " + buffer.length);
+		}
+
+		int index = getOffset(start) + bin;
+		for (int i = 0; i < length; i++) {
+			buffer[i] = values[index];
+			index += numBins;
+			if (index >= values.length) {
+				index -= values.length;
+			}
+		}
+	}
+
+	private void checkRange(final long start, final int length) {
+		checkColumn(start);
+		if (length < 0 || start + length > count) {
+			throw new NoSuchElementException("try to read " + length
+					+ " columns at " + start + ", but count is " + count);
+		}
+	}
+
+	/**
+	 * Gibt den Index der zuletzt hinzugefügten Spalte zurück.
+	 */
+	public long getLastColumn() {
+		if (size == 0) {
+			throw new NoSuchElementException("size is 0");
+		}
+		return count - 1;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getNumBins() {
+		return numBins;
+	}
+
+	public boolean isComplex() {
+		return imaginaryValues != null;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void clear() {
+		next = 0;
+		size = 0;
+		count = 0;
+	}
+}
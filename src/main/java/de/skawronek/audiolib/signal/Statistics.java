@@ -9,7 +9,11 @@ import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 
 public final class Statistics extends Feature {
-	private final de.skawronek.audiolib.math.Statistics statistics = new de.skawronek.audiolib.math.Statistics();
+	private static final long serialVersionUID = 1L;
+
+	private final float[] window;
+	// Nicht serialisierbar, wird bei Bedarf neu aufgebaut
+	private transient de.skawronek.audiolib.math.Statistics statistics;
 
 	public final static class Processor extends FeatureProcessor<Statistics> {
 		@Override
@@ -26,26 +30,36 @@ public final class Statistics extends Feature {
 	}
 
 	private Statistics(final float @NonNull [] window) {
-		statistics.setInput(window);
+		this.window = window;
+	}
+
+	private de.skawronek.audiolib.math.@NonNull Statistics getStatistics() {
+		if (statistics == null) {
+			statistics = new de.skawronek.audiolib.math.Statistics();
+			statistics.setInput(window);
+		}
+		return statistics;
 	}
 
 	public float getMinimum() {
-		return statistics.getMininum();
+		return getStatistics().getMininum();
 	}
 
 	public float getMaximum() {
-		return statistics.getMaximum();
+		return getStatistics().getMaximum();
 	}
 
 	public float getAverage() {
-		return statistics.getAverage();
+		return getStatistics().getAverage();
 	}
 
 	public float getMedian() {
-		return statistics.getMedian();
+		return getStatistics().getMedian();
 	}
 
 	public final static class Key extends FeatureKey<Statistics> {
+		private static final long serialVersionUID = 1L;
+
 		@Override
 		public @NonNull Class<Statistics> getFeatureClass() {
 			return Statistics.class;
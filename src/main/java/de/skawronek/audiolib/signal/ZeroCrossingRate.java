@@ -9,6 +9,8 @@ import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 
 public final class ZeroCrossingRate extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final int numCrossings;
 	private final int frameSize;
 	private final double sampleRate;
@@ -70,6 +72,8 @@ public final class ZeroCrossingRate extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<ZeroCrossingRate> {
+		private static final long serialVersionUID = 1L;
+
 		@Override
 		public @NonNull Class<ZeroCrossingRate> getFeatureClass() {
 			return ZeroCrossingRate.class;
@@ -5,12 +5,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
-import org.eclipse.jdt.annotation.Nullable;
 
 import de.skawronek.audiolib.Frame;
 import de.skawronek.audiolib.math.AdaptivePeakPicking;
 import de.skawronek.audiolib.signal.FastFourierTransform;
 import de.skawronek.audiolib.signal.FastFourierTransform.Key;
+import de.skawronek.audiolib.signal.Spectrogram;
 import de.skawronek.audiolib.util.FloatRingBuffer;
 import de.skawronek.audiolib.util.RingBuffer;
 
@@ -27,6 +27,9 @@ public final class OnsetDetection {
 	private final float[] noveltiesBuffer;
 	private final FloatRingBuffer novelties;
 	private final RingBuffer<Frame> frames;
+	// Die letzten beiden Spektren für COMPLEX_DISTANCE, wird mit dem ersten
+	// Frame angelegt
+	private Spectrogram spectra;
 	private final AdaptivePeakPicking peakPicking;
 	private final Set<IListener> listeners = new HashSet<>();
 
@@ -57,12 +60,12 @@ public final class OnsetDetection {
 	}
 
 	public void processFrame(final @NonNull Frame frame) {
-		final Frame lastFrame = getLastFrame();
 		frames.put(frame);
 		final float novelty;
 		switch (noveltyFunction) {
 		case COMPLEX_DISTANCE:
-			novelty = computeComplexDistance(lastFrame, frame);
+			addSpectrum(frame);
+			novelty = computeComplexDistance(spectra);
 			break;
 		case HIGH_FREQUENCY_CONTENT:
 			novelty = computeHighFrequencyContent(frame);
@@ -86,14 +89,13 @@ public final class OnsetDetection {
 		}
 	}
 
-	private Frame getLastFrame() {
-		final Frame lastFrame;
-		if (!frames.isEmpty()) {
-			lastFrame = frames.peakLast();
-		} else {
-			lastFrame = null;
+	private void addSpectrum(final @NonNull Frame frame) {
+		final FastFourierTransform fft = frame.getFeature(FFT_KEY);
+		final int numBins = fft.getSize();
+		if (spectra == null || spectra.getNumBins() != numBins) {
+			spectra = new Spectrogram(2, numBins, true);
 		}
-		return lastFrame;
+		spectra.add(fft.getReal(), fft.getImaginary());
 	}
 
 	private static float computeHighFrequencyContent(final @NonNull Frame curr) {
@@ -107,25 +109,23 @@ public final class OnsetDetection {
 		return sum;
 	}
 
-	private static float computeComplexDistance(final @Nullable Frame before,
-			final @NonNull Frame curr) {
-		if (before == null) {
+	private static float computeComplexDistance(
+			final @NonNull Spectrogram spectra) {
+		if (spectra.getSize() < 2) {
 			return 0f;
 		}
 
-		final FastFourierTransform beforeFft = before.getFeature(FFT_KEY);
-		final FastFourierTransform currentFft = curr.getFeature(FFT_KEY);
-		final int numBins = currentFft.getSize();
-
-		final float[] beRe = beforeFft.getReal();
-		final float[] beIm = beforeFft.getImaginary();
-		final float[] cuRe = currentFft.getReal();
-		final float[] cuIm = currentFft.getImaginary();
+		final long current = spectra.getLastColumn();
+		final int beOffset = spectra.getOffset(current - 1);
+		final int cuOffset = spectra.getOffset(current);
+		final int numBins = spectra.getNumBins();
+		final float[] re = spectra.getValues();
+		final float[] im = spectra.getImaginaryValues();
 
 		float distance = 0f;
 		for (int k = 0; k < numBins; k++) {
-			final float diffRe = cuRe[k] - beRe[k];
-			final float diffIm = cuIm[k] - beIm[k];
+			final float diffRe = re[cuOffset + k] - re[beOffset + k];
+			final float diffIm = im[cuOffset + k] - im[beOffset + k];
 			distance += (float) Math.sqrt(diffRe * diffRe + diffIm * diffIm);
 		}
 
@@ -140,6 +140,9 @@ public final class OnsetDetection {
 
 	public void reset() {
 		frames.clear();
+		if (spectra != null) {
+			spectra.clear();
+		}
 		Arrays.fill(noveltiesBuffer, 0f);
 		novelties.clear();
 	}
@@ -16,6 +16,8 @@ import de.skawronek.audiolib.music.Chord.Type;
 import de.skawronek.audiolib.music.Pitch;
 
 public final class ChordEstimation extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final Chord chord;
 
 	private static final class ChordProfile {
@@ -137,6 +139,8 @@ public final class ChordEstimation extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<ChordEstimation> {
+		private static final long serialVersionUID = 1L;
+
 		private Key() {
 		}
 
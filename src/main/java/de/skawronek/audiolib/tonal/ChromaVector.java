@@ -12,12 +12,11 @@ import de.skawronek.audiolib.music.Pitch;
 import de.skawronek.audiolib.signal.FastFourierTransform;
 
 public final class ChromaVector extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float[] chroma;
 
 	public final static class Processor extends FeatureProcessor<ChromaVector> {
-		private de.skawronek.audiolib.math.ChromaVector cv = new de.skawronek.audiolib.math.ChromaVector(
-				2, 2, 2);
-
 		@Override
 		public @NonNull Class<ChromaVector> getFeatureClass() {
 			return ChromaVector.class;
@@ -33,6 +32,9 @@ public final class ChromaVector extends Feature {
 			final double minFreq = EqualTemperament.getInstance()
 					.getFrequencyOf(c3);
 			final double bandWidth = frame.getSampleRate() / frame.getSize();
+			// Lokal, da der Processor von mehreren Threads genutzt werden kann
+			final de.skawronek.audiolib.math.ChromaVector cv = new de.skawronek.audiolib.math.ChromaVector(
+					2, 2, 2);
 			cv.compute(spectrum, minFreq, bandWidth);
 			final float[] chroma = new float[12];
 			cv.copyChroma(chroma);
@@ -49,6 +51,8 @@ public final class ChromaVector extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<ChromaVector> {
+		private static final long serialVersionUID = 1L;
+
 		private Key() {
 		}
 
@@ -12,16 +12,19 @@ import de.skawronek.audiolib.Frame;
 import de.skawronek.audiolib.math.AdaptivePeakPicking;
 import de.skawronek.audiolib.math.FastConstantQTransform;
 import de.skawronek.audiolib.math.FastFourierTransform;
+import de.skawronek.audiolib.math.PitchPeriodEstimator;
 import de.skawronek.audiolib.signal.Autocorrelation;
 import de.skawronek.audiolib.signal.ConstantQTransform;
 import de.skawronek.audiolib.signal.HarmonicProductSpectrum;
 import de.skawronek.audiolib.signal.ZeroCrossingRate;
 
 public final class FundamentalFrequency extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final double frequency;
 
 	public static enum Method {
-		AUTOCORRELATION, HARMONIC_PRODUCT_SPECTRUM, ZERO_CROSSINGS, CONSTANT_Q_TRANSFORM
+		AUTOCORRELATION, HARMONIC_PRODUCT_SPECTRUM, ZERO_CROSSINGS, CONSTANT_Q_TRANSFORM, YIN, MCLEOD
 	}
 
 	public final static class Processor extends
@@ -49,16 +52,27 @@ public final class FundamentalFrequency extends Feature {
 			case CONSTANT_Q_TRANSFORM:
 				frequency = estimateByConstantQTransform(frame, key);
 				break;
+			case YIN:
+			case MCLEOD:
+				frequency = estimateByDifferenceFunction(frame, key);
+				break;
 			default:
 				throw new AssertionError();
 			}
 			return new FundamentalFrequency(frequency);
 		}
 
+		// Sucht das Maximum der Autokorrelation ab dem Lag von maxFreq bis zur
+		// Frame-Größe bzw. bei lagLimited nur bis zum Lag von minFreq
 		private double estimateByAutocorrelation(final @NonNull Frame frame,
 				final @NonNull Key key) {
-			final Autocorrelation autocorrelation = frame
-					.getFeature(Autocorrelation.getDefaultKey());
+			// Lags jenseits der Periode von minFreq werden nicht durchsucht
+			// und daher auch nicht berechnet
+			final Autocorrelation.Key acfKey = (key.lagLimited ? Autocorrelation
+					.getLagLimitedKey(true, (int) Math.ceil(frame
+							.getSampleRate() / key.minFreq) + 1)
+					: Autocorrelation.getDefaultKey());
+			final Autocorrelation autocorrelation = frame.getFeature(acfKey);
 			final float[] acf = autocorrelation.getCoefficients();
 			final int startLag = (int) Math.ceil(frame.getSampleRate()
 					/ key.maxFreq);
@@ -139,6 +153,35 @@ public final class FundamentalFrequency extends Feature {
 			return FastConstantQTransform.binToFrequency(maxBin, key.minFreq,
 					binPerOctave);
 		}
+
+		// YIN bzw. McLeod Pitch Method, siehe PitchPeriodEstimator. Gibt 0
+		// zurück, wenn keine Periode gefunden wurde.
+		private double estimateByDifferenceFunction(final @NonNull Frame frame,
+				final @NonNull Key key) {
+			final double sampleRate = frame.getSampleRate();
+			final int minLag = Math.max(1,
+					(int) Math.floor(sampleRate / key.maxFreq));
+			// Mindestens die halbe Frame-Größe pro Lag, +2 für die
+			// Interpolation
+			final int maxLag = Math.min(frame.getSize() / 2,
+					(int) Math.ceil(sampleRate / key.minFreq) + 2);
+			if (minLag > maxLag - 2) {
+				throw new IllegalArgumentException("frame size "
+						+ frame.getSize() + " is too small for maxFreq "
+						+ key.maxFreq);
+			}
+
+			final Autocorrelation autocorrelation = frame
+					.getFeature(Autocorrelation.getLagLimitedKey(false, maxLag));
+			final float[] x = frame.getMonoSamples();
+			final float[] r = autocorrelation.getCoefficients();
+			final PitchPeriodEstimator estimator = new PitchPeriodEstimator(
+					maxLag);
+			final double period = (key.method == Method.YIN ? estimator
+					.estimateYin(x, r, minLag, key.threshold) : estimator
+					.estimateMcLeod(x, r, minLag, key.threshold));
+			return (period > 0 ? sampleRate / period : 0.0);
+		}
 	}
 
 	private FundamentalFrequency(final double frequency) {
@@ -150,22 +193,46 @@ public final class FundamentalFrequency extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<FundamentalFrequency> {
+		private static final long serialVersionUID = 1L;
+
 		private final Method method;
 		private final double minFreq;
 		private final double maxFreq;
 		private final int numHarmonics; // Für Harmonic Product Spectrum
+		private final double threshold; // Für YIN und MPM
+		// Für Autokorrelation: nur Lags bis zur Periode von minFreq
+		private final boolean lagLimited;
 
 		private Key(final @NonNull Method method, final double minFreq,
 				final double maxFreq) {
 			this(method, minFreq, maxFreq, 1);
 		}
 
+		private Key(final double minFreq, final double maxFreq,
+				final boolean lagLimited) {
+			this(Method.AUTOCORRELATION, minFreq, maxFreq, 1, 0.0, lagLimited);
+		}
+
 		private Key(final @NonNull Method method, final double minFreq,
 				final double maxFreq, final int numHarmonics) {
+			this(method, minFreq, maxFreq, numHarmonics, 0.0);
+		}
+
+		private Key(final @NonNull Method method, final double minFreq,
+				final double maxFreq, final int numHarmonics,
+				final double threshold) {
+			this(method, minFreq, maxFreq, numHarmonics, threshold, false);
+		}
+
+		private Key(final @NonNull Method method, final double minFreq,
+				final double maxFreq, final int numHarmonics,
+				final double threshold, final boolean lagLimited) {
 			this.method = method;
 			this.minFreq = minFreq;
 			this.maxFreq = maxFreq;
 			this.numHarmonics = numHarmonics;
+			this.threshold = threshold;
+			this.lagLimited = lagLimited;
 		}
 
 		@Override
@@ -184,7 +251,11 @@ public final class FundamentalFrequency extends Feature {
 				if (this.method == other.method) {
 					switch (method) {
 					case AUTOCORRELATION:
-						return Double.compare(this.maxFreq, other.maxFreq) == 0;
+						// minFreq zählt nur bei begrenzten Lags
+						return this.lagLimited == other.lagLimited
+								&& Double.compare(this.maxFreq, other.maxFreq) == 0
+								&& (!lagLimited || Double.compare(this.minFreq,
+										other.minFreq) == 0);
 					case HARMONIC_PRODUCT_SPECTRUM:
 						return Double.compare(this.minFreq, other.minFreq) == 0
 								&& Double.compare(this.maxFreq, other.maxFreq) == 0
@@ -192,6 +263,11 @@ public final class FundamentalFrequency extends Feature {
 					case CONSTANT_Q_TRANSFORM:
 						return Double.compare(this.minFreq, other.minFreq) == 0
 								&& Double.compare(this.maxFreq, other.maxFreq) == 0;
+					case YIN:
+					case MCLEOD:
+						return Double.compare(this.minFreq, other.minFreq) == 0
+								&& Double.compare(this.maxFreq, other.maxFreq) == 0
+								&& Double.compare(this.threshold, other.threshold) == 0;
 					case ZERO_CROSSINGS:
 						return true;
 					default:
@@ -212,12 +288,22 @@ public final class FundamentalFrequency extends Feature {
 			switch (method) {
 			case AUTOCORRELATION:
 				hashCode ^= Double.hashCode(maxFreq);
+				if (lagLimited) {
+					hashCode ^= Double.hashCode(minFreq);
+					hashCode ^= Boolean.hashCode(lagLimited);
+				}
 				break;
 			case HARMONIC_PRODUCT_SPECTRUM:
 			case CONSTANT_Q_TRANSFORM:
 				hashCode ^= Double.hashCode(minFreq);
 				hashCode ^= Double.hashCode(maxFreq);
 				break;
+			case YIN:
+			case MCLEOD:
+				hashCode ^= Double.hashCode(minFreq);
+				hashCode ^= Double.hashCode(maxFreq);
+				hashCode ^= Double.hashCode(threshold);
+				break;
 			case ZERO_CROSSINGS:
 				break;
 			default:
@@ -238,7 +324,21 @@ public final class FundamentalFrequency extends Feature {
 			C7_FREQ);
 	private static final Key CQT_KEY = new Key(Method.CONSTANT_Q_TRANSFORM,
 			C2_FREQ, C7_FREQ);
+	// Schwellwert für d'(t), siehe de Cheveigné und Kawahara
+	private static final double DEFAULT_YIN_THRESHOLD = 0.1;
+	// Anteil k des höchsten Maximums, siehe McLeod und Wyvill
+	private static final double DEFAULT_MCLEOD_CUTOFF = 0.93;
+	private static final Key YIN_KEY = new Key(Method.YIN, C2_FREQ, C7_FREQ,
+			1, DEFAULT_YIN_THRESHOLD);
+	private static final Key MCLEOD_KEY = new Key(Method.MCLEOD, C2_FREQ,
+			C7_FREQ, 1, DEFAULT_MCLEOD_CUTOFF);
 
+	/**
+	 * Key mit dem Bereich C2 bis C7. Bei {@link Method#AUTOCORRELATION}
+	 * werden alle Lags ab der Periode von C7 bis zur Frame-Größe durchsucht,
+	 * für eine Suche nur bis zur Periode von C2 siehe
+	 * {@link #getLagLimitedAutocorrelationKey}.
+	 */
 	public static Key getKey(final @NonNull Method method) {
 		switch (method) {
 		case AUTOCORRELATION:
@@ -249,6 +349,10 @@ public final class FundamentalFrequency extends Feature {
 			return ZCR_KEY;
 		case CONSTANT_Q_TRANSFORM:
 			return CQT_KEY;
+		case YIN:
+			return YIN_KEY;
+		case MCLEOD:
+			return MCLEOD_KEY;
 		default:
 			throw new AssertionError();
 		}
@@ -258,6 +362,23 @@ public final class FundamentalFrequency extends Feature {
 		return new Key(Method.AUTOCORRELATION, 0.0, maxFreq);
 	}
 
+	/**
+	 * Autokorrelation, die nur die Lags der Perioden von maxFreq bis minFreq
+	 * durchsucht und auch nur diese berechnet. Das ist bei großen Frames
+	 * deutlich schneller, längere Perioden (Subharmonische) werden aber nicht
+	 * gefunden.
+	 */
+	public static Key getLagLimitedAutocorrelationKey(final double minFreq,
+			final double maxFreq) {
+		if (minFreq <= 0) {
+			throw new IllegalArgumentException("minFreq " + minFreq + " <= 0");
+		} else if (minFreq > maxFreq) {
+			throw new IllegalArgumentException("minFreq " + minFreq
+					+ " > maxFreq " + maxFreq);
+		}
+		return new Key(minFreq, maxFreq, true);
+	}
+
 	public static Key getHarmonicProductSpectrumKey(final double minFreq,
 			final double maxFreq, int numHarmonics) {
 		if (numHarmonics < 1) {
@@ -276,6 +397,42 @@ public final class FundamentalFrequency extends Feature {
 		return new Key(Method.CONSTANT_Q_TRANSFORM, minFreq, maxFreq);
 	}
 
+	/**
+	 * YIN mit dem Schwellwert threshold für die kumulativ normierte Differenz
+	 * (üblich sind 0.1 bis 0.15). Der Frame muss mindestens doppelt so viele
+	 * Samples haben, wie die Periode von maxFreq lang ist; für minFreq werden
+	 * höchstens Lags bis zur halben Frame-Größe betrachtet.
+	 */
+	public static Key getYinKey(final double minFreq, final double maxFreq,
+			final double threshold) {
+		checkDifferenceFunctionArguments(minFreq, maxFreq, threshold);
+		return new Key(Method.YIN, minFreq, maxFreq, 1, threshold);
+	}
+
+	/**
+	 * McLeod Pitch Method mit dem Anteil cutoff des höchsten Maximums der
+	 * normierten Differenz (üblich sind 0.8 bis 1.0). Für die Frame-Größe gilt
+	 * dasselbe wie bei {@link #getYinKey}.
+	 */
+	public static Key getMcLeodKey(final double minFreq, final double maxFreq,
+			final double cutoff) {
+		checkDifferenceFunctionArguments(minFreq, maxFreq, cutoff);
+		return new Key(Method.MCLEOD, minFreq, maxFreq, 1, cutoff);
+	}
+
+	private static void checkDifferenceFunctionArguments(final double minFreq,
+			final double maxFreq, final double threshold) {
+		if (minFreq <= 0) {
+			throw new IllegalArgumentException("minFreq " + minFreq + " <= 0");
+		} else if (minFreq > maxFreq) {
+			throw new IllegalArgumentException("minFreq " + minFreq
+					+ " > maxFreq " + maxFreq);
+		} else if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold " + threshold
+					+ " <= 0");
+		}
+	}
+
 	public static void register() {
 		final Processor processor = new Processor();
 		FeatureFactory.getInstance().registerProcessor(processor);
@@ -0,0 +1,178 @@
+package de.skawronek.audiolib.tonal;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.FastAutocorrelation;
+import de.skawronek.audiolib.math.LinearPredictor;
+import de.skawronek.audiolib.signal.Autocorrelation;
+
+/**
+ * LPC-Analyse eines Frames per Levinson-Durbin-Rekursion (siehe
+ * {@link LinearPredictor}). Ist die nicht normierte Autokorrelation des Frames
+ * als {@link Autocorrelation}-Feature schon berechnet, wird sie verwendet,
+ * sonst werden die Lags 0..order direkt berechnet. Der Processor von
+ * {@link Autocorrelation} muss dafür nicht registriert sein.
+ */
+public final class LinearPrediction extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final float[] coefficients;
+	private final float[] reflectionCoefficients;
+	private final float predictionError;
+	private final float energy;
+
+	public final static class Processor extends
+			FeatureProcessor<LinearPrediction> {
+		@Override
+		public @NonNull Class<LinearPrediction> getFeatureClass() {
+			return LinearPrediction.class;
+		}
+
+		@Override
+		public LinearPrediction process(final @NonNull Frame frame,
+				@NonNull final FeatureKey<LinearPrediction> featureKey) {
+			final int order = ((Key) featureKey).order;
+			checkOrder(frame, order);
+
+			final float[] r = getAutocorrelation(frame, order);
+			final LinearPredictor predictor = LinearPredictor.Factory
+					.getInstance().get(order);
+			predictor.computeFromAutocorrelation(r);
+
+			final float[] a = new float[order + 1];
+			predictor.copyCoefficients(a);
+			final float[] k = new float[order];
+			predictor.copyReflectionCoefficients(k);
+			return new LinearPrediction(a, k, predictor.getPredictionError(),
+					r[0]);
+		}
+	}
+
+	static void checkOrder(final @NonNull Frame frame, final int order) {
+		if (order >= frame.getSize()) {
+			throw new IllegalArgumentException("order " + order
+					+ " >= frame size " + frame.getSize());
+		}
+	}
+
+	// Verwendet die nicht normierte Autokorrelation des Frames, falls sie
+	// bereits berechnet wurde, sonst werden nur die Lags 0..order berechnet.
+	// Liefert mindestens order + 1 Koeffizienten.
+	static float @NonNull [] getAutocorrelation(final @NonNull Frame frame,
+			final int order) {
+		final Autocorrelation.Key fullKey = Autocorrelation.getKey(false);
+		final Autocorrelation.Key limitedKey = Autocorrelation
+				.getLagLimitedKey(false, order + 1);
+		if (frame.containsFeature(fullKey)) {
+			return frame.getFeature(fullKey).getCoefficients();
+		} else if (frame.containsFeature(limitedKey)) {
+			return frame.getFeature(limitedKey).getCoefficients();
+		}
+
+		final float[] x = frame.getMonoSamples();
+		final FastAutocorrelation acf = FastAutocorrelation.Factory
+				.getInstance().get(x.length, order + 1);
+		acf.compute(x);
+		final float[] r = new float[order + 1];
+		acf.copyCoefficients(r);
+		return r;
+	}
+
+	private LinearPrediction(final float @NonNull [] coefficients,
+			final float @NonNull [] reflectionCoefficients,
+			final float predictionError, final float energy) {
+		this.coefficients = coefficients;
+		this.reflectionCoefficients = reflectionCoefficients;
+		this.predictionError = predictionError;
+		this.energy = energy;
+	}
+
+	public int getOrder() {
+		return reflectionCoefficients.length;
+	}
+
+	/**
+	 * Gibt die Koeffizienten a[0..m] mit a[0] = 1 zurück (siehe
+	 * {@link LinearPredictor#getCoefficients()}).
+	 */
+	public float @NonNull [] getCoefficients() {
+		return coefficients;
+	}
+
+	/**
+	 * Gibt die Reflexionskoeffizienten k[1..m] zurück.
+	 */
+	public float @NonNull [] getReflectionCoefficients() {
+		return reflectionCoefficients;
+	}
+
+	/**
+	 * Gibt die Energie des Residuums zurück, die die Levinson-Durbin-Rekursion
+	 * liefert.
+	 */
+	public float getPredictionError() {
+		return predictionError;
+	}
+
+	/**
+	 * Gibt die Energie des Frames zurück, also r[0].
+	 */
+	public float getEnergy() {
+		return energy;
+	}
+
+	public final static class Key extends FeatureKey<LinearPrediction> {
+		private static final long serialVersionUID = 1L;
+
+		private final int order;
+
+		private Key(final int order) {
+			if (order < 1) {
+				throw new IllegalArgumentException("order " + order + " < 1");
+			}
+			this.order = order;
+		}
+
+		public int getOrder() {
+			return order;
+		}
+
+		@Override
+		public @NonNull Class<LinearPrediction> getFeatureClass() {
+			return LinearPrediction.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return this.order == other.order;
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	public static Key getKey(final int order) {
+		return new Key(order);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
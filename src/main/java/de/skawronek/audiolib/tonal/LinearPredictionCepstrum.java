@@ -0,0 +1,120 @@
+package de.skawronek.audiolib.tonal;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.LinearPredictor;
+
+/**
+ * LPC-Cepstrum (LPCC) eines Frames, berechnet per Rekursion aus den
+ * LPC-Koeffizienten (siehe {@link LinearPredictor#computeCepstrum}). Die
+ * Autokorrelation wird wie bei {@link LinearPrediction} bezogen.
+ */
+public final class LinearPredictionCepstrum extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final float[] coefficients;
+
+	public final static class Processor extends
+			FeatureProcessor<LinearPredictionCepstrum> {
+		@Override
+		public @NonNull Class<LinearPredictionCepstrum> getFeatureClass() {
+			return LinearPredictionCepstrum.class;
+		}
+
+		@Override
+		public LinearPredictionCepstrum process(final @NonNull Frame frame,
+				@NonNull final FeatureKey<LinearPredictionCepstrum> featureKey) {
+			final Key key = (Key) featureKey;
+			final LinearPredictor predictor = computePredictor(frame,
+					key.order);
+			final float[] coefficients = new float[key.numCoefficients];
+			predictor.computeCepstrum(coefficients);
+			return new LinearPredictionCepstrum(coefficients);
+		}
+	}
+
+	// Analysiert den Frame mit dem LinearPredictor des Threads; die
+	// Rekursion ist gegenüber der Autokorrelation vernachlässigbar
+	static @NonNull LinearPredictor computePredictor(
+			final @NonNull Frame frame, final int order) {
+		LinearPrediction.checkOrder(frame, order);
+		final LinearPredictor predictor = LinearPredictor.Factory
+				.getInstance().get(order);
+		predictor.computeFromAutocorrelation(LinearPrediction
+				.getAutocorrelation(frame, order));
+		return predictor;
+	}
+
+	private LinearPredictionCepstrum(final float @NonNull [] coefficients) {
+		this.coefficients = coefficients;
+	}
+
+	/**
+	 * Gibt die Koeffizienten c[0..n-1] zurück, c[0] ist der Logarithmus der
+	 * Verstärkung.
+	 */
+	public float @NonNull [] getCoefficients() {
+		return coefficients;
+	}
+
+	public final static class Key extends FeatureKey<LinearPredictionCepstrum> {
+		private static final long serialVersionUID = 1L;
+
+		private final int order;
+		private final int numCoefficients;
+
+		private Key(final int order, final int numCoefficients) {
+			if (order < 1) {
+				throw new IllegalArgumentException("order " + order + " < 1");
+			} else if (numCoefficients < 1) {
+				throw new IllegalArgumentException("numCoefficients "
+						+ numCoefficients + " < 1");
+			}
+			this.order = order;
+			this.numCoefficients = numCoefficients;
+		}
+
+		@Override
+		public @NonNull Class<LinearPredictionCepstrum> getFeatureClass() {
+			return LinearPredictionCepstrum.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return this.order == other.order
+						&& this.numCoefficients == other.numCoefficients;
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	/**
+	 * Key für numCoefficients Koeffizienten aus einer LPC-Analyse der
+	 * Ordnung order. Üblich sind etwa 1.5 * order Koeffizienten.
+	 */
+	public static Key getKey(final int order, final int numCoefficients) {
+		return new Key(order, numCoefficients);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
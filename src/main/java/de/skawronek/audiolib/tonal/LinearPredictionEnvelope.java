@@ -0,0 +1,96 @@
+package de.skawronek.audiolib.tonal;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.LinearPredictor;
+
+/**
+ * Spektrale Einhüllende sqrt(e) / |A(w)| des LPC-Modells eines Frames an den
+ * Bins 0..size/2 der FFT des Frames (siehe
+ * {@link LinearPredictor#computeEnvelope}). Sie hat dieselbe Skalierung wie
+ * das Betragsspektrum von
+ * {@link de.skawronek.audiolib.signal.FastFourierTransform} ohne Fenster.
+ */
+public final class LinearPredictionEnvelope extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final float[] envelope;
+
+	public final static class Processor extends
+			FeatureProcessor<LinearPredictionEnvelope> {
+		@Override
+		public @NonNull Class<LinearPredictionEnvelope> getFeatureClass() {
+			return LinearPredictionEnvelope.class;
+		}
+
+		@Override
+		public LinearPredictionEnvelope process(final @NonNull Frame frame,
+				@NonNull final FeatureKey<LinearPredictionEnvelope> featureKey) {
+			final Key key = (Key) featureKey;
+			final LinearPredictor predictor = LinearPredictionCepstrum
+					.computePredictor(frame, key.order);
+			final float[] envelope = new float[frame.getSize() / 2 + 1];
+			predictor.computeEnvelope(frame.getSize(), envelope);
+			return new LinearPredictionEnvelope(envelope);
+		}
+	}
+
+	private LinearPredictionEnvelope(final float @NonNull [] envelope) {
+		this.envelope = envelope;
+	}
+
+	public float @NonNull [] getEnvelope() {
+		return envelope;
+	}
+
+	public final static class Key extends FeatureKey<LinearPredictionEnvelope> {
+		private static final long serialVersionUID = 1L;
+
+		private final int order;
+
+		private Key(final int order) {
+			if (order < 1) {
+				throw new IllegalArgumentException("order " + order + " < 1");
+			}
+			this.order = order;
+		}
+
+		@Override
+		public @NonNull Class<LinearPredictionEnvelope> getFeatureClass() {
+			return LinearPredictionEnvelope.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return this.order == other.order;
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	public static Key getKey(final int order) {
+		return new Key(order);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
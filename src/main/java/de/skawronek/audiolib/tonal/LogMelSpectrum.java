@@ -0,0 +1,134 @@
+package de.skawronek.audiolib.tonal;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.MelFilterbank;
+import de.skawronek.audiolib.signal.FastFourierTransform;
+
+/**
+ * Logarithmierte Energien einer Mel-Filterbank (siehe {@link MelFilterbank}),
+ * berechnet in einem Durchlauf aus dem Spektrum des
+ * {@link FastFourierTransform}-Features. {@link MFCC} baut darauf auf, wenn
+ * LogMelSpectrum registriert ist, sodass MFCC und andere Features mit
+ * derselben Filterbank das Spektrum nur einmal filtern. Sonst berechnet MFCC
+ * die Energien selbst.
+ */
+public final class LogMelSpectrum extends Feature {
+	private static final long serialVersionUID = 1L;
+
+	private final float[] spectrum;
+
+	public final static class Processor extends
+			FeatureProcessor<LogMelSpectrum> {
+		@Override
+		public @NonNull Class<LogMelSpectrum> getFeatureClass() {
+			return LogMelSpectrum.class;
+		}
+
+		@Override
+		public LogMelSpectrum process(@NonNull final Frame frame,
+				@NonNull final FeatureKey<LogMelSpectrum> featureKey) {
+			final FastFourierTransform fft = frame
+					.getFeature(FastFourierTransform.getKey());
+
+			final Key key = (Key) featureKey;
+			final MelFilterbank filterbank = MelFilterbank.Factory
+					.getInstance().get(frame.getSize(), frame.getSampleRate(),
+							key.minFreq, key.maxFreq, key.numFilterbanks);
+			final float[] spectrum = new float[key.numFilterbanks];
+			filterbank.computeLogEnergies(fft.getReal(), fft.getImaginary(),
+					spectrum);
+
+			return new LogMelSpectrum(spectrum);
+		}
+	}
+
+	private LogMelSpectrum(final float @NonNull [] spectrum) {
+		this.spectrum = spectrum;
+	}
+
+	public float @NonNull [] getSpectrum() {
+		return spectrum;
+	}
+
+	public final static class Key extends FeatureKey<LogMelSpectrum> {
+		private static final long serialVersionUID = 1L;
+
+		private final double minFreq;
+		private final double maxFreq;
+		private final int numFilterbanks;
+
+		private Key(double minFreq, double maxFreq, int numFilterbanks) {
+			if (minFreq <= 0) {
+				throw new IllegalArgumentException("minFreq " + minFreq
+						+ " <= 0");
+			} else if (minFreq >= maxFreq) {
+				throw new IllegalArgumentException("minFreq " + minFreq
+						+ " >= maxFreq " + maxFreq);
+			} else if (numFilterbanks < 1) {
+				throw new IllegalArgumentException("numFilterBanks "
+						+ numFilterbanks + " < 1");
+			}
+
+			this.minFreq = minFreq;
+			this.maxFreq = maxFreq;
+			this.numFilterbanks = numFilterbanks;
+		}
+
+		@Override
+		public @NonNull Class<LogMelSpectrum> getFeatureClass() {
+			return LogMelSpectrum.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				//@formatter:off
+				return Double.compare(this.minFreq, other.minFreq) == 0
+						&& Double.compare(this.maxFreq, other.maxFreq) == 0
+						&& this.numFilterbanks == other.numFilterbanks;
+				//@formatter:on
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			//@formatter:off
+			return Double.hashCode(minFreq)
+					^ Double.hashCode(maxFreq)
+					^ numFilterbanks;
+			//@formatter:on
+		}
+	}
+
+	private static final Key DEFAULT_KEY = new Key(
+			de.skawronek.audiolib.math.MFCC.DEFAULT_MIN_FREQ,
+			de.skawronek.audiolib.math.MFCC.DEFAULT_MAX_FREQ,
+			de.skawronek.audiolib.math.MFCC.DEFAULT_NUM_FILTERBANKS);
+
+	public static Key getDefaultKey() {
+		return DEFAULT_KEY;
+	}
+
+	public static Key getKey(double minFreq, double maxFreq,
+			int numFilterbanks) {
+		return new Key(minFreq, maxFreq, numFilterbanks);
+	}
+
+	public static void register() {
+		final Processor processor = new Processor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+}
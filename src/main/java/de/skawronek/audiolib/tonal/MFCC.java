@@ -7,9 +7,12 @@ import de.skawronek.audiolib.FeatureFactory;
 import de.skawronek.audiolib.FeatureKey;
 import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.math.MelFilterbank;
 import de.skawronek.audiolib.signal.FastFourierTransform;
 
 public final class MFCC extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	final float[] coeffs;
 
 	public final static class Processor extends FeatureProcessor<MFCC> {
@@ -21,11 +24,9 @@ public final class MFCC extends Feature {
 		@Override
 		public MFCC process(@NonNull final Frame frame,
 				@NonNull final FeatureKey<MFCC> featureKey) {
-			final FastFourierTransform fft = frame
-					.getFeature(FastFourierTransform.getKey());
-			final float[] magSpec = fft.getMagnitudeSpectrum();
-
 			final Key key = (Key) featureKey;
+			final float[] logBankEnergies = getLogBankEnergies(frame, key);
+
 			//@formatter:off
 			final de.skawronek.audiolib.math.MFCC mfcc = 
 					de.skawronek.audiolib.math.MFCC.Factory.getInstance().get(
@@ -36,12 +37,35 @@ public final class MFCC extends Feature {
 							key.numFilterbanks,
 							key.numCepstralCoefficients);
 			//@formatter:on
-			mfcc.compute(magSpec);
+			mfcc.computeFromLogBankEnergies(logBankEnergies);
 			final float[] coeffs = new float[key.numCepstralCoefficients];
 			mfcc.copyCoefficients(coeffs);
 
 			return new MFCC(coeffs);
 		}
+
+		// Nutzt das LogMelSpectrum-Feature, wenn es vorhanden oder
+		// registriert ist, und berechnet die Energien sonst selbst
+		private static float @NonNull [] getLogBankEnergies(
+				@NonNull final Frame frame, @NonNull final Key key) {
+			final LogMelSpectrum.Key logMelKey = LogMelSpectrum.getKey(
+					key.minFreq, key.maxFreq, key.numFilterbanks);
+			if (frame.containsFeature(logMelKey)
+					|| FeatureFactory.getInstance().isRegistered(
+							LogMelSpectrum.class)) {
+				return frame.getFeature(logMelKey).getSpectrum();
+			}
+
+			final FastFourierTransform fft = frame
+					.getFeature(FastFourierTransform.getKey());
+			final MelFilterbank filterbank = MelFilterbank.Factory
+					.getInstance().get(frame.getSize(), frame.getSampleRate(),
+							key.minFreq, key.maxFreq, key.numFilterbanks);
+			final float[] logBankEnergies = new float[key.numFilterbanks];
+			filterbank.computeLogEnergies(fft.getReal(), fft.getImaginary(),
+					logBankEnergies);
+			return logBankEnergies;
+		}
 	}
 
 	private MFCC(final float @NonNull [] coeffs) {
@@ -53,6 +77,8 @@ public final class MFCC extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<MFCC> {
+		private static final long serialVersionUID = 1L;
+
 		private final double minFreq;
 		private final double maxFreq;
 		private final int numFilterbanks;
@@ -8,9 +8,10 @@ import de.skawronek.audiolib.FeatureKey;
 import de.skawronek.audiolib.FeatureProcessor;
 import de.skawronek.audiolib.Frame;
 import de.skawronek.audiolib.math.LinearPredictor;
-import de.skawronek.audiolib.signal.Autocorrelation;
 
 public final class Tonalness extends Feature {
+	private static final long serialVersionUID = 1L;
+
 	private final float tonalness;
 
 	public final static class Processor extends FeatureProcessor<Tonalness> {
@@ -23,33 +24,18 @@ public final class Tonalness extends Feature {
 		public Tonalness process(final @NonNull Frame frame,
 				@NonNull final FeatureKey<Tonalness> featureKey) {
 			// 1/4 einer 65 Hz Schwingung
-			final int order = (int) (frame.getSampleRate() / 441d);
-			final float[] x = frame.getMonoSamples();
-
-			final LinearPredictor predictor = new LinearPredictor(order);
-			// Vorberechnete Autokorrelation vorhanden?
-			final de.skawronek.audiolib.signal.Autocorrelation.Key acfKey = Autocorrelation
-					.getKey(false);
-			if (frame.containsFeature(acfKey)) {
-				final Autocorrelation acf = frame.getFeature(acfKey);
-				final float[] r = acf.getCoefficients();
-				predictor.computeCoefficients(x, r);
-			} else {
-				// Autkorrelation berechnet LinearPredictor selber
-				predictor.computeCoefficients(x);
-			}
-
-			float predictionError = 0f;
-			for (int i = order, n = frame.getSize(); i < n; i++) {
-				final float diff = x[i] - predictor.predict(x, i);
-				predictionError += (diff * diff);
-			}
-			float energy = 0f;
-			for (int i = order, n = frame.getSize(); i < n; i++) {
-				energy += (x[i] * x[i]);
-			}
-
-			final double tonalness = Math.sqrt(predictionError / energy);
+			final int order = Math.min((int) (frame.getSampleRate() / 441d),
+					frame.getSize() - 1);
+
+			// Die Levinson-Durbin-Rekursion liefert die Energie des Residuums
+			// direkt, das Residuum muss nicht berechnet werden
+			final float[] r = LinearPrediction.getAutocorrelation(frame, order);
+			final LinearPredictor predictor = LinearPredictor.Factory
+					.getInstance().get(order);
+			predictor.computeFromAutocorrelation(r);
+
+			final double tonalness = Math.sqrt(predictor.getPredictionError()
+					/ r[0]);
 			return new Tonalness((float) tonalness);
 		}
 	}
@@ -63,6 +49,8 @@ public final class Tonalness extends Feature {
 	}
 
 	public final static class Key extends FeatureKey<Tonalness> {
+		private static final long serialVersionUID = 1L;
+
 		private Key() {
 		}
 
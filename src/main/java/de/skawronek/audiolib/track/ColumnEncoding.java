@@ -0,0 +1,15 @@
+package de.skawronek.audiolib.track;
+
+public enum ColumnEncoding {
+	/**
+	 * Unkomprimierte 32 Bit Floats. Kann ohne Kopie gelesen werden.
+	 */
+	FLOAT32,
+	/**
+	 * Linear auf 16 Bit quantisiert, pro Block und Spalte zwischen Minimum und
+	 * Maximum der endlichen Werte. Halbiert den Speicherbedarf, der Fehler ist
+	 * höchstens (max - min) / 131068. NaN bleibt erhalten, ±Infinity wird auf
+	 * das Minimum bzw. Maximum begrenzt.
+	 */
+	QUANTIZED_16
+}
@@ -0,0 +1,76 @@
+package de.skawronek.audiolib.track;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Binäres Format für Feature-Spuren. Alle Werte sind Little-Endian.
+ *
+ * <pre>
+ * Header:
+ *   int    MAGIC
+ *   int    VERSION
+ *   double sampleRate
+ *   int    frameSize
+ *   int    hopSize
+ *   int    numColumns
+ *   numColumns mal:
+ *     int    Länge des Namens in Bytes
+ *     byte[] Name (UTF-8), aufgefüllt auf ein Vielfaches von 4
+ *     int    stride
+ *     int    Encoding (Ordinal)
+ *   aufgefüllt auf ein Vielfaches von 8
+ *
+ * Blöcke bis Dateiende:
+ *   int    numRows (> 0)
+ *   long   Anfang des ersten Frames
+ *   int[]  numRows - 1 Differenzen der Frame-Anfänge (Delta-Kodierung)
+ *   pro Spalte numRows * stride Werte, zeilenweise:
+ *     FLOAT32:      float[]
+ *     QUANTIZED_16: float min, float scale, short[] (vorzeichenlos,
+ *                   0xFFFF steht für NaN),
+ *                   aufgefüllt auf ein Vielfaches von 4
+ *   aufgefüllt auf ein Vielfaches von 8
+ * </pre>
+ *
+ * Die Spalten eines Blocks liegen zusammenhängend, sodass FLOAT32-Spalten ohne
+ * Kopie als {@link java.nio.FloatBuffer} gelesen werden können.
+ */
+final class FeatureTrackFormat {
+	// "AFTR"
+	static final int MAGIC = 0x52544641;
+	static final int VERSION = 1;
+
+	// Größter Code für endliche Werte und Code für NaN in QUANTIZED_16
+	static final int QUANTIZED_MAX = 0xFFFE;
+	static final int QUANTIZED_NAN = 0xFFFF;
+
+	private FeatureTrackFormat() {
+	}
+
+	static int padding(final long position, final int alignment) {
+		return (int) ((alignment - position % alignment) % alignment);
+	}
+
+	static long getBlockSize(final int numRows, final int @NonNull [] strides,
+			final ColumnEncoding @NonNull [] encodings) {
+		long size = 4 + 8 + 4L * (numRows - 1);
+		for (int i = 0; i < strides.length; i++) {
+			size += getColumnSize(numRows, strides[i], encodings[i]);
+		}
+		return size + padding(size, 8);
+	}
+
+	static long getColumnSize(final int numRows, final int stride,
+			final ColumnEncoding encoding) {
+		final long numValues = (long) numRows * stride;
+		switch (encoding) {
+		case FLOAT32:
+			return 4 * numValues;
+		case QUANTIZED_16:
+			final long size = 8 + 2 * numValues;
+			return size + padding(size, 4);
+		default:
+			throw new AssertionError("Unexpected encoding " + encoding);
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package de.skawronek.audiolib.track;
+
+import static de.skawronek.audiolib.track.FeatureTrackFormat.padding;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.FrameSpecification;
+
+/**
+ * Liest eine Feature-Spur im {@link FeatureTrackFormat}. Jeder Block wird per
+ * {@link FileChannel#map} eingeblendet, sodass auch Spuren größer als 2 GB
+ * gelesen werden können.
+ * <p>
+ * FLOAT32-Spalten werden ohne Kopie als {@link FloatBuffer} auf den
+ * eingeblendeten Speicher zurückgegeben, sofern der angefragte Bereich
+ * innerhalb eines Blocks liegt. Quantisierte Spalten und blockübergreifende
+ * Bereiche werden in einen neuen Buffer dekodiert.
+ */
+public final class FeatureTrackReader implements Closeable {
+	private final FileChannel channel;
+	private final double sampleRate;
+	private final FrameSpecification specification;
+	private final String[] names;
+	private final int[] strides;
+	private final ColumnEncoding[] encodings;
+
+	// Pro Block: eingeblendeter Speicher, erste Zeile und Offsets der Spalten
+	private final List<MappedByteBuffer> blocks = new ArrayList<>();
+	private final List<int[]> columnOffsets = new ArrayList<>();
+	private final long[] firstRows;
+	private final long numRows;
+
+	private FeatureTrackReader(final @NonNull FileChannel channel)
+			throws IOException {
+		this.channel = channel;
+
+		final ByteBuffer fixed = read(0, 28);
+		if (fixed.getInt() != FeatureTrackFormat.MAGIC) {
+			throw new IOException("Not a feature track");
+		}
+		final int version = fixed.getInt();
+		if (version != FeatureTrackFormat.VERSION) {
+			throw new IOException("Unsupported version " + version);
+		}
+		sampleRate = fixed.getDouble();
+		final int frameSize = fixed.getInt();
+		final int hopSize = fixed.getInt();
+		if (frameSize < 1 || hopSize < 1) {
+			throw new IOException("Invalid frame specification " + frameSize
+					+ ", " + hopSize);
+		}
+		specification = new FrameSpecification(frameSize, hopSize);
+		final int numColumns = fixed.getInt();
+		final long length = channel.size();
+		// Jede Spalte belegt mindestens 12 Bytes im Header
+		if (numColumns < 0 || 28 + 12L * numColumns > length) {
+			throw new IOException("Invalid number of columns " + numColumns);
+		}
+
+		names = new String[numColumns];
+		strides = new int[numColumns];
+		encodings = new ColumnEncoding[numColumns];
+		long position = 28;
+		for (int i = 0; i < numColumns; i++) {
+			final int nameLength = read(position, 4).getInt();
+			position += 4;
+			if (nameLength < 0 || position + nameLength > length) {
+				throw new IOException("Invalid name length " + nameLength);
+			}
+			final ByteBuffer name = read(position, nameLength);
+			names[i] = new String(name.array(), StandardCharsets.UTF_8);
+			position += nameLength + padding(nameLength, 4);
+			final ByteBuffer column = read(position, 8);
+			strides[i] = column.getInt();
+			if (strides[i] < 1) {
+				throw new IOException("Invalid stride " + strides[i]);
+			}
+			encodings[i] = readEncoding(column.getInt());
+			position += 8;
+		}
+		position += padding(position, 8);
+
+		// Blöcke indizieren
+		long rows = 0;
+		final List<Long> firsts = new ArrayList<>();
+		while (position < length) {
+			final int blockRows = read(position, 4).getInt();
+			if (blockRows < 1) {
+				throw new IOException("Invalid number of rows " + blockRows);
+			}
+			final long blockSize = FeatureTrackFormat.getBlockSize(blockRows,
+					strides, encodings);
+			if (blockSize > length - position || blockSize > Integer.MAX_VALUE) {
+				throw new IOException("Block of " + blockSize
+						+ " bytes exceeds file length");
+			}
+			final MappedByteBuffer block = channel.map(
+					FileChannel.MapMode.READ_ONLY, position, blockSize);
+			block.order(ByteOrder.LITTLE_ENDIAN);
+			blocks.add(block);
+
+			final int[] offsets = new int[numColumns];
+			long offset = 4 + 8 + 4L * (blockRows - 1);
+			for (int i = 0; i < numColumns; i++) {
+				offsets[i] = (int) offset;
+				offset += FeatureTrackFormat.getColumnSize(blockRows,
+						strides[i], encodings[i]);
+			}
+			columnOffsets.add(offsets);
+
+			firsts.add(rows);
+			rows += blockRows;
+			position += blockSize;
+		}
+		numRows = rows;
+		firstRows = new long[firsts.size() + 1];
+		for (int i = 0; i < firsts.size(); i++) {
+			firstRows[i] = firsts.get(i);
+		}
+		firstRows[firsts.size()] = numRows;
+	}
+
+	@NonNull
+	private static ColumnEncoding readEncoding(final int ordinal)
+			throws IOException {
+		final ColumnEncoding[] values = ColumnEncoding.values();
+		if (ordinal < 0 || ordinal >= values.length) {
+			throw new IOException("Invalid encoding " + ordinal);
+		}
+		return values[ordinal];
+	}
+
+	@NonNull
+	private ByteBuffer read(final long position, final int size)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(size).order(
+				ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	@NonNull
+	public FrameSpecification getFrameSpecification() {
+		return specification;
+	}
+
+	public int getNumColumns() {
+		return names.length;
+	}
+
+	@NonNull
+	public String getColumnName(final int column) {
+		return names[column];
+	}
+
+	public int getColumnIndex(final @NonNull String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("No column " + name);
+	}
+
+	public int getStride(final int column) {
+		return strides[column];
+	}
+
+	@NonNull
+	public ColumnEncoding getEncoding(final int column) {
+		return encodings[column];
+	}
+
+	public long getNumRows() {
+		return numRows;
+	}
+
+	public int getNumBlocks() {
+		return blocks.size();
+	}
+
+	public long getBegin(final long row) {
+		checkRow(row);
+		final int blockIndex = findBlock(row);
+		final ByteBuffer block = blocks.get(blockIndex);
+		final int rowInBlock = (int) (row - firstRows[blockIndex]);
+		long begin = block.getLong(4);
+		for (int i = 1; i <= rowInBlock; i++) {
+			begin += block.getInt(4 + 8 + 4 * (i - 1));
+		}
+		return begin;
+	}
+
+	/**
+	 * Gibt die Werte der Zeilen [fromRow, toRow) einer Spalte zurück, mit
+	 * stride Werten pro Zeile.
+	 */
+	@NonNull
+	public FloatBuffer getColumn(final int column, final long fromRow,
+			final long toRow) {
+		if (fromRow < 0 || fromRow > toRow || toRow > numRows) {
+			throw new IllegalArgumentException("range " + fromRow + ".."
+					+ toRow + " is out of bounds 0.." + numRows);
+		}
+
+		final int stride = strides[column];
+		if (fromRow == toRow) {
+			return FloatBuffer.allocate(0);
+		}
+
+		final int firstBlock = findBlock(fromRow);
+		final int lastBlock = findBlock(toRow - 1);
+		if (firstBlock == lastBlock
+				&& encodings[column] == ColumnEncoding.FLOAT32) {
+			// Ohne Kopie
+			final int from = (int) (fromRow - firstRows[firstBlock]);
+			final int to = (int) (toRow - firstRows[firstBlock]);
+			final ByteBuffer view = blocks.get(firstBlock).duplicate()
+					.order(ByteOrder.LITTLE_ENDIAN);
+			final int offset = columnOffsets.get(firstBlock)[column];
+			view.position(offset + 4 * from * stride);
+			view.limit(offset + 4 * to * stride);
+			return view.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		}
+
+		final float[] values = new float[(int) ((toRow - fromRow) * stride)];
+		int valuesOffset = 0;
+		for (int b = firstBlock; b <= lastBlock; b++) {
+			final int from = (int) (Math.max(fromRow, firstRows[b]) - firstRows[b]);
+			final int to = (int) (Math.min(toRow, firstRows[b + 1]) - firstRows[b]);
+			decode(b, column, from, to, values, valuesOffset);
+			valuesOffset += (to - from) * stride;
+		}
+		return FloatBuffer.wrap(values);
+	}
+
+	@NonNull
+	public FloatBuffer getColumn(final @NonNull String name,
+			final long fromRow, final long toRow) {
+		return getColumn(getColumnIndex(name), fromRow, toRow);
+	}
+
+	@NonNull
+	public FloatBuffer getColumn(final @NonNull String name) {
+		return getColumn(getColumnIndex(name), 0, numRows);
+	}
+
+	private void decode(final int blockIndex, final int column,
+			final int fromRow, final int toRow, final float @NonNull [] dest,
+			final int destOffset) {
+		final ByteBuffer block = blocks.get(blockIndex);
+		final int offset = columnOffsets.get(blockIndex)[column];
+		final int stride = strides[column];
+		final int numValues = (toRow - fromRow) * stride;
+		switch (encodings[column]) {
+		case FLOAT32:
+			for (int i = 0; i < numValues; i++) {
+				dest[destOffset + i] = block.getFloat(offset + 4
+						* (fromRow * stride + i));
+			}
+			break;
+		case QUANTIZED_16:
+			final float min = block.getFloat(offset);
+			final float scale = block.getFloat(offset + 4);
+			for (int i = 0; i < numValues; i++) {
+				final int q = block.getShort(offset + 8 + 2
+						* (fromRow * stride + i)) & 0xFFFF;
+				if (q == FeatureTrackFormat.QUANTIZED_NAN) {
+					dest[destOffset + i] = Float.NaN;
+				} else {
+					dest[destOffset + i] = min + q * scale;
+				}
+			}
+			break;
+		default:
+			throw new AssertionError("Unexpected encoding "
+					+ encodings[column]);
+		}
+	}
+
+	private int findBlock(final long row) {
+		final int index = Arrays.binarySearch(firstRows, 0, blocks.size(),
+				row);
+		// Bei keinem Treffer liefert binarySearch (-(Einfügeposition) - 1)
+		return (index >= 0 ? index : -index - 2);
+	}
+
+	private void checkRow(final long row) {
+		if (row < 0 || row >= numRows) {
+			throw new IndexOutOfBoundsException("row " + row
+					+ " is out of range 0.." + (numRows - 1));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@NonNull
+	public static FeatureTrackReader open(final @NonNull File file)
+			throws IOException {
+		final FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			return new FeatureTrackReader(channel);
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package de.skawronek.audiolib.track;
+
+import static de.skawronek.audiolib.track.FeatureTrackFormat.padding;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureTable;
+import de.skawronek.audiolib.FeatureTable.IScalarExtractor;
+import de.skawronek.audiolib.FeatureTable.IVectorExtractor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.IFrameListener;
+
+/**
+ * Schreibt eine Feature-Spur im {@link FeatureTrackFormat}. Die Frames werden
+ * in einer {@link FeatureTable} gesammelt und alle blockSize Frames als Block
+ * geschrieben, sodass der Speicherbedarf unabhängig von der Länge der Spur
+ * ist.
+ * <p>
+ * Alle Spalten müssen vor dem ersten Frame hinzugefügt werden.
+ */
+public final class FeatureTrackWriter implements IFrameListener, Closeable {
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private final FileChannel channel;
+	private final double sampleRate;
+	private final FrameSpecification specification;
+	private final int blockSize;
+
+	private final FeatureTable table = new FeatureTable();
+	private final List<String> names = new ArrayList<>();
+	private final List<FeatureKey<?>> keys = new ArrayList<>();
+	private final List<ColumnEncoding> encodings = new ArrayList<>();
+	private final Set<String> nameSet = new HashSet<>();
+
+	private boolean headerWritten = false;
+	private ByteBuffer buffer;
+
+	public FeatureTrackWriter(final @NonNull File file,
+			final double sampleRate,
+			final @NonNull FrameSpecification specification,
+			final int blockSize) throws IOException {
+		if (sampleRate <= 0) {
+			throw new IllegalArgumentException("sampleRate " + sampleRate
+					+ " <= 0");
+		} else if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize " + blockSize
+					+ " < 1");
+		}
+
+		this.channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.sampleRate = sampleRate;
+		this.specification = specification;
+		this.blockSize = blockSize;
+	}
+
+	public FeatureTrackWriter(final @NonNull File file,
+			final double sampleRate,
+			final @NonNull FrameSpecification specification)
+			throws IOException {
+		this(file, sampleRate, specification, DEFAULT_BLOCK_SIZE);
+	}
+
+	public <F extends Feature> void addScalarColumn(final @NonNull String name,
+			final @NonNull FeatureKey<F> key,
+			final @NonNull IScalarExtractor<F> extractor,
+			final @NonNull ColumnEncoding encoding) {
+		checkName(name);
+		table.addScalarColumn(key, extractor);
+		addColumn(name, key, encoding);
+	}
+
+	public <F extends Feature> void addVectorColumn(final @NonNull String name,
+			final @NonNull FeatureKey<F> key, final int stride,
+			final @NonNull IVectorExtractor<F> extractor,
+			final @NonNull ColumnEncoding encoding) {
+		checkName(name);
+		table.addVectorColumn(key, stride, extractor);
+		addColumn(name, key, encoding);
+	}
+
+	private void checkName(final @NonNull String name) {
+		if (headerWritten) {
+			throw new IllegalStateException(
+					"Columns must be added before the first frame");
+		} else if (name.isEmpty()) {
+			throw new IllegalArgumentException("name is empty");
+		} else if (nameSet.contains(name)) {
+			throw new IllegalArgumentException("Column " + name
+					+ " already added");
+		}
+	}
+
+	private void addColumn(final @NonNull String name,
+			final @NonNull FeatureKey<?> key,
+			final @NonNull ColumnEncoding encoding) {
+		names.add(name);
+		nameSet.add(name);
+		keys.add(key);
+		encodings.add(encoding);
+	}
+
+	@Override
+	public void onFrameAvailable(final @NonNull Frame frame) {
+		try {
+			write(frame);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(final @NonNull Frame frame) throws IOException {
+		if (!headerWritten) {
+			writeHeader();
+		}
+
+		table.append(frame);
+		if (table.getNumRows() == blockSize) {
+			flushBlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (!headerWritten) {
+				writeHeader();
+			}
+			if (table.getNumRows() > 0) {
+				flushBlock();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		final int numColumns = names.size();
+		int size = 4 + 4 + 8 + 4 + 4 + 4;
+		final byte[][] nameBytes = new byte[numColumns][];
+		for (int i = 0; i < numColumns; i++) {
+			nameBytes[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+			size += 4 + nameBytes[i].length + padding(nameBytes[i].length, 4)
+					+ 4 + 4;
+		}
+		size += padding(size, 8);
+
+		final ByteBuffer header = ByteBuffer.allocate(size).order(
+				ByteOrder.LITTLE_ENDIAN);
+		header.putInt(FeatureTrackFormat.MAGIC);
+		header.putInt(FeatureTrackFormat.VERSION);
+		header.putDouble(sampleRate);
+		header.putInt(specification.getSize());
+		header.putInt(specification.getHopSize());
+		header.putInt(numColumns);
+		for (int i = 0; i < numColumns; i++) {
+			header.putInt(nameBytes[i].length);
+			header.put(nameBytes[i]);
+			header.position(header.position()
+					+ padding(nameBytes[i].length, 4));
+			header.putInt(table.getColumn(keys.get(i)).getStride());
+			header.putInt(encodings.get(i).ordinal());
+		}
+		header.position(size);
+		header.flip();
+		writeFully(header);
+
+		headerWritten = true;
+	}
+
+	private void flushBlock() throws IOException {
+		final int numRows = table.getNumRows();
+		final int numColumns = names.size();
+		final int[] strides = new int[numColumns];
+		final ColumnEncoding[] encodingArray = new ColumnEncoding[numColumns];
+		for (int i = 0; i < numColumns; i++) {
+			strides[i] = table.getColumn(keys.get(i)).getStride();
+			encodingArray[i] = encodings.get(i);
+		}
+
+		final int size = (int) FeatureTrackFormat.getBlockSize(numRows,
+				strides, encodingArray);
+		if (buffer == null || buffer.capacity() < size) {
+			buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		buffer.clear();
+
+		// Frame-Anfänge delta-kodiert
+		final long[] begins = table.getBegins();
+		buffer.putInt(numRows);
+		buffer.putLong(begins[0]);
+		for (int row = 1; row < numRows; row++) {
+			buffer.putInt((int) (begins[row] - begins[row - 1]));
+		}
+
+		for (int i = 0; i < numColumns; i++) {
+			final float[] data = table.getColumn(keys.get(i)).getData();
+			final int numValues = numRows * strides[i];
+			switch (encodingArray[i]) {
+			case FLOAT32:
+				buffer.asFloatBuffer().put(data, 0, numValues);
+				buffer.position(buffer.position() + 4 * numValues);
+				break;
+			case QUANTIZED_16:
+				putQuantized(data, numValues);
+				break;
+			default:
+				throw new AssertionError("Unexpected encoding "
+						+ encodingArray[i]);
+			}
+		}
+
+		buffer.position(size);
+		buffer.flip();
+		writeFully(buffer);
+
+		table.clear();
+	}
+
+	private void putQuantized(final float @NonNull [] data,
+			final int numValues) {
+		// Nur endliche Werte bestimmen den Wertebereich
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		for (int i = 0; i < numValues; i++) {
+			if (Float.isFinite(data[i])) {
+				min = Math.min(min, data[i]);
+				max = Math.max(max, data[i]);
+			}
+		}
+		if (min > max) {
+			// Keine endlichen Werte
+			min = 0f;
+			max = 0f;
+		}
+		final float scale = (float) (((double) max - min)
+				/ FeatureTrackFormat.QUANTIZED_MAX);
+		final double invScale = (scale > 0 ? 1.0 / scale : 0.0);
+
+		buffer.putFloat(min);
+		buffer.putFloat(scale);
+		for (int i = 0; i < numValues; i++) {
+			final float value = data[i];
+			final int q;
+			if (Float.isNaN(value)) {
+				q = FeatureTrackFormat.QUANTIZED_NAN;
+			} else {
+				final float clamped = Math.max(min, Math.min(max, value));
+				q = (int) Math.min(Math.round((clamped - min) * invScale),
+						FeatureTrackFormat.QUANTIZED_MAX);
+			}
+			buffer.putShort((short) q);
+		}
+		buffer.position(buffer.position() + padding(2 * numValues, 4));
+	}
+
+	private void writeFully(final @NonNull ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			channel.write(src);
+		}
+	}
+}
@@ -6,6 +6,13 @@ import java.util.Map;
 import org.eclipse.jdt.annotation.NonNull;
 
 /**
+ * Cached Instanzen pro Index. Die Instanzen der Unterklassen (FFT,
+ * Autokorrelation, MFCC, ...) halten veränderliche Arbeits-Arrays und sind
+ * daher nicht thread-safe. Deshalb hält jeder Thread seinen eigenen Cache,
+ * sodass Frames parallel in mehreren Threads verarbeitet werden können.
+ * Unveränderliche Bestandteile, die teuer zu erzeugen sind, sollten die
+ * Instanzen über eine {@link SharedFactory} beziehen, damit sie nicht pro
+ * Thread neu berechnet werden.
  *
  * @param <K>
  *            Index Type
@@ -13,9 +20,11 @@ import org.eclipse.jdt.annotation.NonNull;
  *            Instance Type
  */
 public abstract class AbstractFactory<K, V> {
-	private final Map<K, V> instances = new HashMap<>();
+	private final ThreadLocal<Map<K, V>> threadInstances = ThreadLocal
+			.withInitial(HashMap::new);
 
 	protected @NonNull V get(final @NonNull K index) {
+		final Map<K, V> instances = threadInstances.get();
 		final boolean alreadyExists = instances.containsKey(index);
 		if (!alreadyExists) {
 			final V instance = create(index);
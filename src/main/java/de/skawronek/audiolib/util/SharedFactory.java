@@ -0,0 +1,32 @@
+package de.skawronek.audiolib.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Cached Instanzen pro Index, die von allen Threads gemeinsam genutzt werden.
+ * Nur für unveränderliche, thread-safe Instanzen (FFT-Pläne,
+ * Mel-Filterbänke, Constant-Q-Kernel, ...), deren Erzeugung teuer ist und
+ * deren Speicherbedarf nicht mit der Anzahl der Threads wachsen soll.
+ * Instanzen mit veränderlichen Arbeits-Arrays gehören in eine
+ * {@link AbstractFactory}.
+ * <p>
+ * {@link #create(Object)} darf {@link #get(Object)} derselben Factory nicht
+ * aufrufen.
+ *
+ * @param <K>
+ *            Index Type
+ * @param <V>
+ *            Instance Type
+ */
+public abstract class SharedFactory<K, V> {
+	private final Map<K, V> instances = new ConcurrentHashMap<>();
+
+	protected @NonNull V get(final @NonNull K index) {
+		return instances.computeIfAbsent(index, this::create);
+	}
+
+	protected abstract @NonNull V create(final @NonNull K index);
+}
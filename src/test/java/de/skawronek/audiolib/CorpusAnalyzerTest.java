@@ -0,0 +1,185 @@
+package de.skawronek.audiolib;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+import de.skawronek.audiolib.signal.FastFourierTransform;
+
+public final class CorpusAnalyzerTest {
+	private static final File RESOURCES_DIR = new File("src/test/resources");
+	private static final File MONO_FILE = new File(RESOURCES_DIR,
+			"wave/Sin440Hz_Mono.wav");
+	private static final File STEREO_FILE = new File(RESOURCES_DIR,
+			"wave/Sin440Hz_Stereo.wav");
+	private static final File NON_WAVE_FILE = new File(RESOURCES_DIR,
+			"wave/Non_Wave.txt");
+
+	private static class CountingSink implements CorpusAnalyzer.ISink {
+		final Map<File, AtomicInteger> numFrames = new ConcurrentHashMap<>();
+		final Set<File> completed = ConcurrentHashMap.newKeySet();
+		final Set<File> failed = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public void onFileStarted(final @NonNull File file,
+				final @NonNull AudioSource source) {
+			numFrames.put(file, new AtomicInteger(0));
+		}
+
+		@Override
+		public void onFrame(final @NonNull File file,
+				final @NonNull FrameSpecification spec,
+				final @NonNull Frame frame) {
+			assertTrue(frame.containsFeature(FastFourierTransform.getKey()));
+			numFrames.get(file).incrementAndGet();
+		}
+
+		@Override
+		public void onFileCompleted(final @NonNull File file) {
+			completed.add(file);
+		}
+
+		@Override
+		public void onFileFailed(final @NonNull File file,
+				final @NonNull Exception e) {
+			failed.add(file);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksParallelism() {
+		new CorpusAnalyzer(0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksMaxFilesInFlight() {
+		new CorpusAnalyzer(4, 2);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAnalyzeChecksForFeatures() throws IOException,
+			InterruptedException {
+		new CorpusAnalyzer(1, 1).analyze(Arrays.asList(MONO_FILE),
+				new CountingSink());
+	}
+
+	@Test
+	public void testAllFilesAnalyzed() throws IOException,
+			InterruptedException {
+		FastFourierTransform.register();
+		final CorpusAnalyzer analyzer = createAnalyzer();
+		final CountingSink sink = new CountingSink();
+		final List<File> files = Arrays.asList(MONO_FILE, STEREO_FILE,
+				NON_WAVE_FILE);
+
+		final int numAnalyzed = analyzer.analyze(files, sink);
+
+		assertEquals(2, numAnalyzed);
+		assertTrue(sink.completed.contains(MONO_FILE));
+		assertTrue(sink.completed.contains(STEREO_FILE));
+		assertTrue(sink.failed.contains(NON_WAVE_FILE));
+		// Die WAVE-Dateien haben 44100 Samples:
+		// (44100 - 1024) / 512 + 1 = 85 Frames
+		assertEquals(85, sink.numFrames.get(MONO_FILE).get());
+		assertEquals(85, sink.numFrames.get(STEREO_FILE).get());
+	}
+
+	@Test
+	public void testJournalSkipsCompletedFiles() throws IOException,
+			InterruptedException {
+		FastFourierTransform.register();
+		final File journal = File.createTempFile("corpus", ".journal");
+		journal.deleteOnExit();
+		final List<File> files = Arrays.asList(MONO_FILE, STEREO_FILE);
+
+		final CorpusAnalyzer first = createAnalyzer();
+		first.setJournal(journal);
+		assertEquals(1, first.analyze(Arrays.asList(MONO_FILE),
+				new CountingSink()));
+
+		// Zweiter Lauf setzt fort und verarbeitet nur noch die Stereo-Datei
+		final CorpusAnalyzer second = createAnalyzer();
+		second.setJournal(journal);
+		final CountingSink sink = new CountingSink();
+		assertEquals(1, second.analyze(files, sink));
+		assertFalse(sink.completed.contains(MONO_FILE));
+		assertTrue(sink.completed.contains(STEREO_FILE));
+	}
+
+	@Test
+	public void testSinkExceptionIsThrownAfterAllFiles() throws IOException,
+			InterruptedException {
+		FastFourierTransform.register();
+		final CorpusAnalyzer analyzer = createAnalyzer();
+		final IllegalStateException failure = new IllegalStateException(
+				"sink failed");
+		final CountingSink sink = new CountingSink() {
+			@Override
+			public void onFileCompleted(final @NonNull File file) {
+				super.onFileCompleted(file);
+				if (file.equals(MONO_FILE)) {
+					throw failure;
+				}
+			}
+		};
+
+		try {
+			analyzer.analyze(Arrays.asList(MONO_FILE, STEREO_FILE), sink);
+			fail("Expected exception from sink");
+		} catch (final IllegalStateException e) {
+			assertSame(failure, e);
+		}
+		// Die übrigen Dateien werden trotzdem verarbeitet
+		assertTrue(sink.completed.contains(STEREO_FILE));
+	}
+
+	@Test
+	public void testPoolIsReusedAcrossRuns() throws IOException,
+			InterruptedException {
+		FastFourierTransform.register();
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		final CountingSink sink = new CountingSink() {
+			@Override
+			public void onFileStarted(final @NonNull File file,
+					final @NonNull AudioSource source) {
+				super.onFileStarted(file, source);
+				threads.add(Thread.currentThread());
+			}
+		};
+		try (final CorpusAnalyzer analyzer = new CorpusAnalyzer(1, 1)) {
+			analyzer.addFeature(new FrameSpecification(1024, 512),
+					FastFourierTransform.getKey());
+			assertEquals(1, analyzer.analyze(Arrays.asList(MONO_FILE), sink));
+			assertEquals(1, analyzer.analyze(Arrays.asList(STEREO_FILE),
+					sink));
+		}
+		// Beide Läufe im selben Worker-Thread
+		assertEquals(1, threads.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAnalyzeAfterClose() throws IOException,
+			InterruptedException {
+		FastFourierTransform.register();
+		final CorpusAnalyzer analyzer = createAnalyzer();
+		analyzer.close();
+		analyzer.analyze(Arrays.asList(MONO_FILE), new CountingSink());
+	}
+
+	private static @NonNull CorpusAnalyzer createAnalyzer() {
+		final CorpusAnalyzer analyzer = new CorpusAnalyzer(2, 2);
+		analyzer.addFeature(new FrameSpecification(1024, 512),
+				FastFourierTransform.getKey());
+		return analyzer;
+	}
+}
@@ -0,0 +1,358 @@
+package de.skawronek.audiolib;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skawronek.audiolib.intensity.Intensity;
+import de.skawronek.audiolib.signal.Statistics;
+
+public final class FeatureCacheTest {
+	private static final float COMPARISION_DELTA = 0.00001f;
+	private static final int FRAME_SIZE = 64;
+	private static final int NUM_FRAMES = 20;
+	private static final FrameSpecification SPEC = new FrameSpecification(
+			FRAME_SIZE, FRAME_SIZE / 2);
+
+	private final Random random = new Random(12345);
+	private File directory;
+	private File audioFile;
+
+	// Zählt die Aufrufe des eigentlichen Prozessors
+	private static final class CountingProcessor extends
+			FeatureProcessor<Intensity> {
+		private final FeatureProcessor<Intensity> delegate = new Intensity.Processor();
+		int numCalls = 0;
+
+		@Override
+		public @NonNull Class<Intensity> getFeatureClass() {
+			return Intensity.class;
+		}
+
+		@Override
+		public Intensity process(final @NonNull Frame frame,
+				final @NonNull FeatureKey<Intensity> key) {
+			numCalls++;
+			return delegate.process(frame, key);
+		}
+	}
+
+	private CountingProcessor processor;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("cache").toFile();
+		audioFile = new File(directory, "audio.bin");
+		writeContent(audioFile, 1);
+		processor = new CountingProcessor();
+		FeatureFactory.getInstance().registerProcessor(processor);
+	}
+
+	@After
+	public void tearDown() {
+		Intensity.register();
+		for (final File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testSecondRunIsServedFromCache() throws IOException {
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+
+		final List<Double> first = analyze(cache, audioFile,
+				Intensity.getDefaultKey(), frames);
+		assertEquals(NUM_FRAMES, processor.numCalls);
+		assertEquals(1, cache.getNumEntries());
+
+		processor.numCalls = 0;
+		final List<Double> second = analyze(cache, audioFile,
+				Intensity.getDefaultKey(), copy(frames));
+		assertEquals(0, processor.numCalls);
+		for (int i = 0; i < NUM_FRAMES; i++) {
+			assertEquals(first.get(i), second.get(i), COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testChangedKeyIsNotServedFromCache() throws IOException {
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+		analyze(cache, audioFile, Intensity.getDefaultKey(), frames);
+
+		processor.numCalls = 0;
+		analyze(cache, audioFile,
+				Intensity.getKey(Intensity.Method.PEAK_ENVELOPE_MAX),
+				copy(frames));
+		assertEquals(NUM_FRAMES, processor.numCalls);
+		assertEquals(2, cache.getNumEntries());
+	}
+
+	@Test
+	public void testChangedContentIsNotServedFromCache() throws IOException {
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+		analyze(cache, audioFile, Intensity.getDefaultKey(), frames);
+
+		writeContent(audioFile, 2);
+		processor.numCalls = 0;
+		analyze(cache, audioFile, Intensity.getDefaultKey(), copy(frames));
+		assertEquals(NUM_FRAMES, processor.numCalls);
+	}
+
+	@Test
+	public void testChangedVersionIsNotServedFromCache() throws IOException {
+		final List<Frame> frames = createFrames();
+		analyze(new FeatureCache(directory, 1 << 20, "1"), audioFile,
+				Intensity.getDefaultKey(), frames);
+
+		processor.numCalls = 0;
+		analyze(new FeatureCache(directory, 1 << 20, "2"), audioFile,
+				Intensity.getDefaultKey(), copy(frames));
+		assertEquals(NUM_FRAMES, processor.numCalls);
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		final FeatureCache unbounded = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+		analyze(unbounded, audioFile, Intensity.getDefaultKey(), frames);
+		final long entrySize = unbounded.getSize();
+		unbounded.clear();
+		assertEquals(0, unbounded.getNumEntries());
+
+		// Platz für genau einen Eintrag
+		final FeatureCache cache = new FeatureCache(directory, entrySize);
+		analyze(cache, audioFile, Intensity.getDefaultKey(), copy(frames));
+		analyze(cache, audioFile,
+				Intensity.getKey(Intensity.Method.PEAK_ENVELOPE_MAX),
+				copy(frames));
+		assertEquals(1, cache.getNumEntries());
+		assertTrue(cache.getSize() <= entrySize);
+	}
+
+	@Test
+	public void testFeatureWithTransientStatistics() throws IOException {
+		Statistics.register();
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+		final List<Float> first = analyzeMedians(cache, frames);
+		assertEquals(1, cache.getNumEntries());
+
+		final List<Float> second = analyzeMedians(cache, copy(frames));
+		for (int i = 0; i < NUM_FRAMES; i++) {
+			assertEquals(first.get(i), second.get(i), COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testFailedEntryDoesNotAffectOtherEntries() throws IOException {
+		FeatureFactory.getInstance().registerProcessor(
+				new NotSerializableProcessor());
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		try {
+			try (final FeatureCache.Session session = cache.openSession(
+					audioFile, SPEC)) {
+				session.addKey(NotSerializableFeature.KEY);
+				session.addKey(Intensity.getDefaultKey());
+				final IFrameListener listener = session.wrap(frame -> {
+					frame.getFeature(NotSerializableFeature.KEY);
+					frame.getFeature(Intensity.getDefaultKey());
+				});
+				for (final Frame frame : createFrames()) {
+					listener.onFrameAvailable(frame);
+				}
+			}
+			fail("Expected NotSerializableException");
+		} catch (final NotSerializableException e) {
+			// Erwartet
+		}
+
+		// Nur der Eintrag von Intensity, keine temporären Dateien
+		assertEquals(1, cache.getNumEntries());
+		assertEquals(2, directory.listFiles().length);
+		processor.numCalls = 0;
+		analyze(cache, audioFile, Intensity.getDefaultKey(), createFrames());
+		assertEquals(0, processor.numCalls);
+	}
+
+	@Test
+	public void testEntryWithForeignClassIsDiscarded() throws IOException {
+		final FeatureCache cache = new FeatureCache(directory, 1 << 20);
+		final List<Frame> frames = createFrames();
+		analyze(cache, audioFile, Intensity.getDefaultKey(), frames);
+		final File entry = directory.listFiles((dir, name) -> name
+				.endsWith(".features"))[0];
+
+		// Eintrag mit einer Klasse außerhalb der Bibliothek
+		try (final ObjectOutputStream out = new ObjectOutputStream(
+				new FileOutputStream(entry))) {
+			out.writeInt(2);
+			out.writeBoolean(true);
+			out.writeLong(0);
+			out.writeObject(new ArrayList<Object>());
+			out.writeBoolean(false);
+		}
+
+		processor.numCalls = 0;
+		analyze(cache, audioFile, Intensity.getDefaultKey(), copy(frames));
+		assertEquals(NUM_FRAMES, processor.numCalls);
+	}
+
+	@Test
+	public void testEntryInputStreamRejectsForeignClasses()
+			throws IOException, ClassNotFoundException {
+		final Object[] allowed = { "a", new float[2], new double[2][2],
+				Intensity.Method.RMS, Integer.valueOf(1),
+				new Intensity.Method[0] };
+		for (final Object object : allowed) {
+			assertNotNull(readBack(object));
+		}
+
+		final Object[] rejected = { new ArrayList<Object>(),
+				new java.util.Date(), new Object[0] };
+		for (final Object object : rejected) {
+			try {
+				readBack(object);
+				fail("Expected InvalidClassException for "
+						+ object.getClass().getName());
+			} catch (final InvalidClassException e) {
+				// Erwartet
+			}
+		}
+	}
+
+	private static Object readBack(final @NonNull Object object)
+			throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (final ObjectInputStream in = new FeatureCache.EntryInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+
+	// Feature mit einem nicht serialisierbaren Feld
+	private static final class NotSerializableFeature extends Feature {
+		private static final long serialVersionUID = 1L;
+		private static final NotSerializableKey KEY = new NotSerializableKey();
+
+		@SuppressWarnings("unused")
+		private final Object value = new Object();
+	}
+
+	private static final class NotSerializableKey extends
+			FeatureKey<NotSerializableFeature> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public @NonNull Class<NotSerializableFeature> getFeatureClass() {
+			return NotSerializableFeature.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof NotSerializableKey;
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	private static final class NotSerializableProcessor extends
+			FeatureProcessor<NotSerializableFeature> {
+		@Override
+		public @NonNull Class<NotSerializableFeature> getFeatureClass() {
+			return NotSerializableFeature.class;
+		}
+
+		@Override
+		public NotSerializableFeature process(final @NonNull Frame frame,
+				final @NonNull FeatureKey<NotSerializableFeature> key) {
+			return new NotSerializableFeature();
+		}
+	}
+
+	private List<Float> analyzeMedians(final @NonNull FeatureCache cache,
+			final @NonNull List<Frame> frames) throws IOException {
+		final List<Float> medians = new ArrayList<>();
+		try (final FeatureCache.Session session = cache.openSession(
+				audioFile, SPEC)) {
+			session.addKey(Statistics.getKey());
+			final IFrameListener listener = session.wrap(frame -> medians
+					.add(frame.getFeature(Statistics.getKey()).getMedian()));
+			for (final Frame frame : frames) {
+				listener.onFrameAvailable(frame);
+			}
+		}
+		return medians;
+	}
+
+	private List<Double> analyze(final @NonNull FeatureCache cache,
+			final @NonNull File file, final @NonNull FeatureKey<Intensity> key,
+			final @NonNull List<Frame> frames) throws IOException {
+		final List<Double> intensities = new ArrayList<>();
+		try (final FeatureCache.Session session = cache.openSession(file, SPEC)) {
+			session.addKey(key);
+			final IFrameListener listener = session.wrap(frame -> intensities
+					.add(frame.getFeature(key).getIntensity()));
+			for (final Frame frame : frames) {
+				listener.onFrameAvailable(frame);
+			}
+		}
+		return intensities;
+	}
+
+	private List<Frame> createFrames() {
+		final List<Frame> frames = new ArrayList<>();
+		for (int i = 0; i < NUM_FRAMES; i++) {
+			final float[] samples = TestUtil.generateRandomWindow(random,
+					FRAME_SIZE);
+			frames.add(Frame.createMonoFrame(i * SPEC.getHopSize(), 44100,
+					samples));
+		}
+		return frames;
+	}
+
+	// Neue Frames ohne bereits berechnete Features
+	private static List<Frame> copy(final @NonNull List<Frame> frames) {
+		final List<Frame> copies = new ArrayList<>();
+		for (final Frame frame : frames) {
+			copies.add(Frame.createMonoFrame(frame.getBegin(),
+					frame.getSampleRate(), frame.getMonoSamples()));
+		}
+		return copies;
+	}
+
+	private static void writeContent(final @NonNull File file, final int seed)
+			throws IOException {
+		final byte[] content = new byte[1024];
+		new Random(seed).nextBytes(content);
+		try (final FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+	}
+}
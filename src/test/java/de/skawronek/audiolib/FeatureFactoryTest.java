@@ -27,9 +27,12 @@ public final class FeatureFactoryTest {
 	public void testRemoveProcessor() {
 		final FooProcessor processor = new FooProcessor();
 		FeatureFactory.getInstance().registerProcessor(processor);
+		assertTrue(FeatureFactory.getInstance().isRegistered(FooFeature.class));
 		final Frame frame = createFrame();
 		final FooKey key = new FooKey();
 		FeatureFactory.getInstance().removeProcessor(FooFeature.class);
+		assertFalse(FeatureFactory.getInstance()
+				.isRegistered(FooFeature.class));
 		// Processor ist nicht mehr registriert
 		try {
 			FeatureFactory.getInstance().createFeature(frame, key);
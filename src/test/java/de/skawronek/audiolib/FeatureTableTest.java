@@ -0,0 +1,110 @@
+package de.skawronek.audiolib;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.intensity.Intensity;
+import de.skawronek.audiolib.signal.Autocorrelation;
+
+public final class FeatureTableTest {
+	private static final float COMPARISION_DELTA = 0.00001f;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddVectorColumnChecksStride() {
+		final FeatureTable table = new FeatureTable();
+		table.addVectorColumn(Autocorrelation.getDefaultKey(), 0,
+				acf -> acf.getCoefficients());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddColumnRejectsDuplicateKey() {
+		final FeatureTable table = new FeatureTable();
+		table.addScalarColumn(Intensity.getDefaultKey(),
+				i -> (float) i.getIntensity());
+		table.addScalarColumn(Intensity.getDefaultKey(),
+				i -> (float) i.getIntensity());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddColumnFailsAfterFirstRow() {
+		Intensity.register();
+		final FeatureTable table = new FeatureTable();
+		table.addScalarColumn(Intensity.getDefaultKey(),
+				i -> (float) i.getIntensity());
+		table.append(createFrame(0, 16));
+		table.addVectorColumn(Autocorrelation.getDefaultKey(), 16,
+				acf -> acf.getCoefficients());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAppendChecksVectorLength() {
+		Autocorrelation.register();
+		final FeatureTable table = new FeatureTable();
+		table.addVectorColumn(Autocorrelation.getDefaultKey(), 8,
+				acf -> acf.getCoefficients());
+		table.append(createFrame(0, 16));
+	}
+
+	@Test
+	public void testColumnsContainFeatureValues() {
+		Intensity.register();
+		Autocorrelation.register();
+		final int frameSize = 16;
+		final FeatureTable table = new FeatureTable();
+		table.addScalarColumn(Intensity.getDefaultKey(),
+				i -> (float) i.getIntensity());
+		table.addVectorColumn(Autocorrelation.getDefaultKey(), frameSize,
+				acf -> acf.getCoefficients());
+
+		// Mehr Zeilen als die Anfangskapazität, damit die Spalten wachsen
+		final int numFrames = 3000;
+		final Frame[] frames = new Frame[numFrames];
+		for (int i = 0; i < numFrames; i++) {
+			frames[i] = createFrame(i * 8, frameSize);
+			table.onFrameAvailable(frames[i]);
+		}
+
+		assertEquals(numFrames, table.getNumRows());
+		final FeatureTable.Column intensities = table.getColumn(Intensity
+				.getDefaultKey());
+		final FeatureTable.Column acfs = table.getColumn(Autocorrelation
+				.getDefaultKey());
+		assertEquals(1, intensities.getStride());
+		assertEquals(frameSize, acfs.getStride());
+		final float[] row = new float[frameSize];
+		for (int i = 0; i < numFrames; i++) {
+			assertEquals(frames[i].getBegin(), table.getBegins()[i]);
+			final double expectedIntensity = frames[i].getFeature(
+					Intensity.getDefaultKey()).getIntensity();
+			assertEquals(expectedIntensity, intensities.get(i),
+					COMPARISION_DELTA);
+			final float[] expectedAcf = frames[i].getFeature(
+					Autocorrelation.getDefaultKey()).getCoefficients();
+			acfs.copyRow(i, row);
+			assertArrayEquals(expectedAcf, row, COMPARISION_DELTA);
+			assertEquals(expectedAcf[3], acfs.getData()[i * frameSize + 3],
+					COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testClear() {
+		Intensity.register();
+		final FeatureTable table = new FeatureTable();
+		table.addScalarColumn(Intensity.getDefaultKey(),
+				i -> (float) i.getIntensity());
+		table.append(createFrame(0, 16));
+		table.clear();
+		assertEquals(0, table.getNumRows());
+	}
+
+	private Frame createFrame(final long begin, final int size) {
+		final float[] samples = TestUtil.generateRandomWindow(random, size);
+		return Frame.createMonoFrame(begin, 44100, samples);
+	}
+}
@@ -97,6 +97,39 @@ public final class FrameManagerTest {
 		assertEquals(3, counter.get());
 	}
 
+	@Test
+	public void testSampleListenerMono() {
+		final FrameManager fm = FrameManager.forMonoAudioSource(44100, 10);
+		final List<Long> indices = new ArrayList<>();
+		final List<Float> samples = new ArrayList<>();
+		fm.addSampleListener((index, sample) -> {
+			indices.add(index);
+			samples.add(sample);
+		});
+		fm.putMonoSample(0.25f);
+		fm.putMonoSample(0.5f);
+
+		assertEquals(10L, (long) indices.get(0));
+		assertEquals(11L, (long) indices.get(1));
+		assertEquals(0.25f, samples.get(0), COMPARISION_DELTA);
+		assertEquals(0.5f, samples.get(1), COMPARISION_DELTA);
+	}
+
+	@Test
+	public void testSampleListenerStereo() {
+		final FrameManager fm = FrameManager.forStereoAudioSource(44100);
+		final List<Float> samples = new ArrayList<>();
+		final ISampleListener listener = (index, sample) -> samples
+				.add(sample);
+		fm.addSampleListener(listener);
+		fm.putStereoSample(0.25f, 0.75f);
+		fm.removeSampleListener(listener);
+		fm.putStereoSample(1f, 1f);
+
+		assertEquals(1, samples.size());
+		assertEquals(0.5f, samples.get(0), COMPARISION_DELTA);
+	}
+
 	@Test
 	public void testAllFrameAreCreatedMono() {
 		testAllFrameAreCreated(FrameManager.forMonoAudioSource(44100));
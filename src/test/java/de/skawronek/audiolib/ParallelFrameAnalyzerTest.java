@@ -0,0 +1,129 @@
+package de.skawronek.audiolib;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+import de.skawronek.audiolib.PcmCodec.UnsuportedFormatException;
+
+public final class ParallelFrameAnalyzerTest {
+	private static final float COMPARISION_DELTA = 0.000001f;
+
+	private static final File RESOURCES_DIR = new File("src/test/resources");
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksNumChunks() {
+		new ParallelFrameAnalyzer(0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksParallelism() {
+		new ParallelFrameAnalyzer(1, 0);
+	}
+
+	@Test(expected = UnsuportedFormatException.class)
+	public void testAnalyzeRejectsTextFile() throws Exception {
+		final ParallelFrameAnalyzer analyzer = new ParallelFrameAnalyzer(4);
+		analyzer.analyze(new File(RESOURCES_DIR, "wave/Non_Wave.txt"));
+	}
+
+	@Test
+	public void testSameFramesAsSequentialMono() throws Exception {
+		testSameFramesAsSequential(new File(RESOURCES_DIR,
+				"wave/Sin440Hz_Mono.wav"));
+	}
+
+	@Test
+	public void testSameFramesAsSequentialStereo() throws Exception {
+		testSameFramesAsSequential(new File(RESOURCES_DIR,
+				"wave/Sin440Hz_Stereo.wav"));
+	}
+
+	@Test
+	public void testErrorInFeatureIsRethrown() throws Exception {
+		// Der Prozessor schlägt erst in einem späteren Abschnitt fehl
+		FeatureFactory.getInstance().registerProcessor(
+				new FeatureProcessor<FooFeature>() {
+					@Override
+					public @NonNull Class<FooFeature> getFeatureClass() {
+						return FooFeature.class;
+					}
+
+					@Override
+					public FooFeature process(final @NonNull Frame frame,
+							final @NonNull FeatureKey<FooFeature> key) {
+						if (frame.getBegin() >= 10000) {
+							throw new AssertionError("Expected");
+						}
+						return new FooFeature();
+					}
+				});
+		final List<Frame> frames = new ArrayList<>();
+		final ParallelFrameAnalyzer analyzer = new ParallelFrameAnalyzer(7, 3);
+		analyzer.addListener(frames::add, new FrameSpecification(1024, 512),
+				new FooFeature.FooKey());
+		try {
+			analyzer.analyze(new File(RESOURCES_DIR, "wave/Sin440Hz_Mono.wav"));
+			fail("Expected AssertionError");
+		} catch (final AssertionError e) {
+			assertEquals("Expected", e.getMessage());
+		} finally {
+			FeatureFactory.getInstance().registerProcessor(
+					new FooFeature.FooProcessor());
+		}
+		for (final Frame frame : frames) {
+			assertTrue(frame.getBegin() < 10000);
+		}
+	}
+
+	private void testSameFramesAsSequential(final @NonNull File file)
+			throws Exception {
+		final FrameSpecification large = new FrameSpecification(1024, 300);
+		final FrameSpecification small = new FrameSpecification(100, 70);
+
+		final List<Frame> expectedLarge = new ArrayList<>();
+		final List<Frame> expectedSmall = new ArrayList<>();
+		final WaveAudioSource source = WaveAudioSource.fromFile(file);
+		source.addListener(expectedLarge::add, large);
+		source.addListener(expectedSmall::add, small);
+		try {
+			source.start();
+			while (source.isStarted()) {
+				source.process();
+			}
+		} finally {
+			source.stop();
+		}
+
+		// Ungerade Anzahl Abschnitte, damit die Grenzen nicht auf den
+		// Hop-Größen liegen
+		final List<Frame> actualLarge = new ArrayList<>();
+		final List<Frame> actualSmall = new ArrayList<>();
+		final ParallelFrameAnalyzer analyzer = new ParallelFrameAnalyzer(7, 3);
+		analyzer.addListener(actualLarge::add, large);
+		analyzer.addListener(actualSmall::add, small);
+		analyzer.analyze(file);
+
+		assertSameFrames(expectedLarge, actualLarge);
+		assertSameFrames(expectedSmall, actualSmall);
+	}
+
+	private static void assertSameFrames(final @NonNull List<Frame> expected,
+			final @NonNull List<Frame> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final Frame e = expected.get(i);
+			final Frame a = actual.get(i);
+			assertEquals(e.getBegin(), a.getBegin());
+			assertEquals(e.getSize(), a.getSize());
+			assertEquals(e.isStereo(), a.isStereo());
+			assertArrayEquals(e.getMonoSamples(), a.getMonoSamples(),
+					COMPARISION_DELTA);
+		}
+	}
+}
@@ -43,7 +43,7 @@ public final class TestUtil {
 		final float w[] = new float[size];
 		for (int i = 0; i < size; i++) {
 			w[i] = (max - min) * random.nextFloat() + min;
-			assert w[i] >= -1 && w[i] <= 1;
+			assert w[i] >= min && w[i] <= max;
 		}
 		return w;
 	}
@@ -0,0 +1,154 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+
+public final class ComplexSparseMatrixTest {
+	private static final float COMPARISION_DELTA = 0.0001f;
+
+	private final Random random = new Random(12345);
+
+	@Test
+	public void testMultiplyMatchesDotProduct() {
+		final int numRows = 20;
+		final int numColumns = 256;
+		final float threshold = 0.5f;
+		final ComplexSparseVector[] rows = new ComplexSparseVector[numRows];
+		for (int k = 0; k < numRows; k++) {
+			rows[k] = ComplexSparseVector.fromArray(
+					TestUtil.generateRandomWindow(random, numColumns),
+					TestUtil.generateRandomWindow(random, numColumns),
+					threshold);
+		}
+		final float scale = 0.25f;
+		final ComplexSparseMatrix matrix = ComplexSparseMatrix.fromRows(rows,
+				scale);
+		assertEquals(numRows, matrix.getNumRows());
+		assertEquals(numColumns, matrix.getNumColumns());
+		assertTrue(matrix.getNumNonZeros() < numRows * numColumns);
+
+		final float[] vecRe = TestUtil.generateRandomWindow(random, numColumns);
+		final float[] vecIm = TestUtil.generateRandomWindow(random, numColumns);
+		final float[] outRe = new float[numRows];
+		final float[] outIm = new float[numRows];
+		matrix.multiply(vecRe, vecIm, outRe, outIm);
+		for (int k = 0; k < numRows; k++) {
+			final float[] expected = rows[k].dotProduct(vecRe, vecIm);
+			assertEquals(scale * expected[0], outRe[k], COMPARISION_DELTA);
+			assertEquals(scale * expected[1], outIm[k], COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testMultiplyBatchMatchesMultiply() {
+		final ComplexSparseMatrix matrix = createRandomMatrix(30, 128);
+		// Mehr als ein Block und ein unvollständiger Block
+		final int numVectors = 2 * ComplexSparseMatrix.BATCH_BLOCK_SIZE + 7;
+		final int numColumns = matrix.getNumColumns();
+		final int numRows = matrix.getNumRows();
+		final float[] bRe = TestUtil.generateRandomWindow(random, numColumns
+				* numVectors);
+		final float[] bIm = TestUtil.generateRandomWindow(random, numColumns
+				* numVectors);
+		final float[] outRe = new float[numRows * numVectors];
+		final float[] outIm = new float[numRows * numVectors];
+		matrix.multiplyBatch(bRe, bIm, numVectors, outRe, outIm);
+
+		final float[] vecRe = new float[numColumns];
+		final float[] vecIm = new float[numColumns];
+		final float[] expectedRe = new float[numRows];
+		final float[] expectedIm = new float[numRows];
+		for (int b = 0; b < numVectors; b++) {
+			for (int j = 0; j < numColumns; j++) {
+				vecRe[j] = bRe[j * numVectors + b];
+				vecIm[j] = bIm[j * numVectors + b];
+			}
+			matrix.multiply(vecRe, vecIm, expectedRe, expectedIm);
+			for (int k = 0; k < numRows; k++) {
+				assertEquals(expectedRe[k], outRe[k * numVectors + b],
+						COMPARISION_DELTA);
+				assertEquals(expectedIm[k], outIm[k * numVectors + b],
+						COMPARISION_DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testMultiplyBatchRangeOnlyWritesRange() {
+		final ComplexSparseMatrix matrix = createRandomMatrix(10, 64);
+		final int numVectors = 20;
+		final int numColumns = matrix.getNumColumns();
+		final int numRows = matrix.getNumRows();
+		final float[] bRe = TestUtil.generateRandomWindow(random, numColumns
+				* numVectors);
+		final float[] bIm = TestUtil.generateRandomWindow(random, numColumns
+				* numVectors);
+		final float[] expectedRe = new float[numRows * numVectors];
+		final float[] expectedIm = new float[numRows * numVectors];
+		matrix.multiplyBatch(bRe, bIm, numVectors, expectedRe, expectedIm);
+
+		final float[] outRe = new float[numRows * numVectors];
+		final float[] outIm = new float[numRows * numVectors];
+		matrix.multiplyBatch(bRe, bIm, numVectors, outRe, outIm, 5, 12);
+		for (int k = 0; k < numRows; k++) {
+			for (int b = 0; b < numVectors; b++) {
+				final int i = k * numVectors + b;
+				if (b >= 5 && b < 12) {
+					assertEquals(expectedRe[i], outRe[i], 0f);
+					assertEquals(expectedIm[i], outIm[i], 0f);
+				} else {
+					assertEquals(0f, outRe[i], 0f);
+					assertEquals(0f, outIm[i], 0f);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiplyBatchChecksInputSize() {
+		final ComplexSparseMatrix matrix = createRandomMatrix(4, 16);
+		matrix.multiplyBatch(new float[16], new float[16], 2,
+				new float[8], new float[8]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiplyBatchChecksRange() {
+		final ComplexSparseMatrix matrix = createRandomMatrix(4, 16);
+		matrix.multiplyBatch(new float[32], new float[32], 2,
+				new float[8], new float[8], 1, 3);
+	}
+
+	private ComplexSparseMatrix createRandomMatrix(final int numRows,
+			final int numColumns) {
+		final ComplexSparseVector[] rows = new ComplexSparseVector[numRows];
+		for (int k = 0; k < numRows; k++) {
+			rows[k] = ComplexSparseVector.fromArray(
+					TestUtil.generateRandomWindow(random, numColumns),
+					TestUtil.generateRandomWindow(random, numColumns), 0.5f);
+		}
+		return ComplexSparseMatrix.fromRows(rows, 1f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromRowsChecksRowSize() {
+		final ComplexSparseVector[] rows = {
+				ComplexSparseVector.fromArray(new float[4], new float[4], 0f),
+				ComplexSparseVector.fromArray(new float[5], new float[5], 0f) };
+		ComplexSparseMatrix.fromRows(rows, 1f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiplyChecksOutputSize() {
+		final ComplexSparseVector[] rows = { ComplexSparseVector.fromArray(
+				new float[4], new float[4], 0f) };
+		final ComplexSparseMatrix matrix = ComplexSparseMatrix.fromRows(rows,
+				1f);
+		matrix.multiply(new float[4], new float[4], new float[0],
+				new float[0]);
+	}
+}
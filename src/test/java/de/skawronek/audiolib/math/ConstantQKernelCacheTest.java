@@ -0,0 +1,136 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+
+public final class ConstantQKernelCacheTest {
+	private static final int SIZE = 2048;
+	private static final double SAMPLE_RATE = 22050;
+
+	private File directory;
+	private ConstantQKernelCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("kernels").toFile();
+		cache = new ConstantQKernelCache(directory);
+		FastConstantQTransform.setKernelCache(cache);
+	}
+
+	@After
+	public void tearDown() {
+		FastConstantQTransform.setKernelCache(null);
+		cache.clear();
+		directory.delete();
+	}
+
+	@Test
+	public void testKernelIsStoredOnFirstUse() {
+		assertEquals(0, cache.getNumEntries());
+		FastConstantQTransform.createFullSpectrum(SIZE, 12, SAMPLE_RATE);
+		assertEquals(1, cache.getNumEntries());
+		FastConstantQTransform.createFullSpectrum(SIZE, 12, SAMPLE_RATE);
+		assertEquals(1, cache.getNumEntries());
+		FastConstantQTransform.createFullSpectrum(SIZE, 24, SAMPLE_RATE);
+		assertEquals(2, cache.getNumEntries());
+	}
+
+	@Test
+	public void testCachedKernelGivesSameSpectrum() {
+		final float[] x = TestUtil.generateRandomSound(new Random(12345),
+				SIZE, 5, 0.1f, 0.3f);
+
+		FastConstantQTransform.setKernelCache(null);
+		final float[] expected = forward(x);
+		FastConstantQTransform.setKernelCache(cache);
+		// Berechnet und speichert den Kernel
+		assertArrayEquals(expected, forward(x), 0f);
+		// Lädt den Kernel aus der Datei
+		assertArrayEquals(expected, forward(x), 0f);
+	}
+
+	@Test
+	public void testMultiResolutionKernelsAreCached() {
+		MultiResolutionConstantQTransform.createFullSpectrum(SIZE, 12,
+				SAMPLE_RATE);
+		// Kernel der obersten Oktave und wiederverwendeter Kernel
+		assertEquals(2, cache.getNumEntries());
+	}
+
+	@Test
+	public void testCorruptEntryIsReplaced() throws IOException {
+		final float[] x = TestUtil.generateRandomSound(new Random(12345),
+				SIZE, 5, 0.1f, 0.3f);
+		final float[] expected = forward(x);
+
+		final File[] entries = directory.listFiles((dir, name) -> name
+				.endsWith(".cqk"));
+		assertEquals(1, entries.length);
+		try (final FileOutputStream out = new FileOutputStream(entries[0])) {
+			out.write(new byte[] { 1, 2, 3 });
+		}
+
+		assertArrayEquals(expected, forward(x), 0f);
+		assertEquals(1, cache.getNumEntries());
+		assertTrue(entries[0].length() > 3);
+	}
+
+	@Test
+	public void testCorruptRowCountIsReplaced() throws IOException {
+		final float[] x = TestUtil.generateRandomSound(new Random(12345),
+				SIZE, 5, 0.1f, 0.3f);
+		final float[] expected = forward(x);
+
+		final File[] entries = directory.listFiles((dir, name) -> name
+				.endsWith(".cqk"));
+		assertEquals(1, entries.length);
+		final long length = entries[0].length();
+		// numRows der Matrix folgt auf den Header (40 Bytes). Weder eine
+		// riesige noch eine zu lange Anzahl Zeilen darf zu einem Array
+		// dieser Größe führen.
+		for (final int numRows : new int[] { Integer.MAX_VALUE, 1 << 28 }) {
+			try (final RandomAccessFile file = new RandomAccessFile(
+					entries[0], "rw")) {
+				file.seek(40);
+				file.writeInt(Integer.reverseBytes(numRows));
+			}
+
+			assertArrayEquals(expected, forward(x), 0f);
+			assertEquals(1, cache.getNumEntries());
+			assertEquals(length, entries[0].length());
+		}
+	}
+
+	@Test
+	public void testClear() {
+		FastConstantQTransform.createFullSpectrum(SIZE, 12, SAMPLE_RATE);
+		cache.clear();
+		assertEquals(0, cache.getNumEntries());
+	}
+
+	private static float[] forward(final float[] x) {
+		final FastConstantQTransform cqt = FastConstantQTransform
+				.createFullSpectrum(SIZE, 12, SAMPLE_RATE);
+		cqt.forward(x);
+		final float[] re = new float[cqt.getSpectrumSize()];
+		final float[] im = new float[cqt.getSpectrumSize()];
+		cqt.copyReal(re);
+		cqt.copyImaginary(im);
+		final float[] result = new float[2 * re.length];
+		System.arraycopy(re, 0, result, 0, re.length);
+		System.arraycopy(im, 0, result, re.length, im.length);
+		return result;
+	}
+}
@@ -0,0 +1,173 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class DoubleFastFourierTransformTest {
+	private static final double COMPARISION_DELTA = 1e-9;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksSize() {
+		new DoubleFastFourierTransform(0);
+	}
+
+	@Test
+	public void testForwardAgainstReference() {
+		// Zweierpotenzen (Radix-2) und andere Längen (Bluestein)
+		final int[] sizes = { 1, 2, 4, 64, 1024, 3, 6, 441, 1103 };
+		for (final int size : sizes) {
+			final double[] re = generateRandom(size);
+			final double[] im = generateRandom(size);
+			final double[] expectedRe = new double[size];
+			final double[] expectedIm = new double[size];
+			for (int k = 0; k < size; k++) {
+				for (int j = 0; j < size; j++) {
+					final double rad = -2 * Math.PI * ((long) j * k % size)
+							/ size;
+					expectedRe[k] += re[j] * Math.cos(rad) - im[j]
+							* Math.sin(rad);
+					expectedIm[k] += re[j] * Math.sin(rad) + im[j]
+							* Math.cos(rad);
+				}
+			}
+
+			final DoubleFastFourierTransform fft = new DoubleFastFourierTransform(
+					size);
+			final double[] actualRe = new double[size];
+			final double[] actualIm = new double[size];
+			fft.forward(re, im, actualRe, actualIm);
+			assertArrayEquals(expectedRe, actualRe, COMPARISION_DELTA * size);
+			assertArrayEquals(expectedIm, actualIm, COMPARISION_DELTA * size);
+
+			// Rücktransformation in situ
+			fft.backward(actualRe, actualIm, actualRe, actualIm);
+			assertArrayEquals(re, actualRe, COMPARISION_DELTA);
+			assertArrayEquals(im, actualIm, COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testRealTransforms() {
+		final int[] sizes = { 1, 2, 4, 8, 1024, 3, 6, 441, 882 };
+		for (final int size : sizes) {
+			final double[] x = generateRandom(size);
+			final DoubleFastFourierTransform fft = new DoubleFastFourierTransform(
+					size);
+			final double[] expectedRe = new double[size];
+			final double[] expectedIm = new double[size];
+			fft.forward(x, new double[size], expectedRe, expectedIm);
+
+			final double[] re = new double[size];
+			final double[] im = new double[size];
+			fft.forwardReal(x, re, im);
+			DoubleFastFourierTransform.completeSpectrum(re, im, size);
+			assertArrayEquals(expectedRe, re, COMPARISION_DELTA * size);
+			assertArrayEquals(expectedIm, im, COMPARISION_DELTA * size);
+
+			final double[] samples = new double[size];
+			fft.backwardReal(re, im, samples);
+			assertArrayEquals(x, samples, COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testReusesScratchConsistently() {
+		final int[] sizes = { 1, 9, 441, 882, 1103 };
+		for (final int size : sizes) {
+			final DoubleFastFourierTransform fft = new DoubleFastFourierTransform(
+					size);
+			final double[] x = generateRandom(size);
+			final double[] y = generateRandom(size);
+			final int numBins = fft.getNumRealBins();
+
+			final double[] expectedRe = new double[numBins];
+			final double[] expectedIm = new double[numBins];
+			fft.forwardReal(x, expectedRe, expectedIm);
+			final double[] expectedSamples = new double[size];
+			fft.backwardReal(expectedRe.clone(), expectedIm.clone(),
+					expectedSamples);
+
+			// Anderes Signal dazwischen
+			fft.forwardReal(y, new double[numBins], new double[numBins]);
+			fft.forward(y, x, new double[size], new double[size]);
+
+			final double[] re = new double[numBins];
+			final double[] im = new double[numBins];
+			fft.forwardReal(x, re, im);
+			assertArrayEquals(expectedRe, re, 0.0);
+			assertArrayEquals(expectedIm, im, 0.0);
+			final double[] samples = new double[size];
+			fft.backwardReal(re, im, samples);
+			assertArrayEquals(expectedSamples, samples, 0.0);
+		}
+	}
+
+	@Test
+	public void testMatchesFloatTransform() {
+		final int size = 1024;
+		final float[] x = new float[size];
+		final double[] xd = new double[size];
+		for (int i = 0; i < size; i++) {
+			x[i] = random.nextFloat() * 2 - 1;
+			xd[i] = x[i];
+		}
+		final FastFourierTransform fft = new FastFourierTransform(size);
+		final float[] re = new float[fft.getNumRealBins()];
+		final float[] im = new float[fft.getNumRealBins()];
+		fft.forwardReal(x, re, im);
+
+		final DoubleFastFourierTransform doubleFft = new DoubleFastFourierTransform(
+				size);
+		final double[] reD = new double[fft.getNumRealBins()];
+		final double[] imD = new double[fft.getNumRealBins()];
+		doubleFft.forwardReal(xd, reD, imD);
+		for (int k = 0; k < re.length; k++) {
+			assertEquals(reD[k], re[k], 0.001);
+			assertEquals(imD[k], im[k], 0.001);
+		}
+	}
+
+	@Test
+	public void testSpectra() {
+		final double[] re = { 3, 0, -1, 0 };
+		final double[] im = { 4, 2, 0, -2 };
+		final double[] magnitude = new double[4];
+		DoubleFastFourierTransform.computeMagnitudeSpectrum(re, im,
+				magnitude, false);
+		assertArrayEquals(new double[] { 5, 2, 1, 2 }, magnitude,
+				COMPARISION_DELTA);
+
+		final double[] power = new double[2];
+		DoubleFastFourierTransform.computePowerSpectrum(re, im, power, true);
+		assertArrayEquals(new double[] { 25, 4 }, power, COMPARISION_DELTA);
+
+		final double[] phase = new double[4];
+		DoubleFastFourierTransform.computePhaseSpectrum(re, im, phase, false);
+		assertArrayEquals(new double[] { Math.atan2(4, 3), Math.PI / 2,
+				Math.PI, -Math.PI / 2 }, phase, COMPARISION_DELTA);
+
+		DoubleFastFourierTransform.normalizeMagnitudeSpectrum(magnitude, 4,
+				true);
+		assertArrayEquals(new double[] { 2.5, 1, 0.5, 1 }, magnitude,
+				COMPARISION_DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testComputePowerSpectrumChecksSize() {
+		DoubleFastFourierTransform.computePowerSpectrum(new double[4],
+				new double[4], new double[3], false);
+	}
+
+	private double[] generateRandom(final int size) {
+		final double[] x = new double[size];
+		for (int i = 0; i < size; i++) {
+			x[i] = random.nextDouble() * 2 - 1;
+		}
+		return x;
+	}
+}
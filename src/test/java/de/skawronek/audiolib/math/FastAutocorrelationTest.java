@@ -50,6 +50,43 @@ public final class FastAutocorrelationTest {
 		acf.copyCoefficients(rxx);
 	}
 
+	@Test
+	public void testDoublePrecision() {
+		final Random random = new Random(42);
+		final int size = 3000;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final double[] expected = new double[size];
+		for (int lag = 0; lag < size; lag++) {
+			for (int j = lag; j < size; j++) {
+				expected[lag] += (double) x[j] * x[j - lag];
+			}
+		}
+
+		final FastAutocorrelation acf = FastAutocorrelation.Factory
+				.getInstance().get(size, Precision.DOUBLE);
+		assertEquals(Precision.DOUBLE, acf.getPrecision());
+		acf.compute(x);
+		final double[] actual = new double[size];
+		acf.copyCoefficients(actual);
+		assertArrayEquals(expected, actual, 1e-9);
+
+		// Die float-Variante ist deutlich ungenauer
+		final FastAutocorrelation floatAcf = FastAutocorrelation.Factory
+				.getInstance().get(size);
+		assertEquals(Precision.SINGLE, floatAcf.getPrecision());
+		floatAcf.compute(x);
+		final double[] floatActual = new double[size];
+		floatAcf.copyCoefficients(floatActual);
+		assertArrayEquals(expected, floatActual, 0.01);
+
+		acf.normalize();
+		final float[] normalized = new float[size];
+		acf.copyCoefficients(normalized);
+		assertEquals(1f, normalized[0], COMPARISON_DELTA);
+		assertEquals((float) (expected[1] / expected[0]), normalized[1],
+				COMPARISON_DELTA);
+	}
+
 	@Test
 	public void testCompute() {
 		// Teste mit einer gerade Länge
@@ -109,6 +146,83 @@ public final class FastAutocorrelationTest {
 		}
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testFactoryChecksMaxLag() {
+		FastAutocorrelation.Factory.getInstance().get(100, 101);
+	}
+
+	@Test
+	public void testLagLimitedAgainstNaiveComputation() {
+		final Random random = new Random(12345);
+		final int size = 2048;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final float[] expected = computeNaiveAutocorrelation(x, false);
+		// Kleine maxLag werden direkt, große per FFT berechnet
+		boolean testedDirect = false;
+		boolean testedFft = false;
+		for (final int maxLag : new int[] { 1, 8, 40, 300, size }) {
+			for (final Precision precision : Precision.values()) {
+				final FastAutocorrelation acf = FastAutocorrelation.Factory
+						.getInstance().get(size, maxLag, precision);
+				assertEquals(maxLag, acf.getMaxLag());
+				testedDirect |= acf.isDirect();
+				testedFft |= !acf.isDirect();
+
+				acf.compute(x);
+				assertEquals(maxLag, acf.getNumCoefficients());
+				final float[] actual = new float[maxLag];
+				acf.copyCoefficients(actual);
+				assertEquals(0, TestUtil.computeRMSE(
+						Arrays.copyOf(expected, maxLag), actual), 0.001f);
+			}
+		}
+		assertTrue(testedDirect);
+		assertTrue(testedFft);
+	}
+
+	@Test
+	public void testLagLimitedWithShorterInput() {
+		// Lags ab der Länge des Signals sind 0
+		final float[] x = new float[] { 5, 2, 3, -7 };
+		for (final int maxLag : new int[] { 6, 50 }) {
+			final FastAutocorrelation acf = FastAutocorrelation.Factory
+					.getInstance().get(100, maxLag);
+			acf.compute(x);
+			final float[] actual = new float[maxLag];
+			acf.copyCoefficients(actual);
+			final float[] expected = new float[maxLag];
+			System.arraycopy(new float[] { 87, -5, 1, -35 }, 0, expected, 0, 4);
+			assertEquals(0f, TestUtil.computeRMSE(expected, actual),
+					COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testLagLimitedNormalize() {
+		final Random random = new Random(12345);
+		final int size = 500;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final float[] expected = computeNaiveAutocorrelation(x, true);
+		for (final int maxLag : new int[] { 5, 200 }) {
+			final FastAutocorrelation acf = FastAutocorrelation.Factory
+					.getInstance().get(size, maxLag);
+			acf.compute(x);
+			acf.normalize();
+			final float[] actual = new float[maxLag];
+			acf.copyCoefficients(actual);
+			assertEquals(0f, TestUtil.computeRMSE(
+					Arrays.copyOf(expected, maxLag), actual), COMPARISON_DELTA);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLagLimitedCopyCoefficientsChecksSize() {
+		final FastAutocorrelation acf = FastAutocorrelation.Factory
+				.getInstance().get(100, 10);
+		acf.compute(new float[100]);
+		acf.copyCoefficients(new float[9]);
+	}
+
 	private static float[] computeFastAutocorrelation(
 			final float @NonNull [] x, final boolean normalize) {
 		final FastAutocorrelation acf = new FastAutocorrelation(x.length);
@@ -16,6 +16,7 @@ import de.skawronek.audiolib.util.Util;
 public final class FastConstantQTransformTest {
 	// klein gewählt
 	private static final float COMPARISON_DELTA = 0.015f;
+	private static final float COMPLEX_COMPARISON_DELTA = 0.01f;
 
 	@Test(expected = IllegalArgumentException.class)
 	public void testConstructorChecksForZeroSampleRate() {
@@ -142,6 +143,90 @@ public final class FastConstantQTransformTest {
 		}
 	}
 
+	@Test
+	public void testComplexAgainstNonFastForwardTransform() {
+		// Real- und Imaginärteil, nicht nur der Betrag, müssen bis auf die
+		// durch den dünnbesetzten Kernel bedingte Abweichung übereinstimmen
+		final Random random = new Random(12345);
+		final int size = 1024;
+		final double sampleRate = 22050;
+		final int binsPerOctave = 12;
+		final double q = 1 / (Math.pow(2, 1d / binsPerOctave) - 1);
+		final double minFreq = (q * sampleRate) / size;
+		final double maxFreq = sampleRate / 2;
+		final float[] x = TestUtil.generateRandomSound(random, size, 5, 0.1f,
+				0.3f);
+
+		final FastConstantQTransform fcqt = new FastConstantQTransform(minFreq,
+				maxFreq, binsPerOctave, sampleRate);
+		fcqt.forward(x);
+		final float[] actualRe = new float[fcqt.getSpectrumSize()];
+		final float[] actualIm = new float[fcqt.getSpectrumSize()];
+		fcqt.copyReal(actualRe);
+		fcqt.copyImaginary(actualIm);
+
+		final IWindowFunction w = WindowFunctions.getHammingWindow();
+		for (int k = 0; k < fcqt.getSpectrumSize(); k++) {
+			final double freq = minFreq
+					* Math.pow(2, (double) k / (double) binsPerOctave);
+			final int n = (int) Math.ceil(q * sampleRate / freq);
+			double re = 0;
+			double im = 0;
+			for (int i = 0; i < n; i++) {
+				final double t = (1d / n) * i - 0.5;
+				final double exponent = -2 * Math.PI * q * i / n;
+				re += w.evaluate(t) / n * x[i] * Math.cos(exponent);
+				im += w.evaluate(t) / n * x[i] * Math.sin(exponent);
+			}
+			assertEquals(re, actualRe[k], COMPLEX_COMPARISON_DELTA);
+			assertEquals(im, actualIm[k], COMPLEX_COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testForwardBatchMatchesForward() {
+		testForwardBatchMatchesForward(7);
+		// Genug Frames für die parallele Berechnung
+		testForwardBatchMatchesForward(1500);
+	}
+
+	private void testForwardBatchMatchesForward(final int numFrames) {
+		final Random random = new Random(12345);
+		final FastConstantQTransform fcqt = FastConstantQTransform
+				.createFullSpectrum(1024, 12, 22050);
+		final int fftLen = fcqt.getFftLength();
+		final int numBins = fcqt.getSpectrumSize();
+
+		final float[][] frames = new float[numFrames][];
+		final float[] spectraRe = new float[fftLen * numFrames];
+		final float[] spectraIm = new float[fftLen * numFrames];
+		for (int b = 0; b < numFrames; b++) {
+			frames[b] = TestUtil.generateRandomSound(random, fftLen, 5, 0.1f,
+					0.3f);
+			for (int n = 0; n < fftLen; n++) {
+				spectraRe[n * numFrames + b] = frames[b][n];
+			}
+		}
+		FastFourierTransform.Factory.getInstance().get(fftLen)
+				.forwardBatch(spectraRe, spectraIm, numFrames);
+
+		final float[] outRe = new float[numBins * numFrames];
+		final float[] outIm = new float[numBins * numFrames];
+		fcqt.forwardBatch(spectraRe, spectraIm, numFrames, outRe, outIm);
+
+		final float[] expectedRe = new float[numBins];
+		final float[] expectedIm = new float[numBins];
+		for (int b = 0; b < numFrames; b++) {
+			fcqt.forward(frames[b]);
+			fcqt.copyReal(expectedRe);
+			fcqt.copyImaginary(expectedIm);
+			for (int k = 0; k < numBins; k++) {
+				assertEquals(expectedRe[k], outRe[k * numFrames + b], 1e-5f);
+				assertEquals(expectedIm[k], outIm[k * numFrames + b], 1e-5f);
+			}
+		}
+	}
+
 	private void testSingleAgainstNonFastForwardTransform(final Random random) {
 		final int size = 1024;
 		final double sampleRate = 22050;
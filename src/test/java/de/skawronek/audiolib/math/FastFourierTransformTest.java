@@ -2,6 +2,7 @@ package de.skawronek.audiolib.math;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import org.junit.Test;
@@ -16,10 +17,319 @@ public final class FastFourierTransformTest {
 	private final Random random = new Random(12345);
 
 	@Test(expected = IllegalArgumentException.class)
-	public void testConstructorChecksForPowerOfTwoSize() {
-		final int size = 123;
-		assert !Util.isPowerOfTwo(size);
-		new FastFourierTransform(size);
+	public void testConstructorChecksSize() {
+		new FastFourierTransform(0);
+	}
+
+	@Test
+	public void testGetNextFastSize() {
+		assertEquals(1, FastFourierTransform.getNextFastSize(1));
+		assertEquals(1024, FastFourierTransform.getNextFastSize(1024));
+		assertEquals(441, FastFourierTransform.getNextFastSize(441));
+		// 1103 ist prim, 1120 = 2^5 * 5 * 7
+		assertEquals(1120, FastFourierTransform.getNextFastSize(1103));
+		assertEquals(2205, FastFourierTransform.getNextFastSize(2204));
+	}
+
+	@Test
+	public void testNonPowerOfTwoAgainstReference() {
+		// Mixed-Radix (gerade und ungerade Längen) und Bluestein (Primzahlen
+		// bzw. Primfaktoren > 7)
+		final int[] sizes = { 3, 5, 6, 7, 12, 15, 100, 375, 441, 1200, 11, 13,
+				22, 1103 };
+		for (final int size : sizes) {
+			assertFalse(Util.isPowerOfTwo(size));
+			final float[] re = TestUtil.generateRandomWindow(random, size);
+			final float[] im = TestUtil.generateRandomWindow(random, size);
+			final double[] expectedRe = new double[size];
+			final double[] expectedIm = new double[size];
+			for (int k = 0; k < size; k++) {
+				for (int j = 0; j < size; j++) {
+					final double rad = -2 * Math.PI * ((long) j * k % size)
+							/ size;
+					expectedRe[k] += re[j] * Math.cos(rad) - im[j]
+							* Math.sin(rad);
+					expectedIm[k] += re[j] * Math.sin(rad) + im[j]
+							* Math.cos(rad);
+				}
+			}
+
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			fft.forward(re, im);
+			final float[] actualRe = new float[size];
+			final float[] actualIm = new float[size];
+			fft.copyReal(actualRe);
+			fft.copyImaginary(actualIm);
+			for (int k = 0; k < size; k++) {
+				assertEquals(expectedRe[k], actualRe[k], COMPARISON_DELTA);
+				assertEquals(expectedIm[k], actualIm[k], COMPARISON_DELTA);
+			}
+
+			// Rücktransformation
+			fft.backward(actualRe, actualIm);
+			fft.copyReal(actualRe);
+			fft.copyImaginary(actualIm);
+			assertArrayEquals(re, actualRe, COMPARISON_DELTA);
+			assertArrayEquals(im, actualIm, COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testStatelessMatchesStateful() {
+		final int[] sizes = { 1, 2, 8, 64, 16384, 6, 441, 1103 };
+		for (final int size : sizes) {
+			final float[] re = TestUtil.generateRandomWindow(random, size);
+			final float[] im = TestUtil.generateRandomWindow(random, size);
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			fft.forward(re, im);
+			final float[] expectedRe = new float[size];
+			final float[] expectedIm = new float[size];
+			fft.copyReal(expectedRe);
+			fft.copyImaginary(expectedIm);
+
+			// Außerhalb der Eingangs-Arrays
+			final float[] outRe = new float[size];
+			final float[] outIm = new float[size];
+			fft.forward(re, im, outRe, outIm);
+			assertArrayEquals(expectedRe, outRe, COMPARISON_DELTA);
+			assertArrayEquals(expectedIm, outIm, COMPARISON_DELTA);
+
+			// In situ
+			final float[] inPlaceRe = re.clone();
+			final float[] inPlaceIm = im.clone();
+			fft.forward(inPlaceRe, inPlaceIm, inPlaceRe, inPlaceIm);
+			assertArrayEquals(expectedRe, inPlaceRe, COMPARISON_DELTA);
+			assertArrayEquals(expectedIm, inPlaceIm, COMPARISON_DELTA);
+
+			fft.backward(outRe, outIm, outRe, outIm);
+			assertArrayEquals(re, outRe, COMPARISON_DELTA);
+			assertArrayEquals(im, outIm, COMPARISON_DELTA);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStatelessForwardChecksOutputSize() {
+		final FastFourierTransform fft = new FastFourierTransform(8);
+		fft.forward(new float[8], new float[8], new float[4], new float[8]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStatelessForwardRejectsPartiallyInPlace() {
+		final FastFourierTransform fft = new FastFourierTransform(8);
+		final float[] re = new float[8];
+		fft.forward(re, new float[8], re, new float[8]);
+	}
+
+	@Test
+	public void testStatelessIsThreadSafe() throws InterruptedException {
+		final int[] sizes = { 1024, 1200, 1103 };
+		for (final int size : sizes) {
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			final int numThreads = 4;
+			final float[][] inputs = new float[numThreads][];
+			final float[][] expectedRe = new float[numThreads][];
+			final float[][] expectedIm = new float[numThreads][];
+			for (int t = 0; t < numThreads; t++) {
+				inputs[t] = TestUtil.generateRandomWindow(random, size);
+				expectedRe[t] = new float[fft.getNumRealBins()];
+				expectedIm[t] = new float[fft.getNumRealBins()];
+				fft.forwardReal(inputs[t], expectedRe[t], expectedIm[t]);
+			}
+
+			final boolean[] failed = new boolean[numThreads];
+			final Thread[] threads = new Thread[numThreads];
+			for (int t = 0; t < numThreads; t++) {
+				final int index = t;
+				threads[t] = new Thread(() -> {
+					final float[] re = new float[fft.getNumRealBins()];
+					final float[] im = new float[fft.getNumRealBins()];
+					for (int i = 0; i < 200; i++) {
+						fft.forwardReal(inputs[index], re, im);
+						if (!Arrays.equals(expectedRe[index], re)
+								|| !Arrays.equals(expectedIm[index], im)) {
+							failed[index] = true;
+						}
+					}
+				});
+				threads[t].start();
+			}
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+			for (int t = 0; t < numThreads; t++) {
+				assertFalse(failed[t]);
+			}
+		}
+	}
+
+	@Test
+	public void testForwardBatchMatchesSingle() {
+		final int[] sizes = { 1, 2, 4, 8, 16, 1024, 6, 441 };
+		final int[] numFramesList = { 1, 3, 16 };
+		for (final int size : sizes) {
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			for (final int numFrames : numFramesList) {
+				final float[] re = new float[size * numFrames];
+				final float[] im = new float[size * numFrames];
+				final float[][] expectedRe = new float[numFrames][size];
+				final float[][] expectedIm = new float[numFrames][size];
+				for (int b = 0; b < numFrames; b++) {
+					final float[] frameRe = TestUtil.generateRandomWindow(
+							random, size);
+					final float[] frameIm = TestUtil.generateRandomWindow(
+							random, size);
+					for (int n = 0; n < size; n++) {
+						re[n * numFrames + b] = frameRe[n];
+						im[n * numFrames + b] = frameIm[n];
+					}
+					fft.forward(frameRe, frameIm, expectedRe[b],
+							expectedIm[b]);
+				}
+
+				fft.forwardBatch(re, im, numFrames);
+				for (int b = 0; b < numFrames; b++) {
+					for (int k = 0; k < size; k++) {
+						assertEquals(expectedRe[b][k], re[k * numFrames + b],
+								COMPARISON_DELTA);
+						assertEquals(expectedIm[b][k], im[k * numFrames + b],
+								COMPARISON_DELTA);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testForwardRealBatchMatchesSingle() {
+		final int[] sizes = { 1, 2, 4, 8, 16, 32, 1024, 4096, 6, 441 };
+		final int[] numFramesList = { 1, 3, 16 };
+		for (final int size : sizes) {
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			final int numBins = fft.getNumRealBins();
+			for (final int numFrames : numFramesList) {
+				final float[] frames = new float[size * numFrames];
+				final float[][] expectedRe = new float[numFrames][numBins];
+				final float[][] expectedIm = new float[numFrames][numBins];
+				for (int b = 0; b < numFrames; b++) {
+					final float[] samples = TestUtil.generateRandomWindow(
+							random, size);
+					for (int n = 0; n < size; n++) {
+						frames[n * numFrames + b] = samples[n];
+					}
+					fft.forwardReal(samples, expectedRe[b], expectedIm[b]);
+				}
+
+				final float[] re = new float[numBins * numFrames];
+				final float[] im = new float[numBins * numFrames];
+				fft.forwardRealBatch(frames, numFrames, re, im);
+				for (int b = 0; b < numFrames; b++) {
+					for (int k = 0; k < numBins; k++) {
+						assertEquals(expectedRe[b][k], re[k * numFrames + b],
+								COMPARISON_DELTA);
+						assertEquals(expectedIm[b][k], im[k * numFrames + b],
+								COMPARISON_DELTA);
+					}
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testForwardRealBatchChecksOutputSize() {
+		final FastFourierTransform fft = new FastFourierTransform(8);
+		fft.forwardRealBatch(new float[8 * 4], 4, new float[4 * 4],
+				new float[5 * 4]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testForwardBatchChecksNumFrames() {
+		final FastFourierTransform fft = new FastFourierTransform(8);
+		fft.forwardBatch(new float[8], new float[8], 0);
+	}
+
+	@Test
+	public void testGetBatchWidth() {
+		assertEquals(FastFourierTransform.BATCH_MAX_WIDTH,
+				new FastFourierTransform(256).getBatchWidth());
+		assertEquals(1, new FastFourierTransform(
+				FastFourierTransform.BATCH_MAX_VALUES * 2).getBatchWidth());
+	}
+
+	@Test
+	public void testNonPowerOfTwoRealTransforms() {
+		final int[] sizes = { 3, 6, 9, 10, 441, 882, 1103, 2206 };
+		for (final int size : sizes) {
+			final float[] x = TestUtil.generateRandomWindow(random, size);
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			fft.forward(x, new float[size]);
+			final float[] expectedRe = new float[size];
+			final float[] expectedIm = new float[size];
+			fft.copyReal(expectedRe);
+			fft.copyImaginary(expectedIm);
+
+			fft.forward(x);
+			final float[] actualRe = new float[size];
+			final float[] actualIm = new float[size];
+			fft.copyReal(actualRe);
+			fft.copyImaginary(actualIm);
+			assertArrayEquals(expectedRe, actualRe, COMPARISON_DELTA);
+			assertArrayEquals(expectedIm, actualIm, COMPARISON_DELTA);
+
+			final float[] binsRe = new float[fft.getNumRealBins()];
+			final float[] binsIm = new float[fft.getNumRealBins()];
+			fft.forwardReal(x, binsRe, binsIm);
+			assertArrayEquals(Arrays.copyOf(expectedRe, binsRe.length),
+					binsRe, COMPARISON_DELTA);
+			assertArrayEquals(Arrays.copyOf(expectedIm, binsIm.length),
+					binsIm, COMPARISON_DELTA);
+
+			final float[] samples = new float[size];
+			fft.backwardReal(binsRe, binsIm, samples);
+			assertArrayEquals(x, samples, COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testNonPowerOfTwoReusesScratchConsistently() {
+		// Der Zwischenspeicher wird wiederverwendet, Reste eines vorherigen
+		// Aufrufs dürfen das Ergebnis nicht beeinflussen
+		final int[] sizes = { 9, 441, 882, 1103, 2206 };
+		for (final int size : sizes) {
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			final float[] x = TestUtil.generateRandomWindow(random, size);
+			final float[] y = TestUtil.generateRandomWindow(random, size);
+			final int numBins = fft.getNumRealBins();
+
+			final float[] expectedRe = new float[numBins];
+			final float[] expectedIm = new float[numBins];
+			fft.forwardReal(x, expectedRe, expectedIm);
+			final float[] expectedSamples = new float[size];
+			fft.backwardReal(Arrays.copyOf(expectedRe, numBins),
+					Arrays.copyOf(expectedIm, numBins), expectedSamples);
+			final float[] expectedComplexRe = x.clone();
+			final float[] expectedComplexIm = y.clone();
+			fft.backward(expectedComplexRe, expectedComplexIm,
+					expectedComplexRe, expectedComplexIm);
+
+			// Anderes Signal dazwischen
+			fft.forwardReal(y, new float[numBins], new float[numBins]);
+			fft.backward(y.clone(), x.clone(), new float[size],
+					new float[size]);
+
+			final float[] re = new float[numBins];
+			final float[] im = new float[numBins];
+			fft.forwardReal(x, re, im);
+			assertArrayEquals(expectedRe, re, 0f);
+			assertArrayEquals(expectedIm, im, 0f);
+			final float[] samples = new float[size];
+			fft.backwardReal(re, im, samples);
+			assertArrayEquals(expectedSamples, samples, 0f);
+			final float[] complexRe = x.clone();
+			final float[] complexIm = y.clone();
+			fft.backward(complexRe, complexIm, complexRe, complexIm);
+			assertArrayEquals(expectedComplexRe, complexRe, 0f);
+			assertArrayEquals(expectedComplexIm, complexIm, 0f);
+		}
 	}
 
 	@Test(expected = IllegalArgumentException.class)
@@ -228,6 +538,127 @@ public final class FastFourierTransformTest {
 		assertEquals(0.0, imaginaryRMSE, COMPARISON_DELTA);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testForwardRealChecksBinsSize() {
+		final int size = 16;
+		final FastFourierTransform fft = new FastFourierTransform(size);
+		fft.forwardReal(new float[size], new float[size / 2],
+				new float[size / 2]);
+	}
+
+	@Test
+	public void testForwardRealAgainstComplexForward() {
+		for (int size = 1; size <= 1024; size *= 2) {
+			final float[] x = TestUtil.generateRandomWindow(random, size);
+			final float[] zeros = new float[size];
+
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			fft.forward(x, zeros);
+			final float[] expectedReal = new float[size];
+			final float[] expectedImaginary = new float[size];
+			fft.copyReal(expectedReal);
+			fft.copyImaginary(expectedImaginary);
+
+			final int numBins = fft.getNumRealBins();
+			assertEquals(size / 2 + 1, numBins);
+			final float[] actualReal = new float[numBins];
+			final float[] actualImaginary = new float[numBins];
+			fft.forwardReal(x, actualReal, actualImaginary);
+			assertArrayEquals(Arrays.copyOf(expectedReal, numBins),
+					actualReal, COMPARISON_DELTA);
+			assertArrayEquals(Arrays.copyOf(expectedImaginary, numBins),
+					actualImaginary, COMPARISON_DELTA);
+
+			// Reellwertige Vorwärtstransformation ergänzt die zweite Hälfte
+			fft.forward(x);
+			final float[] fullReal = new float[size];
+			final float[] fullImaginary = new float[size];
+			fft.copyReal(fullReal);
+			fft.copyImaginary(fullImaginary);
+			assertArrayEquals(expectedReal, fullReal, COMPARISON_DELTA);
+			assertArrayEquals(expectedImaginary, fullImaginary,
+					COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testBackwardRealIsInverseOperationOfForwardReal() {
+		for (int size = 1; size <= 1024; size *= 2) {
+			final float[] x = TestUtil.generateRandomWindow(random, size);
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			final float[] re = new float[fft.getNumRealBins()];
+			final float[] im = new float[fft.getNumRealBins()];
+			fft.forwardReal(x, re, im);
+
+			final float[] actual = new float[size];
+			fft.backwardReal(re, im, actual);
+			assertArrayEquals(x, actual, COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testKernelsAgainstReference() {
+		// Größen für Radix-2, Radix-4 (gerade und ungerade Anzahl an Stufen)
+		// und die blockweise Ausführung
+		final int[] sizes = { 2, 8, 32, FastFourierTransform.RADIX4_MIN_SIZE,
+				2 * FastFourierTransform.RADIX4_MIN_SIZE, 1024,
+				FastFourierTransform.BLOCKED_MIN_SIZE,
+				4 * FastFourierTransform.BLOCKED_MIN_SIZE };
+		for (final int size : sizes) {
+			final float[] re = TestUtil.generateRandomWindow(random, size);
+			final float[] im = TestUtil.generateRandomWindow(random, size);
+			final double[] expectedRe = new double[size];
+			final double[] expectedIm = new double[size];
+			for (int i = 0; i < size; i++) {
+				expectedRe[i] = re[i];
+				expectedIm[i] = im[i];
+			}
+			referenceFft(expectedRe, expectedIm);
+
+			final FastFourierTransform fft = new FastFourierTransform(size);
+			fft.forward(re, im);
+			final float[] actualRe = new float[size];
+			final float[] actualIm = new float[size];
+			fft.copyReal(actualRe);
+			fft.copyImaginary(actualIm);
+			for (int k = 0; k < size; k++) {
+				assertEquals(expectedRe[k], actualRe[k], COMPARISON_DELTA);
+				assertEquals(expectedIm[k], actualIm[k], COMPARISON_DELTA);
+			}
+		}
+	}
+
+	// Rekursive Radix-2-FFT in double-Genauigkeit als Referenz
+	private static void referenceFft(final double[] re, final double[] im) {
+		final int n = re.length;
+		if (n == 1) {
+			return;
+		}
+		final double[] evenRe = new double[n / 2];
+		final double[] evenIm = new double[n / 2];
+		final double[] oddRe = new double[n / 2];
+		final double[] oddIm = new double[n / 2];
+		for (int i = 0; i < n / 2; i++) {
+			evenRe[i] = re[2 * i];
+			evenIm[i] = im[2 * i];
+			oddRe[i] = re[2 * i + 1];
+			oddIm[i] = im[2 * i + 1];
+		}
+		referenceFft(evenRe, evenIm);
+		referenceFft(oddRe, oddIm);
+		for (int k = 0; k < n / 2; k++) {
+			final double rad = -2 * Math.PI * k / n;
+			final double wr = Math.cos(rad);
+			final double wi = Math.sin(rad);
+			final double tr = wr * oddRe[k] - wi * oddIm[k];
+			final double ti = wr * oddIm[k] + wi * oddRe[k];
+			re[k] = evenRe[k] + tr;
+			im[k] = evenIm[k] + ti;
+			re[k + n / 2] = evenRe[k] - tr;
+			im[k + n / 2] = evenIm[k] - ti;
+		}
+	}
+
 	@Test
 	public void testAgainstNonFastBackwardTransform() {
 		// Testet, ob die selben Ergebnisse bei der IFFT herauskommen wie bei
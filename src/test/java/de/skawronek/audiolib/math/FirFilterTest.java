@@ -0,0 +1,103 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.FirFilter.Partitioning;
+
+public final class FirFilterTest {
+	private static final float COMPARISION_DELTA = 0.0005f;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksEmptyKernel() {
+		new FirFilter(new float[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksBlockSize() {
+		new FirFilter(new float[10], 48, Partitioning.UNIFORM);
+	}
+
+	@Test
+	public void testShortKernelIsDirect() {
+		final FirFilter filter = new FirFilter(new float[64]);
+		assertTrue(filter.isDirect());
+		assertEquals(0, filter.getNumPartitions());
+		assertFalse(new FirFilter(new float[65]).isDirect());
+	}
+
+	@Test
+	public void testNonUniformUsesFewerPartitions() {
+		final float[] kernel = new float[65536];
+		final FirFilter uniform = new FirFilter(kernel, 64,
+				Partitioning.UNIFORM);
+		final FirFilter nonUniform = new FirFilter(kernel, 64,
+				Partitioning.NON_UNIFORM);
+		assertEquals(1023, uniform.getNumPartitions());
+		assertTrue(nonUniform.getNumPartitions() < 20);
+	}
+
+	@Test
+	public void testFilterMatchesDirectConvolution() {
+		final int[] kernelLengths = { 1, 10, 64, 65, 200, 1000, 5000 };
+		for (final int kernelLength : kernelLengths) {
+			final float[] kernel = TestUtil.generateRandomWindow(random,
+					kernelLength);
+			final float[] in = TestUtil.generateRandomWindow(random, 12000);
+			final float[] expected = convolve(kernel, in);
+			for (final Partitioning partitioning : Partitioning.values()) {
+				for (final int blockSize : new int[] { 16, 64 }) {
+					final FirFilter filter = new FirFilter(kernel, blockSize,
+							partitioning);
+					final float[] out = new float[in.length];
+					filter.filter(in, out);
+					assertArrayEquals(expected, out, COMPARISION_DELTA
+							* (float) Math.sqrt(kernelLength));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testProcessKeepsStateAcrossBlocks() {
+		final float[] kernel = TestUtil.generateRandomWindow(random, 3000);
+		final float[] in = TestUtil.generateRandomWindow(random, 20000);
+		final float[] expected = convolve(kernel, in);
+
+		final FirFilter filter = new FirFilter(kernel);
+		final float[] out = new float[in.length];
+		int offset = 0;
+		while (offset < in.length) {
+			final int length = Math.min(random.nextInt(300), in.length
+					- offset);
+			filter.process(in, offset, out, offset, length);
+			offset += length;
+		}
+		assertArrayEquals(expected, out,
+				COMPARISION_DELTA * (float) Math.sqrt(kernel.length));
+
+		// filter setzt den Zustand zurück
+		final float[] again = new float[in.length];
+		filter.filter(in, again);
+		assertArrayEquals(expected, again,
+				COMPARISION_DELTA * (float) Math.sqrt(kernel.length));
+	}
+
+	private static float[] convolve(final float[] kernel, final float[] in) {
+		final float[] out = new float[in.length];
+		for (int n = 0; n < in.length; n++) {
+			double sum = 0;
+			for (int k = 0; k < kernel.length && k <= n; k++) {
+				sum += kernel[k] * in[n - k];
+			}
+			out[n] = (float) sum;
+		}
+		return out;
+	}
+}
@@ -125,4 +125,129 @@ public final class LinearPredictorTest {
 		final float[] actualA = predictor.getCoefficients();
 		assertArrayEquals(expectedA, actualA, COMPARISON_DELTA);
 	}
+
+	@Test
+	public void testFactoryReusesInstancePerThread() {
+		final LinearPredictor.Factory factory = LinearPredictor.Factory
+				.getInstance();
+		final LinearPredictor predictor = factory.get(5);
+		assertSame(predictor, factory.get(5));
+		assertEquals(5, predictor.getOrder());
+		assertNotSame(predictor, factory.get(6));
+	}
+
+	@Test
+	public void testPredictionErrorIsResidualEnergy() {
+		final int size = 512;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final int order = 8;
+
+		final LinearPredictor predictor = new LinearPredictor(order);
+		predictor.computeCoefficients(x);
+		final float[] a = predictor.getCoefficients();
+
+		// Residuum der Autokorrelationsmethode, x außerhalb des Frames 0
+		double expectedError = 0.0;
+		for (int i = 0; i < size + order; i++) {
+			double residual = 0.0;
+			for (int j = 0; j <= order; j++) {
+				if (i - j >= 0 && i - j < size) {
+					residual += a[j] * x[i - j];
+				}
+			}
+			expectedError += residual * residual;
+		}
+		final float actualError = predictor.getPredictionError();
+		assertEquals(expectedError, actualError, 1e-4 * expectedError);
+	}
+
+	@Test
+	public void testReflectionCoefficients() {
+		final int size = 512;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final int order = 8;
+
+		final LinearPredictor predictor = new LinearPredictor(order);
+		predictor.computeCoefficients(x);
+		final float[] k = new float[order];
+		predictor.copyReflectionCoefficients(k);
+		for (final float ki : k) {
+			assertTrue(Math.abs(ki) < 1f);
+		}
+		// Der letzte Reflexionskoeffizient ist a[m]
+		assertEquals(predictor.getCoefficients()[order], k[order - 1],
+				COMPARISON_DELTA);
+
+		// e = r[0] * Prod_i (1 - k[i]²)
+		double energy = 0.0;
+		for (final float xi : x) {
+			energy += xi * xi;
+		}
+		double expectedError = energy;
+		for (final float ki : k) {
+			expectedError *= 1.0 - ki * ki;
+		}
+		assertEquals(expectedError, predictor.getPredictionError(),
+				1e-4 * expectedError);
+	}
+
+	@Test
+	public void testSilence() {
+		final LinearPredictor predictor = new LinearPredictor(4);
+		predictor.computeCoefficients(new float[64]);
+		assertArrayEquals(new float[] { 1f, 0f, 0f, 0f, 0f },
+				predictor.getCoefficients(), 0f);
+		assertEquals(0f, predictor.getPredictionError(), 0f);
+	}
+
+	@Test
+	public void testComputeEnvelope() {
+		final int size = 256;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final int order = 6;
+
+		final LinearPredictor predictor = new LinearPredictor(order);
+		predictor.computeCoefficients(x);
+		final float[] a = predictor.getCoefficients();
+		final double gain = Math.sqrt(predictor.getPredictionError());
+
+		final float[] envelope = new float[size / 2 + 1];
+		predictor.computeEnvelope(size, envelope);
+		for (int i = 0; i < envelope.length; i++) {
+			// A(w) direkt auswerten
+			final double w = 2 * Math.PI * i / size;
+			double re = 0.0;
+			double im = 0.0;
+			for (int j = 0; j <= order; j++) {
+				re += a[j] * Math.cos(w * j);
+				im -= a[j] * Math.sin(w * j);
+			}
+			final double expected = gain / Math.sqrt(re * re + im * im);
+			assertEquals(expected, envelope[i], 1e-4 * expected);
+		}
+	}
+
+	@Test
+	public void testComputeCepstrum() {
+		final int size = 256;
+		final float[] x = TestUtil.generateRandomWindow(random, size);
+		final int order = 4;
+
+		final LinearPredictor predictor = new LinearPredictor(order);
+		predictor.computeCoefficients(x);
+		final float[] c = new float[256];
+		predictor.computeCepstrum(c);
+
+		// H ist minimalphasig, also ln|H(w)| = c[0] + Sum_n c[n] cos(nw)
+		final float[] envelope = new float[size / 2 + 1];
+		predictor.computeEnvelope(size, envelope);
+		for (int i = 0; i < envelope.length; i++) {
+			final double w = 2 * Math.PI * i / size;
+			double logMagnitude = c[0];
+			for (int n = 1; n < c.length; n++) {
+				logMagnitude += c[n] * Math.cos(n * w);
+			}
+			assertEquals(Math.log(envelope[i]), logMagnitude, 1e-3);
+		}
+	}
 }
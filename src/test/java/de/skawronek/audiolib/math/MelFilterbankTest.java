@@ -0,0 +1,177 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+
+public final class MelFilterbankTest {
+	private static final float COMPARISON_DELTA = 0.0001f;
+	private static final int WINDOW_SIZE = 1024;
+	private static final double SAMPLE_RATE = 44100;
+	private static final double MIN_FREQ = 300;
+	private static final double MAX_FREQ = 8000;
+	private static final int NUM_FILTERS = 26;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksMaxFreq() {
+		new MelFilterbank(WINDOW_SIZE, SAMPLE_RATE, MIN_FREQ,
+				SAMPLE_RATE / 2 + 1, NUM_FILTERS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testComputeLogEnergiesChecksSpectrumLength() {
+		final MelFilterbank filterbank = new MelFilterbank(WINDOW_SIZE,
+				SAMPLE_RATE, MIN_FREQ, MAX_FREQ, NUM_FILTERS);
+		// Der Nyquist-Bin ist optional
+		final int minLength = WINDOW_SIZE / 2;
+		filterbank.computeLogEnergies(new float[minLength - 1],
+				new float[NUM_FILTERS]);
+	}
+
+	@Test
+	public void testNyquistBinIsOptional() {
+		// Die letzte Filterbank endet bei sampleRate / 2, der Nyquist-Bin hat
+		// dort Gewicht 0
+		final MelFilterbank filterbank = new MelFilterbank(WINDOW_SIZE,
+				SAMPLE_RATE, MIN_FREQ, SAMPLE_RATE / 2, NUM_FILTERS);
+		final float[] magSpectrum = createMagSpectrum(WINDOW_SIZE);
+		final float[] withNyquist = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(magSpectrum, withNyquist);
+
+		final float[] withoutNyquist = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(
+				Arrays.copyOf(magSpectrum, WINDOW_SIZE / 2), withoutNyquist);
+		assertArrayEquals(withNyquist, withoutNyquist, 0f);
+
+		final float[] re = Arrays.copyOf(magSpectrum, WINDOW_SIZE / 2);
+		final float[] im = new float[WINDOW_SIZE / 2];
+		final float[] complex = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(re, im, complex);
+		assertArrayEquals(withNyquist, complex, COMPARISON_DELTA);
+	}
+
+	@Test
+	public void testFilterOnNyquistBin() {
+		// Bei 8 Bins fallen Mitte und Ende der letzten Filterbank auf den
+		// Nyquist-Bin, ohne ihn hat sie keine Energie
+		final int windowSize = 8;
+		final MelFilterbank filterbank = new MelFilterbank(windowSize,
+				SAMPLE_RATE, MIN_FREQ, SAMPLE_RATE / 2, NUM_FILTERS);
+		final float[] magSpectrum = createMagSpectrum(windowSize);
+		final float[] withNyquist = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(magSpectrum, withNyquist);
+		final float[] withoutNyquist = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(
+				Arrays.copyOf(magSpectrum, windowSize / 2), withoutNyquist);
+
+		final int last = NUM_FILTERS - 1;
+		assertFalse(Float.isInfinite(withNyquist[last]));
+		assertEquals(Float.NEGATIVE_INFINITY, withoutNyquist[last], 0f);
+	}
+
+	@Test
+	public void testMelConversionIsInverse() {
+		for (double freq = 0; freq <= 20000; freq += 250) {
+			final double mel = MelFilterbank.frequencyToMel(freq);
+			assertEquals(freq, MelFilterbank.melToFrequency(mel), 1e-6);
+		}
+	}
+
+	@Test
+	public void testFactorySharesInstanceAcrossThreads()
+			throws InterruptedException {
+		final MelFilterbank.Factory factory = MelFilterbank.Factory
+				.getInstance();
+		final MelFilterbank filterbank = factory.get(WINDOW_SIZE, SAMPLE_RATE,
+				MIN_FREQ, MAX_FREQ, NUM_FILTERS);
+		assertSame(filterbank, factory.get(WINDOW_SIZE, SAMPLE_RATE,
+				MIN_FREQ, MAX_FREQ, NUM_FILTERS));
+
+		final MelFilterbank[] other = new MelFilterbank[1];
+		final Thread thread = new Thread(() -> other[0] = factory.get(
+				WINDOW_SIZE, SAMPLE_RATE, MIN_FREQ, MAX_FREQ, NUM_FILTERS));
+		thread.start();
+		thread.join();
+		assertSame(filterbank, other[0]);
+	}
+
+	@Test
+	public void testTriangularFilters() {
+		final MelFilterbank filterbank = new MelFilterbank(WINDOW_SIZE,
+				SAMPLE_RATE, MIN_FREQ, MAX_FREQ, NUM_FILTERS);
+		final int numBins = WINDOW_SIZE / 2 + 1;
+		final float[] re = new float[numBins];
+		final float[] im = new float[numBins];
+		final float[] logEnergies = new float[NUM_FILTERS];
+
+		// Leistung windowSize in einem Bin ergibt das Gewicht des Bins
+		final float[][] weights = new float[NUM_FILTERS][numBins];
+		for (int k = 0; k < numBins; k++) {
+			re[k] = (float) Math.sqrt(WINDOW_SIZE);
+			filterbank.computeLogEnergies(re, im, logEnergies);
+			for (int i = 0; i < NUM_FILTERS; i++) {
+				weights[i][k] = (float) Math.exp(logEnergies[i]);
+			}
+			re[k] = 0f;
+		}
+
+		int numWeights = 0;
+		for (int i = 0; i < NUM_FILTERS; i++) {
+			// Dreieck: steigt bis zum Maximum 1 und fällt danach
+			int peak = 0;
+			for (int k = 0; k < numBins; k++) {
+				assertTrue(weights[i][k] >= 0f && weights[i][k] <= 1f + 1e-6);
+				if (weights[i][k] > weights[i][peak]) {
+					peak = k;
+				}
+				if (weights[i][k] > 0) {
+					numWeights++;
+				}
+			}
+			assertEquals(1f, weights[i][peak], COMPARISON_DELTA);
+			for (int k = 1; k <= peak; k++) {
+				assertTrue(weights[i][k] >= weights[i][k - 1]);
+			}
+			for (int k = peak + 1; k < numBins; k++) {
+				assertTrue(weights[i][k] <= weights[i][k - 1]);
+			}
+		}
+		assertEquals(filterbank.getNumWeights(), numWeights);
+	}
+
+	@Test
+	public void testComplexAndMagnitudeSpectrumAreEqual() {
+		final MelFilterbank filterbank = new MelFilterbank(WINDOW_SIZE,
+				SAMPLE_RATE, MIN_FREQ, MAX_FREQ, NUM_FILTERS);
+		final float[] x = TestUtil.generateRandomWindow(random, WINDOW_SIZE);
+		final float[] re = new float[WINDOW_SIZE];
+		final float[] im = new float[WINDOW_SIZE];
+		FastFourierTransform.Factory.getInstance().get(WINDOW_SIZE)
+				.forwardReal(x, re, im);
+		final float[] magSpectrum = new float[WINDOW_SIZE / 2 + 1];
+		for (int k = 0; k < magSpectrum.length; k++) {
+			magSpectrum[k] = (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+		}
+
+		final float[] expected = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(magSpectrum, expected);
+		final float[] actual = new float[NUM_FILTERS];
+		filterbank.computeLogEnergies(re, im, actual);
+		assertArrayEquals(expected, actual, COMPARISON_DELTA);
+	}
+
+	private float[] createMagSpectrum(final int windowSize) {
+		final float[] magSpectrum = new float[windowSize / 2 + 1];
+		for (int k = 0; k < magSpectrum.length; k++) {
+			magSpectrum[k] = TestUtil.random(random, 0.5f, 1f);
+		}
+		return magSpectrum;
+	}
+}
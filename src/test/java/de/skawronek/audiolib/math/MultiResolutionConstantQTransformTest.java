@@ -0,0 +1,122 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.WindowFunctions.IWindowFunction;
+
+public final class MultiResolutionConstantQTransformTest {
+	private static final float COMPARISON_DELTA = 0.01f;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksMinFreqIsLowerThanMaxFreq() {
+		new MultiResolutionConstantQTransform(523.251, 65.4064, 12, 44100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksForZeroSampleRate() {
+		new MultiResolutionConstantQTransform(65.4064, 523.251, 12, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testForwardChecksMaxSize() {
+		final MultiResolutionConstantQTransform cqt = MultiResolutionConstantQTransform
+				.createFullSpectrum(1000, 12, 44100);
+		cqt.forward(new float[cqt.getMaxSize() + 1]);
+	}
+
+	@Test
+	public void testMaxSizeCoversFastConstantQTransform() {
+		// Frames, die FastConstantQTransform verarbeitet, müssen auch hier
+		// zulässig sein
+		final int size = 1000;
+		final MultiResolutionConstantQTransform cqt = MultiResolutionConstantQTransform
+				.createFullSpectrum(size, 12, 44100);
+		assertTrue(cqt.getMaxSize() >= 1024);
+	}
+
+	@Test
+	public void testBinsMatchFastConstantQTransform() {
+		final FastConstantQTransform fcqt = FastConstantQTransform
+				.createFullSpectrum(4096, 12, 44100);
+		final MultiResolutionConstantQTransform cqt = MultiResolutionConstantQTransform
+				.createFullSpectrum(4096, 12, 44100);
+		assertEquals(fcqt.getSpectrumSize(), cqt.getSpectrumSize());
+		for (int k = 0; k < cqt.getSpectrumSize(); k++) {
+			assertEquals(fcqt.binToFrequency(k), cqt.binToFrequency(k), 1e-9);
+			assertEquals(k, cqt.frequencyToBin(cqt.binToFrequency(k)));
+		}
+		assertEquals((cqt.getSpectrumSize() + 11) / 12, cqt.getNumOctaves());
+	}
+
+	@Test
+	public void testFullSpectrumAgainstNaiveTransform() {
+		final double sampleRate = 22050;
+		final int size = 4096;
+		final int binsPerOctave = 12;
+		final double q = FastConstantQTransform.calcQ(binsPerOctave);
+		final double minFreq = (q * sampleRate) / size;
+		testAgainstNaiveTransform(minFreq, sampleRate / 2, binsPerOctave,
+				sampleRate, size);
+	}
+
+	@Test
+	public void testLowFrequencyRangeAgainstNaiveTransform() {
+		// Alle Bins weit unter der Nyquist-Frequenz, das Signal wird schon vor
+		// der obersten Oktave dezimiert
+		testAgainstNaiveTransform(65.4064, 523.251, 12, 11025, 2048);
+	}
+
+	@Test
+	public void testIncompleteOctaveAgainstNaiveTransform() {
+		testAgainstNaiveTransform(100, 700, 24, 8000, 2048);
+	}
+
+	@Test
+	public void testFewerBinsThanOneOctave() {
+		final MultiResolutionConstantQTransform cqt = new MultiResolutionConstantQTransform(
+				440, 600, 12, 8000);
+		assertEquals(1, cqt.getNumOctaves());
+		testAgainstNaiveTransform(440, 600, 12, 8000, 512);
+	}
+
+	private static void testAgainstNaiveTransform(final double minFreq,
+			final double maxFreq, final int binsPerOctave,
+			final double sampleRate, final int size) {
+		final Random random = new Random(12345);
+		final float[] x = TestUtil.generateRandomSound(random, size, 5, 0.1f,
+				0.3f);
+
+		final MultiResolutionConstantQTransform cqt = new MultiResolutionConstantQTransform(
+				minFreq, maxFreq, binsPerOctave, sampleRate);
+		assertTrue(size <= cqt.getMaxSize());
+		cqt.forward(x);
+		final float[] actual = new float[cqt.getSpectrumSize()];
+		cqt.fillMagnitudeSpectrum(actual);
+
+		final double q = FastConstantQTransform.calcQ(binsPerOctave);
+		final IWindowFunction w = WindowFunctions.getHammingWindow();
+		final float[] expected = new float[cqt.getSpectrumSize()];
+		for (int k = 0; k < expected.length; k++) {
+			final double freq = cqt.binToFrequency(k);
+			final int n = (int) Math.ceil(q * sampleRate / freq);
+			double re = 0;
+			double im = 0;
+			for (int i = 0; i < Math.min(n, size); i++) {
+				final double t = (1d / n) * i - 0.5;
+				final double exponent = -2 * Math.PI * q * i / n;
+				re += w.evaluate(t) / n * x[i] * Math.cos(exponent);
+				im += w.evaluate(t) / n * x[i] * Math.sin(exponent);
+			}
+			expected[k] = (float) Math.sqrt(re * re + im * im);
+		}
+
+		final float rmse = TestUtil.computeRMSE(expected, actual);
+		assertEquals(0.0, rmse, COMPARISON_DELTA);
+	}
+}
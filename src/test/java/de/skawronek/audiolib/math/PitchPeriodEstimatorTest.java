@@ -0,0 +1,106 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class PitchPeriodEstimatorTest {
+	private static final double SAMPLE_RATE = 44100;
+	private static final int SIZE = 2048;
+	private static final int MAX_LAG = SIZE / 2;
+	// 2 kHz
+	private static final int MIN_LAG = 22;
+	private static final double YIN_THRESHOLD = 0.1;
+	private static final double MPM_CUTOFF = 0.93;
+	// Abweichung der Periode in Samples
+	private static final double PERIOD_DELTA = 0.05;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksMaxLag() {
+		new PitchPeriodEstimator(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEstimateChecksMinLag() {
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		estimator.estimateYin(new float[SIZE], 0, YIN_THRESHOLD);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEstimateChecksMinLagIsBelowMaxLag() {
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		estimator.estimateMcLeod(new float[SIZE], MAX_LAG - 1, MPM_CUTOFF);
+	}
+
+	@Test
+	public void testSineHasSubSamplePeriod() {
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		for (final double frequency : new double[] { 65.4, 220, 261.63, 987.77 }) {
+			final float[] x = createHarmonicSignal(frequency, new float[] { 1f },
+					0f);
+			final double expected = SAMPLE_RATE / frequency;
+			assertEquals(expected, estimator.estimateYin(x, MIN_LAG,
+					YIN_THRESHOLD), PERIOD_DELTA);
+			assertEquals(expected, estimator.estimateMcLeod(x, MIN_LAG,
+					MPM_CUTOFF), PERIOD_DELTA);
+		}
+	}
+
+	@Test
+	public void testWeakFundamentalHasNoOctaveError() {
+		// Grundton deutlich leiser als die Obertöne, dazu etwas Rauschen
+		final double frequency = 150;
+		final float[] x = createHarmonicSignal(frequency, new float[] { 0.1f,
+				1f, 0.8f, 0.6f, 0.5f }, 0.05f);
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		final double expected = SAMPLE_RATE / frequency;
+		assertEquals(expected, estimator.estimateYin(x, MIN_LAG,
+				YIN_THRESHOLD), 0.5);
+		assertEquals(expected, estimator.estimateMcLeod(x, MIN_LAG,
+				MPM_CUTOFF), 0.5);
+	}
+
+	@Test
+	public void testPrecomputedAutocorrelation() {
+		final float[] x = createHarmonicSignal(440, new float[] { 1f, 0.5f },
+				0.1f);
+		final FastAutocorrelation acf = FastAutocorrelation.Factory
+				.getInstance().get(SIZE);
+		acf.compute(x);
+		final float[] r = new float[SIZE];
+		acf.copyCoefficients(r);
+
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		assertEquals(estimator.estimateYin(x, MIN_LAG, YIN_THRESHOLD),
+				estimator.estimateYin(x, r, MIN_LAG, YIN_THRESHOLD), 1e-3);
+		assertEquals(estimator.estimateMcLeod(x, MIN_LAG, MPM_CUTOFF),
+				estimator.estimateMcLeod(x, r, MIN_LAG, MPM_CUTOFF), 1e-3);
+	}
+
+	@Test
+	public void testSilenceHasNoPeriod() {
+		final PitchPeriodEstimator estimator = new PitchPeriodEstimator(MAX_LAG);
+		final float[] x = new float[SIZE];
+		assertEquals(0.0, estimator.estimateYin(x, MIN_LAG, YIN_THRESHOLD), 0.0);
+		assertEquals(0.0, estimator.estimateMcLeod(x, MIN_LAG, MPM_CUTOFF),
+				0.0);
+	}
+
+	private static float[] createHarmonicSignal(final double frequency,
+			final float[] amplitudes, final float noise) {
+		final Random random = new Random(42);
+		final float[] x = new float[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			double sample = noise * random.nextGaussian();
+			for (int h = 0; h < amplitudes.length; h++) {
+				sample += amplitudes[h]
+						* Math.sin(2 * Math.PI * (h + 1) * frequency * i
+								/ SAMPLE_RATE + h);
+			}
+			x[i] = (float) sample;
+		}
+		return x;
+	}
+}
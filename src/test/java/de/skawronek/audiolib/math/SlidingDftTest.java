@@ -0,0 +1,127 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.skawronek.audiolib.TestUtil;
+
+public final class SlidingDftTest {
+	private static final float COMPARISION_DELTA = 0.001f;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksBinRange() {
+		new SlidingDft(64, 10, 34);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksDamping() {
+		new SlidingDft(64, 0, 33, 1.5, 64);
+	}
+
+	@Test
+	public void testMatchesFft() {
+		final int[] sizes = { 64, 100 };
+		for (final int size : sizes) {
+			final int fromBin = 3;
+			final int toBin = size / 2 + 1;
+			final SlidingDft dft = new SlidingDft(size, fromBin, toBin);
+			final float[] signal = TestUtil.generateRandomWindow(random,
+					5 * size + 7);
+			final float[] actualRe = new float[dft.getNumBins()];
+			final float[] actualIm = new float[dft.getNumBins()];
+			for (int n = 0; n < signal.length; n++) {
+				dft.put(signal[n]);
+				if (n < size - 1 || n % 13 != 0) {
+					continue;
+				}
+
+				final float[] expectedRe = new float[size];
+				final float[] expectedIm = new float[size];
+				computeDft(signal, n - size + 1, size, expectedRe, expectedIm);
+				dft.copyReal(actualRe);
+				dft.copyImaginary(actualIm);
+				for (int i = 0; i < dft.getNumBins(); i++) {
+					assertEquals(expectedRe[fromBin + i], actualRe[i],
+							COMPARISION_DELTA);
+					assertEquals(expectedIm[fromBin + i], actualIm[i],
+							COMPARISION_DELTA);
+				}
+			}
+			assertEquals(signal.length, dft.getSampleCount());
+		}
+	}
+
+	@Test
+	public void testResyncRemovesDrift() {
+		// Ohne Neuberechnung weicht das Ergebnis nach vielen Samples ab, mit
+		// Neuberechnung nicht
+		final int size = 256;
+		final SlidingDft drifting = new SlidingDft(size, 0, 129, 1.0, 0);
+		final SlidingDft resyncing = new SlidingDft(size, 0, 129, 1.0, size);
+		final float[] signal = TestUtil.generateRandomWindow(random, 200000);
+		drifting.put(signal, 0, signal.length);
+		resyncing.put(signal, 0, signal.length);
+
+		final float[] expectedRe = new float[size];
+		final float[] expectedIm = new float[size];
+		computeDft(signal, signal.length - size, size, expectedRe, expectedIm);
+		final float[] actualRe = new float[129];
+		resyncing.copyReal(actualRe);
+		for (int k = 0; k < 129; k++) {
+			assertEquals(expectedRe[k], actualRe[k], COMPARISION_DELTA);
+		}
+
+		drifting.resync();
+		drifting.copyReal(actualRe);
+		for (int k = 0; k < 129; k++) {
+			assertEquals(expectedRe[k], actualRe[k], COMPARISION_DELTA);
+		}
+	}
+
+	@Test
+	public void testDampingWeightsWindow() {
+		final int size = 32;
+		final double damping = 0.999;
+		final SlidingDft dft = new SlidingDft(size, 0, 17, damping, 0);
+		final float[] signal = TestUtil.generateRandomWindow(random, 100);
+		dft.put(signal, 0, signal.length);
+
+		// Sample an Position m ist mit damping^(size-1-m) gewichtet
+		final float[] weighted = new float[size];
+		for (int m = 0; m < size; m++) {
+			weighted[m] = (float) (signal[signal.length - size + m] * Math.pow(
+					damping, size - 1 - m));
+		}
+		final float[] expectedRe = new float[size];
+		final float[] expectedIm = new float[size];
+		computeDft(weighted, 0, size, expectedRe, expectedIm);
+		final float[] actualRe = new float[17];
+		final float[] actualIm = new float[17];
+		dft.copyReal(actualRe);
+		dft.copyImaginary(actualIm);
+		for (int k = 0; k < 17; k++) {
+			assertEquals(expectedRe[k], actualRe[k], COMPARISION_DELTA);
+			assertEquals(expectedIm[k], actualIm[k], COMPARISION_DELTA);
+		}
+	}
+
+	private static void computeDft(final float[] signal, final int offset,
+			final int size, final float[] re, final float[] im) {
+		for (int k = 0; k < size; k++) {
+			double sumRe = 0;
+			double sumIm = 0;
+			for (int m = 0; m < size; m++) {
+				final double rad = -2 * Math.PI * ((long) k * m % size) / size;
+				sumRe += signal[offset + m] * Math.cos(rad);
+				sumIm += signal[offset + m] * Math.sin(rad);
+			}
+			re[k] = (float) sumRe;
+			im[k] = (float) sumIm;
+		}
+	}
+}
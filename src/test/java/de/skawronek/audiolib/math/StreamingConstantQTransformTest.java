@@ -0,0 +1,149 @@
+package de.skawronek.audiolib.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class StreamingConstantQTransformTest {
+	private static final float COMPARISON_DELTA = 0.001f;
+	private static final double SAMPLE_RATE = 22050;
+	private static final double MIN_FREQ = 55;
+	private static final double MAX_FREQ = 5000;
+	private static final int BINS_PER_OCTAVE = 12;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksHopSize() {
+		new StreamingConstantQTransform(MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE,
+				SAMPLE_RATE, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksMinFreqIsLowerThanMaxFreq() {
+		new StreamingConstantQTransform(MAX_FREQ, MIN_FREQ, BINS_PER_OCTAVE,
+				SAMPLE_RATE, 256);
+	}
+
+	@Test
+	public void testStridesArePowersOfTwoAndNonDecreasing() {
+		final StreamingConstantQTransform cqt = new StreamingConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE, 64);
+		int previous = 1;
+		for (int octave = 0; octave < cqt.getNumOctaves(); octave++) {
+			final int stride = cqt.getStride(octave);
+			assertEquals(0, stride & (stride - 1));
+			assertTrue(stride >= previous);
+			previous = stride;
+		}
+		// Die tiefste Oktave ändert sich langsamer als die oberste
+		assertTrue(cqt.getStride(cqt.getNumOctaves() - 1) > cqt.getStride(0));
+	}
+
+	@Test
+	public void testColumnsAreEmittedEveryHop() {
+		final int hopSize = 100;
+		final StreamingConstantQTransform cqt = new StreamingConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE, hopSize);
+		final long latency = cqt.getLatency();
+		for (long i = 1; i < latency; i++) {
+			assertFalse(cqt.put(0f));
+		}
+		assertTrue(cqt.put(0f));
+		assertEquals(1, cqt.getNumColumns());
+		for (int column = 1; column < 5; column++) {
+			for (int i = 1; i < hopSize; i++) {
+				assertFalse(cqt.put(0f));
+			}
+			assertTrue(cqt.put(0f));
+			assertEquals(column + 1, cqt.getNumColumns());
+		}
+	}
+
+	@Test
+	public void testAgainstMultiResolutionTransform() {
+		final int hopSize = 256;
+		final StreamingConstantQTransform cqt = new StreamingConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE, hopSize);
+		final MultiResolutionConstantQTransform batch = new MultiResolutionConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE);
+		assertEquals(batch.getSpectrumSize(), cqt.getSpectrumSize());
+
+		final float[] signal = createSignal(4 * batch.getMaxSize());
+		final int size = cqt.getSpectrumSize();
+		final float[] frame = new float[batch.getMaxSize()];
+		final float[] streamRe = new float[size];
+		final float[] streamIm = new float[size];
+		final float[] batchRe = new float[size];
+		final float[] batchIm = new float[size];
+		// In diesen Spalten werden alle Oktaven neu berechnet
+		final int maxStride = cqt.getStride(cqt.getNumOctaves() - 1);
+
+		int numCompared = 0;
+		for (int i = 0; i < signal.length; i++) {
+			if (!cqt.put(signal[i])) {
+				continue;
+			}
+			final long column = cqt.getNumColumns() - 1;
+			final int begin = (int) column * hopSize;
+			if (column % maxStride != 0 || begin + frame.length > signal.length) {
+				continue;
+			}
+
+			System.arraycopy(signal, begin, frame, 0, frame.length);
+			batch.forward(frame);
+			batch.copyReal(batchRe);
+			batch.copyImaginary(batchIm);
+			cqt.copyReal(streamRe);
+			cqt.copyImaginary(streamIm);
+			// Unterschiede nur an den Fensterrändern, wo der Strom anders als
+			// der einzelne Frame nicht mit Nullen aufgefüllt ist
+			assertArrayEquals(batchRe, streamRe, COMPARISON_DELTA);
+			assertArrayEquals(batchIm, streamIm, COMPARISON_DELTA);
+			numCompared++;
+		}
+		assertTrue(numCompared > 10);
+	}
+
+	@Test
+	public void testResetRestartsStream() {
+		final StreamingConstantQTransform cqt = new StreamingConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE, 512);
+		final float[] signal = createSignal((int) cqt.getLatency());
+		final int size = cqt.getSpectrumSize();
+
+		for (final float sample : signal) {
+			cqt.put(sample);
+		}
+		final float[] expected = new float[size];
+		cqt.fillMagnitudeSpectrum(expected);
+
+		for (int i = 0; i < 1000; i++) {
+			cqt.put(1f);
+		}
+		cqt.reset();
+		assertEquals(0, cqt.getNumColumns());
+		for (final float sample : signal) {
+			cqt.put(sample);
+		}
+		final float[] actual = new float[size];
+		cqt.fillMagnitudeSpectrum(actual);
+		assertEquals(1, cqt.getNumColumns());
+		assertArrayEquals(expected, actual, 0f);
+	}
+
+	private static float[] createSignal(final int length) {
+		final Random random = new Random(42);
+		final float[] signal = new float[length];
+		for (int i = 0; i < length; i++) {
+			final double t = i / SAMPLE_RATE;
+			signal[i] = (float) (Math.sin(2 * Math.PI * 440 * t) + 0.5
+					* Math.sin(2 * Math.PI * 70 * t) + 0.1 * random
+					.nextGaussian());
+		}
+		return signal;
+	}
+}
@@ -81,6 +81,32 @@ public final class WindowFunctionsTest {
 		testEverywhereDefined(WindowFunctions.getBlackmanWindow());
 	}
 
+	@Test
+	public void testGetTable() {
+		final int size = 64;
+		for (final WindowType type : WindowType.values()) {
+			final float[] table = WindowFunctions.getTable(type, size);
+			assertEquals(size, table.length);
+			for (int i = 0; i < size; i++) {
+				final double t = ((double) i / (double) size) - 0.5;
+				assertEquals(type.getFunction().evaluate(t), table[i], 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testGetTableIsCached() {
+		assertSame(WindowFunctions.getTable(WindowType.HANN, 128),
+				WindowFunctions.getTable(WindowType.HANN, 128));
+		assertNotSame(WindowFunctions.getTable(WindowType.HANN, 128),
+				WindowFunctions.getTable(WindowType.HAMMING, 128));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetTableChecksSize() {
+		WindowFunctions.getTable(WindowType.HANN, 0);
+	}
+
 	private void testSymmetry(final @NonNull IWindowFunction wf) {
 		final int numPoints = 100;
 		for (int i = 0; i < numPoints; i++) {
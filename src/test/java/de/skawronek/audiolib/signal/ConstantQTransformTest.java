@@ -0,0 +1,89 @@
+package de.skawronek.audiolib.signal;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.MultiResolutionConstantQTransform;
+
+public final class ConstantQTransformTest {
+	private static final float COMPARISON_DELTA = 0.01f;
+
+	private static final double SAMPLE_RATE = 11025;
+	private static final double MIN_FREQ = 65.4064;
+	private static final double MAX_FREQ = 523.251;
+	private static final int BINS_PER_OCTAVE = 12;
+
+	private final Random random = new Random(12345);
+
+	@BeforeClass
+	public static void registerProcessor() {
+		ConstantQTransform.register();
+	}
+
+	@Test
+	public void testMultiResolutionKey() {
+		final ConstantQTransform.Key key = ConstantQTransform
+				.getMultiResolutionKey(MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE);
+		assertTrue(key.isMultiResolution());
+		assertEquals(key, ConstantQTransform.getMultiResolutionKey(MIN_FREQ,
+				MAX_FREQ, BINS_PER_OCTAVE));
+		assertEquals(key.hashCode(), ConstantQTransform
+				.getMultiResolutionKey(MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE)
+				.hashCode());
+
+		final ConstantQTransform.Key single = ConstantQTransform.getKey(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE);
+		assertFalse(single.isMultiResolution());
+		assertNotEquals(key, single);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiResolutionKeyChecksFrequencies() {
+		ConstantQTransform.getMultiResolutionKey(MAX_FREQ, MIN_FREQ,
+				BINS_PER_OCTAVE);
+	}
+
+	@Test
+	public void testMultiResolutionFeatureMatchesTransform() {
+		final float[] samples = TestUtil.generateRandomSound(random, 2048, 5,
+				0.1f, 0.3f);
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, samples);
+		final ConstantQTransform feature = frame
+				.getFeature(ConstantQTransform.getMultiResolutionKey(MIN_FREQ,
+						MAX_FREQ, BINS_PER_OCTAVE));
+
+		final MultiResolutionConstantQTransform cqt = new MultiResolutionConstantQTransform(
+				MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE, SAMPLE_RATE);
+		cqt.forward(samples);
+		final float[] expectedRe = new float[cqt.getSpectrumSize()];
+		final float[] expectedIm = new float[cqt.getSpectrumSize()];
+		cqt.copyReal(expectedRe);
+		cqt.copyImaginary(expectedIm);
+		assertArrayEquals(expectedRe, feature.getReal(), 0f);
+		assertArrayEquals(expectedIm, feature.getImaginary(), 0f);
+	}
+
+	@Test
+	public void testMultiResolutionFeatureMatchesSingleResolution() {
+		final float[] samples = TestUtil.generateRandomSound(random, 2048, 5,
+				0.1f, 0.3f);
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, samples);
+		final ConstantQTransform single = frame.getFeature(ConstantQTransform
+				.getKey(MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE));
+		final ConstantQTransform multi = frame.getFeature(ConstantQTransform
+				.getMultiResolutionKey(MIN_FREQ, MAX_FREQ, BINS_PER_OCTAVE));
+		assertNotSame(single, multi);
+
+		final float[] expected = single.getMagnitudeSpectrum();
+		final float[] actual = multi.getMagnitudeSpectrum();
+		assertEquals(expected.length, actual.length);
+		assertEquals(0.0, TestUtil.computeRMSE(expected, actual),
+				COMPARISON_DELTA);
+	}
+}
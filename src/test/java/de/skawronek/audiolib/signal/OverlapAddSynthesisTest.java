@@ -0,0 +1,130 @@
+package de.skawronek.audiolib.signal;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.FastFourierTransform;
+import de.skawronek.audiolib.math.WindowFunctions;
+import de.skawronek.audiolib.math.WindowType;
+
+public final class OverlapAddSynthesisTest {
+	private static final float COMPARISON_DELTA = 0.0001f;
+
+	private final Random random = new Random(12345);
+
+	@BeforeClass
+	public static void registerProcessor() {
+		ShortTimeFourierTransform.register();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksHopSize() {
+		new OverlapAddSynthesis(64, 0, WindowType.HANN, 1, (s, o, l) -> {
+		});
+	}
+
+	@Test
+	public void testPerfectReconstruction() {
+		// Hop-Sizes, die die Frame-Größe teilen, und solche, die es nicht tun
+		testPerfectReconstruction(64, 16, WindowType.HANN, 1);
+		testPerfectReconstruction(64, 48, WindowType.HANN, 1);
+		testPerfectReconstruction(64, 64, WindowType.RECTANGULAR, 1);
+		testPerfectReconstruction(100, 30, WindowType.HAMMING, 1);
+		testPerfectReconstruction(64, 20, WindowType.BLACKMAN, 2);
+	}
+
+	private void testPerfectReconstruction(final int size, final int hop,
+			final WindowType windowType, final int paddingFactor) {
+		final int numFrames = 40;
+		final int length = (numFrames - 1) * hop + size;
+		final float[] signal = TestUtil.generateRandomWindow(random, length);
+
+		final float[] output = new float[length];
+		final int[] numOutput = { 0 };
+		final OverlapAddSynthesis synthesis = new OverlapAddSynthesis(size,
+				hop, windowType, paddingFactor, (samples, offset, len) -> {
+					System.arraycopy(samples, offset, output, numOutput[0],
+							len);
+					numOutput[0] += len;
+				});
+
+		final int fftSize = size * paddingFactor;
+		final FastFourierTransform fft = FastFourierTransform.Factory
+				.getInstance().get(fftSize);
+		final float[] window = WindowFunctions.getTable(windowType, size);
+		final float[] buffer = new float[fftSize];
+		final float[] re = new float[fft.getNumRealBins()];
+		final float[] im = new float[fft.getNumRealBins()];
+		for (int m = 0; m < numFrames; m++) {
+			for (int i = 0; i < size; i++) {
+				buffer[i] = signal[m * hop + i] * window[i];
+			}
+			fft.forwardReal(buffer, re, im);
+			synthesis.add(re, im);
+			assertEquals((m + 1) * hop, numOutput[0]);
+		}
+		synthesis.flush();
+		assertEquals(length, numOutput[0]);
+
+		// Am Rand verschwindet die Fenstersumme z. B. beim Hann-Fenster
+		for (int n = size; n < length - size; n++) {
+			assertEquals(signal[n], output[n], COMPARISON_DELTA);
+		}
+	}
+
+	@Test
+	public void testRoundTripThroughFeature() {
+		testRoundTripThroughFeature(new FrameSpecification(64, 16),
+				WindowType.HANN, 1);
+		testRoundTripThroughFeature(new FrameSpecification(100, 30),
+				WindowType.HAMMING, 1);
+		testRoundTripThroughFeature(new FrameSpecification(64, 20),
+				WindowType.BLACKMAN, 2);
+	}
+
+	// Analyse über das ShortTimeFourierTransform-Feature der Frames, Synthese
+	// über OverlapAddSynthesis
+	private void testRoundTripThroughFeature(
+			final FrameSpecification spec, final WindowType windowType,
+			final int paddingFactor) {
+		final int size = spec.getSize();
+		final int hop = spec.getHopSize();
+		final int numFrames = 40;
+		final int length = (numFrames - 1) * hop + size;
+		final float[] signal = TestUtil.generateRandomWindow(random, length);
+
+		final ShortTimeFourierTransform.Key key = ShortTimeFourierTransform
+				.getKey(windowType, paddingFactor);
+		final float[] output = new float[length];
+		final int[] numOutput = { 0 };
+		final OverlapAddSynthesis synthesis = new OverlapAddSynthesis(spec,
+				key, (samples, offset, len) -> {
+					System.arraycopy(samples, offset, output, numOutput[0],
+							len);
+					numOutput[0] += len;
+				});
+
+		for (int m = 0; m < numFrames; m++) {
+			final Frame frame = Frame.createMonoFrame(m * hop, 44100,
+					Arrays.copyOfRange(signal, m * hop, m * hop + size));
+			final ShortTimeFourierTransform stft = frame.getFeature(key);
+			assertEquals(size * paddingFactor, stft.getFftSize());
+			assertEquals(size * paddingFactor / 2 + 1, stft.getNumBins());
+			synthesis.add(stft);
+		}
+		synthesis.flush();
+		assertEquals(length, numOutput[0]);
+
+		for (int n = size; n < length - size; n++) {
+			assertEquals(signal[n], output[n], COMPARISON_DELTA);
+		}
+	}
+}
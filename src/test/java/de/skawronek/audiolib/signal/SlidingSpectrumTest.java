@@ -0,0 +1,240 @@
+package de.skawronek.audiolib.signal;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.StreamAudioSource;
+import de.skawronek.audiolib.TestUtil;
+
+public final class SlidingSpectrumTest {
+	private static final float COMPARISON_DELTA = 0.001f;
+	private static final double SAMPLE_RATE = 44100;
+
+	private static final int SIZE = 64;
+	private static final int HOP_SIZE = 16;
+	private static final int FROM_BIN = 3;
+	private static final int TO_BIN = 10;
+
+	private final Random random = new Random(12345);
+
+	@BeforeClass
+	public static void registerProcessor() {
+		SlidingSpectrum.register();
+	}
+
+	@Test
+	public void testFramesOfSourceMatchDirectDft() {
+		final float[] signal = TestUtil.generateRandomWindow(random, 1000);
+		final List<Frame> frames = new ArrayList<>();
+		final StreamAudioSource source = createSource(frames);
+		source.addStreamFeature(createTracker());
+		source.start();
+		source.put(signal, 0, signal.length);
+		source.process();
+
+		assertEquals((1000 - SIZE) / HOP_SIZE + 1, frames.size());
+		for (final Frame frame : frames) {
+			assertMatchesDirectDft(frame.getFeature(createKey()), signal, 0,
+					frame.getBegin());
+		}
+	}
+
+	@Test
+	public void testSourcesWithEqualKeysAreIndependent() {
+		final float[] first = TestUtil.generateRandomWindow(random,
+				20 * HOP_SIZE);
+		final float[] second = TestUtil.generateRandomWindow(random,
+				20 * HOP_SIZE);
+		final List<Frame> firstFrames = new ArrayList<>();
+		final List<Frame> secondFrames = new ArrayList<>();
+		final StreamAudioSource firstSource = createSource(firstFrames);
+		final StreamAudioSource secondSource = createSource(secondFrames);
+		firstSource.addStreamFeature(createTracker());
+		secondSource.addStreamFeature(createTracker());
+		firstSource.start();
+		secondSource.start();
+		// Verschränkt, damit beide Tracker gleichzeitig aktiv sind
+		for (int i = 0; i < first.length; i += HOP_SIZE) {
+			firstSource.put(first, i, HOP_SIZE);
+			secondSource.put(second, i, HOP_SIZE);
+			firstSource.process();
+			secondSource.process();
+		}
+
+		assertFalse(firstFrames.isEmpty());
+		assertEquals(firstFrames.size(), secondFrames.size());
+		for (int i = 0; i < firstFrames.size(); i++) {
+			final Frame a = firstFrames.get(i);
+			final Frame b = secondFrames.get(i);
+			assertMatchesDirectDft(a.getFeature(createKey()), first, 0,
+					a.getBegin());
+			assertMatchesDirectDft(b.getFeature(createKey()), second, 0,
+					b.getBegin());
+		}
+	}
+
+	@Test
+	public void testStreamNotStartingAtZero() {
+		// Der Strom beginnt bei Index 40, der erste vollständige Frame auf
+		// einem Vielfachen der Hop-Size bei 48
+		final long firstIndex = 40;
+		final float[] signal = TestUtil.generateRandomWindow(random, 300);
+		final SlidingSpectrum.Tracker tracker = createTracker();
+		feed(tracker, signal, firstIndex, 0, signal.length);
+
+		assertNull(tracker.takeFeature(32, SIZE));
+		final long end = firstIndex + signal.length;
+		for (long begin = 48; begin + SIZE <= end; begin += HOP_SIZE) {
+			assertMatchesDirectDft(tracker.takeFeature(begin, SIZE), signal,
+					firstIndex, begin);
+		}
+	}
+
+	@Test
+	public void testRestartsAfterIndexGap() {
+		final float[] signal = TestUtil.generateRandomWindow(random, 400);
+		final SlidingSpectrum.Tracker tracker = createTracker();
+		feed(tracker, signal, 0, 0, 100);
+		// Seek: Index springt von 99 auf 200
+		feed(tracker, signal, 0, 200, 200);
+
+		for (long begin = 208; begin + SIZE <= 400; begin += HOP_SIZE) {
+			assertMatchesDirectDft(tracker.takeFeature(begin, SIZE), signal,
+					0, begin);
+		}
+	}
+
+	@Test
+	public void testOldestPendingSpectrumIsDiscarded() {
+		final int numFrames = SlidingSpectrum.Tracker.MAX_PENDING + 2;
+		final float[] signal = TestUtil.generateRandomWindow(random,
+				(numFrames - 1) * HOP_SIZE + SIZE);
+		final SlidingSpectrum.Tracker tracker = createTracker();
+		feed(tracker, signal, 0, 0, signal.length);
+
+		assertNull(tracker.takeFeature(0, SIZE));
+		// Die jüngsten Spektren sind weiterhin verfügbar
+		final long last = (numFrames - 1) * HOP_SIZE;
+		assertMatchesDirectDft(tracker.takeFeature(last, SIZE), signal, 0,
+				last);
+		// Ein Spektrum wird nur einmal abgegeben
+		assertNull(tracker.takeFeature(last, SIZE));
+	}
+
+	@Test
+	public void testTrackerChecksFrameSize() {
+		final float[] signal = TestUtil.generateRandomWindow(random, SIZE);
+		final SlidingSpectrum.Tracker tracker = createTracker();
+		feed(tracker, signal, 0, 0, signal.length);
+		assertNull(tracker.takeFeature(0, SIZE / 2));
+		assertNotNull(tracker.takeFeature(0, SIZE));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFrameWithoutSourceThrows() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				new float[SIZE]);
+		frame.getFeature(createKey());
+	}
+
+	@Test
+	public void testKey() throws IOException, ClassNotFoundException {
+		final SlidingSpectrum.Key key = createTracker().getKey();
+		assertEquals(SIZE, key.getSize());
+		assertEquals(HOP_SIZE, key.getHopSize());
+		assertEquals(FROM_BIN, key.getFromBin());
+		assertEquals(TO_BIN, key.getToBin());
+		assertEquals(1.0, key.getDamping(), 0.0);
+		assertEquals(SIZE, key.getResyncInterval());
+
+		// Gleiche Parameter, anderer Tracker
+		assertEquals(key, createTracker().getKey());
+		assertEquals(key.hashCode(), createTracker().getKey().hashCode());
+		assertEquals(key, createKey());
+		assertNotEquals(key, SlidingSpectrum.getKey(new FrameSpecification(
+				SIZE, HOP_SIZE), FROM_BIN, TO_BIN + 1));
+		assertNotEquals(key, SlidingSpectrum.getKey(new FrameSpecification(
+				SIZE, HOP_SIZE), FROM_BIN, TO_BIN, 0.99, SIZE));
+
+		// Serialisiert bleibt der Key gleich
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(key);
+		}
+		try (final ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertEquals(key, in.readObject());
+		}
+	}
+
+	private static SlidingSpectrum.Key createKey() {
+		return SlidingSpectrum.getKey(new FrameSpecification(SIZE, HOP_SIZE),
+				FROM_BIN, TO_BIN);
+	}
+
+	private static StreamAudioSource createSource(final List<Frame> frames) {
+		final StreamAudioSource source = new StreamAudioSource("test",
+				SAMPLE_RATE);
+		source.addListener(frames::add, new FrameSpecification(SIZE,
+				HOP_SIZE));
+		return source;
+	}
+
+	private static SlidingSpectrum.Tracker createTracker() {
+		return new SlidingSpectrum.Tracker(new FrameSpecification(SIZE,
+				HOP_SIZE), FROM_BIN, TO_BIN);
+	}
+
+	// Übergibt signal[offset..offset+length) mit den Indizes firstIndex +
+	// offset usw.
+	private static void feed(final SlidingSpectrum.Tracker tracker,
+			final float[] signal, final long firstIndex, final int offset,
+			final int length) {
+		for (int i = offset; i < offset + length; i++) {
+			tracker.onSampleAvailable(firstIndex + i, signal[i]);
+		}
+	}
+
+	// Vergleicht das Spektrum des Frames ab Index begin mit einer direkten
+	// DFT, signal[0] hat den Index firstIndex
+	private static void assertMatchesDirectDft(
+			final SlidingSpectrum spectrum, final float[] signal,
+			final long firstIndex, final long begin) {
+		assertNotNull(spectrum);
+		final int offset = (int) (begin - firstIndex);
+		final float[] samples = Arrays.copyOfRange(signal, offset, offset
+				+ SIZE);
+		assertEquals(FROM_BIN, spectrum.getFromBin());
+		assertEquals(TO_BIN, spectrum.getToBin());
+
+		for (int k = FROM_BIN; k < TO_BIN; k++) {
+			double re = 0;
+			double im = 0;
+			for (int n = 0; n < SIZE; n++) {
+				final double rad = -2 * Math.PI * k * n / SIZE;
+				re += samples[n] * Math.cos(rad);
+				im += samples[n] * Math.sin(rad);
+			}
+			assertEquals(re, spectrum.getReal()[k - FROM_BIN],
+					COMPARISON_DELTA);
+			assertEquals(im, spectrum.getImaginary()[k - FROM_BIN],
+					COMPARISON_DELTA);
+			assertEquals(Math.hypot(re, im),
+					spectrum.getMagnitudes()[k - FROM_BIN], COMPARISON_DELTA);
+		}
+	}
+}
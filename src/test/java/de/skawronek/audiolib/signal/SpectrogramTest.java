@@ -0,0 +1,122 @@
+package de.skawronek.audiolib.signal;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public final class SpectrogramTest {
+	private static final float COMPARISON_DELTA = 0.000001f;
+
+	private static final int CAPACITY = 3;
+	private static final int NUM_BINS = 4;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksCapacity() {
+		new Spectrogram(0, NUM_BINS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorChecksNumBins() {
+		new Spectrogram(CAPACITY, 0);
+	}
+
+	@Test
+	public void testColumnAccess() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		assertTrue(spectrogram.isEmpty());
+		for (int c = 0; c < 5; c++) {
+			spectrogram.add(createColumn(c));
+		}
+		assertEquals(5, spectrogram.getCount());
+		assertEquals(CAPACITY, spectrogram.getSize());
+		assertEquals(4, spectrogram.getLastColumn());
+
+		final float[] values = spectrogram.getValues();
+		for (int c = 2; c < 5; c++) {
+			final int offset = spectrogram.getOffset(c);
+			for (int k = 0; k < NUM_BINS; k++) {
+				assertEquals(10 * c + k, values[offset + k], COMPARISON_DELTA);
+				assertEquals(10 * c + k, spectrogram.get(c, k),
+						COMPARISON_DELTA);
+			}
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testGetOffsetChecksOverwrittenColumn() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		for (int c = 0; c < 4; c++) {
+			spectrogram.add(createColumn(c));
+		}
+		spectrogram.getOffset(0);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testGetOffsetChecksMissingColumn() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		spectrogram.add(createColumn(0));
+		spectrogram.getOffset(1);
+	}
+
+	@Test
+	public void testCopyColumnsWrapsAround() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		for (int c = 0; c < 5; c++) {
+			spectrogram.add(createColumn(c));
+		}
+		final float[] buffer = new float[CAPACITY * NUM_BINS];
+		spectrogram.copyColumns(2, CAPACITY, buffer);
+		for (int i = 0; i < CAPACITY; i++) {
+			for (int k = 0; k < NUM_BINS; k++) {
+				assertEquals(10 * (2 + i) + k, buffer[i * NUM_BINS + k],
+						COMPARISON_DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testCopyBin() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		for (int c = 0; c < 5; c++) {
+			spectrogram.add(createColumn(c));
+		}
+		final float[] buffer = new float[CAPACITY];
+		spectrogram.copyBin(1, 2, CAPACITY, buffer);
+		assertArrayEquals(new float[] { 21, 31, 41 }, buffer,
+				COMPARISON_DELTA);
+	}
+
+	@Test
+	public void testComplex() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS,
+				true);
+		assertTrue(spectrogram.isComplex());
+		spectrogram.add(createColumn(1), createColumn(2));
+		assertEquals(11, spectrogram.get(0, 1), COMPARISON_DELTA);
+		assertEquals(21, spectrogram.getImaginary(0, 1), COMPARISON_DELTA);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddMagnitudesChecksComplex() {
+		new Spectrogram(CAPACITY, NUM_BINS, true).add(createColumn(0));
+	}
+
+	@Test
+	public void testClear() {
+		final Spectrogram spectrogram = new Spectrogram(CAPACITY, NUM_BINS);
+		spectrogram.add(createColumn(0));
+		spectrogram.clear();
+		assertTrue(spectrogram.isEmpty());
+		assertEquals(0, spectrogram.getCount());
+	}
+
+	private static float[] createColumn(final int column) {
+		final float[] values = new float[NUM_BINS];
+		for (int k = 0; k < NUM_BINS; k++) {
+			values[k] = 10 * column + k;
+		}
+		return values;
+	}
+}
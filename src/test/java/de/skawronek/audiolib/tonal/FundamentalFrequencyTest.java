@@ -0,0 +1,180 @@
+package de.skawronek.audiolib.tonal;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.signal.Autocorrelation;
+
+public final class FundamentalFrequencyTest {
+	private static final double SAMPLE_RATE = 8000;
+	private static final int SIZE = 2048;
+
+	@BeforeClass
+	public static void registerProcessors() {
+		FundamentalFrequency.register();
+		Autocorrelation.register();
+	}
+
+	@Test
+	public void testAutocorrelationSearchIsLagLimited() {
+		// Sinus mit 400 Hz (Periode 20) und starke Impulse mit 40 Hz
+		// (Periode 200). Über alle Lags hat die Autokorrelation ihr Maximum
+		// bei 200, bis zur Periode von C2 (123 Lags) bei 20.
+		final float[] samples = new float[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * i / 20));
+			if (i % 200 == 0) {
+				samples[i] += 3f;
+			}
+		}
+
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, samples);
+		final FundamentalFrequency limited = frame
+				.getFeature(FundamentalFrequency
+						.getLagLimitedAutocorrelationKey(65.4064, 2093.00));
+		assertEquals(400.0, limited.getFrequency(), 1e-9);
+
+		// Der Standard-Key durchsucht alle Lags
+		final FundamentalFrequency unlimited = frame
+				.getFeature(FundamentalFrequency
+						.getKey(FundamentalFrequency.Method.AUTOCORRELATION));
+		assertEquals(40.0, unlimited.getFrequency(), 1e-9);
+	}
+
+	@Test
+	public void testAutocorrelationOfTone() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				createTone(200, SIZE));
+		final FundamentalFrequency f0 = frame.getFeature(FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.AUTOCORRELATION));
+		assertEquals(200.0, f0.getFrequency(), 1e-9);
+		final FundamentalFrequency limited = frame
+				.getFeature(FundamentalFrequency
+						.getLagLimitedAutocorrelationKey(65.4064, 2093.00));
+		assertEquals(200.0, limited.getFrequency(), 1e-9);
+	}
+
+	@Test
+	public void testAutocorrelationKeys() {
+		final FundamentalFrequency.Key key = FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.AUTOCORRELATION);
+		// Ohne begrenzte Lags zählt nur maxFreq (C7)
+		final FundamentalFrequency.Key unlimited = FundamentalFrequency
+				.getAutocorrelationKey(2093.00);
+		assertEquals(key, unlimited);
+		assertEquals(key.hashCode(), unlimited.hashCode());
+
+		final FundamentalFrequency.Key limited = FundamentalFrequency
+				.getLagLimitedAutocorrelationKey(65.4064, 2093.00);
+		assertNotEquals(key, limited);
+		assertNotEquals(limited, key);
+		assertNotEquals(key.hashCode(), limited.hashCode());
+		assertEquals(limited, FundamentalFrequency
+				.getLagLimitedAutocorrelationKey(65.4064, 2093.00));
+		assertEquals(limited.hashCode(), FundamentalFrequency
+				.getLagLimitedAutocorrelationKey(65.4064, 2093.00).hashCode());
+		assertNotEquals(limited, FundamentalFrequency
+				.getLagLimitedAutocorrelationKey(100, 2093.00));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLagLimitedAutocorrelationKeyChecksMinFreq() {
+		FundamentalFrequency.getLagLimitedAutocorrelationKey(0, 2093.00);
+	}
+
+	@Test
+	public void testYinOfTone() {
+		testDifferenceFunctionOfTone(FundamentalFrequency.Method.YIN);
+	}
+
+	@Test
+	public void testMcLeodOfTone() {
+		testDifferenceFunctionOfTone(FundamentalFrequency.Method.MCLEOD);
+	}
+
+	private static void testDifferenceFunctionOfTone(
+			final FundamentalFrequency.Method method) {
+		// Ganzzahlige und nicht ganzzahlige Periode (40 bzw. 54.3 Samples)
+		for (final double frequency : new double[] { 200, 147.3, 440 }) {
+			final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+					createTone(frequency, SIZE));
+			final FundamentalFrequency f0 = frame
+					.getFeature(FundamentalFrequency.getKey(method));
+			assertEquals(frequency, f0.getFrequency(), 0.005 * frequency);
+		}
+	}
+
+	@Test
+	public void testDifferenceFunctionOfSilence() {
+		// Keine Periode gefunden
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				new float[SIZE]);
+		assertEquals(0.0, frame.getFeature(FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.YIN)).getFrequency(), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferenceFunctionChecksFrameSize() {
+		// Die Periode von maxFreq (C7) muss mindestens zweimal in den Frame
+		// passen
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				createTone(440, 4));
+		frame.getFeature(FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.MCLEOD));
+	}
+
+	@Test
+	public void testDifferenceFunctionKeys() {
+		final FundamentalFrequency.Key yin = FundamentalFrequency.getYinKey(
+				65.4064, 2093.00, 0.1);
+		assertEquals(FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.YIN), yin);
+		assertEquals(FundamentalFrequency.getKey(
+				FundamentalFrequency.Method.YIN).hashCode(), yin.hashCode());
+		assertNotEquals(yin,
+				FundamentalFrequency.getYinKey(65.4064, 2093.00, 0.15));
+		assertNotEquals(yin,
+				FundamentalFrequency.getYinKey(100, 2093.00, 0.1));
+		assertNotEquals(yin,
+				FundamentalFrequency.getYinKey(65.4064, 1000, 0.1));
+		// Gleiche Parameter, andere Methode
+		assertNotEquals(yin,
+				FundamentalFrequency.getMcLeodKey(65.4064, 2093.00, 0.1));
+
+		final FundamentalFrequency.Key mcLeod = FundamentalFrequency
+				.getMcLeodKey(65.4064, 2093.00, 0.93);
+		assertEquals(FundamentalFrequency
+				.getKey(FundamentalFrequency.Method.MCLEOD), mcLeod);
+		assertNotEquals(mcLeod,
+				FundamentalFrequency.getMcLeodKey(65.4064, 2093.00, 0.9));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testYinKeyChecksMinFreq() {
+		FundamentalFrequency.getYinKey(0, 2093.00, 0.1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testYinKeyChecksFrequencyOrder() {
+		FundamentalFrequency.getYinKey(2093.00, 65.4064, 0.1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMcLeodKeyChecksCutoff() {
+		FundamentalFrequency.getMcLeodKey(65.4064, 2093.00, 0);
+	}
+
+	// Sinus mit Obertönen, damit die Grundfrequenz nicht trivial ist
+	private static float[] createTone(final double frequency, final int size) {
+		final float[] samples = new float[size];
+		for (int i = 0; i < size; i++) {
+			final double phase = 2 * Math.PI * frequency * i / SAMPLE_RATE;
+			samples[i] = (float) (0.6 * Math.sin(phase) + 0.3
+					* Math.sin(2 * phase) + 0.1 * Math.sin(3 * phase));
+		}
+		return samples;
+	}
+}
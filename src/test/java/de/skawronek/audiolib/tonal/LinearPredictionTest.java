@@ -0,0 +1,206 @@
+package de.skawronek.audiolib.tonal;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.LinearPredictor;
+import de.skawronek.audiolib.signal.Autocorrelation;
+
+public final class LinearPredictionTest {
+	private static final float COMPARISON_DELTA = 0.0001f;
+	private static final double SAMPLE_RATE = 44100;
+	private static final int SIZE = 1024;
+	private static final int ORDER = 12;
+
+	private final Random random = new Random(12345);
+
+	@Before
+	public void setUp() {
+		LinearPrediction.register();
+		LinearPredictionCepstrum.register();
+		LinearPredictionEnvelope.register();
+		Tonalness.register();
+		Autocorrelation.register();
+	}
+
+	@After
+	public void tearDown() {
+		Autocorrelation.register();
+	}
+
+	@Test
+	public void testCoefficientsMatchPredictor() {
+		final float[] x = createSignal();
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction lpc = frame.getFeature(LinearPrediction
+				.getKey(ORDER));
+
+		final LinearPredictor predictor = new LinearPredictor(ORDER);
+		predictor.computeCoefficients(x);
+		assertEquals(ORDER, lpc.getOrder());
+		assertArrayEquals(predictor.getCoefficients(), lpc.getCoefficients(),
+				COMPARISON_DELTA);
+		assertEquals(1f, lpc.getCoefficients()[0], 0f);
+		assertEquals(ORDER, lpc.getReflectionCoefficients().length);
+
+		float energy = 0f;
+		for (final float sample : x) {
+			energy += sample * sample;
+		}
+		assertEquals(energy, lpc.getEnergy(), energy * 1e-5f);
+		assertTrue(lpc.getPredictionError() > 0f);
+		assertTrue(lpc.getPredictionError() < lpc.getEnergy());
+	}
+
+	@Test
+	public void testWithoutAutocorrelationProcessor() {
+		final float[] x = createSignal();
+		final Frame reference = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction expected = reference
+				.getFeature(LinearPrediction.getKey(ORDER));
+		final float expectedTonalness = reference.getFeature(
+				Tonalness.getKey()).getTonalness();
+
+		FeatureFactory.getInstance().removeProcessor(Autocorrelation.class);
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction lpc = frame.getFeature(LinearPrediction
+				.getKey(ORDER));
+		assertArrayEquals(expected.getCoefficients(), lpc.getCoefficients(),
+				0f);
+		assertEquals(expectedTonalness, frame.getFeature(Tonalness.getKey())
+				.getTonalness(), 0f);
+		assertEquals(5, frame.getFeature(LinearPredictionCepstrum.getKey(
+				ORDER, 5)).getCoefficients().length);
+		assertEquals(SIZE / 2 + 1, frame.getFeature(LinearPredictionEnvelope
+				.getKey(ORDER)).getEnvelope().length);
+	}
+
+	@Test
+	public void testUsesPrecomputedAutocorrelation() {
+		final float[] x = createSignal();
+		final Frame reference = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction expected = reference
+				.getFeature(LinearPrediction.getKey(ORDER));
+
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		frame.getFeature(Autocorrelation.getKey(false));
+		final LinearPrediction lpc = frame.getFeature(LinearPrediction
+				.getKey(ORDER));
+		// Die volle Autokorrelation wird auf anderem Weg berechnet, daher
+		// nur bis auf Rundungsfehler gleich
+		assertArrayEquals(expected.getCoefficients(), lpc.getCoefficients(),
+				0.001f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testChecksOrder() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				new float[ORDER]);
+		frame.getFeature(LinearPrediction.getKey(ORDER));
+	}
+
+	@Test
+	public void testKeys() {
+		assertEquals(LinearPrediction.getKey(ORDER),
+				LinearPrediction.getKey(ORDER));
+		assertNotEquals(LinearPrediction.getKey(ORDER),
+				LinearPrediction.getKey(ORDER + 1));
+		assertEquals(LinearPredictionCepstrum.getKey(ORDER, 13),
+				LinearPredictionCepstrum.getKey(ORDER, 13));
+		assertNotEquals(LinearPredictionCepstrum.getKey(ORDER, 13),
+				LinearPredictionCepstrum.getKey(ORDER, 14));
+		assertNotEquals(LinearPredictionCepstrum.getKey(ORDER, 13),
+				LinearPredictionCepstrum.getKey(ORDER + 1, 13));
+		assertEquals(LinearPredictionEnvelope.getKey(ORDER),
+				LinearPredictionEnvelope.getKey(ORDER));
+		assertNotEquals(LinearPredictionEnvelope.getKey(ORDER),
+				LinearPredictionEnvelope.getKey(ORDER + 1));
+	}
+
+	@Test
+	public void testCepstrum() {
+		final float[] x = createSignal();
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction lpc = frame.getFeature(LinearPrediction
+				.getKey(ORDER));
+		final float[] c = frame.getFeature(
+				LinearPredictionCepstrum.getKey(ORDER, 20)).getCoefficients();
+		assertEquals(20, c.length);
+		assertEquals(0.5 * Math.log(lpc.getPredictionError()), c[0], 1e-4);
+		// c[1] = -a[1]
+		assertEquals(-lpc.getCoefficients()[1], c[1], COMPARISON_DELTA);
+	}
+
+	@Test
+	public void testEnvelope() {
+		final float[] x = createSignal();
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, x);
+		final LinearPrediction lpc = frame.getFeature(LinearPrediction
+				.getKey(ORDER));
+		final float[] envelope = frame.getFeature(
+				LinearPredictionEnvelope.getKey(ORDER)).getEnvelope();
+		assertEquals(SIZE / 2 + 1, envelope.length);
+
+		// |H(w)| = sqrt(e) / |A(w)| direkt ausgewertet
+		final float[] a = lpc.getCoefficients();
+		for (int k = 0; k <= SIZE / 2; k += 32) {
+			double re = 0;
+			double im = 0;
+			for (int n = 0; n < a.length; n++) {
+				final double rad = -2 * Math.PI * k * n / SIZE;
+				re += a[n] * Math.cos(rad);
+				im += a[n] * Math.sin(rad);
+			}
+			final double expected = Math.sqrt(lpc.getPredictionError())
+					/ Math.hypot(re, im);
+			assertEquals(expected, envelope[k], expected * 1e-3);
+		}
+	}
+
+	@Test
+	public void testTonalness() {
+		final float[] tone = new float[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			tone[i] = (float) Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE);
+		}
+		final float tonal = Frame.createMonoFrame(0, SAMPLE_RATE, tone)
+				.getFeature(Tonalness.getKey()).getTonalness();
+
+		final float[] noise = TestUtil.generateRandomWindow(random, SIZE);
+		final float noisy = Frame.createMonoFrame(0, SAMPLE_RATE, noise)
+				.getFeature(Tonalness.getKey()).getTonalness();
+
+		// Ein Sinus ist nahezu perfekt vorhersagbar, Rauschen kaum
+		assertTrue(tonal >= 0f && tonal < 0.1f);
+		assertTrue(noisy > 0.8f && noisy <= 1f);
+	}
+
+	@Test
+	public void testTonalnessOfShortFrame() {
+		// Ordnung wird auf Frame-Größe - 1 begrenzt
+		final float[] x = TestUtil.generateRandomWindow(random, 16);
+		final float tonalness = Frame.createMonoFrame(0, SAMPLE_RATE, x)
+				.getFeature(Tonalness.getKey()).getTonalness();
+		assertFalse(Float.isNaN(tonalness));
+	}
+
+	// AR(2)-Prozess mit Resonanz, angeregt mit Rauschen
+	private float[] createSignal() {
+		final float[] x = new float[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			final float excitation = TestUtil.random(random, -1f, 1f);
+			final float x1 = (i >= 1 ? x[i - 1] : 0f);
+			final float x2 = (i >= 2 ? x[i - 2] : 0f);
+			x[i] = excitation + 1.6f * x1 - 0.9f * x2;
+		}
+		return x;
+	}
+}
@@ -0,0 +1,91 @@
+package de.skawronek.audiolib.tonal;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.math.MelFilterbank;
+import de.skawronek.audiolib.signal.FastFourierTransform;
+
+public final class LogMelSpectrumTest {
+	private static final float COMPARISON_DELTA = 0.0001f;
+	private static final double SAMPLE_RATE = 44100;
+	private static final int SIZE = 1024;
+
+	private final Random random = new Random(12345);
+
+	@BeforeClass
+	public static void registerProcessors() {
+		LogMelSpectrum.register();
+		FastFourierTransform.register();
+	}
+
+	@Test
+	public void testMatchesFilterbank() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				TestUtil.generateRandomWindow(random, SIZE));
+		final float[] spectrum = frame.getFeature(
+				LogMelSpectrum.getKey(200, 10000, 30)).getSpectrum();
+		assertEquals(30, spectrum.length);
+
+		final FastFourierTransform fft = frame.getFeature(FastFourierTransform
+				.getKey());
+		final float[] expected = new float[30];
+		new MelFilterbank(SIZE, SAMPLE_RATE, 200, 10000, 30)
+				.computeLogEnergies(fft.getReal(), fft.getImaginary(),
+						expected);
+		assertArrayEquals(expected, spectrum, COMPARISON_DELTA);
+	}
+
+	@Test
+	public void testUpToNyquistFrequency() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				TestUtil.generateRandomWindow(random, SIZE));
+		final float[] spectrum = frame.getFeature(
+				LogMelSpectrum.getKey(300, SAMPLE_RATE / 2, 26)).getSpectrum();
+		for (final float energy : spectrum) {
+			assertFalse(Float.isNaN(energy) || Float.isInfinite(energy));
+		}
+	}
+
+	@Test
+	public void testSilence() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				new float[SIZE]);
+		for (final float energy : frame.getFeature(
+				LogMelSpectrum.getDefaultKey()).getSpectrum()) {
+			assertEquals(Float.NEGATIVE_INFINITY, energy, 0f);
+		}
+	}
+
+	@Test
+	public void testKeys() {
+		assertEquals(LogMelSpectrum.getDefaultKey(), LogMelSpectrum.getKey(
+				de.skawronek.audiolib.math.MFCC.DEFAULT_MIN_FREQ,
+				de.skawronek.audiolib.math.MFCC.DEFAULT_MAX_FREQ,
+				de.skawronek.audiolib.math.MFCC.DEFAULT_NUM_FILTERBANKS));
+		assertEquals(LogMelSpectrum.getKey(300, 8000, 26).hashCode(),
+				LogMelSpectrum.getKey(300, 8000, 26).hashCode());
+		assertNotEquals(LogMelSpectrum.getKey(300, 8000, 26),
+				LogMelSpectrum.getKey(300, 8000, 27));
+		assertNotEquals(LogMelSpectrum.getKey(300, 8000, 26),
+				LogMelSpectrum.getKey(200, 8000, 26));
+		assertNotEquals(LogMelSpectrum.getKey(300, 8000, 26),
+				LogMelSpectrum.getKey(300, 9000, 26));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testKeyChecksFrequencyOrder() {
+		LogMelSpectrum.getKey(8000, 300, 26);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testKeyChecksNumFilterbanks() {
+		LogMelSpectrum.getKey(300, 8000, 0);
+	}
+}
@@ -0,0 +1,99 @@
+package de.skawronek.audiolib.tonal;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.signal.FastFourierTransform;
+
+public final class MFCCTest {
+	private static final float COMPARISON_DELTA = 0.0001f;
+	private static final double SAMPLE_RATE = 44100;
+	private static final int SIZE = 1024;
+
+	private final Random random = new Random(12345);
+
+	@Before
+	public void registerProcessors() {
+		MFCC.register();
+		LogMelSpectrum.register();
+		FastFourierTransform.register();
+	}
+
+	@Test
+	public void testMatchesMathMfcc() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				TestUtil.generateRandomWindow(random, SIZE));
+		final float[] coeffs = frame.getFeature(MFCC.getDefaultKey())
+				.getCoefficents();
+
+		final FastFourierTransform fft = frame.getFeature(FastFourierTransform
+				.getKey());
+		final de.skawronek.audiolib.math.MFCC mfcc =
+				de.skawronek.audiolib.math.MFCC.Factory.getInstance().get(
+						SIZE, SAMPLE_RATE);
+		mfcc.compute(fft.getReal(), fft.getImaginary());
+		final float[] expected = new float[coeffs.length];
+		mfcc.copyCoefficients(expected);
+		assertArrayEquals(expected, coeffs, COMPARISON_DELTA);
+	}
+
+	@Test
+	public void testSharesLogMelSpectrum() {
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+				TestUtil.generateRandomWindow(random, SIZE));
+		frame.getFeature(MFCC.getKey(300, 8000, 26, 13));
+		assertTrue(frame.containsFeature(LogMelSpectrum
+				.getKey(300, 8000, 26)));
+		assertFalse(frame.containsFeature(LogMelSpectrum
+				.getKey(300, 8000, 20)));
+	}
+
+	@Test
+	public void testWithoutLogMelSpectrumProcessor() {
+		final float[] samples = TestUtil.generateRandomWindow(random, SIZE);
+		final float[] expected = Frame.createMonoFrame(0, SAMPLE_RATE, samples)
+				.getFeature(MFCC.getDefaultKey()).getCoefficents();
+
+		FeatureFactory.getInstance().removeProcessor(LogMelSpectrum.class);
+		try {
+			final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE,
+					samples);
+			assertArrayEquals(expected, frame.getFeature(
+					MFCC.getDefaultKey()).getCoefficents(), 0f);
+			assertFalse(frame.containsFeature(LogMelSpectrum
+					.getDefaultKey()));
+		} finally {
+			LogMelSpectrum.register();
+		}
+	}
+
+	@Test
+	public void testUsesPrecomputedLogMelSpectrum() {
+		final float[] samples = TestUtil.generateRandomWindow(random, SIZE);
+		final float[] expected = Frame.createMonoFrame(0, SAMPLE_RATE, samples)
+				.getFeature(MFCC.getDefaultKey()).getCoefficents();
+
+		// Ein bereits berechnetes Feature wird auch ohne Prozessor genutzt
+		final Frame frame = Frame.createMonoFrame(0, SAMPLE_RATE, samples);
+		frame.getFeature(LogMelSpectrum.getDefaultKey());
+		FeatureFactory.getInstance().removeProcessor(LogMelSpectrum.class);
+		try {
+			assertArrayEquals(expected, frame.getFeature(
+					MFCC.getDefaultKey()).getCoefficents(), 0f);
+		} finally {
+			LogMelSpectrum.register();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testKeyChecksNumCepstralCoefficients() {
+		MFCC.getKey(300, 8000, 13, 14);
+	}
+}
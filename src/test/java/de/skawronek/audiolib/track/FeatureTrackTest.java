@@ -0,0 +1,236 @@
+package de.skawronek.audiolib.track;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+import de.skawronek.audiolib.Feature;
+import de.skawronek.audiolib.FeatureFactory;
+import de.skawronek.audiolib.FeatureKey;
+import de.skawronek.audiolib.FeatureProcessor;
+import de.skawronek.audiolib.Frame;
+import de.skawronek.audiolib.FrameSpecification;
+import de.skawronek.audiolib.TestUtil;
+import de.skawronek.audiolib.intensity.Intensity;
+import de.skawronek.audiolib.signal.Autocorrelation;
+
+public final class FeatureTrackTest {
+	private static final float COMPARISION_DELTA = 0.00001f;
+	// Autokorrelation ist normalisiert, d. h. Werte in [-1, 1]. Fehler der
+	// Quantisierung ist daher höchstens 2 / 131068.
+	private static final float QUANTIZATION_DELTA = 0.00002f;
+
+	private static final int FRAME_SIZE = 32;
+	private static final int HOP_SIZE = 16;
+	private static final int NUM_FRAMES = 250;
+
+	private final Random random = new Random(12345);
+
+	@Test(expected = IOException.class)
+	public void testOpenRejectsNonTrackFile() throws IOException {
+		final File file = createTempFile();
+		try (final FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[64]);
+		}
+		FeatureTrackReader.open(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWriterRejectsDuplicateColumnName() throws IOException {
+		try (final FeatureTrackWriter writer = new FeatureTrackWriter(
+				createTempFile(), 44100, new FrameSpecification(FRAME_SIZE,
+						HOP_SIZE))) {
+			writer.addScalarColumn("rms", Intensity.getDefaultKey(),
+					i -> (float) i.getIntensity(), ColumnEncoding.FLOAT32);
+			writer.addScalarColumn("rms",
+					Intensity.getKey(Intensity.Method.PEAK_ENVELOPE_MAX),
+					i -> (float) i.getIntensity(), ColumnEncoding.FLOAT32);
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		Intensity.register();
+		Autocorrelation.register();
+		final File file = createTempFile();
+		final FrameSpecification spec = new FrameSpecification(FRAME_SIZE,
+				HOP_SIZE);
+
+		final Frame[] frames = new Frame[NUM_FRAMES];
+		try (final FeatureTrackWriter writer = new FeatureTrackWriter(file,
+				44100, spec, 100)) {
+			writer.addScalarColumn("rms", Intensity.getDefaultKey(),
+					i -> (float) i.getIntensity(), ColumnEncoding.FLOAT32);
+			writer.addVectorColumn("acf", Autocorrelation.getDefaultKey(),
+					FRAME_SIZE, acf -> acf.getCoefficients(),
+					ColumnEncoding.QUANTIZED_16);
+			for (int i = 0; i < NUM_FRAMES; i++) {
+				frames[i] = createFrame(i * HOP_SIZE);
+				writer.onFrameAvailable(frames[i]);
+			}
+		}
+
+		try (final FeatureTrackReader reader = FeatureTrackReader.open(file)) {
+			assertEquals(44100, reader.getSampleRate(), COMPARISION_DELTA);
+			assertEquals(spec, reader.getFrameSpecification());
+			assertEquals(2, reader.getNumColumns());
+			assertEquals("rms", reader.getColumnName(0));
+			assertEquals(FRAME_SIZE, reader.getStride(1));
+			assertEquals(NUM_FRAMES, reader.getNumRows());
+			assertEquals(3, reader.getNumBlocks());
+
+			final FloatBuffer rms = reader.getColumn("rms");
+			final FloatBuffer acf = reader.getColumn("acf");
+			for (int i = 0; i < NUM_FRAMES; i++) {
+				assertEquals(frames[i].getBegin(), reader.getBegin(i));
+				final double expectedRms = frames[i].getFeature(
+						Intensity.getDefaultKey()).getIntensity();
+				assertEquals(expectedRms, rms.get(i), COMPARISION_DELTA);
+				final float[] expectedAcf = frames[i].getFeature(
+						Autocorrelation.getDefaultKey()).getCoefficients();
+				for (int j = 0; j < FRAME_SIZE; j++) {
+					assertEquals(expectedAcf[j], acf.get(i * FRAME_SIZE + j),
+							QUANTIZATION_DELTA);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRangeWithinBlockIsNotCopied() throws IOException {
+		Intensity.register();
+		final File file = createTempFile();
+		final Frame[] frames = new Frame[NUM_FRAMES];
+		try (final FeatureTrackWriter writer = new FeatureTrackWriter(file,
+				44100, new FrameSpecification(FRAME_SIZE, HOP_SIZE), 100)) {
+			writer.addScalarColumn("rms", Intensity.getDefaultKey(),
+					i -> (float) i.getIntensity(), ColumnEncoding.FLOAT32);
+			for (int i = 0; i < NUM_FRAMES; i++) {
+				frames[i] = createFrame(i * HOP_SIZE);
+				writer.write(frames[i]);
+			}
+		}
+
+		try (final FeatureTrackReader reader = FeatureTrackReader.open(file)) {
+			final FloatBuffer range = reader.getColumn("rms", 110, 150);
+			// Eingeblendeter Speicher statt Kopie auf dem Heap
+			assertTrue(range.isDirect());
+			assertEquals(40, range.remaining());
+			for (int i = 0; i < 40; i++) {
+				final double expected = frames[110 + i].getFeature(
+						Intensity.getDefaultKey()).getIntensity();
+				assertEquals(expected, range.get(i), COMPARISION_DELTA);
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testOpenRejectsInvalidEncoding() throws IOException {
+		Intensity.register();
+		final File file = createTempFile();
+		try (final FeatureTrackWriter writer = new FeatureTrackWriter(file,
+				44100, new FrameSpecification(FRAME_SIZE, HOP_SIZE))) {
+			writer.addScalarColumn("rms", Intensity.getDefaultKey(),
+					i -> (float) i.getIntensity(), ColumnEncoding.FLOAT32);
+			writer.write(createFrame(0));
+		}
+
+		// Header: 28 Bytes, Namenslänge, "rms" + 1 Byte Padding, Stride,
+		// Encoding
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(28 + 4 + 4 + 4);
+			raf.write(new byte[] { 42, 0, 0, 0 });
+		}
+		FeatureTrackReader.open(file);
+	}
+
+	@Test
+	public void testQuantizationKeepsNaN() throws IOException {
+		NaNProcessor.register();
+		final File file = createTempFile();
+		final float[][] rows = { { 1f, Float.NaN, -1f },
+				{ Float.POSITIVE_INFINITY, 0.5f, Float.NEGATIVE_INFINITY },
+				{ Float.NaN, Float.NaN, Float.NaN } };
+		try (final FeatureTrackWriter writer = new FeatureTrackWriter(file,
+				44100, new FrameSpecification(FRAME_SIZE, HOP_SIZE))) {
+			writer.addVectorColumn("values", NaNFeature.KEY, 3,
+					f -> f.values, ColumnEncoding.QUANTIZED_16);
+			for (int i = 0; i < rows.length; i++) {
+				final Frame frame = createFrame(i * HOP_SIZE);
+				frame.getFeature(NaNFeature.KEY).values = rows[i];
+				writer.write(frame);
+			}
+		}
+
+		try (final FeatureTrackReader reader = FeatureTrackReader.open(file)) {
+			final FloatBuffer values = reader.getColumn("values");
+			final float[] expected = { 1f, Float.NaN, -1f, 1f, 0.5f, -1f,
+					Float.NaN, Float.NaN, Float.NaN };
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], values.get(i), QUANTIZATION_DELTA);
+			}
+		}
+	}
+
+	// Feature mit frei setzbaren Werten
+	private static final class NaNFeature extends Feature {
+		private static final NaNKey KEY = new NaNKey();
+
+		private float[] values = new float[3];
+	}
+
+	private static final class NaNKey extends FeatureKey<NaNFeature> {
+		@Override
+		public @NonNull Class<NaNFeature> getFeatureClass() {
+			return NaNFeature.class;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof NaNKey;
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	private static final class NaNProcessor extends
+			FeatureProcessor<NaNFeature> {
+		@Override
+		public @NonNull Class<NaNFeature> getFeatureClass() {
+			return NaNFeature.class;
+		}
+
+		@Override
+		public NaNFeature process(final @NonNull Frame frame,
+				final @NonNull FeatureKey<NaNFeature> key) {
+			return new NaNFeature();
+		}
+
+		static void register() {
+			FeatureFactory.getInstance().registerProcessor(new NaNProcessor());
+		}
+	}
+
+	private @NonNull Frame createFrame(final long begin) {
+		final float[] samples = TestUtil.generateRandomWindow(random,
+				FRAME_SIZE);
+		return Frame.createMonoFrame(begin, 44100, samples);
+	}
+
+	private static @NonNull File createTempFile() throws IOException {
+		final File file = File.createTempFile("features", ".track");
+		file.deleteOnExit();
+		return file;
+	}
+}